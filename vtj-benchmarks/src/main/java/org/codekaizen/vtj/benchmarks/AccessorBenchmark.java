@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.codekaizen.vtj.ids.IdentifierAccessors;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.codekaizen.vtj.intervals.VTDiscreteValueInterval;
+import org.codekaizen.vtj.math.VTInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * <p>Compares the cached accessors used for stepping through discrete intervals and reading entity identifiers with
+ * the per-call reflection they replaced. The <code>reflective</code> benchmarks reproduce the previous
+ * implementation.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AccessorBenchmark {
+
+    @Param({ "1000000" })
+    public int intervalSize;
+
+    @Param({ "10000" })
+    public int inserts;
+
+    private VTDiscreteValueInterval<VTInteger> interval;
+    private Method nextMethod;
+    private Object[] entities;
+    private VTUUIDFactory uuidFactory;
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        interval = new VTDiscreteValueInterval<VTInteger>(new VTInteger(1), new VTInteger(intervalSize));
+        nextMethod = VTInteger.class.getMethod("next");
+        uuidFactory = (VTUUIDFactory) FactorySample.UUID.createFactory();
+        entities = new Object[inserts];
+
+        for (int i = 0; i < inserts; i++) {
+            // every other entity already has an identifier assigned
+            entities[i] = (i % 2 == 0) ? new ObjectIdEntity(uuidFactory.nextUuid()) : new IdEntity(null);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     */
+    @Benchmark
+    public void iterateInterval(final Blackhole bh) {
+
+        for (final VTInteger value : interval) {
+            bh.consume(value);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Benchmark
+    public void iterateIntervalReflective(final Blackhole bh) throws Exception {
+        final VTInteger higher = interval.getHigherBound();
+        VTInteger value = interval.getLowerBound();
+
+        while (value.compareTo(higher) <= 0) {
+            bh.consume(value);
+            value = (VTInteger) nextMethod.invoke(value);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     */
+    @Benchmark
+    public void generateIds(final Blackhole bh) {
+
+        for (final Object entity : entities) {
+            Object id = IdentifierAccessors.getIdentifier(entity);
+
+            if (id == null) {
+                id = uuidFactory.nextUuid();
+            }
+
+            bh.consume(id);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Benchmark
+    public void generateIdsReflective(final Blackhole bh) throws Exception {
+
+        for (final Object entity : entities) {
+            Object id = null;
+
+            for (final Method method : entity.getClass().getMethods()) {
+
+                if ("getObjectId".equals(method.getName()) || "getId".equals(method.getName())) {
+                    id = method.invoke(entity);
+                }
+            }
+
+            if (id == null) {
+                id = uuidFactory.nextUuid();
+            }
+
+            bh.consume(id);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     */
+    @Benchmark
+    public void nameBasedIds(final Blackhole bh) {
+
+        for (final Object entity : entities) {
+            bh.consume(uuidFactory.create(VTUUID.class, entity));
+        }
+    }
+
+    /**
+     * Entity with an <code>getObjectId()</code> accessor.
+     */
+    public static final class ObjectIdEntity {
+
+        private final VTUUID objectId;
+
+        ObjectIdEntity(final VTUUID objectId) {
+            this.objectId = objectId;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        public VTUUID getObjectId() {
+            return objectId;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        @Override
+        public String toString() {
+            return String.valueOf(objectId);
+        }
+
+    }
+
+    /**
+     * Entity with an <code>getId()</code> accessor.
+     */
+    public static final class IdEntity {
+
+        private final VTUUID id;
+
+        IdEntity(final VTUUID id) {
+            this.id = id;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        public VTUUID getId() {
+            return id;
+        }
+
+    }
+
+}
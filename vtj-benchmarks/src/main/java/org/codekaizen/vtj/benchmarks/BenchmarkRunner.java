@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * <p>Runs the benchmarks once for each configured number of threads with the allocation profiler enabled, writing
+ * machine readable JSON results to <code>target/jmh</code> so runs can be compared over time.</p>
+ *
+ * <p>Usage: <code>java -Dvtj.bench.threads=1,4,8 -jar target/benchmarks.jar [include regex]</code></p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class BenchmarkRunner {
+
+    /** System property listing the comma separated thread counts to run with. */
+    public static final String THREADS_PROPERTY = "vtj.bench.threads";
+
+    private BenchmarkRunner() {
+        super();  // static methods only
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  args  optional regular expression selecting the benchmarks to run
+     *
+     * @throws  RunnerException  if a benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+        final File outputDir = new File("target/jmh");
+        outputDir.mkdirs();
+
+        for (final int threads : getThreadCounts()) {
+            final ChainedOptionsBuilder options = new OptionsBuilder().include(include).threads(threads)
+                .addProfiler(GCProfiler.class).resultFormat(ResultFormatType.JSON).result(new File(outputDir,
+                        "jmh-result-t" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static Set<Integer> getThreadCounts() {
+        final String defaultCounts = "1,4," + Runtime.getRuntime().availableProcessors();
+        final Set<Integer> counts = new TreeSet<Integer>();
+
+        for (final String value : System.getProperty(THREADS_PROPERTY, defaultCounts).split(",")) {
+            counts.add(Integer.valueOf(value.trim()));
+        }
+
+        return counts;
+    }
+
+}
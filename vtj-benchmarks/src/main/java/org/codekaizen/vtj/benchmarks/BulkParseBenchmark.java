@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.codekaizen.vtj.BulkResult;
+import org.codekaizen.vtj.ValueTypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * <p>Compares parsing a list of strings one at a time with the chunked bulk operations for different executor
+ * sizes.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class BulkParseBenchmark {
+
+    @Param({ "LONG_SERIAL_ID", "UUID", "COMPOSITE" })
+    public FactorySample factory;
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    @Param({ "1", "4" })
+    public int workers;
+
+    private ValueTypeFactory vtFactory;
+    private List<String> inputs;
+    private ExecutorService executor;
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        vtFactory = factory.createFactory();
+        inputs = new ArrayList<String>(size);
+
+        final String canonical = factory.getInput(FactorySample.InputShape.CANONICAL);
+        final String alternate = factory.getInput(FactorySample.InputShape.ALTERNATE);
+        final String invalid = factory.getInput(FactorySample.InputShape.INVALID);
+
+        for (int i = 0; i < size; i++) {
+            // mostly valid input with the occasional bad record
+            inputs.add(i % 100 == 99 ? invalid : (i % 2 == 0 ? canonical : alternate));
+        }
+
+        executor = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  bh  DOCUMENT ME!
+     */
+    @Benchmark
+    public void sequentialLoop(final Blackhole bh) {
+
+        for (final String s : inputs) {
+            bh.consume(vtFactory.tryParse(s));
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public BulkResult<?> parseAll() {
+        return vtFactory.parseAll(inputs, executor);
+    }
+
+}
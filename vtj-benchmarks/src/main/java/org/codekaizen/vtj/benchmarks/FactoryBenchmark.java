@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.ValueTypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * <p>Parse, format and create throughput of every factory for every input shape.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class FactoryBenchmark {
+
+    @Param
+    public FactorySample factory;
+
+    @Param
+    public FactorySample.InputShape shape;
+
+    private ValueTypeFactory vtFactory;
+    private String input;
+    private char[] line;
+    private int start;
+    private int end;
+    private ValueType value;
+    private Class<? extends ValueType<?>> valueTypeClass;
+    private Object[] createArgs;
+
+    /**
+     * Per-thread output buffer for the appending formatter.
+     */
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        private final StringBuilder sb = new StringBuilder(64);
+
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Setup
+    public void setUp() {
+        vtFactory = factory.createFactory();
+        input = factory.getInput(shape);
+        // embed the field in a larger line as read from a file
+        line = ("id,name," + input + ",trailer").toCharArray();
+        start = 8;
+        end = start + input.length();
+        value = vtFactory.tryParse(factory.getInput(FactorySample.InputShape.CANONICAL));
+        valueTypeClass = factory.getValueTypeClass();
+        createArgs = factory.getCreateArgs();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public Object tryParse() {
+        return vtFactory.tryParse(input);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public Object tryParseRange() {
+        return vtFactory.tryParse(line, start, end);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public boolean isParsable() {
+        return vtFactory.isParsable(input);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public String format() {
+        return vtFactory.format(value);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  buffer  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public int formatTo(final Buffer buffer) throws IOException {
+        buffer.sb.setLength(0);
+        vtFactory.formatTo(value, buffer.sb);
+
+        return buffer.sb.length();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public Object create() {
+        return vtFactory.create(valueTypeClass, createArgs);
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.codekaizen.vtj.CompositeVTFactory;
+import org.codekaizen.vtj.ContextHandlingStrategy;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
+import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.ValueTypeFactory;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.enums.VTIsoGender;
+import org.codekaizen.vtj.enums.VTIsoGenderFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTFractionFactory;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTMACAddressFactory;
+
+
+/**
+ * <p>Every value type factory in the library together with sample inputs of each {@link InputShape} and the arguments
+ * used to benchmark creation.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public enum FactorySample {
+
+    /** {@link VTBooleanFactory}. */
+    BOOLEAN(VTBoolean.class, "TRUE", "y", "maybe", Boolean.TRUE) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTBooleanFactory(strategy);
+        }
+    },
+
+    /** {@link VTIsoGenderFactory}. */
+    ISO_GENDER(VTIsoGender.class, "FEMALE", "2", "eunuch", Integer.valueOf(2)) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTIsoGenderFactory(strategy);
+        }
+    },
+
+    /** {@link VTLongSerialIdFactory}. */
+    LONG_SERIAL_ID(VTLongSerialId.class, "sid:1234567", "1234567L", "sid:12x4567", Long.valueOf(1234567L)) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTLongSerialIdFactory(strategy);
+        }
+    },
+
+    /** {@link VTUUIDFactory}, creation generates new time-based UUIDs. */
+    UUID(VTUUID.class, "6ba7b810-9dad-11d1-80b4-00c04fd430c8", "urn:uuid:6ba7b810-9dad-11d1-80b4-00c04fd430c8",
+        "6ba7b810-9dad-11d1-80b4-00c04fd430cx") {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTUUIDFactory(strategy);
+        }
+    },
+
+    /** {@link VTMACAddressFactory}. */
+    MAC_ADDRESS(VTMACAddress.class, "00:06:5b:eb:6e:9e", "00065BEB6E9E", "00:06:5b:eb:6e:zz", Long.valueOf(
+            0x00065beb6e9eL)) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTMACAddressFactory(strategy);
+        }
+    },
+
+    /** {@link VTFractionFactory}. */
+    FRACTION(VTFraction.class, "22/7", " -22 / 7 ", "22/", Integer.valueOf(3)) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            return new VTFractionFactory(strategy);
+        }
+    },
+
+    /** {@link CompositeVTFactory} containing all the other factories. */
+    COMPOSITE(VTLongSerialId.class, "sid:1234567", "1234567", "bogus", Long.valueOf(1234567L)) {
+        @Override
+        ValueTypeFactory<?> newFactory(final ContextHandlingStrategy strategy) {
+            final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+
+            for (final FactorySample sample : values()) {
+
+                if (sample != this) {
+                    factories.add(sample.newFactory(strategy));
+                }
+            }
+
+            return new CompositeVTFactory(factories, strategy);
+        }
+    };
+
+    private final Class<? extends ValueType<?>> valueTypeClass;
+    private final String[] inputs;
+    private final Object[] createArgs;
+
+    private FactorySample(final Class<? extends ValueType<?>> valueTypeClass, final String canonical,
+            final String alternate, final String invalid, final Object... createArgs) {
+        this.valueTypeClass = valueTypeClass;
+        this.inputs = new String[] { canonical, alternate, invalid };
+        this.createArgs = createArgs;
+    }
+
+    /**
+     * Returns a factory configured the same way for every benchmark run.
+     *
+     * @return  the factory
+     */
+    public ValueTypeFactory<?> createFactory() {
+        final ContextHandlingStrategy strategy = new MapContextHandlingStrategy();
+        final ValueTypeFactory<?> factory = newFactory(strategy);
+        final Map<String, Object> context = new HashMap<String, Object>();
+        // avoid probing the network interfaces
+        context.put("org.codekaizen.vtj.ids.VTUUIDFactory.macAddress", "00:11:22:33:44:55");
+        factory.setContext(context);
+
+        return factory;
+    }
+
+    abstract ValueTypeFactory<?> newFactory(ContextHandlingStrategy strategy);
+
+    /**
+     * Returns the class passed to the create methods.
+     *
+     * @return  the value type class
+     */
+    public Class<? extends ValueType<?>> getValueTypeClass() {
+        return valueTypeClass;
+    }
+
+    /**
+     * Returns the sample string of the requested shape.
+     *
+     * @param  shape  the input shape
+     *
+     * @return  the string
+     */
+    public String getInput(final InputShape shape) {
+        return inputs[shape.ordinal()];
+    }
+
+    /**
+     * Returns the arguments passed to the create methods.
+     *
+     * @return  the arguments, empty for factories which generate new values
+     */
+    public Object[] getCreateArgs() {
+        return createArgs.clone();
+    }
+
+    /**
+     * <p>The kinds of strings parsed.</p>
+     */
+    public enum InputShape {
+
+        /** The format produced by the factory itself. */
+        CANONICAL,
+
+        /** Another accepted format such as a prefix, different case or separators. */
+        ALTERNATE,
+
+        /** A nearly valid string which is rejected late in the scan. */
+        INVALID;
+
+    }
+
+}
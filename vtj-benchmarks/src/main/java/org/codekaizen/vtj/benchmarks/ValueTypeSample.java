@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.benchmarks;
+
+import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTIsoGender;
+import org.codekaizen.vtj.geom.VTCoordinate;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.intervals.VTInterval;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTDouble;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.measure.VTMeasure;
+import org.codekaizen.vtj.measure.units.SI;
+import org.codekaizen.vtj.names.VTJavaName;
+import org.codekaizen.vtj.names.VTLdapName;
+import org.codekaizen.vtj.names.VTPersonName;
+import org.codekaizen.vtj.names.VTPhoneNumber;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTURI;
+import org.codekaizen.vtj.text.VTString;
+import org.codekaizen.vtj.time.VTInstant;
+
+
+/**
+ * <p>Every concrete value type in the library together with a way of building sample instances of it. Calling {@link
+ * #create(int)} twice with the same seed returns equal values which, except for enumerations, are distinct objects so
+ * <code>equals</code> cannot short-circuit on identity.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public enum ValueTypeSample {
+
+    /** {@link VTBoolean}. */
+    BOOLEAN {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return (seed & 1) == 0 ? VTBoolean.TRUE : VTBoolean.FALSE;
+        }
+    },
+
+    /** {@link VTIsoGender}. */
+    ISO_GENDER {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return (seed & 1) == 0 ? VTIsoGender.FEMALE : VTIsoGender.MALE;
+        }
+    },
+
+    /** {@link VTLongSerialId}. */
+    LONG_SERIAL_ID {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTLongSerialId(1000000L + seed);
+        }
+    },
+
+    /** {@link VTUUID}. */
+    UUID {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTUUID(0x6ba7b8109dad11d1L + seed, 0x80b400c04fd430c8L);
+        }
+    },
+
+    /** {@link VTMACAddress}. */
+    MAC_ADDRESS {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTMACAddress(0x00065beb6e9eL + seed);
+        }
+    },
+
+    /** {@link VTInteger}. */
+    INTEGER {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTInteger(123456 + seed);
+        }
+    },
+
+    /** {@link VTDouble}. */
+    DOUBLE {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTDouble(1234.5678 + seed);
+        }
+    },
+
+    /** {@link VTDecimal}. */
+    DECIMAL {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTDecimal(12345678L + seed * 10000L, 4);
+        }
+    },
+
+    /** {@link VTFraction}. */
+    FRACTION {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTFraction(22L + seed, 7L);
+        }
+    },
+
+    /** {@link VTMeasure}. */
+    MEASURE {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTMeasure(new VTDecimal(4200L + seed, 2), SI.METRE);
+        }
+    },
+
+    /** {@link VTInstant}. */
+    INSTANT {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTInstant(1262304000000L + seed);
+        }
+    },
+
+    /** {@link VTString}. */
+    STRING {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTString("value type " + seed);
+        }
+    },
+
+    /** {@link VTPersonName}. */
+    PERSON_NAME {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTPersonName("John Q. Public" + (char) ('a' + seed % 26));
+        }
+    },
+
+    /** {@link VTJavaName}. */
+    JAVA_NAME {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTJavaName("org.codekaizen.vtj.Sample" + seed);
+        }
+    },
+
+    /** {@link VTLdapName}. */
+    LDAP_NAME {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTLdapName("cn=user" + seed + ",ou=people,dc=codekaizen,dc=org");
+        }
+    },
+
+    /** {@link VTPhoneNumber}. */
+    PHONE_NUMBER {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTPhoneNumber("+1 214 555 " + (1000 + seed % 9000));
+        }
+    },
+
+    /** {@link VTURI}. */
+    URI {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTURI("http://www.codekaizen.org/valuetypej/vtj/" + seed);
+        }
+    },
+
+    /** {@link VTCoordinate}. */
+    COORDINATE {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTCoordinate(new VTDecimal(-9679700L + seed, 5), new VTDecimal(3278030L, 5));
+        }
+    },
+
+    /** {@link VTInterval}. */
+    INTERVAL {
+        @Override
+        public ValueType<?> create(final int seed) {
+            return new VTInterval<VTInteger>(new VTInteger(seed), new VTInteger(seed + 100), true, false);
+        }
+    };
+
+    /**
+     * Returns a sample value derived from the supplied seed.
+     *
+     * @param  seed  values with the same seed are equal
+     *
+     * @return  the sample
+     */
+    public abstract ValueType<?> create(int seed);
+
+}
@@ -185,11 +185,12 @@ public abstract class AbstractValueTypeUserType<T extends ValueType<?>,
             int index) throws SQLException;
 
     public Object fromXMLString(final String xmlValue) {
-        if (!this.getFactory().isParsable(xmlValue)) {
+        final Object result = this.getFactory().tryParse(xmlValue);
+        if (result == null) {
             throw new TypeMismatchException("Supplied object must be of type "
                     + this.clazz.getName());
         }
-        return this.getFactory().parse(xmlValue);
+        return result;
     }
 
     public String objectToSQLString(final Object value) {
@@ -22,14 +22,17 @@
 package org.codekaizen.vtj.ids.hibernate3;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.lang.reflect.InvocationTargetException;
+import org.codekaizen.vtj.ids.IdentifierAccessors;
 import org.codekaizen.vtj.ids.VTUUID;
 
 /**
  * <p>Hibernate identifier generator that getenerates time version
  * {@link VTUUID} for use as entity identifiers and uses reflection to find
- * out if an identifier has already been assigned.
+ * out if an identifier has already been assigned. The <code>getObjectId()</code>
+ * or <code>getId()</code> accessor of each entity class is looked up once by
+ * {@link IdentifierAccessors} and reused for every later insert. Entities
+ * implementing {@link org.codekaizen.vtj.ids.Identifiable} are asked
+ * directly without reflection.
  * </p>
  *
  * @author <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
@@ -41,20 +44,7 @@ public class ReflectiveVTUUIDIdentifierGenerator
     }
 
     protected Serializable retrieveExistingIdentifier(final Object o) {
-        Serializable result = null;
-        for (Method method : o.getClass().getMethods()) {
-            if ("getObjectId".equals(method.getName()) ||
-                    "getId".equals(method.getName())) {
-                try {
-                    result = (Serializable) method.invoke(o);
-                } catch (IllegalAccessException e) {
-                    throw new IllegalStateException(e.getMessage());
-                } catch (InvocationTargetException e) {
-                    throw new IllegalStateException(e.getCause().getMessage());
-                }
-            }
-        }
-        return result;
+        return (Serializable) IdentifierAccessors.getIdentifier(o);
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.ids.hibernate3;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
+import org.codekaizen.vtj.ids.UUIDVersion;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Fills a local HSQLDB cached table keyed by {@link VTUUID}'s of different versions bound through {@link
+ * VTUUIDUserType}. Every key must read back unchanged and version 6 and 7 keys must come back in ascending order when
+ * read in insertion order, since they are always appended after the last one in the primary key index while version 1
+ * and 4 keys land all over it. Insert throughput and on-disk size of each version are logged for comparison but not
+ * asserted.</p>
+ *
+ * @author <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTUUIDUserTypePerformanceTest {
+
+    private static final int ROWS = 100000;
+    private static final int BATCH = 1000;
+
+    private Logger logger = LoggerFactory.getLogger(VTUUIDUserTypePerformanceTest.class);
+
+    @Test(groups = { "performance" })
+    public void shouldStoreTimeOrderedKeysInCreationOrder() throws Exception {
+        Class.forName("org.hsqldb.jdbcDriver");
+
+        final long random = this.insertRows(UUIDVersion.RANDOM);
+        this.insertRows(UUIDVersion.TIME_SPACE);
+        this.insertRows(UUIDVersion.REORDERED_TIME);
+        final long unixTime = this.insertRows(UUIDVersion.UNIX_TIME);
+
+        // wall-clock timings depend on the machine so they are only logged
+        logger.info("Version 7 keys took {}% of the time of version 4 keys.", unixTime * 100L / random);
+    }
+
+    private long insertRows(final UUIDVersion version) throws SQLException {
+        final VTUUIDFactory factory = new VTUUIDFactory(new MapContextHandlingStrategy());
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("org.codekaizen.vtj.ids.VTUUIDFactory.version", version);
+        factory.setContext(map);
+
+        final VTUUIDUserType userType = new VTUUIDUserType();
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "vtj-uuid-" + version.name().toLowerCase());
+        this.delete(dir);
+
+        final String url = "jdbc:hsqldb:file:" + new File(dir, "keys").getPath();
+        final Connection con = DriverManager.getConnection(url, "sa", "");
+        long elapsed;
+
+        try {
+            final Statement ddl = con.createStatement();
+            ddl.execute("CREATE CACHED TABLE ids (id VARBINARY(16) PRIMARY KEY, payload INTEGER)");
+            ddl.close();
+            con.setAutoCommit(false);
+
+            final PreparedStatement insert = con.prepareStatement("INSERT INTO ids (id, payload) VALUES (?, ?)");
+            final VTUUID[] keys = new VTUUID[ROWS];
+            elapsed = System.currentTimeMillis();
+
+            for (int i = 0; i < ROWS; i++) {
+                keys[i] = factory.nextUuid();
+                userType.nullSafeSet(insert, keys[i], 1);
+                insert.setInt(2, i);
+                insert.addBatch();
+
+                if ((i + 1) % BATCH == 0) {
+                    insert.executeBatch();
+                    con.commit();
+                }
+            }
+
+            elapsed = Math.max(1L, System.currentTimeMillis() - elapsed);
+            insert.close();
+
+            final Statement query = con.createStatement();
+            final ResultSet rs = query.executeQuery("SELECT id, payload FROM ids ORDER BY payload");
+            final boolean timeOrdered = version == UUIDVersion.REORDERED_TIME || version == UUIDVersion.UNIX_TIME;
+            VTUUID previous = null;
+            int rows = 0;
+
+            while (rs.next()) {
+                final VTUUID key = (VTUUID) userType.nullSafeGet(rs, new String[] { "id" }, null);
+                assertEquals(rs.getInt(2), rows);
+                assertEquals(key, keys[rows]);
+
+                if (timeOrdered && previous != null) {
+                    assertTrue(previous.compareTo(key) < 0);
+                }
+
+                previous = key;
+                rows++;
+            }
+
+            rs.close();
+            assertEquals(rows, ROWS);
+            query.execute("SHUTDOWN");
+            query.close();
+        } finally {
+            con.close();
+        }
+
+        final long size = new File(dir, "keys.data").length();
+        logger.info("HSQLDB " + version + " keys: {} rows/s, data file {} KB.", ROWS * 1000L / elapsed,
+            size / 1024L);
+        this.delete(dir);
+
+        return elapsed;
+    }
+
+    private void delete(final File file) {
+
+        if (file.isDirectory()) {
+
+            for (final File child : file.listFiles()) {
+                this.delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+}
@@ -21,8 +21,23 @@
  */
 package org.codekaizen.vtj;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,16 +45,46 @@ import org.slf4j.LoggerFactory;
 /**
  * <p>Abstract base value type factory.</p>
  *
+ * <p>The current context and every context value resolved for it are held in an immutable snapshot. A context change
+ * builds the new snapshot while {@link #processContextChange()} runs and then publishes it with a single volatile
+ * write, so {@link #getContext()} and {@link #getValue(String)} never lock and instances can be shared by any number
+ * of threads. Only context changes are serialized against each other. Subclasses should derive all their
+ * configuration state inside <code>processContextChange</code> since it is then published along with the snapshot.
+ * </p>
+ *
+ * <p>Creation, parsing, formatting and context changes are reported to the {@link FactoryInstrumentation} supplied by
+ * the {@link InstrumentationProvider} registered with {@link Instrumentation} when the factory was constructed.</p>
+ *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 public abstract class AbstractVTFactory<T extends ValueType<T>> implements ValueTypeFactory<T> {
 
     private static final long serialVersionUID = 7283337254132050064L;
 
+    private static final ThreadLocal<CharArraySequence> CHAR_ARRAY_SEQUENCE = new ThreadLocal<CharArraySequence>() {
+            @Override
+            protected CharArraySequence initialValue() {
+                return new CharArraySequence();
+            }
+        };
+
+    // class literals are raw so the updater has to be declared on the raw type
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractVTFactory, ContextSnapshot> SNAPSHOT_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(AbstractVTFactory.class, ContextSnapshot.class, "snapshot");
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ContextHandlingStrategy strategy;
-    private Object currentContext;
-    private Map<String, Object> values;
+    private final ContextKey<?>[] keys;
+    private volatile ContextSnapshot snapshot;
+    private transient volatile ContextSnapshot pending;
+
+    /** Incremented at the start and end of every context change so it is odd while the strategy may be mid-change. */
+    private transient volatile int changes;
+
+    /** Final so the JIT can treat it as a constant and inline the no-op methods away entirely. */
+    private final transient FactoryInstrumentation instrumentation;
+    private transient volatile Interner<T> interner;
 
     /**
      * Constructs a value type factory.
@@ -47,9 +92,42 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
      * @param  strategy  the strategy to use for retrieving values and resources from the execution environment
      */
     protected AbstractVTFactory(final ContextHandlingStrategy strategy) {
+        this(strategy, new ContextKey<?>[0]);
+    }
+
+    /**
+     * Constructs a value type factory which resolves the supplied configuration keys in bulk on every context change.
+     *
+     * @param  strategy  the strategy to use for retrieving values and resources from the execution environment
+     * @param  keys  the configuration keys this factory reads with {@link #getValue(ContextKey)}
+     */
+    protected AbstractVTFactory(final ContextHandlingStrategy strategy, final ContextKey<?>... keys) {
         super();
         AssertPrecondition.notNull("strategy", strategy);
+        AssertPrecondition.notNull("keys", keys);
         this.strategy = strategy;
+        this.keys = keys.clone();
+
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i].register(i);
+        }
+        this.snapshot = new ContextSnapshot(null, Collections.<String, Object>emptyMap(), resolveKeys(), null);
+        this.instrumentation = Instrumentation.getInstrumentation(this);
+    }
+
+    private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        // the same way the JDK restores final transient fields of its own classes
+        try {
+            final Field field = AbstractVTFactory.class.getDeclaredField("instrumentation");
+            field.setAccessible(true);
+            field.set(this, Instrumentation.getInstrumentation(this));
+        } catch (final NoSuchFieldException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
     }
 
     /**
@@ -70,21 +148,89 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
         return strategy;
     }
 
+    /**
+     * Returns the instrumentation this factory reports to.
+     *
+     * @return  the instrumentation
+     */
+    public final FactoryInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+
+    /**
+     * Returns the interner canonicalizing the values this factory creates and parses.
+     *
+     * @return  the interner or <code>null</code> if values are not interned
+     */
+    public final Interner<T> getInterner() {
+        return interner;
+    }
+
+    /**
+     * Registers an interner so every value this factory creates or parses is replaced by its canonical instance.
+     * Interners are not serialized with the factory.
+     *
+     * @param  interner  the interner or <code>null</code> to return new instances again
+     */
+    public final void setInterner(final Interner<T> interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Returns the canonical instance of the supplied value if an interner is registered.
+     *
+     * @param  vt  the newly created value
+     *
+     * @return  the canonical instance, the value itself or <code>null</code> if the value is <code>null</code>
+     */
+    protected final T intern(final T vt) {
+        final Interner<T> i = interner;
+
+        return (i == null || vt == null) ? vt : i.intern(vt);
+    }
+
     /**
      * DOCUMENT ME!
      *
      * @param  context  DOCUMENT ME!
      */
-    public final void setContext(final Object context) {
-        currentContext = context;
-        values = new HashMap<String, Object>();
-        getContextStrategy().setContext(currentContext);
-        processContextChange();
+    public final synchronized void setContext(final Object context) {
+        final FactoryInstrumentation instr = instrumentation;
+        final long startTime = instr.start();
+        final ContextSnapshot previous = snapshot;
+        changes++;
+
+        try {
+            getContextStrategy().setContext(context);
+
+            final ContextSnapshot next = new ContextSnapshot(context, new HashMap<String, Object>(), resolveKeys(),
+                    Thread.currentThread());
+            pending = next;
+            processContextChange();
+            snapshot = next.publish();
+        } catch (RuntimeException e) {
+            getContextStrategy().setContext(previous.context);
+
+            throw e;
+        } catch (Error e) {
+            getContextStrategy().setContext(previous.context);
+
+            throw e;
+        } finally {
+            pending = null;
+            changes++;
+        }
+
+        instr.contextChanged(startTime);
         getLogger().debug("Context changed to {}", context);
     }
 
     /**
-     * Override this method if any processing needs to be done when the context changes.
+     * Override this method if any processing needs to be done when the context changes. While it runs, {@link
+     * #getContext()} and {@link #getValue(String)} already return the new context and its values on the calling thread
+     * while all other threads keep seeing the previous snapshot until this method returns. Declared {@link ContextKey}
+     * values have already been resolved for the new context by the time it is called.
      */
     protected void processContextChange() {
 
@@ -96,44 +242,140 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
      * @return  DOCUMENT ME!
      */
     public final Object getContext() {
-        return currentContext;
+        return currentSnapshot().context;
     }
 
     /**
      * Returns a named context value, variable, property or resource if one exists. Otherwise, it returns <code>
-     * null</code>.
+     * null</code>. Values not already part of the current snapshot are looked up and added to it without locking
+     * unless a context change is in progress, in which case the lookup waits for it to finish.
      *
      * @param  name  the name the value is mapped to
      *
      * @return  the value
      */
     protected final Object getValue(final String name) {
+        final int seq = changes;
+        final ContextSnapshot current = currentSnapshot();
+        Object value = current.values.get(name);
 
-        if (values == null) {
-            values = new HashMap<String, Object>();
+        if (value != null) {
+            return value;
         }
 
-        Object value = values.get(name);
-
-        if (value == null) {
-            value = getContextStrategy().getValue(name);
+        if (current.owner == Thread.currentThread()) {
+            value = lookupValue(name);
 
             if (value != null) {
-                values.put(name, value);
+                current.values.put(name, value);
             }
+
+            return value;
+        }
+
+        value = lookupValue(name);
+
+        if ((seq & 1) != 0 || seq != changes) {
+            // the strategy may have been holding a different context than the snapshot
+            return getStableValue(name);
         }
 
+        if (value != null) {
+            // lose the race quietly if a new context got published in the meantime
+            SNAPSHOT_UPDATER.compareAndSet(this, current, current.with(name, value));
+        }
+
+        return value;
+    }
+
+    /**
+     * Looks up a value once no context change is in progress so the strategy matches the published snapshot.
+     */
+    private synchronized Object getStableValue(final String name) {
+        final ContextSnapshot current = snapshot;
+        Object value = current.values.get(name);
+
         if (value == null) {
-            value = System.getProperty(name);
+            value = lookupValue(name);
 
             if (value != null) {
-                values.put(name, value);
+                SNAPSHOT_UPDATER.compareAndSet(this, current, current.with(name, value));
             }
         }
 
         return value;
     }
 
+    private Object lookupValue(final String name) {
+        final Object value = getContextStrategy().getValue(name);
+
+        return value == null ? System.getProperty(name) : value;
+    }
+
+    /**
+     * Returns the converted value of one of the configuration keys passed to the constructor. The value was resolved
+     * when the context last changed so this only reads the array slot of the current snapshot at the index the key
+     * was registered with. The declared keys are only searched for a key some other factory registered first at a
+     * different position.
+     *
+     * @param  key  a key declared by this factory
+     *
+     * @return  the value or the key default
+     *
+     * @throws  IllegalArgumentException  if the key was not declared by this factory
+     */
+    @SuppressWarnings("unchecked")
+    protected final <V> V getValue(final ContextKey<V> key) {
+        final Object[] settings = currentSnapshot().settings;
+        final int index = key.getIndex();
+
+        if (index >= 0 && index < keys.length && keys[index] == key) {
+            return (V) settings[index];
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (keys[i] == key) {
+                return (V) settings[i];
+            }
+        }
+
+        throw new IllegalArgumentException(key + " is not declared by " + getClass().getName());
+    }
+
+    /**
+     * Looks up and converts all declared configuration keys against the current strategy state.
+     */
+    private Object[] resolveKeys() {
+        final Object[] settings = new Object[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            Object raw = getContextStrategy().getValue(keys[i].getName());
+
+            if (raw == null) {
+                raw = System.getProperty(keys[i].getName());
+            }
+
+            settings[i] = keys[i].resolve(raw);
+        }
+
+        return settings;
+    }
+
+    /**
+     * Returns the snapshot being built if called from within {@link #processContextChange()} or the last published one
+     * otherwise.
+     */
+    private ContextSnapshot currentSnapshot() {
+        final ContextSnapshot building = pending;
+
+        if (building != null && building.owner == Thread.currentThread()) {
+            return building;
+        }
+
+        return snapshot;
+    }
+
     /**
      * Returns whether this factory can create objects of the specified type.
      *
@@ -159,7 +401,18 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
             throw new IllegalArgumentException("not creatable by this factory");
         }
 
-        return create(args);
+        final FactoryInstrumentation instr = instrumentation;
+        final long startTime = instr.start();
+        boolean success = false;
+
+        try {
+            final T result = intern(create(args));
+            success = result != null;
+
+            return result;
+        } finally {
+            instr.created(startTime, success);
+        }
     }
 
     /**
@@ -171,14 +424,36 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
      */
     protected abstract T create(Object... args);
 
+    /**
+     * Returns whether this factory is capable of parsing the supplied string. Implemented on top of {@link
+     * #tryParse(CharSequence)} so the string is only scanned once.
+     *
+     * @param  s  the string to parse
+     *
+     * @return  can parse or not
+     */
+    public boolean isParsable(final CharSequence s) {
+        return tryParse(s) != null;
+    }
+
     /**
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
+     *
+     * @throws  IllegalArgumentException  DOCUMENT ME!
      */
-    public abstract boolean isParsable(CharSequence s);
+    public T parse(final CharSequence s) {
+        final T result = tryParse(s);
+
+        if (result == null) {
+            throw new IllegalArgumentException("unparsable");
+        }
+
+        return result;
+    }
 
     /**
      * DOCUMENT ME!
@@ -186,31 +461,151 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
      * @param  s  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
+     */
+    public T tryParse(final CharSequence s) {
+
+        if (s == null) {
+            return null;
+        }
+
+        return instrumentedParse(s, 0, s.length());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
      *
      * @throws  IllegalArgumentException  DOCUMENT ME!
      */
-    public T parse(final CharSequence s) {
+    public T parse(final CharSequence s, final int start, final int end) {
+        final T result = tryParse(s, start, end);
 
-        if (!isParsable(s)) {
+        if (result == null) {
             throw new IllegalArgumentException("unparsable");
         }
 
-        return doParse(s);
+        return result;
     }
 
     /**
-     * Returns a newly constructed value type object created from the supplied string representation. This is the
-     * inverse of {@link #format(ValueType)}.
+     * DOCUMENT ME!
      *
-     * @param  s  the string representation guaranteed to be non-null
+     * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
-     * @return  the new value type object
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IndexOutOfBoundsException  DOCUMENT ME!
      */
-    protected abstract T doParse(CharSequence s);
+    public T tryParse(final CharSequence s, final int start, final int end) {
+
+        if (s == null) {
+            return null;
+        }
+
+        if (start < 0 || start > end || end > s.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + s.length());
+        }
+
+        return instrumentedParse(s, start, end);
+    }
+
+    private T instrumentedParse(final CharSequence s, final int start, final int end) {
+        final FactoryInstrumentation instr = instrumentation;
+        final long startTime = instr.start();
+        final T result = intern(doParse(s, start, end));
+        instr.parsed(startTime, result != null);
+
+        return result;
+    }
 
     /**
      * DOCUMENT ME!
      *
+     * @param  chars  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IllegalArgumentException  DOCUMENT ME!
+     */
+    public T parse(final char[] chars, final int start, final int end) {
+        final T result = tryParse(chars, start, end);
+
+        if (result == null) {
+            throw new IllegalArgumentException("unparsable");
+        }
+
+        return result;
+    }
+
+    /**
+     * Wraps the array in a per-thread reusable sequence so no objects other than the result get allocated.
+     *
+     * @param  chars  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public T tryParse(final char[] chars, final int start, final int end) {
+
+        if (chars == null) {
+            return null;
+        }
+
+        final CharArraySequence seq = CHAR_ARRAY_SEQUENCE.get();
+        final char[] previous = seq.wrap(chars);
+
+        try {
+            return tryParse(seq, start, end);
+        } finally {
+            // restore in case this is a nested call
+            seq.wrap(previous);
+        }
+    }
+
+    /**
+     * Returns a newly constructed value type object created from the string representation between <code>start</code>
+     * and <code>end</code> or <code>null</code> if it is not in a recognized format. This is the inverse of {@link
+     * #format(ValueType)}. Implementations should validate and convert in a single pass over the range without
+     * allocating any intermediate objects, must not keep a reference to the sequence since it may be reused and must
+     * not throw an exception for unparsable input.
+     *
+     * @param  s  the sequence containing the string representation guaranteed to be non-null
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
+     *
+     * @return  the new value type object or <code>null</code>
+     */
+    protected abstract T doParse(CharSequence s, int start, int end);
+
+    /**
+     * Returns whether a string of the supplied length starting with the supplied character could possibly be parsed by
+     * this factory. {@link CompositeVTFactory} uses this to narrow down the factories it tries before running any full
+     * parse so it must never return <code>false</code> for a string {@link #doParse(CharSequence, int, int)} would
+     * accept. The
+     * default implementation accepts everything.
+     *
+     * @param  length  the length of the string
+     * @param  first  the first character of the string or <code>'\0'</code> if it is empty
+     *
+     * @return  possibly parsable or not
+     */
+    protected boolean isParseCandidate(final int length, final char first) {
+        return true;
+    }
+
+    /**
+     * Returns an empty string for <code>null</code> and otherwise the result of {@link #doFormat(ValueType)}.
+     *
      * @param  vt  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
@@ -219,9 +614,389 @@ public abstract class AbstractVTFactory<T extends ValueType<T>> implements Value
 
         if (vt == null) {
             return "";
-        } else {
-            return vt.toString();
         }
+
+        final FactoryInstrumentation instr = instrumentation;
+        final long startTime = instr.start();
+
+        try {
+            return doFormat(vt);
+        } finally {
+            instr.formatted(startTime);
+        }
+    }
+
+    /**
+     * Appends nothing for <code>null</code> and otherwise calls {@link #doFormatTo(ValueType, Appendable)}.
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public Appendable formatTo(final T vt, final Appendable out) throws IOException {
+
+        if (vt != null) {
+            final FactoryInstrumentation instr = instrumentation;
+            final long startTime = instr.start();
+
+            try {
+                doFormatTo(vt, out);
+            } finally {
+                instr.formatted(startTime);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Returns the string representation of the supplied object. The default implementation returns <code>
+     * toString()</code>.
+     *
+     * @param  vt  the value type object guaranteed to be non-null
+     *
+     * @return  the string representation
+     */
+    protected String doFormat(final T vt) {
+        return vt.toString();
+    }
+
+    /**
+     * Appends the result of {@link #doFormat(ValueType)}. Factories whose value types can write themselves directly
+     * should override this.
+     *
+     * @param  vt  the value type object guaranteed to be non-null
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    protected Appendable doFormatTo(final T vt, final Appendable out) throws IOException {
+        return out.append(doFormat(vt));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  inputs  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public BulkResult<T> parseAll(final List<? extends CharSequence> inputs) {
+        return parseAll(inputs, BulkExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  inputs  DOCUMENT ME!
+     * @param  executor  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public BulkResult<T> parseAll(final List<? extends CharSequence> inputs, final Executor executor) {
+        AssertPrecondition.notNull("inputs", inputs);
+
+        return runChunks(inputs, executor, new ChunkKernel<T>() {
+                    public void run(final BulkResult.Chunk<T> chunk) {
+                        parseChunk(inputs, chunk);
+                    }
+                });
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  clazz  DOCUMENT ME!
+     * @param  inputs  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public BulkResult<T> createAll(final Class<? extends ValueType<?>> clazz, final List<?> inputs) {
+        return createAll(clazz, inputs, BulkExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  clazz  DOCUMENT ME!
+     * @param  inputs  DOCUMENT ME!
+     * @param  executor  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IllegalArgumentException  DOCUMENT ME!
+     */
+    public BulkResult<T> createAll(final Class<? extends ValueType<?>> clazz, final List<?> inputs,
+            final Executor executor) {
+        AssertPrecondition.notNull("inputs", inputs);
+
+        if (!isCreatable(clazz)) {
+            throw new IllegalArgumentException("not creatable by this factory");
+        }
+
+        return runChunks(inputs, executor, new ChunkKernel<T>() {
+                    public void run(final BulkResult.Chunk<T> chunk) {
+                        createChunk(clazz, inputs, chunk);
+                    }
+                });
+    }
+
+    /**
+     * Returns the number of input elements processed by one bulk task. Larger chunks amortize scheduling overhead for
+     * cheap conversions while smaller ones balance the load better for expensive ones. The default suits conversions
+     * costing around a microsecond.
+     *
+     * @return  the chunk size
+     */
+    protected int getBulkChunkSize() {
+        return 1024;
+    }
+
+    /**
+     * Parses one chunk of a {@link #parseAll(List, Executor)} request. Factories may override this with a tighter loop
+     * but must record a result or a failure for every index in the chunk, failures in ascending order.
+     *
+     * @param  inputs  the complete input list
+     * @param  chunk  the range to parse and the sink for its results
+     */
+    protected void parseChunk(final List<? extends CharSequence> inputs, final BulkResult.Chunk<T> chunk) {
+
+        for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+            final T value = tryParse(inputs.get(i));
+
+            if (value == null) {
+                chunk.fail(i, "unparsable");
+            } else {
+                chunk.set(i, value);
+            }
+        }
+    }
+
+    /**
+     * Creates one chunk of a {@link #createAll(Class, List, Executor)} request after the class has been checked. Since
+     * {@link #create(Object[])} reports bad arguments by throwing, the default implementation catches <code>
+     * IllegalArgumentException</code> per element and records it as a failure.
+     *
+     * @param  clazz  the class of the objects to create
+     * @param  inputs  the complete input list
+     * @param  chunk  the range to create and the sink for its results
+     */
+    protected void createChunk(final Class<? extends ValueType<?>> clazz, final List<?> inputs,
+            final BulkResult.Chunk<T> chunk) {
+
+        for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+
+            try {
+                chunk.set(i, intern(create(new Object[] { inputs.get(i) })));
+            } catch (final IllegalArgumentException iae) {
+                chunk.fail(i, iae.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Splits the input into chunks which are claimed one at a time by the calling thread and up to one helper task per
+     * processor. The caller never waits for a chunk nobody has started so a saturated or rejecting executor only costs
+     * parallelism.
+     */
+    private BulkResult<T> runChunks(final List<?> inputs, final Executor executor, final ChunkKernel<T> kernel) {
+        final int size = inputs.size();
+        final int chunkSize = Math.max(1, getBulkChunkSize());
+        final int chunkCount = (size + chunkSize - 1) / chunkSize;
+        final Object[] values = new Object[size];
+        final BulkResult.Chunk<?>[] chunks = new BulkResult.Chunk<?>[chunkCount];
+
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c] = new BulkResult.Chunk<T>(values, c * chunkSize, Math.min(size, (c + 1) * chunkSize));
+        }
+
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(chunkCount);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final Runnable worker = new Runnable() {
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    int c;
+
+                    while ((c = nextChunk.getAndIncrement()) < chunkCount) {
+
+                        try {
+                            kernel.run((BulkResult.Chunk<T>) chunks[c]);
+                        } catch (final Throwable t) {
+                            error.compareAndSet(null, t);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }
+            };
+
+        if (executor != null) {
+            final int helpers = Math.min(chunkCount, BulkExecutorHolder.PARALLELISM) - 1;
+
+            for (int i = 0; i < helpers; i++) {
+
+                try {
+                    executor.execute(worker);
+                } catch (final RejectedExecutionException ree) {
+                    break;
+                }
+            }
+        }
+
+        worker.run();
+        awaitUninterruptibly(done);
+
+        final Throwable t = error.get();
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        return new BulkResult<T>(values, chunks);
+    }
+
+    /**
+     * Returns the shared pool of daemon threads used by bulk requests which do not supply their own executor.
+     */
+    static Executor getSharedExecutor() {
+        return BulkExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Returns the number of threads in the shared pool.
+     */
+    static int getSharedParallelism() {
+        return BulkExecutorHolder.PARALLELISM;
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+
+        try {
+
+            while (true) {
+
+                try {
+                    latch.await();
+
+                    return;
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Converts one chunk of a bulk request.
+     */
+    private interface ChunkKernel<T> {
+
+        void run(BulkResult.Chunk<T> chunk);
+
+    }
+
+    /**
+     * Lazily started pool of daemon threads shared by all bulk requests which do not supply their own executor.
+     */
+    private static final class BulkExecutorHolder {
+
+        static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "vtj-bulk-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+
+    }
+
+    /**
+     * Mutable character sequence view of an array, used to parse arrays without copying them.
+     */
+    private static final class CharArraySequence implements CharSequence {
+
+        private char[] chars;
+
+        CharArraySequence() {
+            super();
+        }
+
+        char[] wrap(final char[] array) {
+            final char[] previous = chars;
+            chars = array;
+
+            return previous;
+        }
+
+        public int length() {
+            return chars.length;
+        }
+
+        public char charAt(final int index) {
+            return chars[index];
+        }
+
+        public CharSequence subSequence(final int start, final int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars);
+        }
+
+    }
+
+    /**
+     * Immutable once published pairing of a context with the values resolved for it.
+     */
+    private static final class ContextSnapshot implements Serializable {
+
+        private static final long serialVersionUID = -4095374380524317727L;
+
+        private final Object context;
+        private final Map<String, Object> values;
+        private final Object[] settings;
+        private final transient Thread owner;
+
+        ContextSnapshot(final Object context, final Map<String, Object> values, final Object[] settings,
+            final Thread owner) {
+            this.context = context;
+            this.values = values;
+            this.settings = settings;
+            this.owner = owner;
+        }
+
+        ContextSnapshot publish() {
+            return new ContextSnapshot(context, Collections.unmodifiableMap(new HashMap<String, Object>(values)),
+                    settings, null);
+        }
+
+        ContextSnapshot with(final String name, final Object value) {
+            final Map<String, Object> copy = new HashMap<String, Object>(values);
+            copy.put(name, value);
+
+            return new ContextSnapshot(context, Collections.unmodifiableMap(copy), settings, null);
+        }
+
     }
 
 }
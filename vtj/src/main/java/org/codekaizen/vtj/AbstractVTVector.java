@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+
+/**
+ * <p>Base class for immutable columnar containers which store the fields of many value type objects in primitive
+ * arrays rather than as individual objects. This removes the object header, padding and pointer of every element and
+ * keeps the values contiguous in memory. Value type objects are only created when elements are requested through
+ * {@link #get(int)} or the {@link #asList()} view, so reductions and comparisons run directly over the arrays.</p>
+ *
+ * <p>Vectors never modify their arrays after construction so slices share the arrays of the vector they were taken
+ * from without copying.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public abstract class AbstractVTVector<T extends ValueType<T>, V extends AbstractVTVector<T, V>>
+    implements Iterable<T> {
+
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a new AbstractVTVector object.
+     *
+     * @param  offset  the array index of the first element
+     * @param  length  the number of elements
+     */
+    protected AbstractVTVector(final int offset, final int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return  the size
+     */
+    public final int size() {
+        return this.length;
+    }
+
+    /**
+     * Returns whether the vector has no elements.
+     *
+     * @return  empty or not
+     */
+    public final boolean isEmpty() {
+        return this.length == 0;
+    }
+
+    /**
+     * Returns a newly constructed value type object holding the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the element
+     *
+     * @throws  IndexOutOfBoundsException  if the index is not between zero and the size
+     */
+    public final T get(final int index) {
+        return valueAt(arrayIndex(index));
+    }
+
+    /**
+     * Returns an unmodifiable list view of the elements. Value type objects are created each time an element is read
+     * from the view.
+     *
+     * @return  the list view
+     */
+    public final List<T> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Returns an iterator creating each element as it is reached.
+     *
+     * @return  the iterator
+     */
+    public final Iterator<T> iterator() {
+        return asList().iterator();
+    }
+
+    /**
+     * Returns a vector of the elements from <code>from</code>, inclusive, to <code>to</code>, exclusive. The slice
+     * shares the arrays of this vector.
+     *
+     * @param  from  the index of the first element
+     * @param  to  the index after the last element
+     *
+     * @return  the slice
+     *
+     * @throws  IndexOutOfBoundsException  if the range is not within this vector
+     */
+    public final V slice(final int from, final int to) {
+
+        if (from < 0 || to > this.length || from > to) {
+            throw new IndexOutOfBoundsException("slice " + from + ".." + to + " of size " + this.length);
+        }
+
+        return newSlice(this.offset + from, to - from);
+    }
+
+    /**
+     * Returns a vector holding the elements of this vector in ascending order.
+     *
+     * @return  the sorted vector
+     */
+    public abstract V sorted();
+
+    /**
+     * Returns the array index of the first element.
+     *
+     * @return  the offset into the backing arrays
+     */
+    protected final int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Converts an element index to an index into the backing arrays.
+     *
+     * @param  index  the element index
+     *
+     * @return  the array index
+     *
+     * @throws  IndexOutOfBoundsException  if the index is not between zero and the size
+     */
+    protected final int arrayIndex(final int index) {
+
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("index " + index + " of size " + this.length);
+        }
+
+        return this.offset + index;
+    }
+
+    /**
+     * Throws an exception if the vector is empty. Should be called by reductions which have no identity value.
+     *
+     * @throws  NoSuchElementException  if the vector is empty
+     */
+    protected final void checkNotEmpty() {
+
+        if (this.length == 0) {
+            throw new NoSuchElementException("vector is empty");
+        }
+    }
+
+    /**
+     * Returns a newly constructed value type object from the fields at the supplied array index.
+     *
+     * @param  arrayIndex  the index into the backing arrays
+     *
+     * @return  the element
+     */
+    protected abstract T valueAt(int arrayIndex);
+
+    /**
+     * Returns a vector sharing the backing arrays of this one.
+     *
+     * @param  sliceOffset  the array index of the first element
+     * @param  sliceLength  the number of elements
+     *
+     * @return  the slice
+     */
+    protected abstract V newSlice(int sliceOffset, int sliceLength);
+
+    /**
+     * Returns whether the elements at the supplied array indexes of this and the other vector are equal.
+     *
+     * @param  arrayIndex  the index into the backing arrays of this vector
+     * @param  other  the other vector
+     * @param  otherArrayIndex  the index into the backing arrays of the other vector
+     *
+     * @return  equal or not
+     */
+    protected abstract boolean elementEquals(int arrayIndex, V other, int otherArrayIndex);
+
+    /**
+     * Returns the hash code of the element at the supplied array index.
+     *
+     * @param  arrayIndex  the index into the backing arrays
+     *
+     * @return  the hash code
+     */
+    protected abstract int elementHashCode(int arrayIndex);
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+
+        for (int i = this.offset; i < this.offset + this.length; i++) {
+            result = 31 * result + elementHashCode(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  obj  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(final Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final V other = (V) obj;
+
+        if (this.length != other.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < this.length; i++) {
+
+            if (!elementEquals(this.offset + i, other, other.getOffset() + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return asList().toString();
+    }
+
+    /**
+     * Read-only list creating elements on access.
+     */
+    private final class ListView extends AbstractList<T> implements RandomAccess {
+
+        @Override
+        public T get(final int index) {
+            return AbstractVTVector.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return AbstractVTVector.this.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * <p>Base class for codecs implementing the relative operations on top of the absolute ones. Subclasses only
+ * implement {@link #encode(ValueType, ByteBuffer, int)} and {@link #decode(ByteBuffer, int)}, which are called after
+ * the bounds have been checked.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public abstract class AbstractValueTypeCodec<T extends ValueType<T>> implements ValueTypeCodec<T> {
+
+    private final Class<T> valueTypeClass;
+    private final int typeId;
+    private final int encodedSize;
+
+    /**
+     * Creates a new AbstractValueTypeCodec object.
+     *
+     * @param  valueTypeClass  the class of the values handled
+     * @param  typeId  the identifier of the binary form
+     * @param  encodedSize  the fixed size in bytes
+     */
+    protected AbstractValueTypeCodec(final Class<T> valueTypeClass, final int typeId, final int encodedSize) {
+        AssertPrecondition.notNull("valueTypeClass", valueTypeClass);
+        AssertPrecondition.withinRange("typeId", typeId, 1L, ValueTypeCodecs.MAX_TYPE_ID);
+        AssertPrecondition.withinRange("encodedSize", encodedSize, 1L, Integer.MAX_VALUE);
+        this.valueTypeClass = valueTypeClass;
+        this.typeId = typeId;
+        this.encodedSize = encodedSize;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public final Class<T> getValueTypeClass() {
+        return this.valueTypeClass;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public final int getTypeId() {
+        return this.typeId;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public final int getEncodedSize() {
+        return this.encodedSize;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  buffer  DOCUMENT ME!
+     *
+     * @throws  BufferOverflowException  DOCUMENT ME!
+     */
+    public final void writeTo(final T vt, final ByteBuffer buffer) {
+        AssertPrecondition.notNull("vt", vt);
+
+        final int position = buffer.position();
+
+        if (buffer.limit() - position < this.encodedSize) {
+            throw new BufferOverflowException();
+        }
+
+        encode(vt, buffer, position);
+        buffer.position(position + this.encodedSize);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  buffer  DOCUMENT ME!
+     * @param  index  DOCUMENT ME!
+     */
+    public final void writeTo(final T vt, final ByteBuffer buffer, final int index) {
+        AssertPrecondition.notNull("vt", vt);
+        checkIndex(buffer, index);
+        encode(vt, buffer, index);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  buffer  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  BufferUnderflowException  DOCUMENT ME!
+     */
+    public final T readFrom(final ByteBuffer buffer) {
+        final int position = buffer.position();
+
+        if (buffer.limit() - position < this.encodedSize) {
+            throw new BufferUnderflowException();
+        }
+
+        final T result = decode(buffer, position);
+        buffer.position(position + this.encodedSize);
+
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  buffer  DOCUMENT ME!
+     * @param  index  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public final T readFrom(final ByteBuffer buffer, final int index) {
+        checkIndex(buffer, index);
+
+        return decode(buffer, index);
+    }
+
+    /**
+     * Writes the value's fields using the absolute put methods of the buffer.
+     *
+     * @param  vt  the value type object, never <code>null</code>
+     * @param  buffer  the buffer to write to
+     * @param  index  the index of the first byte, with at least {@link #getEncodedSize()} bytes before the limit
+     */
+    protected abstract void encode(T vt, ByteBuffer buffer, int index);
+
+    /**
+     * Reads the value's fields using the absolute get methods of the buffer.
+     *
+     * @param  buffer  the buffer to read from
+     * @param  index  the index of the first byte, with at least {@link #getEncodedSize()} bytes before the limit
+     *
+     * @return  the new value type object
+     */
+    protected abstract T decode(ByteBuffer buffer, int index);
+
+    private void checkIndex(final ByteBuffer buffer, final int index) {
+
+        if (index < 0 || buffer.limit() - index < this.encodedSize) {
+            throw new IndexOutOfBoundsException("index " + index + " with size " + this.encodedSize + " outside limit "
+                + buffer.limit());
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + this.valueTypeClass.getSimpleName() + ", id=" + this.typeId
+            + ", size=" + this.encodedSize + "]";
+    }
+
+}
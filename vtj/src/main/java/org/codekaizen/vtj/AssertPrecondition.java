@@ -100,6 +100,27 @@ public final class AssertPrecondition {
         }
     }
 
+    /**
+     * Throws an informative exception if the supplied parameter is not between the lower and upper bounds inclusive.
+     * Integral values are checked without boxing so this is safe to call from value type constructors on hot paths.
+     *
+     * @param  paramName  the parameter name
+     * @param  param  the supplied parameter
+     * @param  lowerBound  the lowest permitted value
+     * @param  upperBound  the highest permitted value
+     *
+     * @throws  IllegalArgumentException  if parameter is outside the specified range
+     */
+    public static void withinRange(final String paramName, final long param, final long lowerBound,
+            final long upperBound) throws IllegalArgumentException {
+
+        if (param < lowerBound || param > upperBound) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    EXCEPTION_RESOURCES.getString("org.codekaizen.vtj.precondition.withinRange"), paramName, lowerBound,
+                    upperBound));
+        }
+    }
+
     /**
      * Throws an informative exception if the supplied parameter is not between the lower and upper bounds inclusive.
      *
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * <p>The outcome of a bulk parse or create operation. Results are held in input order and elements which could not be
+ * converted are recorded as failures with a message instead of aborting the whole operation.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class BulkResult<T> {
+
+    private static final int[] NO_INDEXES = new int[0];
+    private static final String[] NO_MESSAGES = new String[0];
+
+    private final Object[] values;
+    private final int[] failedIndexes;
+    private final String[] failureMessages;
+
+    /**
+     * Merges the failures of the supplied chunks which must be in input order.
+     */
+    BulkResult(final Object[] values, final Chunk<?>[] chunks) {
+        super();
+        this.values = values;
+
+        int count = 0;
+
+        for (final Chunk<?> chunk : chunks) {
+            count += chunk.failureCount;
+        }
+
+        failedIndexes = count == 0 ? NO_INDEXES : new int[count];
+        failureMessages = count == 0 ? NO_MESSAGES : new String[count];
+
+        int pos = 0;
+
+        for (final Chunk<?> chunk : chunks) {
+            System.arraycopy(chunk.failedIndexes, 0, failedIndexes, pos, chunk.failureCount);
+            System.arraycopy(chunk.failureMessages, 0, failureMessages, pos, chunk.failureCount);
+            pos += chunk.failureCount;
+        }
+    }
+
+    /**
+     * Returns the number of input elements.
+     *
+     * @return  the size
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value converted from the input element at the supplied index.
+     *
+     * @param  index  the input index
+     *
+     * @return  the value or <code>null</code> if the element failed
+     */
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * Returns a read-only list view of all values in input order with <code>null</code> for failed elements.
+     *
+     * @return  the values
+     */
+    public List<T> getValues() {
+        return new AbstractList<T>() {
+                @Override
+                public T get(final int index) {
+                    return BulkResult.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+    }
+
+    /**
+     * Returns whether every input element was converted.
+     *
+     * @return  no failures or some
+     */
+    public boolean isAllSuccessful() {
+        return failedIndexes.length == 0;
+    }
+
+    /**
+     * Returns whether the input element at the supplied index was converted.
+     *
+     * @param  index  the input index
+     *
+     * @return  converted or failed
+     */
+    public boolean isSuccessful(final int index) {
+        return Arrays.binarySearch(failedIndexes, index) < 0;
+    }
+
+    /**
+     * Returns the number of input elements which could not be converted.
+     *
+     * @return  the failure count
+     */
+    public int getFailureCount() {
+        return failedIndexes.length;
+    }
+
+    /**
+     * Returns the indexes of all input elements which could not be converted in ascending order.
+     *
+     * @return  the failed indexes
+     */
+    public int[] getFailedIndexes() {
+        return failedIndexes.clone();
+    }
+
+    /**
+     * Returns why the input element at the supplied index could not be converted.
+     *
+     * @param  index  the input index
+     *
+     * @return  the failure message or <code>null</code> if the element was converted
+     */
+    public String getFailureMessage(final int index) {
+        final int pos = Arrays.binarySearch(failedIndexes, index);
+
+        return pos < 0 ? null : failureMessages[pos];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return "BulkResult(size:" + values.length + ", failures:" + failedIndexes.length + ")";
+    }
+
+    /**
+     * <p>Collects the results of one contiguous range of the input. Each chunk is only ever used by one thread so
+     * factory chunk kernels can record results without any synchronization.</p>
+     *
+     * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+     */
+    public static final class Chunk<T> {
+
+        private final Object[] values;
+        private final int from;
+        private final int to;
+        private int[] failedIndexes = NO_INDEXES;
+        private String[] failureMessages = NO_MESSAGES;
+        private int failureCount;
+
+        Chunk(final Object[] values, final int from, final int to) {
+            super();
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the index of the first input element of this chunk.
+         *
+         * @return  the start index
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the index after the last input element of this chunk.
+         *
+         * @return  the end index
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Records the value converted from an input element. A <code>null</code> value is recorded as a failure.
+         *
+         * @param  index  the input index
+         * @param  value  the converted value
+         *
+         * @throws  IndexOutOfBoundsException  if the index is not within this chunk
+         */
+        public void set(final int index, final T value) {
+            checkIndex(index);
+
+            if (value == null) {
+                fail(index, "no value");
+            } else {
+                values[index] = value;
+            }
+        }
+
+        /**
+         * Records that an input element could not be converted. Failures must be recorded in ascending index order.
+         *
+         * @param  index  the input index
+         * @param  message  why the element failed
+         *
+         * @throws  IndexOutOfBoundsException  if the index is not within this chunk
+         * @throws  IllegalStateException  if the index is not above the last failed index
+         */
+        public void fail(final int index, final String message) {
+            checkIndex(index);
+
+            if (failureCount > 0 && failedIndexes[failureCount - 1] >= index) {
+                throw new IllegalStateException("failures must be recorded in ascending order");
+            }
+
+            if (failureCount == failedIndexes.length) {
+                final int capacity = Math.max(8, failureCount * 2);
+                final int[] indexes = new int[capacity];
+                final String[] messages = new String[capacity];
+                System.arraycopy(failedIndexes, 0, indexes, 0, failureCount);
+                System.arraycopy(failureMessages, 0, messages, 0, failureCount);
+                failedIndexes = indexes;
+                failureMessages = messages;
+            }
+
+            values[index] = null;
+            failedIndexes[failureCount] = index;
+            failureMessages[failureCount] = message;
+            failureCount++;
+        }
+
+        private void checkIndex(final int index) {
+
+            if (index < from || index >= to) {
+                throw new IndexOutOfBoundsException("index " + index + " outside chunk [" + from + ", " + to + ")");
+            }
+        }
+
+    }
+
+}
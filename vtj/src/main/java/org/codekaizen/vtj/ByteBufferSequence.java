@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * <p>Read-only character sequence view of the ASCII bytes in a buffer, used to parse fields straight out of mapped
+ * files through the range based parsing methods without decoding them into strings first. Indexes are absolute buffer
+ * indexes and the buffer's position is never changed.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+final class ByteBufferSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferSequence(final ByteBuffer buffer) {
+        super();
+        this.buffer = buffer;
+    }
+
+    public int length() {
+        return buffer.limit();
+    }
+
+    public char charAt(final int index) {
+        return (char) (buffer.get(index) & 0xFF);
+    }
+
+    public CharSequence subSequence(final int start, final int end) {
+        return toString(start, end);
+    }
+
+    String toString(final int start, final int end) {
+        final char[] chars = new char[end - start];
+
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return toString(0, length());
+    }
+
+}
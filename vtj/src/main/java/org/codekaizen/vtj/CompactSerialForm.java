@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.util.Locale;
+import org.codekaizen.vtj.financial.Money;
+import org.codekaizen.vtj.financial.VTMoney;
+import org.codekaizen.vtj.geom.VTCoordinate;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.intervals.VTDiscreteValueInterval;
+import org.codekaizen.vtj.intervals.VTEmptyInterval;
+import org.codekaizen.vtj.intervals.VTInterval;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTDouble;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.math.VTNumber;
+import org.codekaizen.vtj.measure.VTMeasure;
+import org.codekaizen.vtj.measure.quantities.Duration;
+import org.codekaizen.vtj.measure.quantities.Quantity;
+import org.codekaizen.vtj.measure.units.SI;
+import org.codekaizen.vtj.measure.units.Unit;
+import org.codekaizen.vtj.names.VTJavaName;
+import org.codekaizen.vtj.names.VTLdapName;
+import org.codekaizen.vtj.names.VTPersonName;
+import org.codekaizen.vtj.names.VTPhoneNumber;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTURI;
+import org.codekaizen.vtj.net.VTURL;
+import org.codekaizen.vtj.net.VTURN;
+import org.codekaizen.vtj.text.VTString;
+import org.codekaizen.vtj.time.VTDuration;
+import org.codekaizen.vtj.time.VTInstant;
+
+
+/**
+ * <p>Serialization proxy written in place of the library's value types by {@link VT#writeReplace()}. Each value is
+ * encoded as a one byte type tag followed by a fixed width or variable length encoding of its state, for example two
+ * longs for a UUID or a scale byte and a zig-zag varint for a decimal, instead of the default field by field form with
+ * its class descriptors and nested objects. Numbers inside measures, coordinates and intervals are encoded inline and
+ * units are written as their symbol and resolved back to the shared registered unit. Values are rebuilt through their
+ * public constructors so the usual validation applies on reading.</p>
+ *
+ * <p>Only the exact classes of the library are handled this way, subclasses keep their default serialized form. The
+ * value type classes themselves are unchanged so streams written before this form was introduced still read.</p>
+ *
+ * <p>This class is public only because <code>Externalizable</code> requires it, it is not intended for direct use.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class CompactSerialForm implements Externalizable {
+
+    private static final long serialVersionUID = -2432675043155221845L;
+
+    private static final int NULL = 0;
+    private static final int UUID = 1;
+    private static final int LONG_SERIAL_ID = 2;
+    private static final int MAC_ADDRESS = 3;
+    private static final int INTEGER = 4;
+    private static final int DOUBLE = 5;
+    private static final int DECIMAL = 6;
+    private static final int FRACTION = 7;
+    private static final int MEASURE = 8;
+    private static final int MONEY = 9;
+    private static final int DURATION = 10;
+    private static final int INSTANT = 11;
+    private static final int STRING = 12;
+    private static final int JAVA_NAME = 13;
+    private static final int LDAP_NAME = 14;
+    private static final int PERSON_NAME = 15;
+    private static final int PHONE_NUMBER = 16;
+    private static final int URI = 17;
+    private static final int URL = 18;
+    private static final int URN = 19;
+    private static final int COORDINATE = 20;
+    private static final int INTERVAL = 21;
+    private static final int DISCRETE_INTERVAL = 22;
+    private static final int EMPTY_INTERVAL = 23;
+
+    /** Nested value of any other class written with default serialization. */
+    private static final int OBJECT = 127;
+
+    private Object value;
+
+    /**
+     * Creates an empty form for deserialization.
+     */
+    public CompactSerialForm() {
+        super();
+    }
+
+    private CompactSerialForm(final Object value) {
+        super();
+        this.value = value;
+    }
+
+    /**
+     * Returns the object to serialize in place of the supplied value type.
+     *
+     * @param  vt  the value type being serialized
+     *
+     * @return  a compact form or the value type itself if its class has no compact encoding
+     */
+    static Object replace(final Object vt) {
+        return (tagOf(vt) == OBJECT) ? vt : new CompactSerialForm(vt);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  out  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public void writeExternal(final ObjectOutput out) throws IOException {
+        writeValue(out, value);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  in  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     * @throws  ClassNotFoundException  DOCUMENT ME!
+     */
+    public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+
+        try {
+            value = readValue(in);
+        } catch (final IllegalArgumentException iae) {
+            final InvalidObjectException ioe = new InvalidObjectException(iae.getMessage());
+            ioe.initCause(iae);
+            throw ioe;
+        }
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return value;
+    }
+
+    private static int tagOf(final Object obj) {
+
+        if (obj == null) {
+            return NULL;
+        }
+
+        final Class<?> clazz = obj.getClass();
+
+        if (clazz == VTUUID.class) {
+            return UUID;
+        } else if (clazz == VTLongSerialId.class) {
+            return LONG_SERIAL_ID;
+        } else if (clazz == VTMACAddress.class) {
+            return MAC_ADDRESS;
+        } else if (clazz == VTInteger.class) {
+            return INTEGER;
+        } else if (clazz == VTDouble.class) {
+            return DOUBLE;
+        } else if (clazz == VTDecimal.class) {
+            return DECIMAL;
+        } else if (clazz == VTFraction.class) {
+            return FRACTION;
+        } else if (clazz == VTMeasure.class) {
+            return MEASURE;
+        } else if (clazz == VTMoney.class) {
+            return MONEY;
+        } else if (clazz == VTDuration.class) {
+            return DURATION;
+        } else if (clazz == VTInstant.class) {
+            return INSTANT;
+        } else if (clazz == VTString.class) {
+            return STRING;
+        } else if (clazz == VTJavaName.class) {
+            return JAVA_NAME;
+        } else if (clazz == VTLdapName.class) {
+            return LDAP_NAME;
+        } else if (clazz == VTPersonName.class) {
+            return PERSON_NAME;
+        } else if (clazz == VTPhoneNumber.class) {
+            return PHONE_NUMBER;
+        } else if (clazz == VTURI.class) {
+            return URI;
+        } else if (clazz == VTURL.class) {
+            return URL;
+        } else if (clazz == VTURN.class) {
+            return URN;
+        } else if (clazz == VTCoordinate.class) {
+            return COORDINATE;
+        } else if (clazz == VTInterval.class) {
+            return INTERVAL;
+        } else if (clazz == VTDiscreteValueInterval.class) {
+            return DISCRETE_INTERVAL;
+        } else if (clazz == VTEmptyInterval.class) {
+            return EMPTY_INTERVAL;
+        } else {
+            return OBJECT;
+        }
+    }
+
+    private static void writeValue(final ObjectOutput out, final Object obj) throws IOException {
+        final int tag = tagOf(obj);
+        out.writeByte(tag);
+
+        switch (tag) {
+        case NULL:
+        case EMPTY_INTERVAL:
+            break;
+        case UUID:
+            out.writeLong(((VTUUID) obj).getMostSignificantBits());
+            out.writeLong(((VTUUID) obj).getLeastSignificantBits());
+
+            break;
+        case LONG_SERIAL_ID:
+            writeVarLong(out, ((VTLongSerialId) obj).longValue());
+
+            break;
+        case MAC_ADDRESS:
+            out.write(((VTMACAddress) obj).toByteArray());
+
+            break;
+        case INTEGER:
+            writeVarLong(out, ((VTInteger) obj).intValue());
+
+            break;
+        case DOUBLE:
+            out.writeDouble(((VTDouble) obj).doubleValue());
+
+            break;
+        case DECIMAL:
+            out.writeByte(((VTDecimal) obj).getScale());
+            writeVarLong(out, ((VTDecimal) obj).unscaledValue());
+
+            break;
+        case FRACTION:
+            writeVarLong(out, ((VTFraction) obj).getNumerator());
+            writeVarLong(out, ((VTFraction) obj).getDenominator());
+
+            break;
+        case MEASURE:
+        case MONEY:
+        case DURATION:
+            writeValue(out, ((VTMeasure) obj).getValue());
+            writeUnit(out, ((VTMeasure) obj).getUnit());
+
+            break;
+        case INSTANT:
+            writeVarLong(out, ((VTInstant) obj).getEpochSeconds());
+            writeVarLong(out, ((VTInstant) obj).getNanoOfSecond());
+
+            break;
+        case PERSON_NAME:
+            writeString(out, obj.toString());
+            writeLocale(out, ((VTPersonName) obj).getLocale());
+
+            break;
+        case STRING:
+        case JAVA_NAME:
+        case LDAP_NAME:
+        case PHONE_NUMBER:
+        case URI:
+        case URL:
+        case URN:
+            writeString(out, obj.toString());
+
+            break;
+        case COORDINATE:
+            writeValue(out, ((VTCoordinate) obj).getLongitude());
+            writeValue(out, ((VTCoordinate) obj).getLatitude());
+            writeValue(out, ((VTCoordinate) obj).getElevation());
+
+            break;
+        case INTERVAL:
+            final VTInterval<?> interval = (VTInterval<?>) obj;
+            out.writeByte((interval.isLowerBoundIncluded() ? 1 : 0) | (interval.isHigherBoundIncluded() ? 2 : 0));
+            writeValue(out, interval.getLowerBound());
+            writeValue(out, interval.getHigherBound());
+
+            break;
+        case DISCRETE_INTERVAL:
+            // both bounds of a discrete interval are always included
+            writeValue(out, ((VTInterval<?>) obj).getLowerBound());
+            writeValue(out, ((VTInterval<?>) obj).getHigherBound());
+
+            break;
+        default:
+            out.writeObject(obj);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readValue(final ObjectInput in) throws IOException, ClassNotFoundException {
+        final int tag = in.readUnsignedByte();
+
+        switch (tag) {
+        case NULL:
+            return null;
+        case UUID:
+            return new VTUUID(in.readLong(), in.readLong());
+        case LONG_SERIAL_ID:
+            return new VTLongSerialId(readVarLong(in));
+        case MAC_ADDRESS:
+            final byte[] address = new byte[6];
+            in.readFully(address);
+
+            return new VTMACAddress(address);
+        case INTEGER:
+            return VTInteger.valueOf((int) readVarLong(in));
+        case DOUBLE:
+            return new VTDouble(in.readDouble());
+        case DECIMAL:
+            final int scale = in.readByte();
+
+            return VTDecimal.valueOf(readVarLong(in), scale);
+        case FRACTION:
+            return new VTFraction(readVarLong(in), readVarLong(in));
+        case MEASURE:
+            return new VTMeasure(readNumber(in), CompactSerialForm.<Quantity>readUnit(in));
+        case MONEY:
+            return new VTMoney(readNumber(in), CompactSerialForm.<Money>readUnit(in));
+        case DURATION:
+            return new VTDuration(readNumber(in), CompactSerialForm.<Duration>readUnit(in));
+        case INSTANT:
+            return new VTInstant(readVarLong(in), (int) readVarLong(in));
+        case STRING:
+            return new VTString(readString(in));
+        case JAVA_NAME:
+            return new VTJavaName(readString(in));
+        case LDAP_NAME:
+            return new VTLdapName(readString(in));
+        case PERSON_NAME:
+            return new VTPersonName(readString(in), readLocale(in));
+        case PHONE_NUMBER:
+            return new VTPhoneNumber(readString(in));
+        case URI:
+            return new VTURI(readString(in));
+        case URL:
+            return new VTURL(readString(in));
+        case URN:
+            return new VTURN(readString(in));
+        case COORDINATE:
+            return new VTCoordinate(readNumber(in), readNumber(in), readNumber(in));
+        case INTERVAL:
+            return readInterval(in);
+        case DISCRETE_INTERVAL:
+            return readDiscreteInterval(in);
+        case EMPTY_INTERVAL:
+            return newEmptyInterval();
+        case OBJECT:
+            return in.readObject();
+        default:
+            throw new InvalidObjectException("unknown value type tag " + tag);
+        }
+    }
+
+    private static VTNumber<?> readNumber(final ObjectInput in) throws IOException, ClassNotFoundException {
+        final Object number = readValue(in);
+
+        if (number != null && !(number instanceof VTNumber<?>)) {
+            throw new InvalidObjectException("not a number");
+        }
+
+        return (VTNumber<?>) number;
+    }
+
+    private static <T extends ValueType<T>> VTInterval<T> readInterval(final ObjectInput in) throws IOException,
+        ClassNotFoundException {
+        final int flags = in.readUnsignedByte();
+        final T lowerBound = CompactSerialForm.<T>readBound(in);
+        final T higherBound = CompactSerialForm.<T>readBound(in);
+
+        return new VTInterval<T>(lowerBound, higherBound, (flags & 1) != 0, (flags & 2) != 0);
+    }
+
+    private static <T extends ValueType<T>> VTDiscreteValueInterval<T> readDiscreteInterval(final ObjectInput in)
+        throws IOException, ClassNotFoundException {
+        final T lowerBound = CompactSerialForm.<T>readBound(in);
+        final T higherBound = CompactSerialForm.<T>readBound(in);
+
+        return new VTDiscreteValueInterval<T>(lowerBound, higherBound);
+    }
+
+    private static <T extends ValueType<T>> VTEmptyInterval<T> newEmptyInterval() {
+        return new VTEmptyInterval<T>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ValueType<T>> T readBound(final ObjectInput in) throws IOException,
+        ClassNotFoundException {
+        final Object bound = readValue(in);
+
+        if (bound != null && !(bound instanceof ValueType<?>)) {
+            throw new InvalidObjectException("not a value type");
+        }
+
+        return (T) bound;
+    }
+
+    private static void writeUnit(final ObjectOutput out, final Unit<?> unit) throws IOException {
+        final String symbol = unit.toString();
+
+        if (Unit.valueOf(symbol) == unit) {
+            out.writeBoolean(true);
+            writeString(out, symbol);
+        } else {
+            out.writeBoolean(false);
+            out.writeObject(unit);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Q extends Quantity> Unit<Q> readUnit(final ObjectInput in) throws IOException,
+        ClassNotFoundException {
+
+        if (!in.readBoolean()) {
+            return (Unit<Q>) in.readObject();
+        }
+
+        final String symbol = readString(in);
+        // make sure the standard units have registered their symbols
+        SI.getInstance();
+
+        final Unit<?> unit = Unit.valueOf(symbol);
+
+        if (unit == null) {
+            throw new InvalidObjectException("unknown unit " + symbol);
+        }
+
+        return (Unit<Q>) unit;
+    }
+
+    private static void writeLocale(final ObjectOutput out, final Locale locale) throws IOException {
+        writeString(out, locale.getLanguage());
+        writeString(out, locale.getCountry());
+        writeString(out, locale.getVariant());
+    }
+
+    private static Locale readLocale(final ObjectInput in) throws IOException {
+        return new Locale(readString(in), readString(in), readString(in));
+    }
+
+    /**
+     * Writes the length and then each character as an unsigned varint so ASCII text takes one byte per character.
+     */
+    private static void writeString(final ObjectOutput out, final String s) throws IOException {
+        final int length = s.length();
+        writeUnsignedVarInt(out, length);
+
+        for (int i = 0; i < length; i++) {
+            writeUnsignedVarInt(out, s.charAt(i));
+        }
+    }
+
+    private static String readString(final ObjectInput in) throws IOException {
+        final int length = readUnsignedVarInt(in);
+
+        if (length < 0) {
+            throw new InvalidObjectException("negative string length");
+        }
+
+        final char[] chars = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) readUnsignedVarInt(in);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Writes a signed value zig-zag encoded so small negative numbers stay short too.
+     */
+    private static void writeVarLong(final ObjectOutput out, final long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+
+        while ((v & ~0x7FL) != 0L) {
+            out.writeByte((int) ((v & 0x7FL) | 0x80L));
+            v >>>= 7;
+        }
+
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(final ObjectInput in) throws IOException {
+        long v = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1L);
+            }
+        }
+
+        throw new InvalidObjectException("malformed varint");
+    }
+
+    private static void writeUnsignedVarInt(final ObjectOutput out, final int value) throws IOException {
+        int v = value;
+
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+
+        out.writeByte(v);
+    }
+
+    private static int readUnsignedVarInt(final ObjectInput in) throws IOException {
+        int v = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+
+        throw new InvalidObjectException("malformed varint");
+    }
+
+}
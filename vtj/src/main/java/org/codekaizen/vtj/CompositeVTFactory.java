@@ -21,9 +21,18 @@
  */
 package org.codekaizen.vtj;
 
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.codekaizen.vtj.enums.VTBoolean;
 
 
@@ -31,6 +40,21 @@ import org.codekaizen.vtj.enums.VTBoolean;
  * <p>Handles the parsing and formating of all the value types in a domain by successively delegating to the contained
  * value type factories.</p>
  *
+ * <p>Creation and formatting requests are routed through a dispatch index keyed on value type class so each call
+ * costs a single map lookup regardless of how many factories are registered. The index is seeded from the type
+ * parameters of the contained factories at construction, filled in on first use for any other class and rebuilt
+ * whenever the context changes.</p>
+ *
+ * <p>Parsing first classifies the string by its length and first character and then only tries the factories which
+ * report it as a possible candidate, so a string such as <code>sid:42</code> never reaches the UUID or MAC address
+ * factories. Nothing beyond those two features is looked at, so strings sharing them, such as numbers and fractions,
+ * still reach every factory accepting either. The candidate list for each class is computed once and cached. The
+ * number of strings successfully parsed by each factory is counted in per-processor stripes, so counting adds no
+ * contention between threads, and, if the <code>org.codekaizen.vtj.CompositeVTFactory.adaptiveOrdering</code>
+ * context value is <code>true</code>, candidates are periodically reordered so the factories hit most often are tried
+ * first. Note that this means the most common rather than the first registered factory wins for strings more than one
+ * factory can parse.</p>
+ *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 @SuppressWarnings("unchecked")
@@ -38,31 +62,51 @@ public class CompositeVTFactory extends AbstractVTFactory {
 
     private static final long serialVersionUID = 8610867732176827990L;
 
+    /** Index entry for classes none of the contained factories can handle. */
+    private static final Dispatch NO_FACTORY = new Dispatch(null);
+
+    /** Strings longer than this are classified on every parse instead of being cached. */
+    private static final int MAX_INDEXED_LENGTH = 64;
+
+    /** Strings starting with a character outside this range are classified on every parse. */
+    private static final int INDEXED_CHARS = 128;
+
+    /** Number of successful parses in one stripe between candidate reorderings when adaptive ordering is on. */
+    private static final long REORDER_INTERVAL = 4096L;
+
+    /** Number of hit count stripes, a power of two. */
+    private static final int STRIPES = stripeCount();
+
+    /** Whether contained factories are tried in order of past parse success. */
+    private static final ContextKey<Boolean> ADAPTIVE_ORDERING = ContextKey.forBoolean(
+            "org.codekaizen.vtj.CompositeVTFactory.adaptiveOrdering", false);
+
     private final List<ValueTypeFactory<?>> factories;
-    private final List<Method> formatMethods;
+    private transient volatile ConcurrentMap<Class<?>, Dispatch> dispatchIndex;
+    private transient volatile AtomicReferenceArray<int[]> candidateIndex;
+    private transient volatile AtomicLongArray parseHits;
+    private transient int stripeLength;
+    private transient volatile boolean adaptiveOrdering;
 
     /**
      * Creates a new CompositeVTFactory object.
      *
-     * @param  factories  DOCUMENT ME!
-     * @param  strategy  DOCUMENT ME!
+     * @param  factories  the factories to delegate to in order of precedence
+     * @param  strategy  the strategy to use for retrieving values and resources from the execution environment
      */
     public CompositeVTFactory(final List<ValueTypeFactory<?>> factories, final ContextHandlingStrategy strategy) {
-        super(strategy);
+        super(strategy, ADAPTIVE_ORDERING);
         this.factories = new ArrayList<ValueTypeFactory<?>>(factories);
-        formatMethods = new ArrayList<Method>();
-
-        for (final ValueTypeFactory<?> factory : this.factories) {
-
-            for (final Method method : factory.getClass().getMethods()) {
-
-                if ("format".equals(method.getName())) {
-                    formatMethods.add(method);
+        initParseStatistics();
+        rebuildDispatchIndex();
+        rebuildCandidateIndex();
+    }
 
-                    break;
-                }
-            }
-        }
+    private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initParseStatistics();
+        rebuildDispatchIndex();
+        rebuildCandidateIndex();
     }
 
     /**
@@ -75,26 +119,194 @@ public class CompositeVTFactory extends AbstractVTFactory {
         for (final ValueTypeFactory<?> factory : factories) {
             factory.setContext(super.getContext());
         }
+
+        this.adaptiveOrdering = ((Boolean) super.getValue(ADAPTIVE_ORDERING)).booleanValue();
+
+        rebuildDispatchIndex();
+        rebuildCandidateIndex();
     }
 
     /**
-     * DOCUMENT ME!
+     * Returns the number of strings successfully parsed by each contained factory since construction or the last call
+     * to {@link #resetParseStatistics()}.
      *
-     * @param  clazz  DOCUMENT ME!
+     * @return  the hit counts in the same order as the factories were supplied
+     */
+    public long[] getParseStatistics() {
+        final AtomicLongArray hits = parseHits;
+        final long[] result = new long[factories.size()];
+
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+
+            for (int i = 0; i < result.length; i++) {
+                result[i] += hits.get(stripe * stripeLength + i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears all parse hit counts.
+     */
+    public void resetParseStatistics() {
+        initParseStatistics();
+        rebuildCandidateIndex();
+    }
+
+    private void initParseStatistics() {
+        // one slot per factory plus the stripe's parse count, padded to whole 64 byte cache lines
+        stripeLength = (factories.size() + 8) & ~7;
+        parseHits = new AtomicLongArray(STRIPES * stripeLength);
+    }
+
+    private static int stripeCount() {
+        final int wanted = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        int stripes = 1;
+
+        while (stripes < wanted) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+
+    private int stripeOffset() {
+        // spread consecutive thread ids over the stripes
+        final long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+
+        return ((int) (id >>> 32) & (STRIPES - 1)) * stripeLength;
+    }
+
+    /**
+     * Discards all cached candidate lists so they get recomputed using the current factory contexts and hit counts.
+     */
+    private void rebuildCandidateIndex() {
+        candidateIndex = new AtomicReferenceArray<int[]>((MAX_INDEXED_LENGTH + 1) * INDEXED_CHARS);
+    }
+
+    /**
+     * Discards all cached class to factory mappings and re-seeds the index with the value type class each contained
+     * factory is declared to produce. Each seeded class maps to the first factory in precedence order able to create
+     * it, which is not necessarily the one declaring it.
+     */
+    private void rebuildDispatchIndex() {
+        final ConcurrentMap<Class<?>, Dispatch> index = new ConcurrentHashMap<Class<?>, Dispatch>();
+
+        for (final ValueTypeFactory<?> factory : factories) {
+            final Class<?> clazz = findValueTypeClass(factory.getClass());
+
+            if (clazz != null && !index.containsKey(clazz)) {
+                index.put(clazz, resolve(clazz));
+            }
+        }
+
+        dispatchIndex = index;
+    }
+
+    private static Class<?> findValueTypeClass(final Class<?> factoryClass) {
+        Class<?> clz = factoryClass;
+
+        while (clz != null && !Object.class.equals(clz)) {
+            final Type type = clz.getGenericSuperclass();
+
+            if (type instanceof ParameterizedType) {
+                final Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+
+                if (args.length == 1 && args[0] instanceof Class<?> &&
+                        ValueType.class.isAssignableFrom((Class<?>) args[0])) {
+                    return (Class<?>) args[0];
+                }
+            }
+
+            clz = clz.getSuperclass();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the factory which handles the supplied value type class or <code>null</code> if none of the contained
+     * factories does.
      *
-     * @return  DOCUMENT ME!
+     * @param  clazz  the value type class
+     *
+     * @return  the owning factory
      */
-    @Override
-    public boolean isCreatable(final Class clazz) {
+    private ValueTypeFactory<?> lookup(final Class<?> clazz) {
+
+        if (clazz == null) {
+            return null;
+        }
+
+        ConcurrentMap<Class<?>, Dispatch> index = dispatchIndex;
+
+        if (index == null) {
+            rebuildDispatchIndex();
+            index = dispatchIndex;
+        }
+
+        Dispatch dispatch = index.get(clazz);
+
+        if (dispatch == null) {
+            dispatch = resolve(clazz);
+            index.putIfAbsent(clazz, dispatch);
+        }
+
+        return dispatch.factory;
+    }
+
+    private Dispatch resolve(final Class<?> clazz) {
 
         for (final ValueTypeFactory<?> factory : factories) {
 
-            if (factory.isCreatable(clazz)) {
-                return true;
+            if (factory.isCreatable((Class<? extends ValueType<?>>) clazz)) {
+                return new Dispatch(factory);
             }
         }
 
-        return false;
+        return NO_FACTORY;
+    }
+
+    /**
+     * Returns the factory which is able to format instances of the supplied class, checking superclasses when a
+     * subclass is not directly creatable.
+     *
+     * @param  clazz  the runtime class of a value type
+     *
+     * @return  the owning factory or <code>null</code> if no factory handles the class
+     */
+    private ValueTypeFactory<?> lookupFormatter(final Class<?> clazz) {
+        Class<?> clz = clazz;
+
+        while (clz != null) {
+            final ValueTypeFactory<?> factory = lookup(clz);
+
+            if (factory != null) {
+
+                if (clz != clazz) {
+                    dispatchIndex.put(clazz, new Dispatch(factory));
+                }
+
+                return factory;
+            }
+
+            clz = clz.getSuperclass();
+        }
+
+        return null;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  clazz  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public boolean isCreatable(final Class clazz) {
+        return lookup(clazz) != null;
     }
 
     /**
@@ -107,15 +319,24 @@ public class CompositeVTFactory extends AbstractVTFactory {
      */
     @Override
     public ValueType create(final Class clazz, final Object... args) {
+        final ValueTypeFactory<?> factory = lookup(clazz);
 
-        for (final ValueTypeFactory<?> factory : factories) {
-
-            if (factory.isCreatable(clazz)) {
-                return factory.create(clazz, args);
-            }
+        if (factory == null) {
+            return null;
         }
 
-        return null;
+        final FactoryInstrumentation instr = getInstrumentation();
+        final long startTime = instr.start();
+        boolean success = false;
+
+        try {
+            final ValueType<?> result = factory.create(clazz, args);
+            success = result != null;
+
+            return result;
+        } finally {
+            instr.created(startTime, success);
+        }
     }
 
     /**
@@ -131,86 +352,259 @@ public class CompositeVTFactory extends AbstractVTFactory {
     }
 
     /**
-     * DOCUMENT ME!
+     * Returns the value produced by the first candidate factory able to parse the supplied range or <code>
+     * null</code> if none can. Each candidate scans the range once.
      *
-     * @param  s  DOCUMENT ME!
+     * @param  s  the sequence containing the string representation
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
      *
-     * @return  DOCUMENT ME!
+     * @return  the new value type object or <code>null</code>
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected ValueType<?> doParse(final CharSequence s, final int start, final int end) {
+        return tryCandidates(s, start, end, null);
+    }
 
-        for (final ValueTypeFactory<?> factory : factories) {
+    /**
+     * Parses the chunk counting factory hits locally and publishing them once at the end so parallel chunks do not
+     * contend on the shared statistics.
+     *
+     * @param  inputs  DOCUMENT ME!
+     * @param  chunk  DOCUMENT ME!
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    protected void parseChunk(final List inputs, final BulkResult.Chunk chunk) {
+        final long[] hits = new long[factories.size()];
+        final FactoryInstrumentation instr = getInstrumentation();
+
+        for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+            final CharSequence s = (CharSequence) inputs.get(i);
+            ValueType<?> value = null;
+
+            if (s != null) {
+                final long startTime = instr.start();
+                value = tryCandidates(s, 0, s.length(), hits);
+                instr.parsed(startTime, value != null);
+            }
 
-            if (factory.isParsable(s)) {
-                return true;
+            if (value == null) {
+                chunk.fail(i, "unparsable");
+            } else {
+                chunk.set(i, value);
             }
         }
 
-        return false;
+        recordHits(hits);
     }
 
     /**
-     * DOCUMENT ME!
-     *
-     * @param  s  DOCUMENT ME!
-     *
-     * @return  DOCUMENT ME!
+     * Looks up the delegate once for the whole chunk.
      *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
+     * @param  clazz  DOCUMENT ME!
+     * @param  inputs  DOCUMENT ME!
+     * @param  chunk  DOCUMENT ME!
      */
     @Override
-    public ValueType parse(final CharSequence s) {
+    @SuppressWarnings("rawtypes")
+    protected void createChunk(final Class clazz, final List inputs, final BulkResult.Chunk chunk) {
+        final ValueTypeFactory<?> factory = lookup(clazz);
 
-        for (final ValueTypeFactory<?> factory : factories) {
+        for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+
+            try {
+                chunk.set(i, factory.create(clazz, new Object[] { inputs.get(i) }));
+            } catch (final IllegalArgumentException iae) {
+                chunk.fail(i, iae.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the result of the first candidate factory able to parse the range. Hits are recorded straight away if
+     * <code>hits</code> is <code>null</code> or else added to it.
+     */
+    private ValueType<?> tryCandidates(final CharSequence s, final int start, final int end, final long[] hits) {
+        final int length = end - start;
+        final int[] candidates = findCandidates(length, (length == 0) ? '\0' : s.charAt(start));
+
+        for (final int i : candidates) {
+            final ValueTypeFactory<?> factory = factories.get(i);
+            final ValueType<?> result = factory.tryParse(s, start, end);
+
+            if (result != null) {
+                getInstrumentation().selected(factory);
+
+                if (hits == null) {
+                    recordHit(i);
+                } else {
+                    hits[i]++;
+                }
+
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    private int[] findCandidates(final int length, final char first) {
+
+        if (length > MAX_INDEXED_LENGTH || first >= INDEXED_CHARS) {
+            return classify(length, first);
+        }
+
+        final AtomicReferenceArray<int[]> index = candidateIndex;
+        final int slot = length * INDEXED_CHARS + first;
+        int[] candidates = index.get(slot);
+
+        if (candidates == null) {
+            candidates = classify(length, first);
+            index.set(slot, candidates);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Returns the indexes of the factories which might be able to parse a string with the supplied features in the
+     * order they should be tried.
+     */
+    private int[] classify(final int length, final char first) {
+        final List<Integer> matches = new ArrayList<Integer>(factories.size());
+
+        for (int i = 0; i < factories.size(); i++) {
+            final ValueTypeFactory<?> factory = factories.get(i);
+
+            if (!(factory instanceof AbstractVTFactory<?>) ||
+                    ((AbstractVTFactory<?>) factory).isParseCandidate(length, first)) {
+                matches.add(i);
+            }
+        }
+
+        final Integer[] order = matches.toArray(new Integer[matches.size()]);
+
+        if (adaptiveOrdering) {
+            final long[] hits = getParseStatistics();
+
+            // stable so ties keep precedence order
+            Arrays.sort(order, new Comparator<Integer>() {
+                    public int compare(final Integer o1, final Integer o2) {
+                        final long h1 = hits[o1];
+                        final long h2 = hits[o2];
+
+                        return (h1 > h2) ? -1 : ((h1 < h2) ? 1 : 0);
+                    }
+                });
+        }
+
+        final int[] result = new int[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+
+        return result;
+    }
+
+    private void recordHit(final int factoryIndex) {
+        final AtomicLongArray stats = parseHits;
+        final int offset = stripeOffset();
+        stats.incrementAndGet(offset + factoryIndex);
+
+        if (adaptiveOrdering && stats.incrementAndGet(offset + factories.size()) % REORDER_INTERVAL == 0L) {
+            rebuildCandidateIndex();
+        }
+    }
+
+    private void recordHits(final long[] hits) {
+        final AtomicLongArray stats = parseHits;
+        final int offset = stripeOffset();
+        long total = 0L;
+
+        for (int i = 0; i < hits.length; i++) {
 
-            if (factory.isParsable(s)) {
-                return factory.parse(s);
+            if (hits[i] != 0L) {
+                stats.addAndGet(offset + i, hits[i]);
+                total += hits[i];
             }
         }
 
-        throw new IllegalArgumentException("unrecognizable string");
+        if (adaptiveOrdering && total != 0L) {
+            final long count = stats.addAndGet(offset + factories.size(), total);
+
+            if ((count - total) / REORDER_INTERVAL != count / REORDER_INTERVAL) {
+                rebuildCandidateIndex();
+            }
+        }
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  vt  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    protected ValueType doParse(final CharSequence s) {
+    @SuppressWarnings("rawtypes")
+    protected String doFormat(final ValueType vt) {
+        final ValueTypeFactory<?> factory = lookupFormatter(vt.getClass());
 
-        // do nothing
-        return null;
+        if (factory == null) {
+            return "";
+        }
+
+        return format(factory, vt);
     }
 
     /**
      * DOCUMENT ME!
      *
      * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      *
-     * @throws  IllegalStateException  DOCUMENT ME!
+     * @throws  IOException  DOCUMENT ME!
      */
     @Override
-    public String format(final ValueType vt) {
+    @SuppressWarnings("rawtypes")
+    protected Appendable doFormatTo(final ValueType vt, final Appendable out) throws IOException {
+        final ValueTypeFactory<?> factory = lookupFormatter(vt.getClass());
 
-        for (final Method method : formatMethods) {
+        if (factory != null) {
+            formatTo(factory, vt, out);
+        }
 
-            if (method.getParameterTypes()[0].isAssignableFrom(vt.getClass())) {
+        return out;
+    }
 
-                try {
-                    return (String) method.invoke(vt, new Object[] {});
-                } catch (final Exception e) {
-                    throw new IllegalStateException(e.getMessage());
-                }
-            }
+    /**
+     * Formats the value with a factory found by its class, which guarantees the value is of the factory's type.
+     */
+    private static <T extends ValueType<T>> String format(final ValueTypeFactory<T> factory, final ValueType<?> vt) {
+        return factory.format((T) vt);
+    }
+
+    private static <T extends ValueType<T>> void formatTo(final ValueTypeFactory<T> factory, final ValueType<?> vt,
+        final Appendable out) throws IOException {
+        factory.formatTo((T) vt, out);
+    }
+
+    /**
+     * Index entry holding the factory owning a value type class. Needed since a concurrent map cannot hold <code>
+     * null</code> for classes no factory handles.
+     */
+    private static final class Dispatch {
+
+        private final ValueTypeFactory<?> factory;
+
+        Dispatch(final ValueTypeFactory<?> factory) {
+            this.factory = factory;
         }
 
-        return "";
     }
 
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+
+/**
+ * <p>A typed, precompiled name for a configuration value read from the execution context. Each factory declares the
+ * keys it depends on once, usually as constants, and passes them to its {@link AbstractVTFactory} constructor. All
+ * declared keys are then looked up and converted together whenever the context changes and the results are read back
+ * with {@link AbstractVTFactory#getValue(ContextKey)} as plain array slots of the published context snapshot, so no
+ * string lookups or type checks are repeated on the hot path. Each key remembers its position among the keys of the
+ * first factory it is registered with, so reading it back from that or any factory declaring it at the same position
+ * does not even search the declared keys.</p>
+ *
+ * <p>Raw values are looked up in the {@link ContextHandlingStrategy} first and then in the system properties. A
+ * missing value resolves to the default while a value that cannot be converted causes the context change to fail with
+ * an <code>IllegalArgumentException</code>.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class ContextKey<V> implements Serializable {
+
+    private static final long serialVersionUID = 3546173306094815423L;
+
+    private final String name;
+    private final V defaultValue;
+    private final Converter<V> converter;
+
+    /** Position among the keys of the first factory this key was registered with, or -1 if not registered yet. */
+    private transient int index = -1;
+
+    /**
+     * Constructs a context key.
+     *
+     * @param  name  the name the value is mapped to in the context
+     * @param  defaultValue  the value to use if the context does not contain one, may be <code>null</code>
+     * @param  converter  converts raw context values to the key type
+     */
+    public ContextKey(final String name, final V defaultValue, final Converter<V> converter) {
+        super();
+        AssertPrecondition.notBlank("name", name);
+        AssertPrecondition.notNull("converter", converter);
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.converter = converter;
+    }
+
+    /**
+     * Returns a key for values that must already be instances of the supplied type.
+     *
+     * @param  name  the name the value is mapped to in the context
+     * @param  type  the required type
+     * @param  defaultValue  the value to use if the context does not contain one
+     *
+     * @return  the key
+     */
+    public static <V> ContextKey<V> forType(final String name, final Class<V> type, final V defaultValue) {
+        return new ContextKey<V>(name, defaultValue, new TypeConverter<V>(type));
+    }
+
+    /**
+     * Returns a key for boolean values which may also be supplied as strings.
+     *
+     * @param  name  the name the value is mapped to in the context
+     * @param  defaultValue  the value to use if the context does not contain one
+     *
+     * @return  the key
+     */
+    public static ContextKey<Boolean> forBoolean(final String name, final boolean defaultValue) {
+        return new ContextKey<Boolean>(name, Boolean.valueOf(defaultValue), new BooleanConverter());
+    }
+
+    /**
+     * Returns a key for long values which may also be supplied as any other number or as strings.
+     *
+     * @param  name  the name the value is mapped to in the context
+     * @param  defaultValue  the value to use if the context does not contain one
+     *
+     * @return  the key
+     */
+    public static ContextKey<Long> forLong(final String name, final Long defaultValue) {
+        return new ContextKey<Long>(name, defaultValue, new LongConverter());
+    }
+
+    /**
+     * Returns a key for enumeration values which may also be supplied as ordinals or constant names.
+     *
+     * @param  name  the name the value is mapped to in the context
+     * @param  type  the enumeration class
+     * @param  defaultValue  the value to use if the context does not contain one
+     *
+     * @return  the key
+     */
+    public static <E extends Enum<E>> ContextKey<E> forEnum(final String name, final Class<E> type,
+            final E defaultValue) {
+        return new ContextKey<E>(name, defaultValue, new EnumConverter<E>(type));
+    }
+
+    private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        index = -1;
+    }
+
+    /**
+     * Records the position of this key among the keys of a factory unless it has already been registered with
+     * another one.
+     *
+     * @param  position  the index of this key in the factory's key array
+     */
+    void register(final int position) {
+
+        if (index < 0) {
+            index = position;
+        }
+    }
+
+    /**
+     * Returns the position recorded by the first registration.
+     *
+     * @return  the position or -1 if this key has not been registered
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name the value is mapped to in the context.
+     *
+     * @return  the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value used when the context does not contain one.
+     *
+     * @return  the default value
+     */
+    public V getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Converts a raw context value to the key type.
+     *
+     * @param  raw  the value found in the context or <code>null</code>
+     *
+     * @return  the converted value or the default if there was no value
+     *
+     * @throws  IllegalArgumentException  if the value cannot be converted
+     */
+    public V resolve(final Object raw) {
+
+        if (raw == null) {
+            return defaultValue;
+        }
+
+        final V value = converter.convert(raw);
+
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * <p>Converts raw context values to the type of a key.</p>
+     *
+     * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+     */
+    public interface Converter<V> extends Serializable {
+
+        /**
+         * Returns the supplied raw value converted to the key type.
+         *
+         * @param  value  the raw value, never <code>null</code>
+         *
+         * @return  the converted value or <code>null</code> to use the key default
+         *
+         * @throws  IllegalArgumentException  if the value cannot be converted
+         */
+        V convert(Object value);
+
+    }
+
+    /**
+     * Accepts instances of a given type only.
+     */
+    private static final class TypeConverter<V> implements Converter<V> {
+
+        private static final long serialVersionUID = -6602526981738716130L;
+
+        private final Class<V> type;
+
+        TypeConverter(final Class<V> type) {
+            super();
+            AssertPrecondition.notNull("type", type);
+            this.type = type;
+        }
+
+        public V convert(final Object value) {
+
+            if (!type.isInstance(value)) {
+                throw new IllegalArgumentException("cannot convert " + value + " to " + type.getName());
+            }
+
+            return type.cast(value);
+        }
+
+    }
+
+    /**
+     * Accepts booleans and strings.
+     */
+    private static final class BooleanConverter implements Converter<Boolean> {
+
+        private static final long serialVersionUID = 4925094880516839611L;
+
+        public Boolean convert(final Object value) {
+
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            } else if (value instanceof CharSequence) {
+                return Boolean.valueOf(value.toString().trim());
+            }
+
+            throw new IllegalArgumentException("cannot convert " + value + " to a boolean");
+        }
+
+    }
+
+    /**
+     * Accepts numbers and strings.
+     */
+    private static final class LongConverter implements Converter<Long> {
+
+        private static final long serialVersionUID = 2204817043779371617L;
+
+        public Long convert(final Object value) {
+
+            if (value instanceof Long) {
+                return (Long) value;
+            } else if (value instanceof Number) {
+                return Long.valueOf(((Number) value).longValue());
+            } else if (value instanceof CharSequence) {
+                return Long.valueOf(value.toString().trim());
+            }
+
+            throw new IllegalArgumentException("cannot convert " + value + " to a long");
+        }
+
+    }
+
+    /**
+     * Accepts enumeration constants, ordinals and constant names.
+     */
+    private static final class EnumConverter<E extends Enum<E>> implements Converter<E> {
+
+        private static final long serialVersionUID = -1395553785240938893L;
+
+        private final Class<E> type;
+
+        EnumConverter(final Class<E> type) {
+            super();
+            AssertPrecondition.notNull("type", type);
+            this.type = type;
+        }
+
+        public E convert(final Object value) {
+
+            if (type.isInstance(value)) {
+                return type.cast(value);
+            } else if (value instanceof Number) {
+                final E[] constants = type.getEnumConstants();
+                final int ordinal = ((Number) value).intValue();
+                AssertPrecondition.withinRange("ordinal", ordinal, 0, constants.length - 1);
+
+                return constants[ordinal];
+            } else if (value instanceof CharSequence) {
+                return Enum.valueOf(type, value.toString().trim());
+            }
+
+            throw new IllegalArgumentException("cannot convert " + value + " to " + type.getName());
+        }
+
+    }
+
+}
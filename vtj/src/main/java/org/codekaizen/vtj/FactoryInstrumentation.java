@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+/**
+ * <p>Receives timing and outcome events from a value type factory. {@link AbstractVTFactory} obtains one instance per
+ * factory from the registered {@link InstrumentationProvider} and calls it around every create, parse, format and
+ * context change.</p>
+ *
+ * <p>Each operation first calls {@link #start()} and passes the returned value back to the matching completion method
+ * so implementations decide what, if anything, to measure. Implementations are called concurrently from every thread
+ * using the factory, must be cheap and must never throw.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public interface FactoryInstrumentation {
+
+    /**
+     * Called at the start of every instrumented operation.
+     *
+     * @return  a start time such as <code>System.nanoTime()</code> or any constant if timings are not needed
+     */
+    long start();
+
+    /**
+     * Called after a value type object was created or creation failed with an exception.
+     *
+     * @param  startTime  the value returned by {@link #start()}
+     * @param  success  whether an object was returned
+     */
+    void created(long startTime, boolean success);
+
+    /**
+     * Called after a string was parsed or found to be unparsable.
+     *
+     * @param  startTime  the value returned by {@link #start()}
+     * @param  success  whether the string was parsable
+     */
+    void parsed(long startTime, boolean success);
+
+    /**
+     * Called after a value type object was formatted.
+     *
+     * @param  startTime  the value returned by {@link #start()}
+     */
+    void formatted(long startTime);
+
+    /**
+     * Called after a context change has been processed and published.
+     *
+     * @param  startTime  the value returned by {@link #start()}
+     */
+    void contextChanged(long startTime);
+
+    /**
+     * Called by factories which delegate to other factories, such as {@link CompositeVTFactory}, each time a string
+     * was parsed by one of them.
+     *
+     * @param  delegate  the factory which parsed the string
+     */
+    void selected(ValueTypeFactory<?> delegate);
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.lang.ref.WeakReference;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.codekaizen.vtj.text.BpDateFormat;
+import org.codekaizen.vtj.text.BpNumberFormat;
+
+
+/**
+ * <p>Caches the formatters handed out by {@link VTContext} keyed by application environment, locale and style.
+ * Constructing a formatter sets up JDK formats, a calendar and the locale symbols so it is far too expensive to do for
+ * every value formatted.</p>
+ *
+ * <p>Formatters are not thread-safe so each thread gets its own instances which are then returned again on every later
+ * request from that thread. The returned formatters must therefore neither be reconfigured nor passed to other
+ * threads. Clone them if either is needed. Lookups do not allocate.</p>
+ *
+ * <p>Hits and misses are also counted per thread and only added up when the statistics are read, so lookups never
+ * write to memory shared with other threads.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class FormatterCache {
+
+    private static final int ENVIRONMENTS = ApplicationEnvironment.values().length;
+    private static final int STYLES = Style.values().length;
+
+    private static final ThreadLocal<ThreadCache> FORMATTERS = new ThreadLocal<ThreadCache>() {
+            @Override
+            protected ThreadCache initialValue() {
+                final ThreadCache cache = new ThreadCache();
+                LIVE_CACHES.add(cache);
+
+                return cache;
+            }
+        };
+
+    /** The caches of all threads which have not been found dead or cleared yet. */
+    private static final Queue<ThreadCache> LIVE_CACHES = new ConcurrentLinkedQueue<ThreadCache>();
+
+    /** Counts of threads which have died or cleared their cache. */
+    private static final AtomicLong RETIRED_HITS = new AtomicLong();
+    private static final AtomicLong RETIRED_MISSES = new AtomicLong();
+
+    private FormatterCache() {
+        super();  // static methods only
+    }
+
+    /**
+     * Returns a date formatter confined to the calling thread.
+     *
+     * @param  applicationEnvironment  the application environment to format for
+     * @param  locale  the locale to format for
+     * @param  style  {@link Style#DATE} or {@link Style#TIMESTAMP}
+     *
+     * @return  the cached formatter
+     *
+     * @throws  IllegalArgumentException  if style is not a date style
+     */
+    public static DateFormat getDateFormat(final ApplicationEnvironment applicationEnvironment, final Locale locale,
+            final Style style) {
+        final Format fmt = getFormat(applicationEnvironment, locale, style);
+
+        if (!(fmt instanceof DateFormat)) {
+            throw new IllegalArgumentException(style + " is not a date style");
+        }
+
+        return (DateFormat) fmt;
+    }
+
+    /**
+     * Returns a number formatter confined to the calling thread.
+     *
+     * @param  applicationEnvironment  the application environment to format for
+     * @param  locale  the locale to format for
+     * @param  style  {@link Style#CURRENCY} or {@link Style#FLOATING_POINT}
+     *
+     * @return  the cached formatter
+     *
+     * @throws  IllegalArgumentException  if style is not a number style
+     */
+    public static NumberFormat getNumberFormat(final ApplicationEnvironment applicationEnvironment,
+            final Locale locale, final Style style) {
+        final Format fmt = getFormat(applicationEnvironment, locale, style);
+
+        if (!(fmt instanceof NumberFormat)) {
+            throw new IllegalArgumentException(style + " is not a number style");
+        }
+
+        return (NumberFormat) fmt;
+    }
+
+    /**
+     * Returns the number of requests answered from the cache since class loading or the last reset.
+     *
+     * @return  the hit count
+     */
+    public static long getHitCount() {
+        return sumStatistics()[0];
+    }
+
+    /**
+     * Returns the number of requests which had to construct a new formatter since class loading or the last reset.
+     *
+     * @return  the miss count
+     */
+    public static long getMissCount() {
+        return sumStatistics()[1];
+    }
+
+    /**
+     * Returns the fraction of requests answered from the cache.
+     *
+     * @return  the hit rate between 0 and 1, or 0 if there were no requests
+     */
+    public static double getHitRate() {
+        final long[] counts = sumStatistics();
+        final long hits = counts[0];
+        final long total = hits + counts[1];
+
+        return total == 0L ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Clears the hit and miss counts. Cached formatters are kept. Counts made concurrently may or may not be kept.
+     */
+    public static void resetStatistics() {
+        RETIRED_HITS.set(0L);
+        RETIRED_MISSES.set(0L);
+
+        for (final ThreadCache cache : LIVE_CACHES) {
+            cache.hits.set(0L);
+            cache.misses.set(0L);
+        }
+    }
+
+    /**
+     * Drops all formatters cached for the calling thread. Should be called by pooled threads which are about to be
+     * returned to a pool shared with other applications.
+     */
+    public static void clear() {
+        retire(FORMATTERS.get());
+        FORMATTERS.remove();
+    }
+
+    /**
+     * Adds up the counts of all threads, retiring those of threads which have died. Not an atomic snapshot.
+     */
+    private static long[] sumStatistics() {
+        long hits = 0L;
+        long misses = 0L;
+
+        for (final Iterator<ThreadCache> it = LIVE_CACHES.iterator(); it.hasNext();) {
+            final ThreadCache cache = it.next();
+
+            if (cache.owner.get() == null) {
+                retire(cache);
+            } else {
+                hits += cache.hits.get();
+                misses += cache.misses.get();
+            }
+        }
+
+        return new long[] { hits + RETIRED_HITS.get(), misses + RETIRED_MISSES.get() };
+    }
+
+    private static void retire(final ThreadCache cache) {
+
+        if (LIVE_CACHES.remove(cache)) {
+            RETIRED_HITS.addAndGet(cache.hits.get());
+            RETIRED_MISSES.addAndGet(cache.misses.get());
+        }
+    }
+
+    private static Format getFormat(final ApplicationEnvironment applicationEnvironment, final Locale locale,
+            final Style style) {
+        AssertPrecondition.notNull("applicationEnvironment", applicationEnvironment);
+        AssertPrecondition.notNull("locale", locale);
+        AssertPrecondition.notNull("style", style);
+
+        final ThreadCache cache = FORMATTERS.get();
+        final Map<Locale, Format[]> byLocale = cache.formatters;
+        Format[] slots = byLocale.get(locale);
+
+        if (slots == null) {
+            slots = new Format[ENVIRONMENTS * STYLES];
+            byLocale.put(locale, slots);
+        }
+
+        final int slot = applicationEnvironment.ordinal() * STYLES + style.ordinal();
+        Format fmt = slots[slot];
+
+        // only the owning thread writes its counts so an ordered store is enough
+        if (fmt == null) {
+            cache.misses.lazySet(cache.misses.get() + 1L);
+            fmt = createFormat(applicationEnvironment, locale, style);
+            slots[slot] = fmt;
+        } else {
+            cache.hits.lazySet(cache.hits.get() + 1L);
+        }
+
+        return fmt;
+    }
+
+    private static Format createFormat(final ApplicationEnvironment applicationEnvironment, final Locale locale,
+            final Style style) {
+        final boolean local = applicationEnvironment == ApplicationEnvironment.LOCAL_CUSTOM;
+
+        switch (style) {
+
+        case DATE:
+            return new BpDateFormat(local ? BpDateFormat.JVM_DATE_ONLY : BpDateFormat.ISO_DATE_ONLY, locale);
+
+        case TIMESTAMP:
+            return new BpDateFormat(local ? BpDateFormat.JVM_DATE_TIME : BpDateFormat.ISO_DATE_TIME, locale);
+
+        case CURRENCY:
+            return new BpNumberFormat(BpNumberFormat.JVM_CURRENCY, locale);
+
+        case FLOATING_POINT:
+            return new BpNumberFormat(BpNumberFormat.JVM_NUMBER, locale);
+
+        default:
+            throw new AssertionError("undefined style");
+        }
+    }
+
+    /**
+     * The formatters and lookup counts of one thread.
+     */
+    private static final class ThreadCache {
+
+        private final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+        private final Map<Locale, Format[]> formatters = new HashMap<Locale, Format[]>();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+    }
+
+    /**
+     * <p>The kinds of formatters provided by {@link VTContext}.</p>
+     *
+     * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+     */
+    public enum Style {
+
+        /** Date-only values. */
+        DATE,
+
+        /** Date-time values. */
+        TIMESTAMP,
+
+        /** Monetary amounts. */
+        CURRENCY,
+
+        /** Non-monetary numbers. */
+        FLOATING_POINT;
+
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.lang.reflect.InvocationTargetException;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>Holds the {@link InstrumentationProvider} consulted by every factory as it is constructed. By default no provider
+ * is registered and factories report to {@link #NO_OP}, whose empty methods get inlined away by the JIT compiler so
+ * uninstrumented factories pay nothing. Since the provider is only consulted on construction it should be registered
+ * at application startup, either programmatically or by setting the <code>
+ * org.codekaizen.vtj.instrumentationProvider</code> system property to the name of a class with a public no-argument
+ * constructor.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class Instrumentation {
+
+    /** System property naming the provider class to register on startup. */
+    public static final String PROVIDER_PROPERTY = "org.codekaizen.vtj.instrumentationProvider";
+
+    /** Instrumentation which ignores all events. */
+    public static final FactoryInstrumentation NO_OP = new NoOpInstrumentation();
+
+    private static volatile InstrumentationProvider provider = loadProvider();
+
+    private Instrumentation() {
+        super();  // static methods only
+    }
+
+    /**
+     * Registers the provider used for factories constructed from now on.
+     *
+     * @param  instrumentationProvider  the provider or <code>null</code> to turn instrumentation off
+     */
+    public static void setProvider(final InstrumentationProvider instrumentationProvider) {
+        provider = instrumentationProvider;
+    }
+
+    /**
+     * Returns the registered provider.
+     *
+     * @return  the provider or <code>null</code> if none is registered
+     */
+    public static InstrumentationProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Returns the instrumentation the supplied factory should report to.
+     *
+     * @param  factory  the factory
+     *
+     * @return  the instrumentation from the registered provider or {@link #NO_OP}
+     */
+    public static FactoryInstrumentation getInstrumentation(final ValueTypeFactory<?> factory) {
+        final InstrumentationProvider current = provider;
+
+        if (current == null) {
+            return NO_OP;
+        }
+
+        final FactoryInstrumentation instrumentation = current.getInstrumentation(factory);
+
+        return (instrumentation == null) ? NO_OP : instrumentation;
+    }
+
+    private static InstrumentationProvider loadProvider() {
+        final String className = System.getProperty(PROVIDER_PROPERTY);
+
+        if (className == null) {
+            return null;
+        }
+
+        try {
+            return (InstrumentationProvider) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (final InvocationTargetException e) {
+            LoggerFactory.getLogger(Instrumentation.class).warn("Unable to load instrumentation provider " +
+                className, e.getCause());
+
+            return null;
+        } catch (final Exception e) {
+            LoggerFactory.getLogger(Instrumentation.class).warn("Unable to load instrumentation provider " +
+                className, e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Ignores all events.
+     */
+    private static final class NoOpInstrumentation implements FactoryInstrumentation {
+
+        NoOpInstrumentation() {
+            super();
+        }
+
+        public long start() {
+            return 0L;
+        }
+
+        public void created(final long startTime, final boolean success) {
+        }
+
+        public void parsed(final long startTime, final boolean success) {
+        }
+
+        public void formatted(final long startTime) {
+        }
+
+        public void contextChanged(final long startTime) {
+        }
+
+        public void selected(final ValueTypeFactory<?> delegate) {
+        }
+
+    }
+
+}
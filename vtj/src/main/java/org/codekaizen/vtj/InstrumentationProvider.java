@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+/**
+ * <p>Supplies the instrumentation for newly constructed factories. Register an implementation with {@link
+ * Instrumentation#setProvider(InstrumentationProvider)} or name its class in the <code>
+ * org.codekaizen.vtj.instrumentationProvider</code> system property.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public interface InstrumentationProvider {
+
+    /**
+     * Returns the instrumentation a factory should report to. This is called from the {@link AbstractVTFactory}
+     * constructor so only the class of the factory may be relied upon, none of its methods.
+     *
+     * @param  factory  the factory under construction
+     *
+     * @return  the instrumentation, never <code>null</code>
+     */
+    FactoryInstrumentation getInstrumentation(ValueTypeFactory<?> factory);
+
+}
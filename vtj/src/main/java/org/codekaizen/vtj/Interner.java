@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * <p>Bounded flyweight cache returning one canonical instance for each distinct value. Interning values which repeat
+ * many times, such as status codes, class names, small amounts or units, lets all occurrences share one object so the
+ * duplicates become garbage immediately and later <code>equals</code> calls between interned values succeed on the
+ * identity check.</p>
+ *
+ * <p>Values are spread over independently locked stripes by hash code so concurrent threads rarely contend. Each
+ * stripe evicts its least recently used values once it holds its share of the maximum size. Canonical instances may
+ * be held strongly or through soft or weak references so the garbage collector can reclaim values nobody else uses
+ * any more. Interned values must be immutable and must implement <code>equals</code> and <code>hashCode</code>
+ * consistently, which all value types do.</p>
+ *
+ * <p>Factories use an interner for their results once one is registered with {@link
+ * AbstractVTFactory#setInterner(Interner)}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class Interner<T> {
+
+    /**
+     * How canonical instances are referenced by the cache.
+     */
+    public enum References {
+
+        /** Values stay cached until evicted by the size bound. */
+        STRONG,
+
+        /** Values are also released when the JVM runs low on memory. */
+        SOFT,
+
+        /** Values are also released as soon as they are no longer used outside the cache. */
+        WEAK,
+    }
+
+    private final int maximumSize;
+    private final References references;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * Creates a new Interner object holding values strongly with one stripe per 16 entries, up to 64 stripes.
+     *
+     * @param  maximumSize  the maximum number of canonical values kept
+     */
+    public Interner(final int maximumSize) {
+        this(maximumSize, References.STRONG, Math.min(64, Math.max(1, maximumSize / 16)));
+    }
+
+    /**
+     * Creates a new Interner object.
+     *
+     * @param  maximumSize  the maximum number of canonical values kept
+     * @param  references  how canonical values are referenced
+     * @param  concurrencyLevel  the number of stripes, rounded up to a power of two
+     */
+    public Interner(final int maximumSize, final References references, final int concurrencyLevel) {
+        AssertPrecondition.withinRange("maximumSize", maximumSize, 1L, Integer.MAX_VALUE);
+        AssertPrecondition.notNull("references", references);
+        AssertPrecondition.withinRange("concurrencyLevel", concurrencyLevel, 1L, 1L << 16);
+
+        int count = 1;
+
+        while (count < concurrencyLevel && count < maximumSize) {
+            count <<= 1;
+        }
+
+        final int stripeSize = (maximumSize + count - 1) / count;
+        this.maximumSize = maximumSize;
+        this.references = references;
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(stripeSize, references);
+        }
+    }
+
+    /**
+     * Returns the canonical instance equal to the supplied value, making the value itself canonical if there is none.
+     *
+     * @param  value  the value to intern
+     *
+     * @return  the canonical instance or <code>null</code> if the value is <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public T intern(final T value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        final int hash = spread(value.hashCode());
+        final Stripe stripe = this.stripes[(hash >>> 16) & this.mask];
+
+        synchronized (stripe) {
+            return (T) stripe.intern(value, hash);
+        }
+    }
+
+    /**
+     * Returns the maximum number of canonical values kept.
+     *
+     * @return  the size bound
+     */
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Returns how canonical instances are referenced.
+     *
+     * @return  the reference strength
+     */
+    public References getReferences() {
+        return this.references;
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return  the concurrency level
+     */
+    public int getConcurrencyLevel() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Returns the number of values cached, including soft or weak values not yet noticed as released.
+     *
+     * @return  the current size
+     */
+    public int size() {
+        int result = 0;
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                result += stripe.size();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of calls answered with an already cached instance since construction or the last reset.
+     *
+     * @return  the hit count
+     */
+    public long getHitCount() {
+        long result = 0L;
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                result += stripe.hits;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of calls which made the supplied value canonical since construction or the last reset.
+     *
+     * @return  the miss count
+     */
+    public long getMissCount() {
+        long result = 0L;
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                result += stripe.misses;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of values evicted by the size bound since construction or the last reset.
+     *
+     * @return  the eviction count
+     */
+    public long getEvictionCount() {
+        long result = 0L;
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                result += stripe.evictions;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the fraction of calls answered with an already cached instance.
+     *
+     * @return  the hit rate between 0 and 1, or 0 if there were no calls
+     */
+    public double getHitRate() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+
+        return total == 0L ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Clears the hit, miss and eviction counts. Cached values are kept.
+     */
+    public void resetStatistics() {
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                stripe.hits = 0L;
+                stripe.misses = 0L;
+                stripe.evictions = 0L;
+            }
+        }
+    }
+
+    /**
+     * Drops all cached values.
+     */
+    public void clear() {
+
+        for (final Stripe stripe : this.stripes) {
+
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return "Interner[" + this.references + ", size=" + size() + "/" + this.maximumSize + ", hitRate="
+            + getHitRate() + "]";
+    }
+
+    /**
+     * Mixes the high bits into the low bits since value type hash codes are often small sequential numbers.
+     */
+    private static int spread(final int h) {
+        final int x = h * 0x9e3779b9;
+
+        return x ^ (x >>> 16);
+    }
+
+    private static boolean keyEquals(final Key key, final Object obj) {
+
+        if (key == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof Key)) {
+            return false;
+        }
+
+        final Object value = key.get();
+
+        return value != null && value.equals(((Key) obj).get());
+    }
+
+    /**
+     * Cache key holding a value strongly or through a reference, compared by the value's <code>equals</code>. A
+     * released key is only equal to itself so it can still be removed.
+     */
+    private interface Key {
+
+        Object get();
+
+    }
+
+    /**
+     * Key holding its value strongly, also used to look up values.
+     */
+    private static final class StrongKey implements Key {
+
+        private final Object value;
+        private final int hash;
+
+        StrongKey(final Object value, final int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        public Object get() {
+            return this.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return keyEquals(this, obj);
+        }
+
+    }
+
+    /**
+     * Key holding its value softly.
+     */
+    private static final class SoftKey extends SoftReference<Object> implements Key {
+
+        private final int hash;
+
+        SoftKey(final Object value, final int hash, final ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return keyEquals(this, obj);
+        }
+
+    }
+
+    /**
+     * Key holding its value weakly.
+     */
+    private static final class WeakKey extends WeakReference<Object> implements Key {
+
+        private final int hash;
+
+        WeakKey(final Object value, final int hash, final ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return keyEquals(this, obj);
+        }
+
+    }
+
+    /**
+     * Independently locked least recently used map of keys to themselves. All access must hold the stripe's lock.
+     */
+    private static final class Stripe extends LinkedHashMap<Key, Key> {
+
+        private static final long serialVersionUID = -4203618837385937470L;
+
+        private final int capacity;
+        private final References references;
+        private final ReferenceQueue<Object> queue;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        Stripe(final int capacity, final References references) {
+            super(Math.min(capacity, 1024) * 4 / 3 + 1, 0.75f, true);
+            this.capacity = capacity;
+            this.references = references;
+            this.queue = (references == References.STRONG) ? null : new ReferenceQueue<Object>();
+        }
+
+        Object intern(final Object value, final int hash) {
+            purge();
+
+            final StrongKey probe = new StrongKey(value, hash);
+            final Key existing = get(probe);
+
+            if (existing != null) {
+                final Object canonical = existing.get();
+
+                if (canonical != null) {
+                    this.hits++;
+
+                    return canonical;
+                }
+
+                remove(existing);
+            }
+
+            this.misses++;
+
+            final Key key;
+
+            switch (this.references) {
+            case SOFT:
+                key = new SoftKey(value, hash, this.queue);
+
+                break;
+            case WEAK:
+                key = new WeakKey(value, hash, this.queue);
+
+                break;
+            default:
+                key = probe;
+
+                break;
+            }
+
+            put(key, key);
+
+            return value;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Key> eldest) {
+
+            if (size() > this.capacity) {
+                this.evictions++;
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private void purge() {
+
+            if (this.queue != null) {
+                Reference<?> ref;
+
+                while ((ref = this.queue.poll()) != null) {
+                    remove(ref);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTDecimalVector;
+import org.codekaizen.vtj.math.VTIntegerVector;
+import org.codekaizen.vtj.time.VTInstantVector;
+
+
+/**
+ * <p>Describes how one column of a delimited file is parsed by a {@link MappedColumnReader}. Each worker parses its
+ * chunk of the file into its own accumulator and the accumulators are merged in file order once every chunk is done.
+ * Fields are supplied as index ranges of a character sequence view over the mapped bytes so no string is created
+ * per field.</p>
+ *
+ * <p>Columns parsed with a {@link ValueTypeFactory} collect value type objects while the primitive columns parse
+ * digits directly into the columnar vectors without creating any value type objects at all.</p>
+ *
+ * @param  <A>  the per chunk accumulator type
+ * @param  <R>  the merged result type
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public abstract class MappedColumn<A, R> {
+
+    private static final long[] POWERS = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L,
+            100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L,
+            100000000000000000L, 1000000000000000000L,
+        };
+
+    /**
+     * Creates a new MappedColumn object.
+     */
+    protected MappedColumn() {
+        super();
+    }
+
+    /**
+     * Returns a column of value type objects parsed by the supplied factory. Empty fields are stored as <code>
+     * null</code>.
+     *
+     * @param  factory  the factory to parse fields with
+     *
+     * @return  the column
+     */
+    public static <T> MappedColumn<List<T>, List<T>> values(final ValueTypeFactory<? extends T> factory) {
+        AssertPrecondition.notNull("factory", factory);
+
+        return new ValueColumn<T>(factory);
+    }
+
+    /**
+     * Returns a column of optionally signed decimal integers collected into a {@link VTIntegerVector}.
+     *
+     * @return  the column
+     */
+    public static MappedColumn<VTIntegerVector.Builder, VTIntegerVector> integers() {
+        return new IntegerColumn();
+    }
+
+    /**
+     * Returns a column of optionally signed decimal numbers with at most <code>scale</code> fraction digits collected
+     * into a {@link VTDecimalVector} of that scale.
+     *
+     * @param  scale  the scale of the vector
+     *
+     * @return  the column
+     *
+     * @throws  IllegalArgumentException  if the scale is not supported by {@link VTDecimal}
+     */
+    public static MappedColumn<VTDecimalVector.Builder, VTDecimalVector> decimals(final int scale) {
+        AssertPrecondition.withinRange("scale", scale, VTDecimal.MIN_SCALE, VTDecimal.MAX_SCALE);
+
+        return new DecimalColumn(scale);
+    }
+
+    /**
+     * Returns a column of ISO 8601 timestamps collected into a {@link VTInstantVector}. Fields are parsed as <code>
+     * yyyy-MM-dd</code> optionally followed by <code>T</code> or a space, <code>HH:mm:ss</code>, up to nine
+     * fraction digits and a <code>Z</code> or <code>+HH:mm</code> offset. Timestamps without an offset are UTC.
+     *
+     * @return  the column
+     */
+    public static MappedColumn<VTInstantVector.Builder, VTInstantVector> instants() {
+        return new InstantColumn();
+    }
+
+    /**
+     * Returns a new empty accumulator for one chunk of the file.
+     *
+     * @return  the accumulator
+     */
+    protected abstract A newAccumulator();
+
+    /**
+     * Parses one field and adds it to the accumulator.
+     *
+     * @param  acc  the chunk's accumulator
+     * @param  s  the sequence holding the field
+     * @param  start  the index of the first character of the field
+     * @param  end  the index after the last character of the field, equal to start for an empty field
+     *
+     * @throws  IllegalArgumentException  if the field cannot be parsed
+     */
+    protected abstract void parse(A acc, CharSequence s, int start, int end);
+
+    /**
+     * Merges the accumulators of every chunk into the column's result.
+     *
+     * @param  accumulators  the accumulators in file order
+     *
+     * @return  the result
+     */
+    protected abstract R merge(List<A> accumulators);
+
+    private static long parseLong(final CharSequence s, final int start, final int end, final long min,
+            final long max) {
+        int i = start;
+        final boolean negative = i < end && s.charAt(i) == '-';
+
+        if (i < end && (negative || s.charAt(i) == '+')) {
+            i++;
+        }
+
+        if (i == end) {
+            throw new IllegalArgumentException("missing number");
+        }
+
+        // accumulate negatively so the minimum value does not overflow
+        final long limit = negative ? min : -max;
+        long value = 0L;
+
+        for (; i < end; i++) {
+            final int digit = s.charAt(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("not a number");
+            }
+
+            if (value < (limit + digit) / 10L) {
+                throw new IllegalArgumentException("number out of range");
+            }
+
+            value = value * 10L - digit;
+        }
+
+        return negative ? value : -value;
+    }
+
+    private static int parseDigits(final CharSequence s, final int start, final int count) {
+        int value = 0;
+
+        for (int i = start; i < start + count; i++) {
+            final int digit = s.charAt(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("not a timestamp");
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    private static void expect(final CharSequence s, final int index, final int end, final char c) {
+
+        if (index >= end || s.charAt(index) != c) {
+            throw new IllegalArgumentException("not a timestamp");
+        }
+    }
+
+    /**
+     * Collects value type objects created by a factory.
+     */
+    private static final class ValueColumn<T> extends MappedColumn<List<T>, List<T>> {
+
+        private final ValueTypeFactory<? extends T> factory;
+
+        ValueColumn(final ValueTypeFactory<? extends T> factory) {
+            super();
+            this.factory = factory;
+        }
+
+        @Override
+        protected List<T> newAccumulator() {
+            return new ArrayList<T>();
+        }
+
+        @Override
+        protected void parse(final List<T> acc, final CharSequence s, final int start, final int end) {
+
+            if (start == end) {
+                acc.add(null);
+            } else {
+                final T value = factory.tryParse(s, start, end);
+
+                if (value == null) {
+                    throw new IllegalArgumentException("unparsable");
+                }
+
+                acc.add(value);
+            }
+        }
+
+        @Override
+        protected List<T> merge(final List<List<T>> accumulators) {
+
+            if (accumulators.size() == 1) {
+                return Collections.unmodifiableList(accumulators.get(0));
+            }
+
+            int size = 0;
+
+            for (final List<T> acc : accumulators) {
+                size += acc.size();
+            }
+
+            final List<T> result = new ArrayList<T>(size);
+
+            for (final List<T> acc : accumulators) {
+                result.addAll(acc);
+            }
+
+            return Collections.unmodifiableList(result);
+        }
+
+    }
+
+    /**
+     * Collects integers into a vector.
+     */
+    private static final class IntegerColumn extends MappedColumn<VTIntegerVector.Builder, VTIntegerVector> {
+
+        IntegerColumn() {
+            super();
+        }
+
+        @Override
+        protected VTIntegerVector.Builder newAccumulator() {
+            return new VTIntegerVector.Builder();
+        }
+
+        @Override
+        protected void parse(final VTIntegerVector.Builder acc, final CharSequence s, final int start, final int end) {
+            acc.add((int) parseLong(s, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        }
+
+        @Override
+        protected VTIntegerVector merge(final List<VTIntegerVector.Builder> accumulators) {
+
+            if (accumulators.size() == 1) {
+                return accumulators.get(0).build();
+            }
+
+            int size = 0;
+
+            for (final VTIntegerVector.Builder acc : accumulators) {
+                size += acc.size();
+            }
+
+            final VTIntegerVector.Builder result = new VTIntegerVector.Builder(size);
+
+            for (final VTIntegerVector.Builder acc : accumulators) {
+                final VTIntegerVector chunk = acc.build();
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.add(chunk.intValue(i));
+                }
+            }
+
+            return result.build();
+        }
+
+    }
+
+    /**
+     * Collects fixed scale decimals into a vector.
+     */
+    private static final class DecimalColumn extends MappedColumn<VTDecimalVector.Builder, VTDecimalVector> {
+
+        private final int scale;
+
+        DecimalColumn(final int scale) {
+            super();
+            this.scale = scale;
+        }
+
+        @Override
+        protected VTDecimalVector.Builder newAccumulator() {
+            return new VTDecimalVector.Builder(scale);
+        }
+
+        @Override
+        protected void parse(final VTDecimalVector.Builder acc, final CharSequence s, final int start, final int end) {
+            int i = start;
+            final boolean negative = i < end && s.charAt(i) == '-';
+
+            if (i < end && (negative || s.charAt(i) == '+')) {
+                i++;
+            }
+
+            // accumulate negatively so the minimum value does not overflow
+            final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            long value = 0L;
+            int digits = 0;
+            int fractionDigits = -1;
+
+            for (; i < end; i++) {
+                final char c = s.charAt(i);
+
+                if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+
+                    continue;
+                }
+
+                final int digit = c - '0';
+
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException("not a number");
+                }
+
+                if (value < (limit + digit) / 10L) {
+                    throw new IllegalArgumentException("number out of range");
+                }
+
+                value = value * 10L - digit;
+                digits++;
+
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            }
+
+            if (digits == 0) {
+                throw new IllegalArgumentException("missing number");
+            }
+
+            if (fractionDigits > scale) {
+                throw new IllegalArgumentException("more than " + scale + " decimal places");
+            }
+
+            final long factor = POWERS[scale - Math.max(fractionDigits, 0)];
+
+            if (value < limit / factor) {
+                throw new IllegalArgumentException("number out of range");
+            }
+
+            value *= factor;
+            acc.add(negative ? value : -value);
+        }
+
+        @Override
+        protected VTDecimalVector merge(final List<VTDecimalVector.Builder> accumulators) {
+
+            if (accumulators.size() == 1) {
+                return accumulators.get(0).build();
+            }
+
+            int size = 0;
+
+            for (final VTDecimalVector.Builder acc : accumulators) {
+                size += acc.size();
+            }
+
+            final VTDecimalVector.Builder result = new VTDecimalVector.Builder(scale, size);
+
+            for (final VTDecimalVector.Builder acc : accumulators) {
+                final VTDecimalVector chunk = acc.build();
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.add(chunk.unscaledValue(i));
+                }
+            }
+
+            return result.build();
+        }
+
+    }
+
+    /**
+     * Collects ISO 8601 timestamps into a vector.
+     */
+    private static final class InstantColumn extends MappedColumn<VTInstantVector.Builder, VTInstantVector> {
+
+        private static final int[] DAYS_IN_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31, };
+
+        InstantColumn() {
+            super();
+        }
+
+        @Override
+        protected VTInstantVector.Builder newAccumulator() {
+            return new VTInstantVector.Builder();
+        }
+
+        @Override
+        protected void parse(final VTInstantVector.Builder acc, final CharSequence s, final int start, final int end) {
+
+            if (end - start < 10) {
+                throw new IllegalArgumentException("not a timestamp");
+            }
+
+            final int year = parseDigits(s, start, 4);
+            expect(s, start + 4, end, '-');
+
+            final int month = parseDigits(s, start + 5, 2);
+            expect(s, start + 7, end, '-');
+
+            final int day = parseDigits(s, start + 8, 2);
+
+            if (month < 1 || month > 12 || day < 1 || day > DAYS_IN_MONTH[month - 1] ||
+                    (month == 2 && day == 29 && !isLeapYear(year))) {
+                throw new IllegalArgumentException("invalid date");
+            }
+
+            long seconds = daysFromCivil(year, month, day) * 86400L;
+            int nanos = 0;
+            int i = start + 10;
+
+            if (i < end && (s.charAt(i) == 'T' || s.charAt(i) == ' ')) {
+
+                if (end - i < 9) {
+                    throw new IllegalArgumentException("not a timestamp");
+                }
+
+                final int hour = parseDigits(s, i + 1, 2);
+                expect(s, i + 3, end, ':');
+
+                final int minute = parseDigits(s, i + 4, 2);
+                expect(s, i + 6, end, ':');
+
+                final int second = parseDigits(s, i + 7, 2);
+
+                if (hour > 23 || minute > 59 || second > 59) {
+                    throw new IllegalArgumentException("invalid time");
+                }
+
+                seconds += hour * 3600L + minute * 60L + second;
+                i += 9;
+
+                if (i < end && s.charAt(i) == '.') {
+                    int digits = 0;
+                    i++;
+
+                    while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+
+                        if (++digits > 9) {
+                            throw new IllegalArgumentException("more than nine fraction digits");
+                        }
+
+                        nanos = nanos * 10 + (s.charAt(i) - '0');
+                        i++;
+                    }
+
+                    if (digits == 0) {
+                        throw new IllegalArgumentException("not a timestamp");
+                    }
+
+                    nanos *= (int) POWERS[9 - digits];
+                }
+
+                if (i < end && s.charAt(i) == 'Z') {
+                    i++;
+                } else if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+
+                    if (end - i < 6) {
+                        throw new IllegalArgumentException("not a timestamp");
+                    }
+
+                    final int offsetHours = parseDigits(s, i + 1, 2);
+                    expect(s, i + 3, end, ':');
+
+                    final int offsetMinutes = parseDigits(s, i + 4, 2);
+
+                    if (offsetHours > 18 || offsetMinutes > 59) {
+                        throw new IllegalArgumentException("invalid offset");
+                    }
+
+                    final int offset = offsetHours * 3600 + offsetMinutes * 60;
+                    seconds += s.charAt(i) == '+' ? -offset : offset;
+                    i += 6;
+                }
+            }
+
+            if (i != end) {
+                throw new IllegalArgumentException("not a timestamp");
+            }
+
+            acc.add(seconds, nanos);
+        }
+
+        @Override
+        protected VTInstantVector merge(final List<VTInstantVector.Builder> accumulators) {
+
+            if (accumulators.size() == 1) {
+                return accumulators.get(0).build();
+            }
+
+            int size = 0;
+
+            for (final VTInstantVector.Builder acc : accumulators) {
+                size += acc.size();
+            }
+
+            final VTInstantVector.Builder result = new VTInstantVector.Builder(size);
+
+            for (final VTInstantVector.Builder acc : accumulators) {
+                final VTInstantVector chunk = acc.build();
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.add(chunk.getEpochSeconds(i), chunk.getNanoOfSecond(i));
+                }
+            }
+
+            return result.build();
+        }
+
+        private static boolean isLeapYear(final int year) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        }
+
+        /**
+         * Returns the number of days from 1970-01-01 to the supplied proleptic Gregorian date.
+         */
+        private static long daysFromCivil(final int year, final int month, final int day) {
+            final int y = month <= 2 ? year - 1 : year;
+            final int era = (y >= 0 ? y : y - 399) / 400;
+            final int yearOfEra = y - era * 400;
+            final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+            final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+            return era * 146097L + dayOfEra - 719468L;
+        }
+
+    }
+
+}
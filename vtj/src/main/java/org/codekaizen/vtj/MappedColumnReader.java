@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * <p>Reads delimited text files where each column holds one kind of value by memory mapping the file and parsing the
+ * ASCII fields straight out of the mapped bytes. The file is split into line aligned chunks which are mapped and
+ * parsed in parallel, each into its own accumulators, so multi-gigabyte files are read without decoding them into
+ * strings or holding more than the parsed columns on the heap.</p>
+ *
+ * <p>Lines end with <code>\n</code> or <code>\r\n</code> and empty lines are skipped. Fields are separated by a single
+ * delimiter byte and are not quoted. Columns may be <code>null</code> to skip the matching field and fields after the
+ * last column are ignored. A missing or unparsable field fails the whole read with the byte offset of its line.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class MappedColumnReader {
+
+    /** The default number of bytes mapped and parsed by one task. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int SCAN_SIZE = 4096;
+
+    private final MappedColumn<?, ?>[] columns;
+    private final byte delimiter;
+    private final boolean header;
+    private final int chunkSize;
+
+    /**
+     * Constructs a reader using the default chunk size.
+     *
+     * @param  delimiter  the ASCII field separator
+     * @param  header  whether the first line holds column names and is skipped
+     * @param  columns  the columns in field order, <code>null</code> to skip a field
+     */
+    public MappedColumnReader(final char delimiter, final boolean header, final MappedColumn<?, ?>... columns) {
+        this(delimiter, header, DEFAULT_CHUNK_SIZE, columns);
+    }
+
+    /**
+     * Constructs a reader.
+     *
+     * @param  delimiter  the ASCII field separator
+     * @param  header  whether the first line holds column names and is skipped
+     * @param  chunkSize  the approximate number of bytes mapped and parsed by one task
+     * @param  columns  the columns in field order, <code>null</code> to skip a field
+     *
+     * @throws  IllegalArgumentException  if the delimiter is not ASCII, the chunk size is less than one or no columns
+     *                                    are supplied
+     */
+    public MappedColumnReader(final char delimiter, final boolean header, final int chunkSize,
+            final MappedColumn<?, ?>... columns) {
+        AssertPrecondition.withinRange("delimiter", delimiter, 1, 127);
+        AssertPrecondition.withinRange("chunkSize", chunkSize, 1, Integer.MAX_VALUE);
+        AssertPrecondition.notNull("columns", columns);
+
+        if (delimiter == '\n' || delimiter == '\r' || columns.length == 0) {
+            throw new IllegalArgumentException("invalid delimiter or no columns");
+        }
+
+        this.delimiter = (byte) delimiter;
+        this.header = header;
+        this.chunkSize = chunkSize;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Reads the supplied file, parsing chunks in parallel on the shared pool of daemon threads used by bulk requests.
+     *
+     * @param  file  the file to read
+     *
+     * @return  the parsed columns
+     *
+     * @throws  IOException  if the file cannot be read
+     * @throws  IllegalArgumentException  if a field cannot be parsed
+     */
+    public Result read(final File file) throws IOException {
+        return read(file, AbstractVTFactory.getSharedExecutor());
+    }
+
+    /**
+     * Reads the supplied file, parsing chunks in parallel on the supplied executor. The calling thread parses chunks
+     * too so this is safe to call from a task running on the same executor.
+     *
+     * @param  file  the file to read
+     * @param  executor  the executor to run chunks on or <code>null</code> to parse them all on the calling thread
+     *
+     * @return  the parsed columns
+     *
+     * @throws  IOException  if the file cannot be read
+     * @throws  IllegalArgumentException  if a field cannot be parsed
+     */
+    public Result read(final File file, final Executor executor) throws IOException {
+        AssertPrecondition.notNull("file", file);
+
+        final FileInputStream in = new FileInputStream(file);
+
+        try {
+            return read(in.getChannel(), executor);
+        } finally {
+            in.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result read(final FileChannel channel, final Executor executor) throws IOException {
+        final long[] bounds = findChunkBounds(channel);
+        final int chunkCount = bounds.length - 1;
+        final Object[][] accumulators = new Object[chunkCount][];
+        final int[] rowCounts = new int[chunkCount];
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(chunkCount);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final Runnable worker = new Runnable() {
+                public void run() {
+                    int c;
+
+                    while ((c = nextChunk.getAndIncrement()) < chunkCount) {
+
+                        try {
+
+                            if (error.get() == null) {
+                                accumulators[c] = newAccumulators();
+                                rowCounts[c] = parseChunk(channel, bounds[c], bounds[c + 1], accumulators[c]);
+                            }
+                        } catch (final Throwable t) {
+                            error.compareAndSet(null, t);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }
+            };
+
+        if (executor != null) {
+            final int helpers = Math.min(chunkCount, AbstractVTFactory.getSharedParallelism()) - 1;
+
+            for (int i = 0; i < helpers; i++) {
+
+                try {
+                    executor.execute(worker);
+                } catch (final RejectedExecutionException ree) {
+                    break;
+                }
+            }
+        }
+
+        worker.run();
+        awaitUninterruptibly(done);
+
+        final Throwable t = error.get();
+
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        final Object[] results = new Object[columns.length];
+
+        for (int col = 0; col < columns.length; col++) {
+
+            if (columns[col] != null) {
+                final List<Object> chunks = new ArrayList<Object>(chunkCount);
+
+                for (int c = 0; c < chunkCount; c++) {
+                    chunks.add(accumulators[c][col]);
+                }
+
+                results[col] = ((MappedColumn<Object, ?>) columns[col]).merge(chunks);
+            }
+        }
+
+        int rows = 0;
+
+        for (final int count : rowCounts) {
+            rows += count;
+        }
+
+        return new Result(columns, results, rows);
+    }
+
+    private Object[] newAccumulators() {
+        final Object[] acc = new Object[columns.length];
+
+        for (int col = 0; col < columns.length; col++) {
+
+            if (columns[col] != null) {
+                acc[col] = columns[col].newAccumulator();
+            }
+        }
+
+        return acc;
+    }
+
+    /**
+     * Splits the file at the first line break at or after every multiple of the chunk size so each chunk holds whole
+     * lines. Only a few bytes around each split are read.
+     */
+    private long[] findChunkBounds(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Long> bounds = new ArrayList<Long>();
+        final ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long start = header ? findLineEnd(channel, 0L, size, scan) : 0L;
+        bounds.add(start);
+
+        while (start < size) {
+            final long end = size - start <= chunkSize ? size : findLineEnd(channel, start + chunkSize - 1, size, scan);
+
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("line starting at byte " + start + " is too long to map");
+            }
+
+            bounds.add(end);
+            start = end;
+        }
+
+        if (bounds.size() == 1) {
+            bounds.add(start);
+        }
+
+        final long[] result = new long[bounds.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the index after the first line break at or after the supplied index or the file size if there is none.
+     */
+    private static long findLineEnd(final FileChannel channel, final long from, final long size,
+            final ByteBuffer scan) throws IOException {
+        long pos = from;
+
+        while (pos < size) {
+            scan.clear();
+
+            final int read = channel.read(scan, pos);
+
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+
+                if (scan.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+
+            pos += read;
+        }
+
+        return size;
+    }
+
+    private int parseChunk(final FileChannel channel, final long position, final long end, final Object[] acc)
+        throws IOException {
+
+        if (end == position) {
+            return 0;
+        }
+
+        final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+        final ByteBufferSequence seq = new ByteBufferSequence(buffer);
+        final int limit = buffer.limit();
+        int rows = 0;
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            final int next = lineEnd + 1;
+
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            if (lineEnd > lineStart) {
+
+                try {
+                    parseLine(buffer, seq, lineStart, lineEnd, acc);
+                } catch (final IllegalArgumentException iae) {
+                    throw new IllegalArgumentException("line starting at byte " + (position + lineStart) + ": " +
+                        iae.getMessage());
+                }
+
+                rows++;
+            }
+
+            lineStart = next;
+        }
+
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void parseLine(final ByteBuffer buffer, final CharSequence seq, final int lineStart, final int lineEnd,
+            final Object[] acc) {
+        int fieldStart = lineStart;
+
+        for (int col = 0; col < columns.length; col++) {
+
+            if (fieldStart > lineEnd) {
+                throw new IllegalArgumentException("missing field " + col);
+            }
+
+            int fieldEnd = fieldStart;
+
+            while (fieldEnd < lineEnd && buffer.get(fieldEnd) != delimiter) {
+                fieldEnd++;
+            }
+
+            if (columns[col] != null) {
+                ((MappedColumn<Object, ?>) columns[col]).parse(acc[col], seq, fieldStart, fieldEnd);
+            }
+
+            fieldStart = fieldEnd + 1;
+        }
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+
+        try {
+
+            while (true) {
+
+                try {
+                    latch.await();
+
+                    return;
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The parsed columns of a file.
+     */
+    public static final class Result {
+
+        private final MappedColumn<?, ?>[] columns;
+        private final Object[] values;
+        private final int rowCount;
+
+        Result(final MappedColumn<?, ?>[] columns, final Object[] values, final int rowCount) {
+            super();
+            this.columns = columns;
+            this.values = values;
+            this.rowCount = rowCount;
+        }
+
+        /**
+         * Returns the number of lines parsed.
+         *
+         * @return  the row count
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Returns the parsed values of the supplied column.
+         *
+         * @param  column  one of the columns the reader was constructed with
+         *
+         * @return  the merged result of the column
+         *
+         * @throws  IllegalArgumentException  if the column was not read
+         */
+        @SuppressWarnings("unchecked")
+        public <R> R get(final MappedColumn<?, R> column) {
+
+            for (int i = 0; i < columns.length; i++) {
+
+                if (columns[i] == column && column != null) {
+                    return (R) values[i];
+                }
+            }
+
+            throw new IllegalArgumentException("column was not read");
+        }
+
+        /**
+         * Returns the parsed values of the column at the supplied field index.
+         *
+         * @param  index  the field index
+         *
+         * @return  the merged result of the column or <code>null</code> if the field was skipped
+         */
+        public Object get(final int index) {
+            return values[index];
+        }
+
+    }
+
+}
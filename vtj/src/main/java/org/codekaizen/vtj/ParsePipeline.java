@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>Parses an unbounded stream of strings into value types through any {@link ValueTypeFactory}, including a {@link
+ * CompositeVTFactory}. Inputs are collected into micro-batches which are parsed with {@link
+ * ValueTypeFactory#parseAll(List, Executor)} so factory bulk optimizations still apply. At most <code>
+ * parallelism</code> batches are parsing or waiting to be taken at any time so {@link #put(CharSequence)} blocks
+ * once the consumer falls behind and memory use stays bounded however fast the producer is.</p>
+ *
+ * <p>Batches are returned by {@link #take()} in input order. Strings which cannot be parsed are left out of the
+ * batches and reported to the {@link FailureHandler} instead of failing the stream. The handler is called on the
+ * consuming thread just before the batch holding the failures is returned.</p>
+ *
+ * <p>A pipeline is meant to be fed by one producer thread and drained by one consumer thread, which may be the same
+ * thread when using {@link #parse(Iterable, Collection)}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class ParsePipeline<T> {
+
+    private static final FailureHandler IGNORE_FAILURES = new FailureHandler() {
+            public void onFailure(final CharSequence input, final String message) {
+                // do nothing
+            }
+        };
+
+    private final ValueTypeFactory<? extends T> factory;
+    private final int batchSize;
+    private final int parallelism;
+    private final Executor executor;
+    private final FailureHandler failureHandler;
+    private final BlockingQueue<FutureTask<Batch<T>>> pending;
+    private final FutureTask<Batch<T>> endOfStream;
+    private final AtomicLong parsedCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private List<CharSequence> current;
+    private boolean closed;
+    private volatile boolean drained;
+
+    /**
+     * Constructs a pipeline which parses batches on the shared pool of daemon threads used by bulk requests with one
+     * batch in flight per processor. Failures are ignored.
+     *
+     * @param  factory  the factory to parse with
+     * @param  batchSize  the number of strings parsed together
+     */
+    public ParsePipeline(final ValueTypeFactory<? extends T> factory, final int batchSize) {
+        this(factory, batchSize, AbstractVTFactory.getSharedParallelism(), AbstractVTFactory.getSharedExecutor(),
+            null);
+    }
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param  factory  the factory to parse with
+     * @param  batchSize  the number of strings parsed together
+     * @param  parallelism  the maximum number of batches parsing or waiting to be taken
+     * @param  executor  the executor to parse batches on or <code>null</code> to parse them on the producing thread
+     * @param  failureHandler  receives strings which could not be parsed or <code>null</code> to ignore them
+     *
+     * @throws  IllegalArgumentException  if the factory is <code>null</code> or the sizes are less than one
+     */
+    public ParsePipeline(final ValueTypeFactory<? extends T> factory, final int batchSize, final int parallelism,
+            final Executor executor, final FailureHandler failureHandler) {
+        AssertPrecondition.notNull("factory", factory);
+        AssertPrecondition.withinRange("batchSize", batchSize, 1, Integer.MAX_VALUE);
+        AssertPrecondition.withinRange("parallelism", parallelism, 1, Integer.MAX_VALUE);
+        this.factory = factory;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.failureHandler = failureHandler == null ? IGNORE_FAILURES : failureHandler;
+        this.pending = new ArrayBlockingQueue<FutureTask<Batch<T>>>(parallelism);
+        this.endOfStream = new FutureTask<Batch<T>>(new Callable<Batch<T>>() {
+                    public Batch<T> call() {
+                        return null;
+                    }
+                });
+        this.endOfStream.run();
+    }
+
+    /**
+     * Returns the number of strings parsed together.
+     *
+     * @return  the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the maximum number of batches parsing or waiting to be taken.
+     *
+     * @return  the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the number of values returned by {@link #take()} so far.
+     *
+     * @return  the count
+     */
+    public long getParsedCount() {
+        return parsedCount.get();
+    }
+
+    /**
+     * Returns the number of strings reported to the failure handler so far.
+     *
+     * @return  the count
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Adds a string to the current batch, starting to parse the batch once it is full. Blocks while the maximum number
+     * of batches are already in flight.
+     *
+     * @param  s  the string representation, may be <code>null</code> which is reported as a failure
+     *
+     * @throws  InterruptedException  if interrupted while waiting for the consumer
+     * @throws  IllegalStateException  if the pipeline has been closed
+     */
+    public synchronized void put(final CharSequence s) throws InterruptedException {
+        putAndDrainTo(s, null);
+    }
+
+    /**
+     * Starts parsing the current batch even though it is not full. Useful when the source goes quiet and values
+     * should not wait for more input.
+     *
+     * @throws  InterruptedException  if interrupted while waiting for the consumer
+     * @throws  IllegalStateException  if the pipeline has been closed
+     */
+    public synchronized void flush() throws InterruptedException {
+        checkOpen();
+        submit(null);
+    }
+
+    /**
+     * Flushes the current batch and marks the end of the stream. Once all batches have been taken {@link #take()}
+     * returns <code>null</code>. Like {@link #put(CharSequence)} this waits for the consumer while the pipeline is
+     * full. Closing an already closed pipeline does nothing.
+     *
+     * @throws  InterruptedException  if interrupted while waiting for the consumer
+     */
+    public synchronized void close() throws InterruptedException {
+
+        if (!closed) {
+            submit(null);
+            pending.put(endOfStream);
+            closed = true;
+        }
+    }
+
+    /**
+     * Returns the values of the next batch in input order, waiting for it to be parsed if necessary. Failures in the
+     * batch are passed to the failure handler first.
+     *
+     * @return  the parsed values or <code>null</code> once the pipeline has been closed and every batch taken
+     *
+     * @throws  InterruptedException  if interrupted while waiting
+     */
+    public List<T> take() throws InterruptedException {
+
+        if (drained) {
+            return null;
+        }
+
+        final FutureTask<Batch<T>> task = pending.take();
+
+        if (task == endOfStream) {
+            drained = true;
+
+            return null;
+        }
+
+        return complete(task);
+    }
+
+    /**
+     * Returns the values of the next batch if it has finished parsing without waiting.
+     *
+     * @return  the parsed values or <code>null</code> if the next batch is not ready or there are no more batches
+     */
+    public List<T> poll() {
+        final FutureTask<Batch<T>> task = pending.peek();
+
+        if (task == null || task == endOfStream || !task.isDone()) {
+            return null;
+        }
+
+        return complete(pending.poll());
+    }
+
+    /**
+     * Feeds every supplied string through the pipeline, adding the parsed values to the target collection in input
+     * order, then closes the pipeline. Completed batches are taken by the calling thread whenever the pipeline is full
+     * so no separate consumer is needed.
+     *
+     * @param  inputs  the string representations
+     * @param  target  the collection to add the parsed values to
+     *
+     * @return  the same collection supplied as the target parameter
+     *
+     * @throws  InterruptedException  if interrupted while waiting for a batch
+     * @throws  IllegalStateException  if the pipeline has been closed
+     */
+    public synchronized <C extends Collection<? super T>> C parse(final Iterable<? extends CharSequence> inputs,
+            final C target) throws InterruptedException {
+        AssertPrecondition.notNull("inputs", inputs);
+        AssertPrecondition.notNull("target", target);
+
+        for (final CharSequence s : inputs) {
+            putAndDrainTo(s, target);
+        }
+
+        submit(target);
+        drainWhileFull(target);
+        close();
+
+        List<T> values;
+
+        while ((values = take()) != null) {
+            target.addAll(values);
+        }
+
+        return target;
+    }
+
+    private void putAndDrainTo(final CharSequence s, final Collection<? super T> target) throws InterruptedException {
+        checkOpen();
+
+        if (current == null) {
+            current = new ArrayList<CharSequence>(batchSize);
+        }
+
+        current.add(s);
+
+        if (current.size() >= batchSize) {
+            submit(target);
+        }
+    }
+
+    private void submit(final Collection<? super T> target) throws InterruptedException {
+
+        if (current == null || current.isEmpty()) {
+            return;
+        }
+
+        final List<CharSequence> inputs = current;
+        current = null;
+
+        final FutureTask<Batch<T>> task = new FutureTask<Batch<T>>(new Callable<Batch<T>>() {
+                    public Batch<T> call() {
+                        return new Batch<T>(inputs, factory.parseAll(inputs, null));
+                    }
+                });
+
+        drainWhileFull(target);
+        pending.put(task);
+
+        if (executor == null) {
+            task.run();
+        } else {
+
+            try {
+                executor.execute(task);
+            } catch (final RejectedExecutionException ree) {
+                task.run();
+            }
+        }
+    }
+
+    private void drainWhileFull(final Collection<? super T> target) throws InterruptedException {
+
+        while (target != null && pending.remainingCapacity() == 0) {
+            target.addAll(complete(pending.take()));
+        }
+    }
+
+    private List<T> complete(final FutureTask<Batch<T>> task) {
+        final Batch<T> batch;
+
+        try {
+            batch = getUninterruptibly(task);
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+
+            throw new IllegalStateException(String.valueOf(t));
+        }
+
+        final BulkResult<? extends T> result = batch.result;
+
+        if (result.isAllSuccessful()) {
+            parsedCount.addAndGet(result.size());
+
+            return Collections.<T>unmodifiableList(result.getValues());
+        }
+
+        final int[] failed = result.getFailedIndexes();
+        final List<T> values = new ArrayList<T>(result.size() - failed.length);
+        int next = 0;
+
+        for (int i = 0; i < result.size(); i++) {
+
+            if (next < failed.length && failed[next] == i) {
+                failureCount.incrementAndGet();
+                failureHandler.onFailure(batch.inputs.get(i), result.getFailureMessage(i));
+                next++;
+            } else {
+                values.add(result.get(i));
+            }
+        }
+
+        parsedCount.addAndGet(values.size());
+
+        return values;
+    }
+
+    private static <V> V getUninterruptibly(final FutureTask<V> task) throws ExecutionException {
+        boolean interrupted = false;
+
+        try {
+
+            while (true) {
+
+                try {
+                    return task.get();
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkOpen() {
+
+        if (closed) {
+            throw new IllegalStateException("pipeline has been closed");
+        }
+    }
+
+    /**
+     * Receives strings which could not be parsed.
+     */
+    public interface FailureHandler {
+
+        /**
+         * Called once for each string which could not be parsed, in input order.
+         *
+         * @param  input  the string, may be <code>null</code>
+         * @param  message  why it could not be parsed
+         */
+        void onFailure(CharSequence input, String message);
+
+    }
+
+    /**
+     * The inputs of a batch and their parsed results.
+     */
+    private static final class Batch<T> {
+
+        final List<CharSequence> inputs;
+        final BulkResult<? extends T> result;
+
+        Batch(final List<CharSequence> inputs, final BulkResult<? extends T> result) {
+            this.inputs = inputs;
+            this.result = result;
+        }
+
+    }
+
+}
@@ -21,6 +21,10 @@
  */
 package org.codekaizen.vtj;
 
+import java.io.IOException;
+import java.io.ObjectStreamException;
+
+
 /**
  * <p>Abstract base class for all value type classes.</p>
  *
@@ -85,4 +89,30 @@ public abstract class VT<T> implements ValueType<T> {
     @Override
     public abstract String toString();
 
+    /**
+     * Appends the same characters returned by {@link #toString()} to the supplied appender. Value types which are
+     * formatted in bulk override this to write their characters directly instead of creating a temporary string.
+     *
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    public Appendable appendTo(final Appendable out) throws IOException {
+        return out.append(toString());
+    }
+
+    /**
+     * Substitutes the compact serialized form for the library's own value types. Subclasses defined elsewhere are
+     * serialized as usual.
+     *
+     * @return  the object to write to the stream
+     *
+     * @throws  ObjectStreamException  never
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return CompactSerialForm.replace(this);
+    }
+
 }
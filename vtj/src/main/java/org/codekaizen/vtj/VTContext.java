@@ -31,8 +31,6 @@ import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.util.Currency;
 import java.util.Locale;
-import org.codekaizen.vtj.text.BpDateFormat;
-import org.codekaizen.vtj.text.BpNumberFormat;
 
 
 /**
@@ -228,93 +226,44 @@ public final class VTContext implements Serializable {
     }
 
     /**
-     * Returns a date-only formatter to use for this application environment.
+     * Returns a date-only formatter to use for this application environment. The formatter is cached for the calling
+     * thread as described in {@link FormatterCache} so it must not be reconfigured or shared with other threads.
      *
      * @return  the formatter
-     *
-     * @throws  AssertionError  DOCUMENT ME!
      */
     public DateFormat getDateFormat() {
-
-        switch (applicationEnvironment) {
-
-        case LOCAL_CUSTOM:
-            return new BpDateFormat(BpDateFormat.JVM_DATE_ONLY, locale);
-
-        case INTERNATIONAL_BUSINESS:
-        case SCIENTIFIC:
-            return new BpDateFormat(BpDateFormat.ISO_DATE_ONLY, locale);
-
-        default:
-            throw new AssertionError("undefined applicationEnvironment");
-        }
+        return FormatterCache.getDateFormat(applicationEnvironment, locale, FormatterCache.Style.DATE);
     }
 
     /**
-     * Returns the date-time formatter to use for this application environment.
+     * Returns the date-time formatter to use for this application environment. The formatter is cached for the calling
+     * thread as described in {@link FormatterCache} so it must not be reconfigured or shared with other threads.
      *
      * @return  the formatter
-     *
-     * @throws  AssertionError  DOCUMENT ME!
      */
     public DateFormat getTimestampFormat() {
-
-        switch (applicationEnvironment) {
-
-        case LOCAL_CUSTOM:
-            return new BpDateFormat(BpDateFormat.JVM_DATE_TIME, locale);
-
-        case INTERNATIONAL_BUSINESS:
-        case SCIENTIFIC:
-            return new BpDateFormat(BpDateFormat.ISO_DATE_TIME, locale);
-
-        default:
-            throw new AssertionError("undefined applicationEnvironment");
-        }
+        return FormatterCache.getDateFormat(applicationEnvironment, locale, FormatterCache.Style.TIMESTAMP);
     }
 
     /**
-     * Returns the currency formatter to use for this application environment.
+     * Returns the currency formatter to use for this application environment. The formatter is cached for the calling
+     * thread as described in {@link FormatterCache} so it must not be reconfigured or shared with other threads.
      *
      * @return  the formatter
-     *
-     * @throws  AssertionError  DOCUMENT ME!
      */
     public NumberFormat getCurrencyFormat() {
-
-        switch (applicationEnvironment) {
-
-        case LOCAL_CUSTOM:
-        case INTERNATIONAL_BUSINESS:
-        case SCIENTIFIC:
-            return new BpNumberFormat(BpNumberFormat.JVM_CURRENCY, locale);
-
-        default:
-            throw new AssertionError("undefined applicationEnvironment");
-        }
+        return FormatterCache.getNumberFormat(applicationEnvironment, locale, FormatterCache.Style.CURRENCY);
     }
 
     /**
-     * Returns the floating point number formatter to use for this application environment.
+     * Returns the floating point number formatter to use for this application environment. The formatter is cached
+     * for the calling thread as described in {@link FormatterCache} so it must not be reconfigured or shared with
+     * other threads.
      *
      * @return  the formatter
-     *
-     * @throws  AssertionError  DOCUMENT ME!
      */
     public NumberFormat getFloatingPointFormat() {
-
-        switch (applicationEnvironment) {
-
-        case LOCAL_CUSTOM:
-            return new BpNumberFormat(BpNumberFormat.JVM_NUMBER, locale);
-
-        case INTERNATIONAL_BUSINESS:
-        case SCIENTIFIC:
-            return new BpNumberFormat(BpNumberFormat.JVM_NUMBER, locale);
-
-        default:
-            throw new AssertionError("undefined applicationEnvironment");
-        }
+        return FormatterCache.getNumberFormat(applicationEnvironment, locale, FormatterCache.Style.FLOATING_POINT);
     }
 
     /**
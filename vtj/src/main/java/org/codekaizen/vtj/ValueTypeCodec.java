@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * <p>Reads and writes value type objects in a fixed-size binary form directly to and from byte buffers so records can
+ * be encoded into direct or memory-mapped buffers without intermediate byte arrays. Every value of the codec's type
+ * takes exactly {@link #getEncodedSize()} bytes so fields can be laid out at fixed offsets. Multi-byte numbers are
+ * written in the byte order of the buffer.</p>
+ *
+ * <p>The relative methods read or write at the buffer's position and advance it, the absolute methods leave the
+ * position unchanged. Implementations are stateless and safe for concurrent use. Codecs are looked up through {@link
+ * ValueTypeCodecs}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public interface ValueTypeCodec<T extends ValueType<T>> {
+
+    /**
+     * Returns the class of the value type objects handled by this codec.
+     *
+     * @return  the value type class
+     */
+    Class<T> getValueTypeClass();
+
+    /**
+     * Returns the number identifying this codec's binary form, unique within {@link ValueTypeCodecs} and between
+     * <code>1</code> and {@link ValueTypeCodecs#MAX_TYPE_ID}, which may be written ahead of values of mixed types.
+     *
+     * @return  the type identifier
+     */
+    int getTypeId();
+
+    /**
+     * Returns the number of bytes every encoded value takes.
+     *
+     * @return  the fixed size in bytes
+     */
+    int getEncodedSize();
+
+    /**
+     * Writes the supplied value at the buffer's current position and advances the position by {@link
+     * #getEncodedSize()}.
+     *
+     * @param  vt  the value type object
+     * @param  buffer  the buffer to write to
+     *
+     * @throws  IllegalArgumentException  if the value is <code>null</code>
+     * @throws  java.nio.BufferOverflowException  if fewer than {@link #getEncodedSize()} bytes remain
+     * @throws  java.nio.ReadOnlyBufferException  if the buffer is read-only
+     */
+    void writeTo(T vt, ByteBuffer buffer);
+
+    /**
+     * Writes the supplied value at the supplied index without changing the buffer's position.
+     *
+     * @param  vt  the value type object
+     * @param  buffer  the buffer to write to
+     * @param  index  the index of the first byte
+     *
+     * @throws  IllegalArgumentException  if the value is <code>null</code>
+     * @throws  IndexOutOfBoundsException  if the value does not fit between the index and the buffer's limit
+     * @throws  java.nio.ReadOnlyBufferException  if the buffer is read-only
+     */
+    void writeTo(T vt, ByteBuffer buffer, int index);
+
+    /**
+     * Reads a value from the buffer's current position and advances the position by {@link #getEncodedSize()}.
+     *
+     * @param  buffer  the buffer to read from
+     *
+     * @return  the new value type object
+     *
+     * @throws  IllegalArgumentException  if the bytes do not hold a valid value
+     * @throws  java.nio.BufferUnderflowException  if fewer than {@link #getEncodedSize()} bytes remain
+     */
+    T readFrom(ByteBuffer buffer);
+
+    /**
+     * Reads a value from the supplied index without changing the buffer's position.
+     *
+     * @param  buffer  the buffer to read from
+     * @param  index  the index of the first byte
+     *
+     * @return  the new value type object
+     *
+     * @throws  IllegalArgumentException  if the bytes do not hold a valid value
+     * @throws  IndexOutOfBoundsException  if the value does not fit between the index and the buffer's limit
+     */
+    T readFrom(ByteBuffer buffer, int index);
+
+}
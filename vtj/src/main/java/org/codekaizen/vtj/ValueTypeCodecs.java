@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.codekaizen.vtj.enums.VTBooleanCodec;
+import org.codekaizen.vtj.ids.VTLongSerialIdCodec;
+import org.codekaizen.vtj.ids.VTUUIDCodec;
+import org.codekaizen.vtj.math.VTDecimalCodec;
+import org.codekaizen.vtj.math.VTDoubleCodec;
+import org.codekaizen.vtj.math.VTFractionCodec;
+import org.codekaizen.vtj.math.VTIntegerCodec;
+import org.codekaizen.vtj.net.VTMACAddressCodec;
+import org.codekaizen.vtj.time.VTInstantCodec;
+
+
+/**
+ * <p>Registry of the {@link ValueTypeCodec} for each value type class. Lookups are by exact class or by type
+ * identifier and never use reflection. The registry is copied on each registration so lookups take no locks. Type
+ * identifiers up to {@link #MAX_RESERVED_TYPE_ID} are reserved for the codecs supplied with this library.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class ValueTypeCodecs {
+
+    /** Highest type identifier a codec may use so identifiers fit in an unsigned byte. */
+    public static final int MAX_TYPE_ID = 255;
+
+    /** Highest type identifier reserved for the codecs supplied with this library. */
+    public static final int MAX_RESERVED_TYPE_ID = 127;
+
+    private static volatile Map<Class<?>, ValueTypeCodec<?>> byClass = new IdentityHashMap<Class<?>, ValueTypeCodec<?>>();
+    private static volatile ValueTypeCodec<?>[] byTypeId = new ValueTypeCodec<?>[MAX_TYPE_ID + 1];
+
+    static {
+        doRegister(VTUUIDCodec.INSTANCE);
+        doRegister(VTLongSerialIdCodec.INSTANCE);
+        doRegister(VTInstantCodec.INSTANCE);
+        doRegister(VTDecimalCodec.INSTANCE);
+        doRegister(VTIntegerCodec.INSTANCE);
+        doRegister(VTDoubleCodec.INSTANCE);
+        doRegister(VTFractionCodec.INSTANCE);
+        doRegister(VTMACAddressCodec.INSTANCE);
+        doRegister(VTBooleanCodec.INSTANCE);
+    }
+
+    private ValueTypeCodecs() {
+        super();  // static methods only
+    }
+
+    /**
+     * Returns the codec for the supplied value type class.
+     *
+     * @param  clazz  the exact class of the values
+     *
+     * @return  the codec or <code>null</code> if none is registered
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ValueType<T>> ValueTypeCodec<T> getCodec(final Class<T> clazz) {
+        return (ValueTypeCodec<T>) byClass.get(clazz);
+    }
+
+    /**
+     * Returns the codec for the supplied type identifier.
+     *
+     * @param  typeId  the identifier returned by {@link ValueTypeCodec#getTypeId()}
+     *
+     * @return  the codec or <code>null</code> if none is registered
+     */
+    public static ValueTypeCodec<?> getCodec(final int typeId) {
+
+        if (typeId < 0 || typeId > MAX_TYPE_ID) {
+            return null;
+        }
+
+        return byTypeId[typeId];
+    }
+
+    /**
+     * Returns all registered codecs in type identifier order.
+     *
+     * @return  unmodifiable list of codecs
+     */
+    public static List<ValueTypeCodec<?>> getCodecs() {
+        final ValueTypeCodec<?>[] codecs = byTypeId;
+        final List<ValueTypeCodec<?>> result = new ArrayList<ValueTypeCodec<?>>();
+
+        for (int i = 0; i < codecs.length; i++) {
+
+            if (codecs[i] != null) {
+                result.add(codecs[i]);
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Registers a codec for a value type class not handled by this library. Should be called at application startup.
+     *
+     * @param  codec  the codec to register
+     *
+     * @throws  IllegalArgumentException  if the type identifier is reserved or out of range or the class or type
+     *                                    identifier already has a codec
+     */
+    public static void register(final ValueTypeCodec<?> codec) {
+        AssertPrecondition.notNull("codec", codec);
+        AssertPrecondition.withinRange("typeId", codec.getTypeId(), MAX_RESERVED_TYPE_ID + 1L, MAX_TYPE_ID);
+        doRegister(codec);
+    }
+
+    private static synchronized void doRegister(final ValueTypeCodec<?> codec) {
+        final Class<?> clazz = codec.getValueTypeClass();
+        final int typeId = codec.getTypeId();
+
+        if (byClass.containsKey(clazz)) {
+            throw new IllegalArgumentException("codec already registered for " + clazz.getName());
+        }
+
+        if (byTypeId[typeId] != null) {
+            throw new IllegalArgumentException("type id " + typeId + " already used by " + byTypeId[typeId]);
+        }
+
+        final Map<Class<?>, ValueTypeCodec<?>> classes = new IdentityHashMap<Class<?>, ValueTypeCodec<?>>(byClass);
+        classes.put(clazz, codec);
+
+        final ValueTypeCodec<?>[] ids = byTypeId.clone();
+        ids[typeId] = codec;
+
+        byTypeId = ids;
+        byClass = classes;
+    }
+
+}
@@ -21,7 +21,10 @@
  */
 package org.codekaizen.vtj;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -80,9 +83,133 @@ public interface ValueTypeFactory<T extends ValueType<T>> extends Serializable {
      * @param  s  the string representation
      *
      * @return  the new value type object
+     *
+     * @throws  IllegalArgumentException  if the string cannot be parsed
      */
     T parse(CharSequence s);
 
+    /**
+     * Returns a newly constructed value type object created from the supplied string representation or <code>
+     * null</code> if the string cannot be parsed. The string is only scanned once and no exception is thrown on
+     * failure so this is the preferred method when the validity of the input is not known beforehand.
+     *
+     * @param  s  the string representation
+     *
+     * @return  the new value type object or <code>null</code> if not parsable
+     */
+    T tryParse(CharSequence s);
+
+    /**
+     * Returns a newly constructed value type object created from the characters between <code>start</code> and
+     * <code>end</code> of the supplied sequence. The range is parsed in place so fields can be read straight out of
+     * a larger line buffer without copying them into strings first. A <code>java.nio.CharBuffer</code> is a character
+     * sequence so windows of a buffer are parsed the same way with indexes relative to its current position.
+     *
+     * @param  s  the sequence containing the string representation
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
+     *
+     * @return  the new value type object
+     *
+     * @throws  IllegalArgumentException  if the range cannot be parsed
+     * @throws  IndexOutOfBoundsException  if the range is not within the sequence
+     */
+    T parse(CharSequence s, int start, int end);
+
+    /**
+     * Returns a newly constructed value type object created from the characters between <code>start</code> and
+     * <code>end</code> of the supplied sequence or <code>null</code> if the range cannot be parsed.
+     *
+     * @param  s  the sequence containing the string representation
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
+     *
+     * @return  the new value type object or <code>null</code> if not parsable
+     *
+     * @throws  IndexOutOfBoundsException  if the range is not within the sequence
+     */
+    T tryParse(CharSequence s, int start, int end);
+
+    /**
+     * Returns a newly constructed value type object created from the characters between <code>start</code> and
+     * <code>end</code> of the supplied array.
+     *
+     * @param  chars  the array containing the string representation
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
+     *
+     * @return  the new value type object
+     *
+     * @throws  IllegalArgumentException  if the range cannot be parsed
+     * @throws  IndexOutOfBoundsException  if the range is not within the array
+     */
+    T parse(char[] chars, int start, int end);
+
+    /**
+     * Returns a newly constructed value type object created from the characters between <code>start</code> and
+     * <code>end</code> of the supplied array or <code>null</code> if the range cannot be parsed.
+     *
+     * @param  chars  the array containing the string representation
+     * @param  start  the index of the first character
+     * @param  end  the index after the last character
+     *
+     * @return  the new value type object or <code>null</code> if not parsable
+     *
+     * @throws  IndexOutOfBoundsException  if the range is not within the array
+     */
+    T tryParse(char[] chars, int start, int end);
+
+    /**
+     * Parses every string in the supplied list, splitting the work into chunks run in parallel on a shared pool of
+     * daemon threads sized to the number of processors. Results keep the input order and strings which cannot be
+     * parsed are recorded as failures without any exceptions being thrown. Use <code>Arrays.asList</code> to pass an
+     * array without copying it.
+     *
+     * @param  inputs  the string representations, list elements may be <code>null</code>
+     *
+     * @return  the parsed values and failures
+     */
+    BulkResult<T> parseAll(List<? extends CharSequence> inputs);
+
+    /**
+     * Parses every string in the supplied list, splitting the work into chunks run in parallel on the supplied
+     * executor. The calling thread processes chunks too so this is safe to call from a task running on the same
+     * executor.
+     *
+     * @param  inputs  the string representations, list elements may be <code>null</code>
+     * @param  executor  the executor to run chunks on or <code>null</code> to process them all on the calling thread
+     *
+     * @return  the parsed values and failures
+     */
+    BulkResult<T> parseAll(List<? extends CharSequence> inputs, Executor executor);
+
+    /**
+     * Creates a value type object from every element of the supplied list as if by calling {@link #create(Class,
+     * Object[])} with each element as the single argument, in parallel on a shared pool of daemon threads.
+     *
+     * @param  clazz  the class of the objects to create
+     * @param  inputs  the value arguments
+     *
+     * @return  the created values and failures
+     *
+     * @throws  IllegalArgumentException  if objects of the supplied class cannot be created by this factory
+     */
+    BulkResult<T> createAll(Class<? extends ValueType<?>> clazz, List<?> inputs);
+
+    /**
+     * Creates a value type object from every element of the supplied list as if by calling {@link #create(Class,
+     * Object[])} with each element as the single argument, in parallel on the supplied executor.
+     *
+     * @param  clazz  the class of the objects to create
+     * @param  inputs  the value arguments
+     * @param  executor  the executor to run chunks on or <code>null</code> to process them all on the calling thread
+     *
+     * @return  the created values and failures
+     *
+     * @throws  IllegalArgumentException  if objects of the supplied class cannot be created by this factory
+     */
+    BulkResult<T> createAll(Class<? extends ValueType<?>> clazz, List<?> inputs, Executor executor);
+
     /**
      * Returns a formatted string representation of the supplied object. This is the inverse of {@link
      * #parse(CharSequence)}.
@@ -93,4 +220,18 @@ public interface ValueTypeFactory<T extends ValueType<T>> extends Serializable {
      */
     String format(T vt);
 
+    /**
+     * Appends the same string representation returned by {@link #format(ValueType)} to the supplied appender. When
+     * writing many values into a shared <code>StringBuilder</code> or <code>Writer</code> this avoids creating a
+     * temporary string for each one. Nothing is appended for <code>null</code>.
+     *
+     * @param  vt  the value type object
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    Appendable formatTo(T vt, Appendable out) throws IOException;
+
 }
@@ -21,6 +21,7 @@
  */
 package org.codekaizen.vtj.enums;
 
+import java.io.IOException;
 
 /**
  * <p>Enumerates the possible boolean values including all possible values in a DBMS where it can be <code>null</code>.
@@ -56,4 +57,17 @@ public enum VTBoolean implements EnumValueType<VTBoolean> {
         return this;
     }
 
+    /**
+     * Appends the name of this constant to the supplied appender.
+     *
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    public Appendable appendTo(final Appendable out) throws IOException {
+        return out.append(name());
+    }
+
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.enums;
+
+import java.nio.ByteBuffer;
+import org.codekaizen.vtj.AbstractValueTypeCodec;
+
+
+/**
+ * <p>Encodes a {@link VTBoolean} as a single byte holding its ordinal.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class VTBooleanCodec extends AbstractValueTypeCodec<VTBoolean> {
+
+    /** Identifier of the binary form. */
+    public static final int TYPE_ID = 9;
+
+    /** Number of bytes in the binary form. */
+    public static final int ENCODED_SIZE = 1;
+
+    /** The shared instance. */
+    public static final VTBooleanCodec INSTANCE = new VTBooleanCodec();
+
+    private static final VTBoolean[] VALUES = VTBoolean.values();
+
+    private VTBooleanCodec() {
+        super(VTBoolean.class, TYPE_ID, ENCODED_SIZE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  buffer  DOCUMENT ME!
+     * @param  index  DOCUMENT ME!
+     */
+    @Override
+    protected void encode(final VTBoolean vt, final ByteBuffer buffer, final int index) {
+        buffer.put(index, (byte) vt.ordinal());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  buffer  DOCUMENT ME!
+     * @param  index  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTBoolean decode(final ByteBuffer buffer, final int index) {
+        final int ordinal = buffer.get(index);
+
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("invalid VTBoolean ordinal " + ordinal);
+        }
+
+        return VALUES[ordinal];
+    }
+
+}
@@ -21,9 +21,11 @@
  */
 package org.codekaizen.vtj.enums;
 
+import java.io.IOException;
 import org.codekaizen.vtj.AbstractVTFactory;
 import org.codekaizen.vtj.ContextHandlingStrategy;
 import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -36,6 +38,7 @@ public class VTBooleanFactory extends AbstractVTFactory<VTBoolean> {
     private static final long serialVersionUID = -5648218760462670297L;
     static final String[] VALID_STRINGS = { "true", "yes", "y", "1", "false", "no", "n", "0", };
     static final int FIRST_FALSE = 4;
+    private static final VTBoolean[] VALUES = VTBoolean.values();
 
     /**
      * Constructs a factory.
@@ -96,64 +99,67 @@ public class VTBooleanFactory extends AbstractVTFactory<VTBoolean> {
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTBoolean doParse(final CharSequence s, final int start, final int end) {
 
-        if (s == null) {
-            return false;
-        }
-
-        for (final String validStr : VALID_STRINGS) {
+        for (int i = 0; i < VALID_STRINGS.length; i++) {
 
-            if (validStr.equalsIgnoreCase(s.toString())) {
-                return true;
+            if (StringUtils.equalsIgnoreCase(VALID_STRINGS[i], s, start, end)) {
+                return this.trueOrFalse(i < FIRST_FALSE);
             }
         }
 
-        for (int i = 0; i < VTBoolean.values().length; i++) {
+        for (final VTBoolean b : VALUES) {
 
-            if (VTBoolean.values()[i].name().equalsIgnoreCase(s.toString())) {
-                return true;
+            if (StringUtils.equalsIgnoreCase(b.name(), s, start, end)) {
+                return b;
             }
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Parsing is a few character comparisons so chunks are kept large.
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int getBulkChunkSize() {
+        return 8192;
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
-     *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
      */
     @Override
-    protected VTBoolean doParse(final CharSequence s) {
+    protected boolean isParseCandidate(final int length, final char first) {
 
-        if (VTBoolean.UNKNOWN.name().equals(s)) {
-            return VTBoolean.UNKNOWN;
-        }
+        for (final String valid : VALID_STRINGS) {
 
-        for (int i = 0; i < FIRST_FALSE; i++) {
-
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return this.trueOrFalse(true);
+            if (valid.length() == length && StringUtils.equalsIgnoreCase(valid.charAt(0), first)) {
+                return true;
             }
         }
 
-        for (int i = FIRST_FALSE; i < VALID_STRINGS.length; i++) {
+        for (final VTBoolean b : VALUES) {
 
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return this.trueOrFalse(false);
+            if (b.name().length() == length && StringUtils.equalsIgnoreCase(b.name().charAt(0), first)) {
+                return true;
             }
         }
 
-        throw new IllegalArgumentException("not convertible to true or false");
+        return false;
     }
 
     /**
@@ -164,8 +170,25 @@ public class VTBooleanFactory extends AbstractVTFactory<VTBoolean> {
      * @return  DOCUMENT ME!
      */
     @Override
-    public String format(final VTBoolean vt) {
+    protected String doFormat(final VTBoolean vt) {
         return vt.name();
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Override
+    protected Appendable doFormatTo(final VTBoolean vt, final Appendable out) throws IOException {
+        vt.appendTo(out);
+
+        return out;
+    }
+
 }
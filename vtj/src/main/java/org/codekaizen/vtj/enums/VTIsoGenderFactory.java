@@ -24,6 +24,7 @@ package org.codekaizen.vtj.enums;
 import org.codekaizen.vtj.AbstractVTFactory;
 import org.codekaizen.vtj.ContextHandlingStrategy;
 import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -91,67 +92,62 @@ public class VTIsoGenderFactory extends AbstractVTFactory<VTIsoGender> {
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTIsoGender doParse(final CharSequence s, final int start, final int end) {
 
-        if (s == null) {
-            return false;
-        }
+        for (int i = 0; i < VALID_STRINGS.length; i++) {
 
-        for (final String validStr : VALID_STRINGS) {
+            if (StringUtils.equalsIgnoreCase(VALID_STRINGS[i], s, start, end)) {
 
-            if (validStr.equalsIgnoreCase(s.toString())) {
-                return true;
+                if (i < FIRST_MALE) {
+                    return VTIsoGender.NOT_KNOWN;
+                } else if (i < FIRST_FEMALE) {
+                    return VTIsoGender.MALE;
+                } else if (i < FIRST_NA) {
+                    return VTIsoGender.FEMALE;
+                } else {
+                    return VTIsoGender.NOT_APPLICABLE;
+                }
             }
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Parsing is a few character comparisons so chunks are kept large.
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int getBulkChunkSize() {
+        return 8192;
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
-     *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
      */
     @Override
-    protected VTIsoGender doParse(final CharSequence s) {
+    protected boolean isParseCandidate(final int length, final char first) {
 
-        for (int i = 0; i < FIRST_MALE; i++) {
+        for (final String valid : VALID_STRINGS) {
 
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return VTIsoGender.NOT_KNOWN;
-            }
-        }
-
-        for (int i = FIRST_MALE; i < FIRST_FEMALE; i++) {
-
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return VTIsoGender.MALE;
-            }
-        }
-
-        for (int i = FIRST_FEMALE; i < FIRST_NA; i++) {
-
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return VTIsoGender.FEMALE;
-            }
-        }
-
-        for (int i = FIRST_NA; i < VALID_STRINGS.length; i++) {
-
-            if (VALID_STRINGS[i].equalsIgnoreCase(s.toString())) {
-                return VTIsoGender.NOT_APPLICABLE;
+            if (valid.length() == length && StringUtils.equalsIgnoreCase(valid.charAt(0), first)) {
+                return true;
             }
         }
 
-        throw new IllegalArgumentException("not convertible to a gender");
+        return false;
     }
 
     /**
@@ -162,7 +158,7 @@ public class VTIsoGenderFactory extends AbstractVTFactory<VTIsoGender> {
      * @return  DOCUMENT ME!
      */
     @Override
-    public String format(final VTIsoGender vt) {
+    protected String doFormat(final VTIsoGender vt) {
         return vt.name();
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.ids;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import org.codekaizen.vtj.util.ClassCache;
+
+
+/**
+ * <p>Finds the accessor of the existing identifier of an entity object, a public no-argument <code>
+ * getObjectId()</code> or, if there is none, <code>getId()</code> method. The accessor of each class is looked up only
+ * once and shared by {@link VTUUIDFactory} and the identifier generators of the persistence integrations.</p>
+ *
+ * <p>Entities implementing {@link Identifiable} are asked for their identifier with a plain interface call. For all
+ * other classes the cached accessor is still invoked reflectively on every call.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class IdentifierAccessors {
+
+    private static final ClassCache<Method> ACCESSORS = new ClassCache<Method>() {
+            @Override
+            protected Method computeValue(final Class<?> type) {
+                Method result = findAccessor(type, "getObjectId");
+
+                if (result == null) {
+                    result = findAccessor(type, "getId");
+                }
+
+                return result;
+            }
+        };
+
+    private IdentifierAccessors() {
+        super();  // static methods only
+    }
+
+    /**
+     * Returns the identifier accessor of the supplied class.
+     *
+     * @param  type  the entity class
+     *
+     * @return  the accessor or <code>null</code> if the class has none
+     */
+    public static Method getAccessor(final Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    /**
+     * Returns the existing identifier of the supplied object.
+     *
+     * @param  entity  the entity object
+     *
+     * @return  the identifier or <code>null</code> if it has none or the class has no identifier accessor
+     *
+     * @throws  IllegalStateException  if the accessor throws an exception
+     */
+    public static Object getIdentifier(final Object entity) {
+
+        try {
+
+            if (entity instanceof Identifiable) {
+                return ((Identifiable) entity).getObjectId();
+            }
+
+            final Method accessor = ACCESSORS.get(entity.getClass());
+
+            return (accessor == null) ? null : accessor.invoke(entity);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (final Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Discards all cached accessors. Not needed for unloaded classes since the cache does not keep them loaded.
+     */
+    public static void clear() {
+        ACCESSORS.clear();
+    }
+
+    private static Method findAccessor(final Class<?> type, final String name) {
+        final Method method;
+
+        try {
+            method = type.getMethod(name);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+
+        if (method.getReturnType() == Void.TYPE || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+
+        try {
+            // public methods of non-public classes are otherwise not invocable
+            method.setAccessible(true);
+        } catch (final SecurityException e) {
+            // keep the access checks
+        }
+
+        return method;
+    }
+
+}
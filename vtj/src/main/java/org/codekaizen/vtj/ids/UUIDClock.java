@@ -23,6 +23,8 @@ package org.codekaizen.vtj.ids;
 
 import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import org.codekaizen.vtj.AssertPrecondition;
 import org.codekaizen.vtj.time.Clock;
 import org.codekaizen.vtj.time.VTInstant;
 import org.slf4j.Logger;
@@ -32,6 +34,21 @@ import org.slf4j.LoggerFactory;
 /**
  * <p>Produces the time stamps required for time-based UUID/GUID's.</p>
  *
+ * <p>The last time stamp used and the clock sequence increment are packed into a single atomic word which is advanced
+ * with compare-and-set so any number of threads can draw time stamps without locking. The time stamp occupies the
+ * upper 60 bits, the full width of the UUID time field, and the lower 4 bits count how many times the system clock
+ * has been set back. Each such adjustment moves to the next clock sequence after a randomly chosen starting value as
+ * recommended by RFC 4122.</p>
+ *
+ * <p>Time stamps are either counted in 100 nsec. units since the start of the Gregorian calendar, as used by version 1
+ * and 6 UUID's, or for version 7 UUID's as milliseconds since 1970-01-01 shifted left by 12 bits. The low bits of a
+ * Unix time stamp are a sub-millisecond counter so up to 4096 strictly increasing values are available per millisecond
+ * before the clock runs ahead into the next one.</p>
+ *
+ * <p>A clock may be one of several stripes sharing a node. Each stripe is given a disjoint range of the 14 bit clock
+ * sequence space and cycles only within it, so stripes keep fully independent time stamp state while the UUID's they
+ * produce never collide.</p>
+ *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 class UUIDClock extends Clock {
@@ -47,18 +64,58 @@ class UUIDClock extends Clock {
     /** Convert from seconds to 100 nsec. */
     private static final long CLOCK_MULTI = 10000000L;
 
+    /** Convert from milliseconds to 100 nsec. */
+    private static final long MILLIS_MULTI = 10000L;
+
     /** Convert from nanoseconds to 100 nsec. */
     private static final int NANO_DIV = 100;
 
+    /** Number of sub-millisecond counter bits below the milliseconds of a Unix time stamp. */
+    private static final int COUNTER_BITS = 12;
+
+    /** Number of low bits of the state word holding the clock sequence increment. */
+    private static final int SEQUENCE_BITS = 4;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1L;
+
+    /** The number of valid 14 bit clock sequence values. */
+    static final int CLOCK_SEQUENCES = 0x4000;
+
+    /** The most stripes the clock sequence space can be divided into while each still cycles through increments. */
+    static final int MAX_STRIPES = CLOCK_SEQUENCES >>> SEQUENCE_BITS;
+
+    /**
+     * How far in milliseconds time stamps handed out may run ahead of the system time. Generation stalls rather than
+     * going further so anything beyond this is the clock being set back rather than a burst of calls within a tick.
+     */
+    private static final long MAX_DRIFT_MILLIS = 1000L;
+
+    /** The largest block of time stamps which may be reserved in one step. */
+    static final int MAX_BLOCK = 0x10000;
+
     private final Logger logger = LoggerFactory.getLogger(UUIDClock.class);
-    private final Random random;
     private final Clock clock;
-    private short clockSequence = 0;
-    private long lastSysTs = 0L;
-    private long lastUsedTs = 0L;
+    private final boolean unixTime;
+    private final long maxDrift;
+    private final int rangeStart;
+    private final int rangeMask;
+    private final int baseOffset;
+    private final AtomicLong state = new AtomicLong(0L);
 
     UUIDClock(final Random random, final Clock clock) {
-        this.random = random;
+        this(random, clock, false, 0, 1);
+    }
+
+    /**
+     * Creates one stripe of a set of clocks.
+     *
+     * @param  random  used to choose the starting clock sequence within the stripe's range
+     * @param  clock  the source of the current time
+     * @param  unixTime  whether to count in Unix milliseconds with a sub-millisecond counter instead of Gregorian time
+     * @param  stripe  the index of this stripe
+     * @param  stripes  the total number of stripes, a power of two no greater than {@link #MAX_STRIPES}
+     */
+    UUIDClock(final Random random, final Clock clock, final boolean unixTime, final int stripe, final int stripes) {
 
         if (clock == null) {
             this.clock = Clock.system();
@@ -66,55 +123,102 @@ class UUIDClock extends Clock {
             this.clock = clock;
         }
 
-        initCounters(this.random);
-        this.lastSysTs = 0L;
-        this.lastUsedTs = 0L;
+        this.unixTime = unixTime;
+        this.maxDrift = unixTime ? MAX_DRIFT_MILLIS << COUNTER_BITS : MAX_DRIFT_MILLIS * MILLIS_MULTI;
+
+        final int rangeSize = CLOCK_SEQUENCES / stripes;
+        this.rangeStart = stripe * rangeSize;
+        this.rangeMask = rangeSize - 1;
+        this.baseOffset = random.nextInt(rangeSize);
     }
 
-    private void initCounters(final Random rnd) {
-        this.clockSequence = (short) rnd.nextInt(0x1FFF);
+    /**
+     * Returns the packed time stamp and clock sequence increment to use for the next UUID. The time stamp is strictly
+     * greater than the one previously returned unless the system clock has been set back, in which case the clock
+     * sequence changes instead. Use {@link #timestamp(long)} and {@link #clockSequence(long)} to unpack the result.
+     *
+     * @return  the packed state word
+     */
+    long next() {
+        return this.reserve(1);
     }
 
-    void getTimestamp(final byte[] uuidData) {
+    /**
+     * Reserves a block of consecutive time stamps in a single step and returns the packed state for the first one. The
+     * following <code>count - 1</code> time stamps share the same clock sequence and belong to the caller. If
+     * time stamps are being consumed faster than the system time advances this waits for the clock to catch up.
+     *
+     * @param  count  the number of time stamps to reserve, between 1 and {@link #MAX_BLOCK}
+     *
+     * @return  the packed state word of the first time stamp in the block
+     */
+    long reserve(final int count) {
+        AssertPrecondition.withinRange("count", count, 1, MAX_BLOCK);
 
-        long systime = this.gregorianInstant();
+        long systime = this.currentTimestamp();
 
-        // verify that the system time is not going backwards
-        if (systime < this.lastSysTs) {
-            this.logger.warn("System time going backwards! (got value " + systime + ", last " + this.lastSysTs);
-            this.initCounters(this.random);
-        }
+        while (true) {
+            final long current = this.state.get();
+            final long lastUsed = current >>> SEQUENCE_BITS;
+            long increment = current & SEQUENCE_MASK;
+            final long first;
 
-        this.lastSysTs = systime;
+            if (systime > lastUsed) {
+                first = systime;
+            } else if (lastUsed - systime <= this.maxDrift) {
+                // increment ahead one unit if already used this time
+                first = lastUsed + 1L;
 
-        // increment ahead 100 nsec. if already used this time
-        if (systime <= this.lastUsedTs) {
+                if (first + count - 1L - systime > this.maxDrift) {
+                    Thread.yield();
+                    systime = this.currentTimestamp();
 
-            if (systime > (this.lastSysTs + 10000L)) {
-                this.initCounters(this.random);
+                    continue;
+                }
             } else {
-                systime = this.lastUsedTs + 1L;
+                first = systime;
+                increment = (increment + 1L) & SEQUENCE_MASK;
             }
-        }
 
-        this.lastUsedTs = systime;
+            final long next = ((first + count - 1L) << SEQUENCE_BITS) | increment;
 
-        final int clockHi = (int) (systime >>> 32);
-        final int clockLo = (int) systime;
+            if (this.state.compareAndSet(current, next)) {
 
-        uuidData[6] = (byte) (clockHi >>> 24);
-        uuidData[7] = (byte) (clockHi >>> 16);
-        uuidData[4] = (byte) (clockHi >>> 8);
-        uuidData[5] = (byte) clockHi;
+                if (first < lastUsed) {
+                    this.logger.warn("System time going backwards! (got value " + systime + ", last " + lastUsed +
+                        ")");
+                }
 
-        uuidData[0] = (byte) (clockLo >>> 24);
-        uuidData[1] = (byte) (clockLo >>> 16);
-        uuidData[2] = (byte) (clockLo >>> 8);
-        uuidData[3] = (byte) clockLo;
+                return (first << SEQUENCE_BITS) | increment;
+            }
+        }
+    }
 
-        uuidData[8] = (byte) (this.clockSequence >>> 8);
-        uuidData[9] = (byte) this.clockSequence;
+    /**
+     * Returns the 60 bit time stamp held in a state word returned by {@link #next()}.
+     *
+     * @param  word  the packed state
+     *
+     * @return  the number of 100nsecs. since 1582
+     */
+    long timestamp(final long word) {
+        return word >>> SEQUENCE_BITS;
+    }
 
+    /**
+     * Returns the 14 bit clock sequence for a state word returned by {@link #next()}. The value always lies within the
+     * range owned by this stripe.
+     *
+     * @param  word  the packed state
+     *
+     * @return  the clock sequence
+     */
+    int clockSequence(final long word) {
+        return this.rangeStart + ((this.baseOffset + (int) (word & SEQUENCE_MASK)) & this.rangeMask);
+    }
+
+    private long currentTimestamp() {
+        return this.unixTime ? this.clock.millis() << COUNTER_BITS : this.gregorianInstant();
     }
 
     /**
@@ -140,6 +244,16 @@ class UUIDClock extends Clock {
         return this.clock.instant();
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public long millis() {
+        return this.clock.millis();
+    }
+
     /**
      * DOCUMENT ME!
      *
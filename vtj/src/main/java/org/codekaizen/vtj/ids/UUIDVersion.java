@@ -22,7 +22,8 @@
 package org.codekaizen.vtj.ids;
 
 /**
- * <p>Enumerates the universally-unique identifier (UUID) versions defined by RFC 4122.</p>
+ * <p>Enumerates the universally-unique identifier (UUID) versions defined by RFC 4122 and the time-ordered versions
+ * 6 and 7 added by its successor RFC 9562.</p>
  *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
@@ -44,6 +45,12 @@ public enum UUIDVersion {
     RANDOM,
 
     /** Name-based SHA-1-hashed version (0b0101). */
-    NAME_SHA1;
+    NAME_SHA1,
+
+    /** Reordered Gregorian time-based version with the most significant time bits first (0b0110). */
+    REORDERED_TIME,
+
+    /** Unix epoch millisecond time-based version (0b0111). */
+    UNIX_TIME;
 
 }
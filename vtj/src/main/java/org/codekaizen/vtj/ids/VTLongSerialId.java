@@ -26,6 +26,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import org.codekaizen.vtj.AssertPrecondition;
 import org.codekaizen.vtj.VT;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -155,4 +156,20 @@ public class VTLongSerialId extends VT<VTLongSerialId> implements UniqueIdentifi
         return SID_PREFIX + Long.toString(value);
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Override
+    public Appendable appendTo(final Appendable out) throws IOException {
+        out.append(SID_PREFIX);
+
+        return StringUtils.appendToString(value, out);
+    }
+
 }
@@ -21,10 +21,14 @@
  */
 package org.codekaizen.vtj.ids;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 import org.codekaizen.vtj.AbstractVTFactory;
 import org.codekaizen.vtj.ContextHandlingStrategy;
+import org.codekaizen.vtj.ContextKey;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
 import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -34,7 +38,11 @@ import org.codekaizen.vtj.ValueType;
  */
 public class VTLongSerialIdFactory extends AbstractVTFactory<VTLongSerialId> {
 
-    private AtomicLong counter = new AtomicLong(0L);
+    /** The value the counter is reset to on a context change. */
+    private static final ContextKey<VTLongSerialId> INITIAL_VALUE = new ContextKey<VTLongSerialId>(
+            "org.codekaizen.vtj.ids.VTLongSerialIdFactory.initialValue", null, new SerialIdConverter());
+
+    private volatile AtomicLong counter = new AtomicLong(0L);
 
     /**
      * Creates a new VTLongSerialIdFactory object.
@@ -42,7 +50,7 @@ public class VTLongSerialIdFactory extends AbstractVTFactory<VTLongSerialId> {
      * @param  strategy  DOCUMENT ME!
      */
     public VTLongSerialIdFactory(final ContextHandlingStrategy strategy) {
-        super(strategy);
+        super(strategy, INITIAL_VALUE);
     }
 
     /**
@@ -52,14 +60,10 @@ public class VTLongSerialIdFactory extends AbstractVTFactory<VTLongSerialId> {
     protected void processContextChange() {
         super.processContextChange();
 
-        final Object val = super.getValue("org.codekaizen.vtj.ids.VTLongSerialIdFactory.initialValue");
-
-        if (val != null) {
-            final VTLongSerialId starting = create(val);
+        final VTLongSerialId starting = super.getValue(INITIAL_VALUE);
 
-            synchronized (this) {
-                counter = new AtomicLong(starting.longValue());
-            }
+        if (starting != null) {
+            counter = new AtomicLong(starting.longValue());
         }
     }
 
@@ -122,64 +126,100 @@ public class VTLongSerialIdFactory extends AbstractVTFactory<VTLongSerialId> {
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTLongSerialId doParse(final CharSequence s, final int start, final int end) {
+        int from = start;
+        int to = end;
+
+        if (to - from >= VTLongSerialId.SID_PREFIX.length() &&
+                StringUtils.regionMatches(s, from, VTLongSerialId.SID_PREFIX)) {
+            from += VTLongSerialId.SID_PREFIX.length();
+        }
 
-        if (s == null) {
-            return false;
+        if (to > from && (s.charAt(to - 1) == 'L' || s.charAt(to - 1) == 'l')) {
+            to--;
         }
 
-        final String str = stripNonDigits(s);
-        boolean result = true;
+        if (from >= to) {
+            return null;
+        }
 
-        for (int i = 0; i < str.length(); i++) {
+        long value = 0L;
 
-            if (!Character.isDigit(str.charAt(i))) {
-                result = false;
+        for (int i = from; i < to; i++) {
+            final int digit = s.charAt(i) - '0';
 
-                break;
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10L) {
+                return null;
             }
+
+            value = value * 10L + digit;
         }
 
-        return result;
+        return new VTLongSerialId(value);
     }
 
-    private String stripNonDigits(final CharSequence s) {
-        String str = s.toString();
+    /**
+     * Parsing is a single short digit loop so chunks are kept large.
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int getBulkChunkSize() {
+        return 4096;
+    }
 
-        if (str.startsWith(VTLongSerialId.SID_PREFIX)) {
-            str = str.substring(4);
-        }
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean isParseCandidate(final int length, final char first) {
 
-        if (str.charAt(str.length() - 1) == 'L' || str.charAt(str.length() - 1) == 'l') {
-            str = str.substring(0, str.length() - 1);
+        if (first == VTLongSerialId.SID_PREFIX.charAt(0)) {
+            return length > VTLongSerialId.SID_PREFIX.length();
         }
 
-        return str;
+        return length > 0 && first >= '0' && first <= '9';
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
+     * @throws  IOException  DOCUMENT ME!
      */
     @Override
-    protected VTLongSerialId doParse(final CharSequence s) {
+    protected Appendable doFormatTo(final VTLongSerialId vt, final Appendable out) throws IOException {
+        vt.appendTo(out);
 
-        if (!isParsable(s)) {
-            throw new IllegalArgumentException("unrecognizable format");
-        }
+        return out;
+    }
 
-        final String str = stripNonDigits(s);
+    /**
+     * Converts configured initial values supplied as serial ids, numbers or strings.
+     */
+    private static final class SerialIdConverter implements ContextKey.Converter<VTLongSerialId> {
+
+        private static final long serialVersionUID = 5379414287960911478L;
+
+        public VTLongSerialId convert(final Object value) {
+            return new VTLongSerialIdFactory(new MapContextHandlingStrategy()).create(value);
+        }
 
-        return new VTLongSerialId(Long.parseLong(str));
     }
 
 }
@@ -22,10 +22,12 @@
 package org.codekaizen.vtj.ids;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.lang.reflect.Field;
 import java.math.BigInteger;
-import java.util.Arrays;
 import org.codekaizen.vtj.VT;
 import org.codekaizen.vtj.util.ByteArrayUtils;
 
@@ -39,13 +41,25 @@ import org.codekaizen.vtj.util.ByteArrayUtils;
  * specification and therefore cannot be used with this class.</p>
  *
  * <p>For more information including algorithms used to create <code>UUID</code>s, see the IETF document <a
- * href="http://tools.ietf.org/html/rfc4122">RFC4122 UUID URN Namespace</a> or the joint ITU/ISO definition at <a
+ * href="http://tools.ietf.org/html/rfc4122">RFC4122 UUID URN Namespace</a>, its successor <a
+ * href="http://tools.ietf.org/html/rfc9562">RFC9562</a> which adds the time-ordered versions 6 and 7, or the joint ITU/ISO definition at <a
  * href="http://www.itu.int/ITU-T/studygroups/com17/oid/X.667-E.pdf">ITU-T Rec. X.667 | ISO/IEC 9834-8:2005</a>.</p>
  *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUUID> {
 
+    /** Cached since <code>values()</code> copies the array on every call. Must precede {@link #NIL}. */
+    private static final UUIDVersion[] VERSIONS = UUIDVersion.values();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Offset in 100 nsec. units between the start of the Gregorian calendar (1582-10-15) and 1970-01-01. */
+    private static final long CLOCK_OFFSET = 122192928000000000L;
+
+    /** Convert from milliseconds to 100 nsec. */
+    private static final long MILLIS_MULTI = 10000L;
+
     /** Special form of the UUID with all 128 bits set to zero. */
     public static final VTUUID NIL = new VTUUID(0L, 0L);
 
@@ -63,17 +77,16 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
 
     private static final long serialVersionUID = 8255317938488300690L;
 
-    private final byte[] rawBytes = new byte[16];
-    private transient String toStr;
-    private transient String toBase16;
-    private transient UUIDVersion version = null;
-    private transient int variant = -1;
-    private transient long timestamp = -1L;
-    private transient int sequence = -1;
-    private transient long node = -1L;
-    private transient int hashCode = -1;
-    private transient long mostSigBits = -1L;
-    private transient long leastSigBits = -1L;
+    /** Keeps the stream format of earlier releases which stored the value as a byte array. */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("rawBytes", byte[].class),
+        };
+
+    private static final Field MOST_SIG_BITS_FIELD = getField("mostSigBits");
+    private static final Field LEAST_SIG_BITS_FIELD = getField("leastSigBits");
+
+    private final long mostSigBits;
+    private final long leastSigBits;
 
     /**
      * Constructs a UUID.
@@ -81,8 +94,7 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @param  raw  the bytes to wrap
      */
     public VTUUID(final byte[] raw) {
-        System.arraycopy(raw, 0, this.rawBytes, 0, 16);
-        this.validateFields();
+        this(toLong(raw, 0), toLong(raw, 8));
     }
 
     /**
@@ -92,12 +104,33 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @param  leastSigBits  the least significant 64 bits.
      */
     public VTUUID(final long mostSigBits, final long leastSigBits) {
-        final byte[] b = ByteArrayUtils.append(ByteArrayUtils.toBytes(mostSigBits),
-                ByteArrayUtils.toBytes(leastSigBits));
-        System.arraycopy(b, 0, this.rawBytes, 0, 16);
+        this.mostSigBits = mostSigBits;
+        this.leastSigBits = leastSigBits;
         this.validateFields();
     }
 
+    private static long toLong(final byte[] raw, final int start) {
+        long value = 0L;
+
+        for (int i = start; i < start + 8; i++) {
+            value = (value << 8) | (raw[i] & 0xFF);
+        }
+
+        return value;
+    }
+
+    private static Field getField(final String name) {
+
+        try {
+            final Field field = VTUUID.class.getDeclaredField(name);
+            field.setAccessible(true);
+
+            return field;
+        } catch (final NoSuchFieldException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
     private void validateFields() {
         this.validateVariant(this.variant());
         this.validateVersion(this.version());
@@ -126,6 +159,8 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
         case NAME_MD5:
         case RANDOM:
         case NAME_SHA1:
+        case REORDERED_TIME:
+        case UNIX_TIME:
 
             // do nothing, these are valid
             break;
@@ -143,19 +178,31 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
     }
 
     private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
-        s.defaultReadObject();
-        // set "cached computation" fields to their initial values
-        this.version = null;
-        this.variant = -1;
-        this.timestamp = -1;
-        this.sequence = -1;
-        this.node = -1;
-        this.hashCode = -1;
-        this.validateFields();
+        final ObjectInputStream.GetField fields = s.readFields();
+        final byte[] raw = (byte[]) fields.get("rawBytes", null);
+
+        if (raw == null || raw.length != 16) {
+            throw new InvalidObjectException("must be sixteen bytes");
+        }
+
+        try {
+            MOST_SIG_BITS_FIELD.setLong(this, toLong(raw, 0));
+            LEAST_SIG_BITS_FIELD.setLong(this, toLong(raw, 8));
+        } catch (final IllegalAccessException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+
+        try {
+            this.validateFields();
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
     }
 
     private void writeObject(final ObjectOutputStream s) throws IOException {
-        s.defaultWriteObject();
+        final ObjectOutputStream.PutField fields = s.putFields();
+        fields.put("rawBytes", this.toByteArray());
+        s.writeFields();
     }
 
     /**
@@ -164,13 +211,6 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @return  the least significant 64 bits of this UUID's 128 bit value.
      */
     public long getLeastSignificantBits() {
-
-        if (this.leastSigBits == -1L) {
-            final byte[] b = new byte[8];
-            System.arraycopy(this.rawBytes, 8, b, 0, 8);
-            this.leastSigBits = ByteArrayUtils.toLong(b);
-        }
-
         return this.leastSigBits;
     }
 
@@ -180,13 +220,6 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @return  the most significant 64 bits of this UUID's 128 bit value.
      */
     public long getMostSignificantBits() {
-
-        if (this.mostSigBits == -1L) {
-            final byte[] b = new byte[8];
-            System.arraycopy(this.rawBytes, 0, b, 0, 8);
-            this.mostSigBits = ByteArrayUtils.toLong(b);
-        }
-
         return this.mostSigBits;
     }
 
@@ -202,23 +235,16 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * <li>3 Name-based UUID MD5 hashed</li>
      * <li>4 Randomly generated UUID</li>
      * <li>5 Name-based UUID SHA1 hashed</li>
+     * <li>6 Reordered time-based UUID</li>
+     * <li>7 Unix epoch time-based UUID</li>
      * </ul>
      *
      * @return  the version number of this <code>UUID</code>.
      */
     public UUIDVersion version() {
+        final int i = (int) (this.mostSigBits >>> 12) & 0x0F;
 
-        if (this.version == null) {
-            final int i = (this.rawBytes[6] >>> 4) & 0x0F;
-
-            if (i < 0 || i > UUIDVersion.values().length) {
-                this.version = UUIDVersion.NON_CONFORMANT;
-            } else {
-                this.version = UUIDVersion.values()[i];
-            }
-        }
-
-        return this.version;
+        return i < VERSIONS.length ? VERSIONS[i] : UUIDVersion.NON_CONFORMANT;
     }
 
     /**
@@ -237,21 +263,17 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @return  the variant number of this <code>UUID</code>.
      */
     public int variant() {
-
-        if (this.variant == -1) {
-
-            if ((this.rawBytes[8] & 0x80) == 0x0) {
-                this.variant = VARIANT_NCS_COMPAT;
-            } else if ((this.rawBytes[8] & 0x40) == 0x0) {
-                this.variant = VARIANT_RFC4122;
-            } else if ((this.rawBytes[8] & 0x20) == 0x0) {
-                this.variant = VARIANT_MICROSOFT;
-            } else {
-                this.variant = VARIANT_FUTURE;
-            }
+        final int bits = (int) (this.leastSigBits >>> 61);
+
+        if ((bits & 0x04) == 0x0) {
+            return VARIANT_NCS_COMPAT;
+        } else if ((bits & 0x02) == 0x0) {
+            return VARIANT_RFC4122;
+        } else if ((bits & 0x01) == 0x0) {
+            return VARIANT_MICROSOFT;
+        } else {
+            return VARIANT_FUTURE;
         }
-
-        return this.variant;
     }
 
     /**
@@ -261,31 +283,34 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * UUID</code>. The resulting timestamp is measured in 100-nanosecond units since midnight, October 15, 1582 UTC.
      * </p>
      *
-     * <p>The timestamp value is only meaningful in a time-based UUID, which has version type 1. If this <code>
+     * <p>Version 6 UUID's hold the same 60 bit timestamp with the most significant bits first. Version 7 UUID's hold
+     * a 48 bit count of milliseconds since 1970-01-01 UTC which is converted to the same units so timestamps of all
+     * the time-based versions may be compared with each other.</p>
+     *
+     * <p>The timestamp value is only meaningful in a time-based UUID, which has version type 1, 6 or 7. If this <code>
      * UUID</code> is not a time-based UUID then this method throws UnsupportedOperationException.</p>
      *
      * @return  the timestamp used to create this <code>UUID</code>.
      *
-     * @throws  UnsupportedOperationException  if this UUID is not a version 1 UUID.
+     * @throws  UnsupportedOperationException  if this UUID is not a version 1, 6 or 7 UUID.
      */
     public long timestamp() {
 
-        if (!this.version().equals(UUIDVersion.TIME_SPACE)) {
-            throw new UnsupportedOperationException("Not a time-based UUID");
-        }
+        switch (this.version()) {
+        case TIME_SPACE:
 
-        if (this.timestamp == -1L) {
-            final byte[] longVal = new byte[8];
-            System.arraycopy(this.rawBytes, 6, longVal, 0, 2);
-            System.arraycopy(this.rawBytes, 4, longVal, 2, 2);
-            System.arraycopy(this.rawBytes, 0, longVal, 4, 4);
-            // remove version bits
-            longVal[0] &= 0x0F;
-            System.out.println();
-            this.timestamp = ByteArrayUtils.toLong(longVal);
-        }
+            // time_hi without the version bits, then time_mid and time_low
+            return ((this.mostSigBits & 0x0FFFL) << 48) | (((this.mostSigBits >>> 16) & 0xFFFFL) << 32) |
+                (this.mostSigBits >>> 32);
+        case REORDERED_TIME:
 
-        return this.timestamp;
+            // time_high and time_mid, then time_low without the version bits
+            return ((this.mostSigBits >>> 16) << 12) | (this.mostSigBits & 0x0FFFL);
+        case UNIX_TIME:
+            return (this.mostSigBits >>> 16) * MILLIS_MULTI + CLOCK_OFFSET;
+        default:
+            throw new UnsupportedOperationException("Not a time-based UUID");
+        }
     }
 
     /**
@@ -294,47 +319,34 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * <p>The 14 bit clock sequence value is constructed from the clock sequence field of this UUID. The clock sequence
      * field is used to guarantee temporal uniqueness in a time-based UUID.</p>
      *
-     * <p>The clockSequence value is only meaningful in a time-based UUID, which has version type 1. If this UUID is not
-     * a time-based UUID then this method throws UnsupportedOperationException.</p>
+     * <p>The clockSequence value is only meaningful in a Gregorian time-based UUID, which has version type 1 or 6. If
+     * this UUID is not such a UUID then this method throws UnsupportedOperationException.</p>
      *
      * @return  the clock sequence of this <code>UUID</code>.
      *
-     * @throws  UnsupportedOperationException  if this UUID is not a version 1 UUID.
+     * @throws  UnsupportedOperationException  if this UUID is not a version 1 or 6 UUID.
      */
     public int clockSequence() {
 
-        if (!this.version().equals(UUIDVersion.TIME_SPACE)) {
+        if (!this.hasClockSequenceAndNode()) {
             throw new UnsupportedOperationException("Not a time-based UUID");
         }
 
-        if (this.sequence == -1) {
-            final byte[] b = { rawBytes[8], rawBytes[9] };
-
-            // remove the variant bit(s)
-            // different variants use a different number of bytes
-            // since only time-based version is allowed thru it should
-            // always use the first value
-            // the others are in here to handle future changes
-            switch (this.variant()) {
-            case VARIANT_RFC4122:
-                b[0] &= 0x3F;
-
-                break;
-            case VARIANT_NCS_COMPAT:
-                b[0] &= 0x9F;
-
-                break;
-            case VARIANT_MICROSOFT:
-            case VARIANT_FUTURE:
-                b[0] &= 0x1F;
+        final int bits = (int) (this.leastSigBits >>> 48) & 0xFFFF;
 
-                break;
-            }
-
-            this.sequence = (short) ((b[1] & 0xFF) + ((b[0] & 0xFF) << 8));
+        // remove the variant bit(s)
+        // different variants use a different number of bits
+        // since only time-based version is allowed thru it should
+        // always use the first value
+        // the others are in here to handle future changes
+        switch (this.variant()) {
+        case VARIANT_RFC4122:
+            return (short) (bits & 0x3FFF);
+        case VARIANT_NCS_COMPAT:
+            return (short) (bits & 0x9FFF);
+        default:
+            return (short) (bits & 0x1FFF);
         }
-
-        return this.sequence;
     }
 
     /**
@@ -343,26 +355,26 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * <p>The 48 bit node value is constructed from the node field of this UUID. This field is intended to hold the IEEE
      * 802 address of the machine that generated this UUID to guarantee spatial uniqueness.</p>
      *
-     * <p>The node value is only meaningful in a time-based UUID, which has version type 1. If this UUID is not a
-     * time-based UUID then this method throws UnsupportedOperationException.</p>
+     * <p>The node value is only meaningful in a Gregorian time-based UUID, which has version type 1 or 6. If this UUID
+     * is not such a UUID then this method throws UnsupportedOperationException.</p>
      *
      * @return  the node value of this <code>UUID</code>.
      *
-     * @throws  UnsupportedOperationException  if this UUID is not a version 1 UUID.
+     * @throws  UnsupportedOperationException  if this UUID is not a version 1 or 6 UUID.
      */
     public long node() {
 
-        if (!this.version().equals(UUIDVersion.TIME_SPACE)) {
+        if (!this.hasClockSequenceAndNode()) {
             throw new UnsupportedOperationException("Not a time-based UUID");
         }
 
-        if (this.node == -1L) {
-            final byte[] b = new byte[8];
-            System.arraycopy(rawBytes, 10, b, 2, 6);
-            this.node = new Long((ByteArrayUtils.toLong(b) & 0xFFFFFFFFFFFFL));
-        }
+        return this.leastSigBits & 0xFFFFFFFFFFFFL;
+    }
 
-        return this.node;
+    private boolean hasClockSequenceAndNode() {
+        final UUIDVersion v = this.version();
+
+        return v == UUIDVersion.TIME_SPACE || v == UUIDVersion.REORDERED_TIME;
     }
 
     /**
@@ -382,7 +394,7 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      */
     @Override
     public VTUUID copy() {
-        return new VTUUID(this.toByteArray());
+        return new VTUUID(this.mostSigBits, this.leastSigBits);
     }
 
     /**
@@ -394,15 +406,14 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      */
     @Override
     public int compareTo(final VTUUID uuid) {
-        final byte[] thatA = uuid.toByteArray();
-        final byte[] thisA = this.rawBytes;
 
-        for (int i = 0; i < 16; ++i) {
-            final int cmp = (((int) thisA[i]) & 0xFF) - (((int) thatA[i]) & 0xFF);
+        // unsigned comparison gives the same order as comparing the bytes
+        if (this.mostSigBits != uuid.mostSigBits) {
+            return (this.mostSigBits ^ Long.MIN_VALUE) < (uuid.mostSigBits ^ Long.MIN_VALUE) ? -1 : 1;
+        }
 
-            if (cmp != 0) {
-                return cmp;
-            }
+        if (this.leastSigBits != uuid.leastSigBits) {
+            return (this.leastSigBits ^ Long.MIN_VALUE) < (uuid.leastSigBits ^ Long.MIN_VALUE) ? -1 : 1;
         }
 
         return 0;
@@ -415,18 +426,9 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      */
     @Override
     public int hashCode() {
+        final long bits = this.mostSigBits ^ this.leastSigBits;
 
-        if (this.hashCode == -1) {
-            int result = 11;
-
-            for (int i = 0; i < 16; i++) {
-                result = result * 7 + this.rawBytes[i];
-            }
-
-            this.hashCode = result;
-        }
-
-        return this.hashCode;
+        return (int) (bits >> 32) ^ (int) bits;
     }
 
     /**
@@ -449,37 +451,73 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
 
         final VTUUID other = (VTUUID) obj;
 
-        return Arrays.equals(other.rawBytes, this.rawBytes);
+        return other.mostSigBits == this.mostSigBits && other.leastSigBits == this.leastSigBits;
     }
 
     /**
      * Returns the wrapped UUID as a formatted string in the format <code>713A5E6F-65E3-4F46-9C0E-677C624DEB0F</code>.
+     * The string is not cached, see {@link VTUUIDFactory} for opt-in caching of formatted strings.
      *
      * @return  the formatted string
      */
     @Override
     public String toString() {
+        final char[] chars = new char[36];
+        int pos = appendHex(this.mostSigBits >>> 32, 8, chars, 0);
+        chars[pos++] = '-';
+        pos = appendHex(this.mostSigBits >>> 16, 4, chars, pos);
+        chars[pos++] = '-';
+        pos = appendHex(this.mostSigBits, 4, chars, pos);
+        chars[pos++] = '-';
+        pos = appendHex(this.leastSigBits >>> 48, 4, chars, pos);
+        chars[pos++] = '-';
+        appendHex(this.leastSigBits, 12, chars, pos);
+
+        return new String(chars);
+    }
 
-        if (this.toStr == null) {
-            final StringBuilder b = new StringBuilder(36);
-
-            for (int i = 0; i < 16; ++i) {
+    /**
+     * Appends the same formatted string returned by {@link #toString()} without creating it.
+     *
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    @Override
+    public Appendable appendTo(final Appendable out) throws IOException {
 
-                switch (i) {
-                case 4:
-                case 6:
-                case 8:
-                case 10:
-                    b.append('-');
-                }
+        for (int i = 0; i < 16; ++i) {
 
-                ByteArrayUtils.appendToString(this.rawBytes[i], b);
+            switch (i) {
+            case 4:
+            case 6:
+            case 8:
+            case 10:
+                out.append('-');
             }
 
-            this.toStr = b.toString();
+            ByteArrayUtils.appendToString(this.byteAt(i), out);
         }
 
-        return this.toStr;
+        return out;
+    }
+
+    private byte byteAt(final int index) {
+        return (byte) (index < 8 ? this.mostSigBits >>> (56 - index * 8) : this.leastSigBits >>> (120 - index * 8));
+    }
+
+    /**
+     * Writes the lowest <code>digits</code> hex digits of the supplied value into the array.
+     */
+    private static int appendHex(final long value, final int digits, final char[] chars, final int start) {
+
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[start + i] = HEX_DIGITS[(int) (value >>> ((digits - 1 - i) * 4)) & 0x0F];
+        }
+
+        return start + digits;
     }
 
     /**
@@ -489,14 +527,11 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      * @return  the unformatted string
      */
     public String toBase16() {
+        final char[] chars = new char[32];
+        appendHex(this.mostSigBits, 16, chars, 0);
+        appendHex(this.leastSigBits, 16, chars, 16);
 
-        if (this.toBase16 == null) {
-            final StringBuilder b = new StringBuilder(36);
-            ByteArrayUtils.appendToString(this.rawBytes, b);
-            this.toBase16 = b.toString();
-        }
-
-        return this.toBase16;
+        return new String(chars);
     }
 
     /**
@@ -506,7 +541,8 @@ public class VTUUID extends VT<VTUUID> implements UniqueIdentifierValueType<VTUU
      */
     public byte[] toByteArray() {
         final byte[] raw = new byte[16];
-        System.arraycopy(this.rawBytes, 0, raw, 0, 16);
+        ByteArrayUtils.toBytes(this.mostSigBits, raw, 0);
+        ByteArrayUtils.toBytes(this.leastSigBits, raw, 8);
 
         return raw;
     }
@@ -24,25 +24,33 @@ package org.codekaizen.vtj.ids;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.xml.namespace.QName;
 import org.codekaizen.vtj.AbstractVTFactory;
+import org.codekaizen.vtj.AssertPrecondition;
 import org.codekaizen.vtj.ContextHandlingStrategy;
+import org.codekaizen.vtj.ContextKey;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
 import org.codekaizen.vtj.ValueType;
 import org.codekaizen.vtj.net.VTMACAddress;
 import org.codekaizen.vtj.net.VTMACAddressFactory;
 import org.codekaizen.vtj.net.VTURI;
 import org.codekaizen.vtj.time.Clock;
 import org.codekaizen.vtj.util.ByteArrayUtils;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -53,16 +61,48 @@ import org.codekaizen.vtj.util.ByteArrayUtils;
 public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
 
     private static final long serialVersionUID = -1874726544741731581L;
+    private static final String URN_PREFIX = "urn:uuid:";
 
-    private UUIDVersion version;
-    private VTMACAddress macAddress;
-    private VTURI namespaceURI;
-    private Clock clock;
+    /** The number of UUID's generated at a time by the batch methods, one block of reserved time stamps. */
+    private static final int BATCH_CHUNK = UUIDClock.MAX_BLOCK;
+
+    /** The clock used for time-based generation, the system clock if not configured. */
+    private static final ContextKey<Clock> CLOCK = ContextKey.forType("java.system.Clock", Clock.class, null);
+
+    /** The UUID version generated by default. */
+    private static final ContextKey<UUIDVersion> VERSION = ContextKey.forEnum(
+            "org.codekaizen.vtj.ids.VTUUIDFactory.version", UUIDVersion.class, UUIDVersion.TIME_SPACE);
+
+    /** The node address for time-based generation, a local ethernet address if not configured. */
+    private static final ContextKey<VTMACAddress> MAC_ADDRESS = new ContextKey<VTMACAddress>(
+            "org.codekaizen.vtj.ids.VTUUIDFactory.macAddress", null, new MACAddressConverter());
+
+    /** The namespace for name-based generation. */
+    private static final ContextKey<VTURI> NAMESPACE_URI = new ContextKey<VTURI>(
+            "org.codekaizen.vtj.ids.VTUUIDFactory.namespaceURI", null, new URIConverter());
+
+    /** The number of formatted strings kept by {@link #format(ValueType)}, zero to disable caching. */
+    private static final ContextKey<Long> FORMAT_CACHE_SIZE = ContextKey.forLong(
+            "org.codekaizen.vtj.ids.VTUUIDFactory.formatCacheSize", 0L);
+
+    /**
+     * The number of independent clocks time-based generation is striped over, rounded up to a power of two. Each
+     * thread always uses the same stripe and each stripe owns a disjoint range of clock sequences.
+     */
+    private static final ContextKey<Long> STRIPES = ContextKey.forLong("org.codekaizen.vtj.ids.VTUUIDFactory.stripes",
+            1L);
+
+    private volatile UUIDVersion version;
+    private volatile VTMACAddress macAddress;
+    private volatile VTURI namespaceURI;
+    private volatile Clock clock;
+    private volatile int stripes = 1;
     private transient byte[] node;
     private transient VTUUID namespaceUUID;
-    private transient UUIDClock uuidClock;
+    private transient volatile UUIDClock[] uuidClocks;
     private transient SecureRandom random;
     private transient MessageDigest digest;
+    private transient volatile FormatCache formatCache;
     private final Lock nodeLock = new ReentrantLock();
     private final Lock timerLock = new ReentrantLock();
     private final Lock digestLock = new ReentrantLock();
@@ -73,7 +113,7 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
      * @param  strategy  the strategy to use for retrieving values and resources from the execution environment
      */
     public VTUUIDFactory(final ContextHandlingStrategy strategy) {
-        super(strategy);
+        super(strategy, CLOCK, VERSION, MAC_ADDRESS, NAMESPACE_URI, FORMAT_CACHE_SIZE, STRIPES);
     }
 
     /**
@@ -85,52 +125,19 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
 
         this.clearGenerators();
 
-        Object val;
-        // set system clock
-        val = super.getValue("java.system.Clock");
+        final Clock configuredClock = super.getValue(CLOCK);
+        this.clock = configuredClock == null ? Clock.system() : configuredClock;
+        this.version = super.getValue(VERSION);
 
-        if (val == null) {
-            this.clock = Clock.system();
-        } else {
-            this.clock = (Clock) val;
-        }
-        // set default UUID version
-        val = super.getValue("org.codekaizen.vtj.ids.VTUUIDFactory.version");
-
-        if (val instanceof UUIDVersion) {
-            this.version = (UUIDVersion) val;
-        } else if (val instanceof Number) {
-            this.version = UUIDVersion.values()[((Number) val).intValue()];
-        } else if (val instanceof CharSequence) {
-            this.version = UUIDVersion.valueOf(val.toString());
-        } else {
-            // default to
-            this.version = UUIDVersion.TIME_SPACE;
-        }
-        // set MAC address/node
-        val = super.getValue("org.codekaizen.vtj.ids.VTUUIDFactory.macAddress");
-        this.macAddress = null;
+        final VTMACAddress configuredAddress = super.getValue(MAC_ADDRESS);
+        this.macAddress = configuredAddress == null ? VTMACAddressFactory.getLocalEthernetAddress() : configuredAddress;
+        this.namespaceURI = super.getValue(NAMESPACE_URI);
 
-        if (val instanceof VTMACAddress) {
-            this.macAddress = (VTMACAddress) val;
-        } else if (val instanceof CharSequence) {
-            final VTMACAddressFactory maf = new VTMACAddressFactory(super.getContextStrategy());
-            maf.setContext(super.getContext());
-            this.macAddress = maf.parse((CharSequence) val);
-        } else {
-            this.macAddress = VTMACAddressFactory.getLocalEthernetAddress();
-        }
-        // set namespaceURI
-        val = super.getValue("org.codekaizen.vtj.ids.VTUUIDFactory.namespaceURI");
-        this.namespaceURI = null;
+        final long cacheSize = super.getValue(FORMAT_CACHE_SIZE);
+        this.formatCache = cacheSize > 0L ? new FormatCache((int) Math.min(cacheSize, Integer.MAX_VALUE)) : null;
 
-        if (val instanceof VTURI) {
-            this.namespaceURI = (VTURI) val;
-        } else if (val instanceof URI) {
-            this.namespaceURI = new VTURI(val.toString());
-        } else if (val instanceof CharSequence && val.toString().length() > 0) {
-            this.namespaceURI = new VTURI(val.toString());
-        }
+        final long configuredStripes = Math.min(Math.max(super.getValue(STRIPES), 1L), UUIDClock.MAX_STRIPES);
+        this.stripes = Integer.highestOneBit((int) configuredStripes * 2 - 1);
 
         this.initializeGenerators();
     }
@@ -138,7 +145,7 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
     private void clearGenerators() {
         this.node = null;
         this.namespaceUUID = null;
-        this.uuidClock = null;
+        this.uuidClocks = null;
         this.random = null;
         this.digest = null;
     }
@@ -146,7 +153,7 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
     private void initializeGenerators() {
         this.timerLock.lock();
         this.getRandomNumberGenerator();
-        this.getUUIDClock();
+        this.getUUIDClocks();
         this.timerLock.unlock();
         this.nodeLock.lock();
         this.getNamespaceNode();
@@ -180,6 +187,15 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
         return this.clock;
     }
 
+    /**
+     * Returns the number of independent clocks time-based UUID generation is striped over.
+     *
+     * @return  the stripe count, always a power of two
+     */
+    public int getStripeCount() {
+        return this.stripes;
+    }
+
     /**
      * Returns the UUID version this factory is currently set to generate.
      *
@@ -251,9 +267,10 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
                 return new VTUUID(((BigInteger) val).toByteArray());
             } else if ((val instanceof CharSequence) || (val instanceof URI)) {
                 final String s = args[0].toString();
+                final VTUUID parsed = this.tryParse(s);
 
-                if (this.isParsable(s)) {
-                    return this.parse(s);
+                if (parsed != null) {
+                    return parsed;
                 } else {
                     return this.nextUuid((VTUUID) null, s);
                 }
@@ -262,36 +279,15 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
 
                 return this.nextUuid(qn.getNamespaceURI(), qn.getLocalPart());
             } else {
-                final Class<?> clz = args[0].getClass();
-                String s = null;
-                Method m = null;
-                final Method[] methods = clz.getMethods();
-
-                for (final Method method : methods) {
+                Object id;
 
-                    if ("getObjectId".equals(method.getName())) {
-                        m = method;
-
-                        break;
-                    } else if ("getId".equals(method.getName())) {
-                        m = method;
-
-                        break;
-                    }
-                }
-
-                if (m == null) {
-                    s = args[0].toString();
-                } else {
-
-                    try {
-                        s = m.invoke(args[0]).toString();
-                    } catch (Exception e) {
-                        s = args[0].toString();
-                    }
+                try {
+                    id = IdentifierAccessors.getIdentifier(args[0]);
+                } catch (final IllegalStateException e) {
+                    id = null;
                 }
 
-                return this.nextUuid(clz.getName(), s);
+                return this.nextUuid(args[0].getClass().getName(), ((id == null) ? args[0] : id).toString());
             }
         case 2:
             val = args[0];
@@ -308,7 +304,7 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
 
     /**
      * Returns a new time-based or random-based UUID if the factory is configured to provide one of those types of
-     * UUID's.
+     * UUID's. Version 6 and 7 UUID's from a factory with a single stripe sort in the order they were generated.
      *
      * @return  a new UUID
      *
@@ -318,6 +314,8 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
 
         switch (this.version) {
         case TIME_SPACE:
+        case REORDERED_TIME:
+        case UNIX_TIME:
             return this.nextTimeBasedUuid();
         case RANDOM:
             return this.nextRandomUuid();
@@ -326,6 +324,115 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
         }
     }
 
+    /**
+     * Returns the requested number of new time-based or random-based UUID's. Time stamps are reserved in contiguous
+     * blocks and random bytes are drawn in large chunks so this is much cheaper than calling {@link #nextUuid()} in a
+     * loop.
+     *
+     * @param  count  the number of UUID's to generate
+     *
+     * @return  the new UUID's
+     *
+     * @throws  IllegalArgumentException  if configured for name-based generation or the count is negative
+     */
+    public VTUUID[] nextUuids(final int count) {
+        AssertPrecondition.withinRange("count", count, 0, Integer.MAX_VALUE);
+
+        final VTUUID[] result = new VTUUID[count];
+        final long[] bits = new long[2 * Math.min(count, BATCH_CHUNK)];
+
+        for (int done = 0; done < count; done += BATCH_CHUNK) {
+            final int n = Math.min(count - done, BATCH_CHUNK);
+            this.generate(bits, 0, n);
+
+            for (int i = 0; i < n; i++) {
+                result[done + i] = new VTUUID(bits[2 * i], bits[2 * i + 1]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Fills the supplied array with the bits of new time-based or random-based UUID's without creating any objects.
+     * Each UUID occupies two consecutive elements, the most significant bits followed by the least significant bits.
+     *
+     * @param  dest  the array to fill
+     * @param  offset  the index of the first element to fill
+     * @param  count  the number of UUID's to generate, filling <code>2 * count</code> elements
+     *
+     * @return  the array supplied as an input parameter
+     *
+     * @throws  IllegalArgumentException  if configured for name-based generation or the count is negative
+     * @throws  IndexOutOfBoundsException  if the array is too short
+     */
+    public long[] nextUuids(final long[] dest, final int offset, final int count) {
+        AssertPrecondition.notNull("dest", dest);
+        AssertPrecondition.withinRange("count", count, 0, Integer.MAX_VALUE);
+
+        if (offset < 0 || (long) offset + 2L * count > dest.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", count " + count + ", length " + dest.length);
+        }
+
+        this.generate(dest, offset, count);
+
+        return dest;
+    }
+
+    /**
+     * Writes the 16 raw bytes of each of the requested number of new time-based or random-based UUID's to the supplied
+     * buffer starting at its current position. The bytes are always written in network order whatever the byte order
+     * of the buffer and the position is advanced past them.
+     *
+     * @param  dest  the buffer to fill
+     * @param  count  the number of UUID's to generate
+     *
+     * @return  the buffer supplied as an input parameter
+     *
+     * @throws  IllegalArgumentException  if configured for name-based generation or the count is negative
+     * @throws  BufferOverflowException  if the buffer has less than <code>16 * count</code> bytes remaining
+     */
+    public ByteBuffer nextUuids(final ByteBuffer dest, final int count) {
+        AssertPrecondition.notNull("dest", dest);
+        AssertPrecondition.withinRange("count", count, 0, Integer.MAX_VALUE);
+
+        if (16L * count > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+
+        final boolean swap = dest.order() != ByteOrder.BIG_ENDIAN;
+        final long[] bits = new long[2 * Math.min(count, BATCH_CHUNK)];
+
+        for (int done = 0; done < count; done += BATCH_CHUNK) {
+            final int n = Math.min(count - done, BATCH_CHUNK);
+            this.generate(bits, 0, n);
+
+            for (int i = 0; i < 2 * n; i++) {
+                dest.putLong(swap ? Long.reverseBytes(bits[i]) : bits[i]);
+            }
+        }
+
+        return dest;
+    }
+
+    private void generate(final long[] dest, final int offset, final int count) {
+
+        switch (this.version) {
+        case TIME_SPACE:
+        case REORDERED_TIME:
+        case UNIX_TIME:
+            this.generateTimeBased(dest, offset, count);
+
+            break;
+        case RANDOM:
+            this.generateRandom(dest, offset, count);
+
+            break;
+        default:
+            throw new IllegalArgumentException("configured for name-based generation");
+        }
+    }
+
     /**
      * Returns a new name-based UUID if the factory is configured to provide one of the name-based UUID types.
      *
@@ -378,17 +485,26 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
         }
     }
 
-    private UUIDClock getUUIDClock() {
+    private UUIDClock[] getUUIDClocks() {
 
-        if (this.uuidClock == null) {
+        if (this.uuidClocks == null) {
             // reseed random generator
             final SecureRandom rnd = this.getRandomNumberGenerator();
             final byte[] seed = rnd.generateSeed(16);
             this.getRandomNumberGenerator().setSeed(seed);
-            this.uuidClock = new UUIDClock(rnd, this.getClock());
+
+            final int count = Math.max(this.stripes, 1);
+            final boolean unixTime = this.getVersion() == UUIDVersion.UNIX_TIME;
+            final UUIDClock[] clocks = new UUIDClock[count];
+
+            for (int i = 0; i < count; i++) {
+                clocks[i] = new UUIDClock(rnd, this.getClock(), unixTime, i, count);
+            }
+
+            this.uuidClocks = clocks;
         }
 
-        return this.uuidClock;
+        return this.uuidClocks;
     }
 
     private SecureRandom getRandomNumberGenerator() {
@@ -431,11 +547,6 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
         return this.namespaceUUID;
     }
 
-    private void addNodeBytes(final byte[] dest) {
-        final byte[] node = this.getNamespaceNode();
-        System.arraycopy(node, 0, dest, 10, 6);
-    }
-
     private void addVersionAndVariant(final byte[] contents, final int ver) {
         contents[6] &= (byte) 0x0F;
         contents[6] |= (byte) (ver << 4);
@@ -484,14 +595,99 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
     }
 
     private VTUUID nextTimeBasedUuid() {
-        final byte[] contents = new byte[16];
-        this.addNodeBytes(contents);
-        this.timerLock.lock();
-        this.getUUIDClock().getTimestamp(contents);
-        this.timerLock.unlock();
-        this.addVersionAndVariant(contents, UUIDVersion.TIME_SPACE.ordinal());
+        final UUIDClock timer = this.getTimer();
+        final int ver = this.version.ordinal();
 
-        return new VTUUID(contents);
+        // the clock hands out time stamps lock-free so the bits are assembled directly from its state word
+        final long word = timer.next();
+        final long lsb;
+
+        if (ver == UUIDVersion.UNIX_TIME.ordinal()) {
+            lsb = randomLeastSigBits(this.getRandomNumberGenerator().nextLong());
+        } else {
+            lsb = this.timeBasedLeastSigBits(timer, word);
+        }
+
+        return new VTUUID(this.timeBasedMostSigBits(timer.timestamp(word), ver), lsb);
+    }
+
+    private void generateTimeBased(final long[] dest, final int offset, final int count) {
+        final UUIDClock timer = this.getTimer();
+        final int ver = this.version.ordinal();
+        final boolean unixTime = ver == UUIDVersion.UNIX_TIME.ordinal();
+        final byte[] random = unixTime ? new byte[8 * Math.min(count, UUIDClock.MAX_BLOCK)] : null;
+        int pos = offset;
+
+        for (int done = 0; done < count; done += UUIDClock.MAX_BLOCK) {
+            final int n = Math.min(count - done, UUIDClock.MAX_BLOCK);
+            final long word = timer.reserve(n);
+            final long first = timer.timestamp(word);
+
+            if (unixTime) {
+                this.getRandomNumberGenerator().nextBytes(random);
+
+                for (int i = 0; i < n; i++) {
+                    dest[pos++] = this.timeBasedMostSigBits(first + i, ver);
+                    dest[pos++] = randomLeastSigBits(ByteArrayUtils.toLong(random, 8 * i));
+                }
+            } else {
+                final long lsb = this.timeBasedLeastSigBits(timer, word);
+
+                for (int i = 0; i < n; i++) {
+                    dest[pos++] = this.timeBasedMostSigBits(first + i, ver);
+                    dest[pos++] = lsb;
+                }
+            }
+        }
+    }
+
+    private UUIDClock getTimer() {
+        UUIDClock[] clocks = this.uuidClocks;
+
+        if (clocks == null) {
+            this.timerLock.lock();
+
+            try {
+                clocks = this.getUUIDClocks();
+            } finally {
+                this.timerLock.unlock();
+            }
+        }
+
+        // a thread keeps to one stripe so with enough stripes threads share no mutable state
+        return clocks[(int) Thread.currentThread().getId() & (clocks.length - 1)];
+    }
+
+    private long timeBasedMostSigBits(final long timestamp, final int ver) {
+
+        if (ver == UUIDVersion.TIME_SPACE.ordinal()) {
+            // time_low, time_mid, version and time_hi
+            return (timestamp << 32) | ((timestamp >>> 16) & 0xFFFF0000L) | ((long) ver << 12) |
+                ((timestamp >>> 48) & 0x0FFFL);
+        }
+
+        // most significant bits first so UUID's sort by time, for version 7 the low bits are the sub-millisecond counter
+        return ((timestamp >>> 12) << 16) | ((long) ver << 12) | (timestamp & 0x0FFFL);
+    }
+
+    private long timeBasedLeastSigBits(final UUIDClock timer, final long word) {
+        return ((0x8000L | timer.clockSequence(word)) << 48) | this.getNodeBits();
+    }
+
+    private static long randomLeastSigBits(final long random) {
+        // version 7 fills everything after the variant with fresh random bits so the node is never disclosed
+        return (random & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    }
+
+    private long getNodeBits() {
+        final byte[] bytes = this.getNamespaceNode();
+        long result = 0L;
+
+        for (int i = 0; i < 6; i++) {
+            result = (result << 8) | (bytes[i] & 0xFFL);
+        }
+
+        return result;
     }
 
     private VTUUID nextRandomUuid() {
@@ -502,105 +698,251 @@ public class VTUUIDFactory extends AbstractVTFactory<VTUUID> {
         return new VTUUID(contents);
     }
 
+    private void generateRandom(final long[] dest, final int offset, final int count) {
+        final SecureRandom rnd = this.getRandomNumberGenerator();
+        final byte[] bytes = new byte[16 * Math.min(count, BATCH_CHUNK)];
+        final long version = (long) UUIDVersion.RANDOM.ordinal() << 12;
+        int pos = offset;
+
+        for (int done = 0; done < count; done += BATCH_CHUNK) {
+            final int n = Math.min(count - done, BATCH_CHUNK);
+            rnd.nextBytes(bytes);
+
+            for (int i = 0; i < n; i++) {
+                dest[pos++] = (ByteArrayUtils.toLong(bytes, 16 * i) & 0xFFFFFFFFFFFF0FFFL) | version;
+                dest[pos++] = randomLeastSigBits(ByteArrayUtils.toLong(bytes, 16 * i + 8));
+            }
+        }
+    }
+
     /**
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTUUID doParse(final CharSequence s, final int start, final int end) {
+        int from = start;
+        int to = end;
 
-        if (s == null) {
-            return false;
+        if (to - from > URN_PREFIX.length() && StringUtils.regionMatches(s, from, URN_PREFIX)) {
+            from += URN_PREFIX.length();
         }
 
-        String id = s.toString();
-
-        if (id.startsWith("urn:uuid:")) {
-            id = id.substring("urn:uuid:".length());
+        if (to - from == 38 && s.charAt(from) == '{' && s.charAt(to - 1) == '}') {
+            // remove Microsoft {}
+            from++;
+            to--;
         }
 
-        if (id.length() == 38) {
-            id = id.substring(1, 37);  // remove Microsoft {}
-        }
+        final boolean formatted;
 
-        switch (id.length()) {
+        switch (to - from) {
         case 32:
-
-            if (!ByteArrayUtils.isValidHexadecimal(id, '\0')) {
-                return false;
-            }
+            formatted = false;
 
             break;
         case 36:
+            formatted = true;
 
-            if (!ByteArrayUtils.isValidHexadecimal(id, '-')) {
-                return false;
-            }
+            break;
+        default:
+            return null;
+        }
+
+        long mostSigBits = 0L;
+        long leastSigBits = 0L;
+        int digits = 0;
+
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
 
-            for (int i = 0; i < id.length(); i++) {
+            if (formatted) {
 
-                switch (i) {
+                switch (i - from) {
                 case 8:
                 case 13:
                 case 18:
                 case 23:
 
-                    if (id.charAt(i) != '-') {
-                        return false;
+                    if (c != '-') {
+                        return null;
                     }
 
+                    continue;
+                default:
                     break;
                 }
             }
 
-            break;
+            final int hex = ByteArrayUtils.hexValue(c);
+
+            if (hex < 0) {
+                return null;
+            }
+
+            if (digits < 16) {
+                mostSigBits = (mostSigBits << 4) | hex;
+            } else {
+                leastSigBits = (leastSigBits << 4) | hex;
+            }
+
+            digits++;
+        }
+
+        try {
+            return new VTUUID(mostSigBits, leastSigBits);
+        } catch (final IllegalArgumentException iae) {
+            // well-formed but undefined variant or version
+            return null;
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean isParseCandidate(final int length, final char first) {
+        int len = length;
+        char c = first;
+
+        if (c == URN_PREFIX.charAt(0)) {
+            len -= URN_PREFIX.length();
+            c = '{';  // first character after the prefix is unknown, so allow either form
+        }
+
+        switch (len) {
+        case 32:
+        case 36:
+            return c == '{' || ByteArrayUtils.hexValue(c) >= 0;
+        case 38:
+            return c == '{';
         default:
             return false;
         }
-
-        return true;
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
+     * @throws  IOException  DOCUMENT ME!
      */
     @Override
-    protected VTUUID doParse(final CharSequence s) {
+    protected Appendable doFormatTo(final VTUUID vt, final Appendable out) throws IOException {
 
-        String id = s.toString();
+        if (this.formatCache == null) {
+            vt.appendTo(out);
 
-        if (id.startsWith("urn:uuid:")) {
-            id = id.substring("urn:uuid:".length());
+            return out;
         }
 
-        if (id.length() == 38) {
-            id = id.substring(1, 37);  // remove Microsoft {}
+        return out.append(this.doFormat(vt));
+    }
+
+    /**
+     * Returns the formatted string from the cache if one has been configured. {@link VTUUID} does not keep its string
+     * form so applications formatting the same ids over and over can opt in to caching through the <code>
+     * org.codekaizen.vtj.ids.VTUUIDFactory.formatCacheSize</code> context value.
+     *
+     * @param  vt  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected String doFormat(final VTUUID vt) {
+        final FormatCache cache = this.formatCache;
+
+        if (cache == null) {
+            return vt.toString();
         }
 
-        if (id.length() == 32) {
-            return parseUnformatted(id);
-        } else if (id.length() == 36) {
-            return parseFormatted(id);
-        } else {
-            throw new IllegalArgumentException("unrecognizable format");
+        synchronized (cache) {
+            String s = cache.get(vt);
+
+            if (s == null) {
+                s = vt.toString();
+                cache.put(vt, s);
+            }
+
+            return s;
         }
     }
 
-    private VTUUID parseFormatted(final String id) {
-        return new VTUUID(ByteArrayUtils.toBytes(id, '-'));
+    /**
+     * Converts configured node addresses supplied as MAC addresses or strings.
+     */
+    private static final class MACAddressConverter implements ContextKey.Converter<VTMACAddress> {
+
+        private static final long serialVersionUID = -2960414581283536457L;
+
+        public VTMACAddress convert(final Object value) {
+
+            if (value instanceof VTMACAddress) {
+                return (VTMACAddress) value;
+            } else if (value instanceof CharSequence) {
+                return new VTMACAddressFactory(new MapContextHandlingStrategy()).parse((CharSequence) value);
+            }
+
+            throw new IllegalArgumentException("cannot convert " + value + " to a MAC address");
+        }
+
     }
 
-    private VTUUID parseUnformatted(final String id) {
-        return new VTUUID(ByteArrayUtils.toBytes(id));
+    /**
+     * Converts configured namespaces supplied as URIs or strings. Empty strings mean no namespace.
+     */
+    private static final class URIConverter implements ContextKey.Converter<VTURI> {
+
+        private static final long serialVersionUID = 8713646310431931642L;
+
+        public VTURI convert(final Object value) {
+
+            if (value instanceof VTURI) {
+                return (VTURI) value;
+            } else if (value instanceof URI || value instanceof CharSequence) {
+                final String s = value.toString();
+
+                return s.length() > 0 ? new VTURI(s) : null;
+            }
+
+            throw new IllegalArgumentException("cannot convert " + value + " to a URI");
+        }
+
+    }
+
+    /**
+     * Least recently used cache of formatted strings.
+     */
+    private static final class FormatCache extends LinkedHashMap<VTUUID, String> {
+
+        private static final long serialVersionUID = 6914389520718263471L;
+
+        private final int maximumSize;
+
+        FormatCache(final int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<VTUUID, String> eldest) {
+            return size() > maximumSize;
+        }
+
     }
 
 }
@@ -27,7 +27,9 @@ import java.io.ObjectOutputStream;
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import org.codekaizen.vtj.AssertPrecondition;
+import org.codekaizen.vtj.DiscreteValueType;
 import org.codekaizen.vtj.ValueType;
+import org.codekaizen.vtj.util.ClassCache;
 
 
 /**
@@ -41,7 +43,26 @@ public class VTDiscreteValueInterval<T extends ValueType<T>> extends VTInterval<
 
     private static final long serialVersionUID = -8565497405407059828L;
 
-    private transient Method nextMethod = null;
+    /** The <code>next()</code> methods of bound classes which do not implement {@link DiscreteValueType}. */
+    private static final ClassCache<Method> NEXT_METHODS = new ClassCache<Method>() {
+            @Override
+            protected Method computeValue(final Class<?> type) {
+
+                try {
+                    final Method method = type.getMethod("next");
+
+                    try {
+                        method.setAccessible(true);
+                    } catch (final SecurityException e) {
+                        // keep the access checks
+                    }
+
+                    return method;
+                } catch (final NoSuchMethodException e) {
+                    return null;
+                }
+            }
+        };
 
     /**
      * Creates a new VTDiscreteValueInterval object.
@@ -53,24 +74,20 @@ public class VTDiscreteValueInterval<T extends ValueType<T>> extends VTInterval<
         super(lowerBound, higherBound, true, true);
         AssertPrecondition.notNull("lowerBound", lowerBound);
         AssertPrecondition.notNull("higherBound", higherBound);
-        retrieveNextMethod();
+        validateDiscrete();
     }
 
-    @SuppressWarnings("unchecked")
-    private void retrieveNextMethod() throws IllegalArgumentException {
-        Class clazz = null;
+    private void validateDiscrete() throws IllegalArgumentException {
+        final T lower = super.getLowerBound();
 
-        try {
-            clazz = super.getLowerBound().getClass();
-            nextMethod = clazz.getMethod("next");
-        } catch (Exception e) {
-            throw new IllegalArgumentException("is required to have a next() method", e);
+        if (!(lower instanceof DiscreteValueType<?>) && NEXT_METHODS.get(lower.getClass()) == null) {
+            throw new IllegalArgumentException("is required to have a next() method");
         }
     }
 
     private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
         s.defaultReadObject();
-        this.retrieveNextMethod();
+        this.validateDiscrete();
     }
 
     private void writeObject(final ObjectOutputStream s) throws IOException {
@@ -89,9 +106,12 @@ public class VTDiscreteValueInterval<T extends ValueType<T>> extends VTInterval<
         return new Iterator<T>() {
 
                 private T nextValue = getLowerBound();
+                private final T higherBound = getHigherBound();
+                private final Method nextMethod = (nextValue instanceof DiscreteValueType<?>)
+                    ? null : NEXT_METHODS.get(nextValue.getClass());
 
                 public boolean hasNext() {
-                    return nextValue != null && nextValue.compareTo(getHigherBound()) <= 0;
+                    return nextValue != null && nextValue.compareTo(higherBound) <= 0;
                 }
 
                 public T next() {
@@ -104,6 +124,10 @@ public class VTDiscreteValueInterval<T extends ValueType<T>> extends VTInterval<
                 @SuppressWarnings("unchecked")
                 private T increment() {
 
+                    if (nextMethod == null) {
+                        return ((DiscreteValueType<T>) nextValue).next();
+                    }
+
                     try {
                         return (T) nextMethod.invoke(nextValue);
                     } catch (Exception e) {
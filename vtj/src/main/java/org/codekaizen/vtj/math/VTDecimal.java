@@ -21,8 +21,11 @@
  */
 package org.codekaizen.vtj.math;
 
+import java.io.IOException;
 import java.math.RoundingMode;
 import org.codekaizen.vtj.AssertPrecondition;
+import org.codekaizen.vtj.VTContext;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -45,6 +48,17 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
         };
     private static final long serialVersionUID = 1822322147472669772L;
 
+    private static final VTDecimal[] ZEROS = new VTDecimal[MAX_SCALE + 1];
+    private static final VTDecimal[] ONES = new VTDecimal[MAX_SCALE + 1];
+
+    static {
+
+        for (int i = MIN_SCALE; i <= MAX_SCALE; i++) {
+            ZEROS[i] = new VTDecimal(0L, i);
+            ONES[i] = new VTDecimal(DIVISORS[i], i);
+        }
+    }
+
     private final long value;
     private final int scale;
 
@@ -60,6 +74,29 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
         this.scale = scale;
     }
 
+    /**
+     * Returns a decimal object representing the supplied unscaled value and scale. Zero and one, the most common
+     * amounts, are returned from a cache of canonical instances for every scale so no object is allocated.
+     *
+     * @param  value  the unscaled value of the <code>VTDecimal</code>
+     * @param  scale  scale of the <code>VTDecimal</code> value
+     *
+     * @return  the cached or a new decimal object
+     */
+    public static VTDecimal valueOf(final long value, final int scale) {
+
+        if (scale >= MIN_SCALE && scale <= MAX_SCALE) {
+
+            if (value == 0L) {
+                return ZEROS[scale];
+            } else if (value == DIVISORS[scale]) {
+                return ONES[scale];
+            }
+        }
+
+        return new VTDecimal(value, scale);
+    }
+
     /**
      * Constructs a decimal object.
      *
@@ -262,6 +299,15 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
         return value / DIVISORS[scale];
     }
 
+    /**
+     * Returns the unscaled value, i.e. this value multiplied by ten to the power of the scale.
+     *
+     * @return  the unscaled value
+     */
+    public long unscaledValue() {
+        return value;
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -307,13 +353,9 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
     }
 
     private int calcMaximumScale() {
-        int sc = scale;
-
-        if (sc < VTNumber.getVTContext().getDecimalScale()) {
-            sc = VTNumber.getVTContext().getDecimalScale();
-        }
+        final int contextScale = VTNumber.getVTContext().getDecimalScale();
 
-        return sc;
+        return scale < contextScale ? contextScale : scale;
     }
 
     /**
@@ -353,12 +395,13 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
      */
     @Override
     public VTDecimal multiply(final VTNumber<?> val) {
-        final int sc = calcScale(val);
+        final VTContext context = VTNumber.getVTContext();
+        final int sc = calcScale(val, context);
 
-        return new VTDecimal(doubleValue() * val.doubleValue(), sc, VTNumber.getVTContext().getRoundingMode());
+        return new VTDecimal(doubleValue() * val.doubleValue(), sc, context.getRoundingMode());
     }
 
-    private int calcScale(final VTNumber<?> val) {
+    private int calcScale(final VTNumber<?> val, final VTContext context) {
         int sc = scale;
 
         if (val instanceof VTDecimal) {
@@ -367,8 +410,8 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
             sc *= 2;
         }
 
-        if (sc > VTNumber.getVTContext().getDecimalScale()) {
-            sc = VTNumber.getVTContext().getDecimalScale();
+        if (sc > context.getDecimalScale()) {
+            sc = context.getDecimalScale();
         }
 
         return sc;
@@ -390,9 +433,10 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
             throw new ArithmeticException("Division by zero");
         }
 
-        final int sc = calcScale(val);
+        final VTContext context = VTNumber.getVTContext();
+        final int sc = calcScale(val, context);
 
-        return new VTDecimal(doubleValue() / val.doubleValue(), sc, VTNumber.getVTContext().getRoundingMode());
+        return new VTDecimal(doubleValue() / val.doubleValue(), sc, context.getRoundingMode());
     }
 
     /**
@@ -404,9 +448,10 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
      */
     @Override
     public VTDecimal pow(final VTNumber<?> val) {
-        final int sc = calcScale(val);
+        final VTContext context = VTNumber.getVTContext();
+        final int sc = calcScale(val, context);
 
-        return new VTDecimal(Math.pow(doubleValue(), val.doubleValue()), sc, VTNumber.getVTContext().getRoundingMode());
+        return new VTDecimal(Math.pow(doubleValue(), val.doubleValue()), sc, context.getRoundingMode());
     }
 
     /**
@@ -503,36 +548,44 @@ public final class VTDecimal extends VTNumber<VTDecimal> {
      */
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder();
-        sb.append(value);
-
-        if (scale > 0) {
-            int offset = 0;
 
-            if (value < 0L) {
-                offset = 1;
-            }
+        try {
+            return appendTo(new StringBuilder(21)).toString();
+        } catch (final IOException e) {
+            // never thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+    }
 
-            if (sb.length() >= scale + offset) {
-                sb.insert(sb.length() - scale, '.');
-            } else {
-                sb.insert(offset, "0.");
+    /**
+     * Appends the plain decimal representation with exactly <code>scale</code> fraction digits, for example <code>
+     * -0.05</code>, without creating a temporary string.
+     *
+     * @param  out  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    @Override
+    public Appendable appendTo(final Appendable out) throws IOException {
 
-                while (sb.length() < scale + 2) {
-                    sb.insert(2 + offset, '0');
-                }
-            }
+        if (scale == 0) {
+            return StringUtils.appendToString(value, out);
+        }
 
-            int pos = sb.lastIndexOf(".");
-            assert (pos != -1);
+        final long intPart = value / DIVISORS[scale];
+        final long fraction = value % DIVISORS[scale];
 
-            while (sb.length() - pos <= scale) {
-                sb.append('0');
-                pos = sb.lastIndexOf(".");
-            }
+        if (value < 0L) {
+            out.append('-');
         }
 
-        return sb.toString();
+        // magnitudes are below Long.MAX_VALUE / 10 so negation cannot overflow
+        StringUtils.appendToString(Math.abs(intPart), out);
+        out.append('.');
+
+        return StringUtils.appendToString(Math.abs(fraction), scale, out);
     }
 
 }
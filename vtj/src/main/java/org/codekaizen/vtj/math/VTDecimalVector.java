@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import org.codekaizen.vtj.AbstractVTVector;
+import org.codekaizen.vtj.AssertPrecondition;
+
+
+/**
+ * <p>Immutable vector of {@link VTDecimal} values sharing one scale, backed by a <code>long[]</code> of unscaled
+ * values. Since all elements have the same scale, comparisons and sums work directly on the unscaled values.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class VTDecimalVector extends AbstractVTVector<VTDecimal, VTDecimalVector> {
+
+    private static final long[] POWERS = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+        };
+
+    private final long[] values;
+    private final int scale;
+
+    private VTDecimalVector(final long[] values, final int scale, final int offset, final int length) {
+        super(offset, length);
+        this.values = values;
+        this.scale = scale;
+    }
+
+    /**
+     * Returns a vector holding a copy of the supplied unscaled values.
+     *
+     * @param  scale  the scale shared by all elements
+     * @param  unscaledValues  the unscaled element values
+     *
+     * @return  the vector
+     */
+    public static VTDecimalVector of(final int scale, final long... unscaledValues) {
+        AssertPrecondition.withinRange("scale", scale, VTDecimal.MIN_SCALE, VTDecimal.MAX_SCALE);
+        AssertPrecondition.notNull("unscaledValues", unscaledValues);
+
+        return new VTDecimalVector(unscaledValues.clone(), scale, 0, unscaledValues.length);
+    }
+
+    /**
+     * Returns the scale shared by all elements.
+     *
+     * @return  the scale
+     */
+    public int getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Returns the unscaled value of the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the unscaled value
+     */
+    public long unscaledValue(final int index) {
+        return this.values[arrayIndex(index)];
+    }
+
+    /**
+     * Returns the element at the supplied index as a double.
+     *
+     * @param  index  the element index
+     *
+     * @return  the value
+     */
+    public double doubleValue(final int index) {
+        return (double) this.values[arrayIndex(index)] / POWERS[this.scale];
+    }
+
+    /**
+     * Returns a copy of the unscaled element values.
+     *
+     * @return  new array
+     */
+    public long[] toUnscaledArray() {
+        final long[] result = new long[size()];
+        System.arraycopy(this.values, getOffset(), result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Returns a read-only buffer view of the unscaled element values without copying them.
+     *
+     * @return  buffer whose position zero is the first element
+     */
+    public LongBuffer asBuffer() {
+        return LongBuffer.wrap(this.values, getOffset(), size()).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the exact sum of all elements with the shared scale.
+     *
+     * @return  the sum
+     *
+     * @throws  ArithmeticException  if the unscaled sum overflows a long
+     */
+    public VTDecimal sum() {
+        return new VTDecimal(unscaledSum(), this.scale);
+    }
+
+    /**
+     * Returns the arithmetic mean of all elements.
+     *
+     * @return  the mean or <code>NaN</code> if empty
+     */
+    public double average() {
+
+        if (isEmpty()) {
+            return Double.NaN;
+        }
+
+        double result = 0.0;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            result += this.values[i];
+        }
+
+        return result / size() / POWERS[this.scale];
+    }
+
+    /**
+     * Returns the smallest element.
+     *
+     * @return  the minimum
+     */
+    public VTDecimal min() {
+        checkNotEmpty();
+
+        long result = Long.MAX_VALUE;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+
+            if (this.values[i] < result) {
+                result = this.values[i];
+            }
+        }
+
+        return new VTDecimal(result, this.scale);
+    }
+
+    /**
+     * Returns the largest element.
+     *
+     * @return  the maximum
+     */
+    public VTDecimal max() {
+        checkNotEmpty();
+
+        long result = Long.MIN_VALUE;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+
+            if (this.values[i] > result) {
+                result = this.values[i];
+            }
+        }
+
+        return new VTDecimal(result, this.scale);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public VTDecimalVector sorted() {
+        final long[] result = toUnscaledArray();
+        Arrays.sort(result);
+
+        return new VTDecimalVector(result, this.scale, 0, result.length);
+    }
+
+    private long unscaledSum() {
+        long result = 0L;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            final long value = this.values[i];
+            final long sum = result + value;
+
+            if (((result ^ sum) & (value ^ sum)) < 0L) {
+                throw new ArithmeticException("decimal sum overflow");
+            }
+
+            result = sum;
+        }
+
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTDecimal valueAt(final int arrayIndex) {
+        return VTDecimal.valueOf(this.values[arrayIndex], this.scale);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  sliceOffset  DOCUMENT ME!
+     * @param  sliceLength  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTDecimalVector newSlice(final int sliceOffset, final int sliceLength) {
+        return new VTDecimalVector(this.values, this.scale, sliceOffset, sliceLength);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     * @param  other  DOCUMENT ME!
+     * @param  otherArrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean elementEquals(final int arrayIndex, final VTDecimalVector other, final int otherArrayIndex) {
+        return this.scale == other.scale && this.values[arrayIndex] == other.values[otherArrayIndex];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int elementHashCode(final int arrayIndex) {
+        final long value = this.values[arrayIndex];
+
+        return (int) (value ^ (value >>> 32));
+    }
+
+    /**
+     * Accumulates values for a new {@link VTDecimalVector}. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private final int scale;
+        private long[] values;
+        private int size;
+
+        /**
+         * Creates a new Builder object.
+         *
+         * @param  scale  the scale shared by all elements
+         */
+        public Builder(final int scale) {
+            this(scale, 16);
+        }
+
+        /**
+         * Creates a new Builder object.
+         *
+         * @param  scale  the scale shared by all elements
+         * @param  initialCapacity  the number of elements expected
+         */
+        public Builder(final int scale, final int initialCapacity) {
+            AssertPrecondition.withinRange("scale", scale, VTDecimal.MIN_SCALE, VTDecimal.MAX_SCALE);
+            AssertPrecondition.withinRange("initialCapacity", initialCapacity, 0L, Integer.MAX_VALUE);
+            this.scale = scale;
+            this.values = new long[initialCapacity];
+        }
+
+        /**
+         * Appends an unscaled value.
+         *
+         * @param  unscaledValue  the value at the builder's scale
+         *
+         * @return  this builder
+         */
+        public Builder add(final long unscaledValue) {
+
+            if (this.size == this.values.length) {
+                final long[] grown = new long[this.size + (this.size >> 1) + 16];
+                System.arraycopy(this.values, 0, grown, 0, this.size);
+                this.values = grown;
+            }
+
+            this.values[this.size++] = unscaledValue;
+
+            return this;
+        }
+
+        /**
+         * Appends a value, rescaling it to the builder's scale.
+         *
+         * @param  value  the value
+         *
+         * @return  this builder
+         *
+         * @throws  IllegalArgumentException  if the value's scale is larger than the builder's scale
+         * @throws  ArithmeticException  if the rescaled value overflows a long
+         */
+        public Builder add(final VTDecimal value) {
+            AssertPrecondition.notNull("value", value);
+
+            final int diff = this.scale - value.getScale();
+
+            if (diff < 0) {
+                throw new IllegalArgumentException("scale " + value.getScale() + " exceeds vector scale " + this.scale);
+            }
+
+            final long unscaled = value.unscaledValue();
+            final long factor = POWERS[diff];
+
+            if (unscaled > Long.MAX_VALUE / factor || unscaled < Long.MIN_VALUE / factor) {
+                throw new ArithmeticException("rescaled value overflow");
+            }
+
+            return add(unscaled * factor);
+        }
+
+        /**
+         * Returns the number of values added.
+         *
+         * @return  the size
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns a vector of the values added so far. The builder may continue to be used afterwards.
+         *
+         * @return  the vector
+         */
+        public VTDecimalVector build() {
+            final long[] result = new long[this.size];
+            System.arraycopy(this.values, 0, result, 0, this.size);
+
+            return new VTDecimalVector(result, this.scale, 0, this.size);
+        }
+
+    }
+
+}
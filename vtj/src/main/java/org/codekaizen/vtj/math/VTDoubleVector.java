@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import org.codekaizen.vtj.AbstractVTVector;
+import org.codekaizen.vtj.AssertPrecondition;
+
+
+/**
+ * <p>Immutable vector of {@link VTDouble} values backed by a <code>double[]</code>.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class VTDoubleVector extends AbstractVTVector<VTDouble, VTDoubleVector> {
+
+    /** The vector with no elements. */
+    public static final VTDoubleVector EMPTY = new VTDoubleVector(new double[0], 0, 0);
+
+    private final double[] values;
+
+    private VTDoubleVector(final double[] values, final int offset, final int length) {
+        super(offset, length);
+        this.values = values;
+    }
+
+    /**
+     * Returns a vector holding a copy of the supplied values.
+     *
+     * @param  values  the element values
+     *
+     * @return  the vector
+     */
+    public static VTDoubleVector of(final double... values) {
+        AssertPrecondition.notNull("values", values);
+
+        return new VTDoubleVector(values.clone(), 0, values.length);
+    }
+
+    /**
+     * Returns the primitive value of the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the value
+     */
+    public double doubleValue(final int index) {
+        return this.values[arrayIndex(index)];
+    }
+
+    /**
+     * Returns a copy of the element values.
+     *
+     * @return  new array
+     */
+    public double[] toDoubleArray() {
+        final double[] result = new double[size()];
+        System.arraycopy(this.values, getOffset(), result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Returns a read-only buffer view of the element values without copying them.
+     *
+     * @return  buffer whose position zero is the first element
+     */
+    public DoubleBuffer asBuffer() {
+        return DoubleBuffer.wrap(this.values, getOffset(), size()).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the sum of all elements using compensated summation so rounding errors do not build up over long
+     * vectors.
+     *
+     * @return  the sum
+     */
+    public double sum() {
+        double result = 0.0;
+        double compensation = 0.0;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            final double y = this.values[i] - compensation;
+            final double t = result + y;
+            compensation = (t - result) - y;
+            result = t;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the arithmetic mean of all elements.
+     *
+     * @return  the mean or <code>NaN</code> if empty
+     */
+    public double average() {
+        return sum() / size();
+    }
+
+    /**
+     * Returns the smallest element.
+     *
+     * @return  the minimum or <code>NaN</code> if any element is <code>NaN</code>
+     */
+    public VTDouble min() {
+        checkNotEmpty();
+
+        double result = Double.POSITIVE_INFINITY;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            result = Math.min(result, this.values[i]);
+        }
+
+        return new VTDouble(result);
+    }
+
+    /**
+     * Returns the largest element.
+     *
+     * @return  the maximum or <code>NaN</code> if any element is <code>NaN</code>
+     */
+    public VTDouble max() {
+        checkNotEmpty();
+
+        double result = Double.NEGATIVE_INFINITY;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            result = Math.max(result, this.values[i]);
+        }
+
+        return new VTDouble(result);
+    }
+
+    /**
+     * Returns a vector holding the elements of this vector in ascending order with <code>NaN</code> values last.
+     *
+     * @return  the sorted vector
+     */
+    @Override
+    public VTDoubleVector sorted() {
+        final double[] result = toDoubleArray();
+        Arrays.sort(result);
+
+        return new VTDoubleVector(result, 0, result.length);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTDouble valueAt(final int arrayIndex) {
+        return new VTDouble(this.values[arrayIndex]);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  sliceOffset  DOCUMENT ME!
+     * @param  sliceLength  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTDoubleVector newSlice(final int sliceOffset, final int sliceLength) {
+        return new VTDoubleVector(this.values, sliceOffset, sliceLength);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     * @param  other  DOCUMENT ME!
+     * @param  otherArrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean elementEquals(final int arrayIndex, final VTDoubleVector other, final int otherArrayIndex) {
+        return this.values[arrayIndex] == other.values[otherArrayIndex];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int elementHashCode(final int arrayIndex) {
+        final long bits = Double.doubleToLongBits(this.values[arrayIndex]);
+
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * Accumulates values for a new {@link VTDoubleVector}. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private double[] values;
+        private int size;
+
+        /**
+         * Creates a new Builder object.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Creates a new Builder object.
+         *
+         * @param  initialCapacity  the number of elements expected
+         */
+        public Builder(final int initialCapacity) {
+            AssertPrecondition.withinRange("initialCapacity", initialCapacity, 0L, Integer.MAX_VALUE);
+            this.values = new double[initialCapacity];
+        }
+
+        /**
+         * Appends a value.
+         *
+         * @param  value  the value
+         *
+         * @return  this builder
+         */
+        public Builder add(final double value) {
+
+            if (this.size == this.values.length) {
+                final double[] grown = new double[this.size + (this.size >> 1) + 16];
+                System.arraycopy(this.values, 0, grown, 0, this.size);
+                this.values = grown;
+            }
+
+            this.values[this.size++] = value;
+
+            return this;
+        }
+
+        /**
+         * Appends a value.
+         *
+         * @param  value  the value
+         *
+         * @return  this builder
+         */
+        public Builder add(final VTDouble value) {
+            AssertPrecondition.notNull("value", value);
+
+            return add(value.doubleValue());
+        }
+
+        /**
+         * Returns the number of values added.
+         *
+         * @return  the size
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns a vector of the values added so far. The builder may continue to be used afterwards.
+         *
+         * @return  the vector
+         */
+        public VTDoubleVector build() {
+            final double[] result = new double[this.size];
+            System.arraycopy(this.values, 0, result, 0, this.size);
+
+            return new VTDoubleVector(result, 0, this.size);
+        }
+
+    }
+
+}
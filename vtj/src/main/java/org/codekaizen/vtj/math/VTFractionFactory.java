@@ -80,10 +80,12 @@ public class VTFractionFactory extends AbstractVTFactory<VTFraction> {
                 result = new VTFraction(((VTNumber) args[0]).longValue(), 1L);
             } else if (args[0] instanceof Number) {
                 result = new VTFraction(((Number) args[0]).longValue(), 1L);
-            } else if (isParsable(args[0].toString())) {
-                result = parse(args[0].toString());
             } else {
-                throw new IllegalArgumentException("cannot compute fraction");
+                result = tryParse(args[0].toString());
+
+                if (result == null) {
+                    throw new IllegalArgumentException("cannot compute fraction");
+                }
             }
         } else if (args.length == 2) {
 
@@ -125,87 +127,87 @@ public class VTFractionFactory extends AbstractVTFactory<VTFraction> {
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTFraction doParse(final CharSequence s, final int start, final int end) {
+        int i = skipWhitespace(s, start, end);
+        boolean negative = false;
 
-        if (s == null || s.length() < 3) {
-            return false;
+        if (i < end && s.charAt(i) == '-') {
+            negative = true;
+            i++;
         }
 
-        boolean hasNum = false;
-        boolean hasSlash = false;
-        boolean hasDenom = false;
+        final int numStart = i;
+        long num = 0L;
 
-        for (int i = 0; i < s.length(); i++) {
+        for (; i < end && Character.isDigit(s.charAt(i)); i++) {
+            final int digit = Character.digit(s.charAt(i), 10);
 
-            if (Character.isWhitespace(s.charAt(i))) {
-                continue;
+            if (num > (Long.MAX_VALUE - digit) / 10L) {
+                return null;
             }
 
-            if (!hasNum) {
+            num = num * 10L + digit;
+        }
 
-                if (Character.isDigit(s.charAt(i))) {
-                    hasNum = true;
-                }
-            } else if (!hasSlash) {
+        if (i == numStart) {
+            return null;
+        }
 
-                if ('/' == s.charAt(i)) {
-                    hasSlash = true;
-                }
-            } else {
+        i = skipWhitespace(s, i, end);
 
-                if (Character.isDigit(s.charAt(i))) {
-                    hasDenom = true;
-                }
+        if (i >= end || s.charAt(i) != '/') {
+            return null;
+        }
+
+        i = skipWhitespace(s, i + 1, end);
+
+        final int denStart = i;
+        long den = 0L;
+
+        for (; i < end && Character.isDigit(s.charAt(i)); i++) {
+            final int digit = Character.digit(s.charAt(i), 10);
+
+            if (den > (Long.MAX_VALUE - digit) / 10L) {
+                return null;
             }
+
+            den = den * 10L + digit;
         }
 
-        return hasNum && hasSlash && hasDenom;
+        if (i == denStart || den == 0L || skipWhitespace(s, i, end) != end) {
+            return null;
+        }
+
+        return new VTFraction(negative ? -num : num, den);
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    protected VTFraction doParse(final CharSequence s) {
-        long num = 0L;
-        long den = 0L;
-        boolean hasSlash = false;
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < s.length(); i++) {
-
-            if (Character.isWhitespace(s.charAt(i))) {
-                continue;
-            }
-
-            if (!hasSlash) {
+    protected boolean isParseCandidate(final int length, final char first) {
+        return length >= 3 && (first == '-' || Character.isDigit(first) || Character.isWhitespace(first));
+    }
 
-                if (Character.isDigit(s.charAt(i))) {
-                    sb.append(s.charAt(i));
-                } else if ('/' == s.charAt(i)) {
-                    hasSlash = true;
-                    num = Long.parseLong(sb.toString());
-                    sb = new StringBuilder();
-                }
-            } else {
+    private static int skipWhitespace(final CharSequence s, final int start, final int end) {
+        int i = start;
 
-                if (Character.isDigit(s.charAt(i))) {
-                    sb.append(s.charAt(i));
-                }
-            }
+        while (i < end && Character.isWhitespace(s.charAt(i))) {
+            i++;
         }
 
-        den = Long.parseLong(sb.toString());
-
-        return new VTFraction(num, den);
+        return i;
     }
 
 }
@@ -21,7 +21,10 @@
  */
 package org.codekaizen.vtj.math;
 
+import java.io.IOException;
 import org.codekaizen.vtj.AssertPrecondition;
+import org.codekaizen.vtj.DiscreteValueType;
+import org.codekaizen.vtj.util.StringUtils;
 
 
 /**
@@ -29,10 +32,21 @@ import org.codekaizen.vtj.AssertPrecondition;
  *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
-public final class VTInteger extends VTNumber<VTInteger> {
+public final class VTInteger extends VTNumber<VTInteger> implements DiscreteValueType<VTInteger> {
 
     private static final long serialVersionUID = 9151352339365507725L;
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final VTInteger[] CACHE = new VTInteger[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new VTInteger(CACHE_LOW + i);
+        }
+    }
+
     private final int value;
 
     /**
@@ -44,6 +58,23 @@ public final class VTInteger extends VTNumber<VTInteger> {
         this.value = value;
     }
 
+    /**
+     * Returns an integer object representing the supplied value. Values from -128 to 1023, which cover most counts,
+     * codes and indexes, are returned from a cache of canonical instances so no object is allocated.
+     *
+     * @param  value  the value to be represented by the object
+     *
+     * @return  the cached or a new integer object
+     */
+    public static VTInteger valueOf(final int value) {
+
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+
+        return new VTInteger(value);
+    }
+
     /**
      * Returns an integer whose value is <code>(this mod m)<code>.</code></code>
      *
@@ -288,4 +319,18 @@ public final class VTInteger extends VTNumber<VTInteger> {
         return Integer.toString(value);
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Override
+    public Appendable appendTo(final Appendable out) throws IOException {
+        return StringUtils.appendToString(value, out);
+    }
+
 }
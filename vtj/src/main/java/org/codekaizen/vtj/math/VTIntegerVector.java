@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import org.codekaizen.vtj.AbstractVTVector;
+import org.codekaizen.vtj.AssertPrecondition;
+
+
+/**
+ * <p>Immutable vector of {@link VTInteger} values backed by an <code>int[]</code>.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class VTIntegerVector extends AbstractVTVector<VTInteger, VTIntegerVector> {
+
+    /** The vector with no elements. */
+    public static final VTIntegerVector EMPTY = new VTIntegerVector(new int[0], 0, 0);
+
+    private final int[] values;
+
+    private VTIntegerVector(final int[] values, final int offset, final int length) {
+        super(offset, length);
+        this.values = values;
+    }
+
+    /**
+     * Returns a vector holding a copy of the supplied values.
+     *
+     * @param  values  the element values
+     *
+     * @return  the vector
+     */
+    public static VTIntegerVector of(final int... values) {
+        AssertPrecondition.notNull("values", values);
+
+        return new VTIntegerVector(values.clone(), 0, values.length);
+    }
+
+    /**
+     * Returns the primitive value of the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the value
+     */
+    public int intValue(final int index) {
+        return this.values[arrayIndex(index)];
+    }
+
+    /**
+     * Returns a copy of the element values.
+     *
+     * @return  new array
+     */
+    public int[] toIntArray() {
+        final int[] result = new int[size()];
+        System.arraycopy(this.values, getOffset(), result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Returns a read-only buffer view of the element values without copying them.
+     *
+     * @return  buffer whose position zero is the first element
+     */
+    public IntBuffer asBuffer() {
+        return IntBuffer.wrap(this.values, getOffset(), size()).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the sum of all elements, which cannot overflow for fewer than 2<sup>32</sup> elements.
+     *
+     * @return  the sum
+     */
+    public long sum() {
+        long result = 0L;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+            result += this.values[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the arithmetic mean of all elements.
+     *
+     * @return  the mean or <code>NaN</code> if empty
+     */
+    public double average() {
+        return (double) sum() / size();
+    }
+
+    /**
+     * Returns the smallest element.
+     *
+     * @return  the minimum
+     */
+    public VTInteger min() {
+        checkNotEmpty();
+
+        int result = Integer.MAX_VALUE;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+
+            if (this.values[i] < result) {
+                result = this.values[i];
+            }
+        }
+
+        return new VTInteger(result);
+    }
+
+    /**
+     * Returns the largest element.
+     *
+     * @return  the maximum
+     */
+    public VTInteger max() {
+        checkNotEmpty();
+
+        int result = Integer.MIN_VALUE;
+
+        for (int i = getOffset(), end = getOffset() + size(); i < end; i++) {
+
+            if (this.values[i] > result) {
+                result = this.values[i];
+            }
+        }
+
+        return new VTInteger(result);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public VTIntegerVector sorted() {
+        final int[] result = toIntArray();
+        Arrays.sort(result);
+
+        return new VTIntegerVector(result, 0, result.length);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTInteger valueAt(final int arrayIndex) {
+        return VTInteger.valueOf(this.values[arrayIndex]);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  sliceOffset  DOCUMENT ME!
+     * @param  sliceLength  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTIntegerVector newSlice(final int sliceOffset, final int sliceLength) {
+        return new VTIntegerVector(this.values, sliceOffset, sliceLength);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     * @param  other  DOCUMENT ME!
+     * @param  otherArrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean elementEquals(final int arrayIndex, final VTIntegerVector other, final int otherArrayIndex) {
+        return this.values[arrayIndex] == other.values[otherArrayIndex];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int elementHashCode(final int arrayIndex) {
+        return this.values[arrayIndex];
+    }
+
+    /**
+     * Accumulates values for a new {@link VTIntegerVector}. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private int[] values;
+        private int size;
+
+        /**
+         * Creates a new Builder object.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Creates a new Builder object.
+         *
+         * @param  initialCapacity  the number of elements expected
+         */
+        public Builder(final int initialCapacity) {
+            AssertPrecondition.withinRange("initialCapacity", initialCapacity, 0L, Integer.MAX_VALUE);
+            this.values = new int[initialCapacity];
+        }
+
+        /**
+         * Appends a value.
+         *
+         * @param  value  the value
+         *
+         * @return  this builder
+         */
+        public Builder add(final int value) {
+
+            if (this.size == this.values.length) {
+                final int[] grown = new int[this.size + (this.size >> 1) + 16];
+                System.arraycopy(this.values, 0, grown, 0, this.size);
+                this.values = grown;
+            }
+
+            this.values[this.size++] = value;
+
+            return this;
+        }
+
+        /**
+         * Appends a value.
+         *
+         * @param  value  the value
+         *
+         * @return  this builder
+         */
+        public Builder add(final VTInteger value) {
+            AssertPrecondition.notNull("value", value);
+
+            return add(value.intValue());
+        }
+
+        /**
+         * Returns the number of values added.
+         *
+         * @return  the size
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns a vector of the values added so far. The builder may continue to be used afterwards.
+         *
+         * @return  the vector
+         */
+        public VTIntegerVector build() {
+            final int[] result = new int[this.size];
+            System.arraycopy(this.values, 0, result, 0, this.size);
+
+            return new VTIntegerVector(result, 0, this.size);
+        }
+
+    }
+
+}
@@ -21,6 +21,8 @@
  */
 package org.codekaizen.vtj.math;
 
+import java.util.concurrent.Callable;
+import org.codekaizen.vtj.AssertPrecondition;
 import org.codekaizen.vtj.VT;
 import org.codekaizen.vtj.VTContext;
 
@@ -28,12 +30,20 @@ import org.codekaizen.vtj.VTContext;
 /**
  * <p>Represents a numerical value. Abstract base class for all number-based value types.</p>
  *
+ * <p>Arithmetic rounds according to the {@link VTContext} returned by {@link #getVTContext()}. A context can be bound
+ * to the current thread for a block of work with {@link #runWithVTContext(VTContext, Runnable)} or {@link
+ * #callWithVTContext(VTContext, Callable)} so that tenants with different scale or rounding rules can share a JVM
+ * without locking. Bindings do not leak into pool threads on their own; tasks handed to an executor are wrapped with
+ * {@link #propagateVTContext(Runnable)} or {@link #propagateVTContext(Callable)} to carry the submitting thread's
+ * binding across.</p>
+ *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 public abstract class VTNumber<T> extends VT<T> {
 
     private static final long serialVersionUID = 6365754305204586991L;
-    private static VTContext vtContext;
+    private static final ThreadLocal<VTContext> SCOPED_CONTEXT = new ThreadLocal<VTContext>();
+    private static volatile VTContext vtContext;
 
     /**
      * Creates a new VTNumber object.
@@ -167,26 +177,140 @@ public abstract class VTNumber<T> extends VT<T> {
     public abstract T truncate();
 
     /**
-     * Sets the system-wide math context.
+     * Sets the system-wide math context used by threads without a bound context.
      *
-     * @param  context  the math context
+     * @param  context  the math context or <code>null</code> to revert to {@link VTContext#getDefault()}
      */
     public static void setVTContext(final VTContext context) {
         vtContext = context;
     }
 
     /**
-     * Returns the system-wide math context.
+     * Returns the math context bound to the current thread or the system-wide one if none is bound.
      *
      * @return  the math context
      */
     public static VTContext getVTContext() {
+        final VTContext scoped = SCOPED_CONTEXT.get();
+
+        if (scoped != null) {
+            return scoped;
+        }
+
+        final VTContext global = vtContext;
+
+        return global == null ? VTContext.getDefault() : global;
+    }
+
+    /**
+     * Runs the supplied task with the math context bound to the current thread. The previous binding is restored
+     * afterwards so calls may be nested.
+     *
+     * @param  context  the math context
+     * @param  task  the work to do
+     */
+    public static void runWithVTContext(final VTContext context, final Runnable task) {
+        AssertPrecondition.notNull("context", context);
+        AssertPrecondition.notNull("task", task);
+
+        final VTContext previous = bind(context);
+
+        try {
+            task.run();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Calls the supplied task with the math context bound to the current thread. The previous binding is restored
+     * afterwards so calls may be nested.
+     *
+     * @param  context  the math context
+     * @param  task  the work to do
+     *
+     * @return  the task result
+     *
+     * @throws  Exception  if the task fails
+     */
+    public static <V> V callWithVTContext(final VTContext context, final Callable<V> task) throws Exception {
+        AssertPrecondition.notNull("context", context);
+        AssertPrecondition.notNull("task", task);
+
+        final VTContext previous = bind(context);
+
+        try {
+            return task.call();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Returns a task which runs the supplied one with the math context bound to the calling thread at the time of
+     * wrapping, for handing work to an executor.
+     *
+     * @param  task  the work to do
+     *
+     * @return  the wrapping task
+     */
+    public static Runnable propagateVTContext(final Runnable task) {
+        AssertPrecondition.notNull("task", task);
+
+        final VTContext captured = SCOPED_CONTEXT.get();
+
+        return new Runnable() {
+                public void run() {
+                    final VTContext previous = bind(captured);
+
+                    try {
+                        task.run();
+                    } finally {
+                        bind(previous);
+                    }
+                }
+            };
+    }
+
+    /**
+     * Returns a task which calls the supplied one with the math context bound to the calling thread at the time of
+     * wrapping, for handing work to an executor.
+     *
+     * @param  task  the work to do
+     *
+     * @return  the wrapping task
+     */
+    public static <V> Callable<V> propagateVTContext(final Callable<V> task) {
+        AssertPrecondition.notNull("task", task);
+
+        final VTContext captured = SCOPED_CONTEXT.get();
+
+        return new Callable<V>() {
+                public V call() throws Exception {
+                    final VTContext previous = bind(captured);
+
+                    try {
+                        return task.call();
+                    } finally {
+                        bind(previous);
+                    }
+                }
+            };
+    }
+
+    /**
+     * Binds the supplied context, or removes the binding if <code>null</code>, and returns the previous binding.
+     */
+    private static VTContext bind(final VTContext context) {
+        final VTContext previous = SCOPED_CONTEXT.get();
 
-        if (vtContext == null) {
-            vtContext = VTContext.getDefault();
+        if (context == null) {
+            SCOPED_CONTEXT.remove();
+        } else {
+            SCOPED_CONTEXT.set(context);
         }
 
-        return vtContext;
+        return previous;
     }
 
 }
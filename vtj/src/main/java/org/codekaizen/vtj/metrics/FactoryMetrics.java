@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.codekaizen.vtj.FactoryInstrumentation;
+import org.codekaizen.vtj.ValueTypeFactory;
+
+
+/**
+ * <p>Instrumentation recording counts in {@link StripedCounter}s and latencies in {@link LatencyHistogram}s. One
+ * instance is shared by all factories of the same class.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class FactoryMetrics implements FactoryInstrumentation, FactoryMetricsMBean {
+
+    private final String factoryClassName;
+    private final StripedCounter createFailures = new StripedCounter();
+    private final StripedCounter parseFailures = new StripedCounter();
+    private final LatencyHistogram createLatency = new LatencyHistogram();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram formatLatency = new LatencyHistogram();
+    private final LatencyHistogram contextChangeLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, StripedCounter> selections = new ConcurrentHashMap<String, StripedCounter>();
+    private volatile long resetTime = System.nanoTime();
+
+    /**
+     * Creates a new FactoryMetrics object.
+     *
+     * @param  factoryClassName  the name of the factory class being measured
+     */
+    public FactoryMetrics(final String factoryClassName) {
+        super();
+        this.factoryClassName = factoryClassName;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  startTime  DOCUMENT ME!
+     * @param  success  DOCUMENT ME!
+     */
+    public void created(final long startTime, final boolean success) {
+
+        if (success) {
+            createLatency.record(System.nanoTime() - startTime);
+        } else {
+            createFailures.increment();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  startTime  DOCUMENT ME!
+     * @param  success  DOCUMENT ME!
+     */
+    public void parsed(final long startTime, final boolean success) {
+        parseLatency.record(System.nanoTime() - startTime);
+
+        if (!success) {
+            parseFailures.increment();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  startTime  DOCUMENT ME!
+     */
+    public void formatted(final long startTime) {
+        formatLatency.record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  startTime  DOCUMENT ME!
+     */
+    public void contextChanged(final long startTime) {
+        contextChangeLatency.record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  delegate  DOCUMENT ME!
+     */
+    public void selected(final ValueTypeFactory<?> delegate) {
+        final String name = delegate.getClass().getName();
+        StripedCounter counter = selections.get(name);
+
+        if (counter == null) {
+            final StripedCounter created = new StripedCounter();
+            counter = selections.putIfAbsent(name, created);
+
+            if (counter == null) {
+                counter = created;
+            }
+        }
+
+        counter.increment();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public String getFactoryClassName() {
+        return factoryClassName;
+    }
+
+    /**
+     * Returns the histogram of successful create call latencies.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public LatencyHistogram getCreateLatency() {
+        return createLatency;
+    }
+
+    /**
+     * Returns the histogram of parse latencies including failed parses.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public LatencyHistogram getFormatLatency() {
+        return formatLatency;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public LatencyHistogram getContextChangeLatency() {
+        return contextChangeLatency;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getCreateCount() {
+        return createLatency.getCount();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getCreateFailureCount() {
+        return createFailures.sum();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public double getCreateRate() {
+        final long elapsed = System.nanoTime() - resetTime;
+
+        return (elapsed <= 0L) ? 0.0 : createLatency.getCount() * 1.0e9 / elapsed;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public double getCreateLatencyMean() {
+        return createLatency.getMean();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getCreateLatency99thPercentile() {
+        return createLatency.getValueAtPercentile(99.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getParseCount() {
+        return parseLatency.getCount() - parseFailures.sum();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getParseFailureCount() {
+        return parseFailures.sum();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public double getParseLatencyMean() {
+        return parseLatency.getMean();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getParseLatencyMedian() {
+        return parseLatency.getValueAtPercentile(50.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getParseLatency99thPercentile() {
+        return parseLatency.getValueAtPercentile(99.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getParseLatencyMax() {
+        return parseLatency.getMax();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getFormatCount() {
+        return formatLatency.getCount();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public double getFormatLatencyMean() {
+        return formatLatency.getMean();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getContextChangeCount() {
+        return contextChangeLatency.getCount();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public long getContextChangeLatencyMax() {
+        return contextChangeLatency.getMax();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public Map<String, Long> getDelegateSelections() {
+        final Map<String, Long> result = new TreeMap<String, Long>();
+
+        for (final Map.Entry<String, StripedCounter> entry : selections.entrySet()) {
+            result.put(entry.getKey(), Long.valueOf(entry.getValue().sum()));
+        }
+
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    public void reset() {
+        createFailures.reset();
+        parseFailures.reset();
+        createLatency.reset();
+        parseLatency.reset();
+        formatLatency.reset();
+        contextChangeLatency.reset();
+        selections.clear();
+        resetTime = System.nanoTime();
+    }
+
+}
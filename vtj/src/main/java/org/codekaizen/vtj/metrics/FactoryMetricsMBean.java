@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import java.util.Map;
+
+
+/**
+ * <p>JMX management interface of {@link FactoryMetrics}. All latencies are in nanoseconds.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public interface FactoryMetricsMBean {
+
+    /**
+     * Returns the name of the factory class being measured.
+     *
+     * @return  the class name
+     */
+    String getFactoryClassName();
+
+    /**
+     * Returns the number of create calls which returned an object.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getCreateCount();
+
+    /**
+     * Returns the number of create calls which failed.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getCreateFailureCount();
+
+    /**
+     * Returns the average number of objects created per second since the statistics were last reset.
+     *
+     * @return  DOCUMENT ME!
+     */
+    double getCreateRate();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    double getCreateLatencyMean();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getCreateLatency99thPercentile();
+
+    /**
+     * Returns the number of strings successfully parsed.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getParseCount();
+
+    /**
+     * Returns the number of strings which could not be parsed.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getParseFailureCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    double getParseLatencyMean();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getParseLatencyMedian();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getParseLatency99thPercentile();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getParseLatencyMax();
+
+    /**
+     * Returns the number of objects formatted.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getFormatCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    double getFormatLatencyMean();
+
+    /**
+     * Returns the number of context changes.
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getContextChangeCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getContextChangeLatencyMax();
+
+    /**
+     * Returns how many strings each delegate factory parsed, keyed by delegate class name.
+     *
+     * @return  DOCUMENT ME!
+     */
+    Map<String, Long> getDelegateSelections();
+
+    /**
+     * Sets all statistics back to zero.
+     */
+    void reset();
+
+}
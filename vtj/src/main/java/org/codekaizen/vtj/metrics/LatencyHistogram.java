@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * <p>Fixed size histogram of latencies in the style of HdrHistogram. Values are counted in buckets which double in
+ * width every power of two, with each power of two split into {@value #SUB_BUCKETS} linear sub-buckets, so any
+ * non-negative <code>long</code> is recorded without allocation in constant time and percentiles are reported within
+ * about 6% of the true value. The exact maximum and mean are tracked separately.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class LatencyHistogram {
+
+    /** Number of linear sub-buckets per power of two. */
+    public static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter total = new StripedCounter();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a new empty LatencyHistogram object.
+     */
+    public LatencyHistogram() {
+        super();
+    }
+
+    /**
+     * Records a value. Negative values, which a non-monotonic clock might produce, are recorded as zero.
+     *
+     * @param  value  the value such as an elapsed time in nanoseconds
+     */
+    public void record(final long value) {
+        final long v = Math.max(0L, value);
+        counts.incrementAndGet(bucketIndex(v));
+        count.increment();
+        total.add(v);
+
+        long current;
+
+        while (v > (current = max.get())) {
+
+            if (max.compareAndSet(current, v)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return  the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return  the maximum or zero if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the arithmetic mean of the values recorded.
+     *
+     * @return  the mean or zero if nothing was recorded
+     */
+    public double getMean() {
+        final long n = count.sum();
+
+        return (n == 0L) ? 0.0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Returns the value below or at which the supplied percentage of recorded values fall, reported as the upper bound
+     * of the bucket containing it but never more than the maximum.
+     *
+     * @param  percentile  the percentile between 0 and 100
+     *
+     * @return  the value or zero if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long n = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+
+        if (n == 0L) {
+            return 0L;
+        }
+
+        final double p = Math.min(100.0, Math.max(0.0, percentile));
+        final long rank = Math.max(1L, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Discards all recorded values. Values recorded concurrently may or may not be kept.
+     */
+    public void reset() {
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+
+        count.reset();
+        total.reset();
+        max.set(0L);
+    }
+
+    /**
+     * Returns the bucket a non-negative value is counted in.
+     */
+    static int bucketIndex(final long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value counted in the supplied bucket.
+     */
+    static long bucketUpperBound(final int index) {
+
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final long sub = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return ((sub + 1L) << shift) - 1L;
+    }
+
+}
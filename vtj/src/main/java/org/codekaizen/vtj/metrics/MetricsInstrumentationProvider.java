@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.codekaizen.vtj.AssertPrecondition;
+import org.codekaizen.vtj.FactoryInstrumentation;
+import org.codekaizen.vtj.InstrumentationProvider;
+import org.codekaizen.vtj.ValueTypeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>Provides one {@link FactoryMetrics} per factory class and registers it as an MBean named <code>
+ * org.codekaizen.vtj:type=FactoryMetrics,name=</code><i>factory class name</i>. Factories are often constructed on
+ * the fly, so sharing the metrics of a class keeps the number of MBeans bounded. To enable it on startup run with
+ * <code>-Dorg.codekaizen.vtj.instrumentationProvider=org.codekaizen.vtj.metrics.MetricsInstrumentationProvider</code>.
+ * </p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class MetricsInstrumentationProvider implements InstrumentationProvider {
+
+    /** The JMX domain of the registered MBeans. */
+    public static final String JMX_DOMAIN = "org.codekaizen.vtj";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final MBeanServer server;
+    private final ConcurrentMap<String, FactoryMetrics> metrics = new ConcurrentHashMap<String, FactoryMetrics>();
+
+    /**
+     * Creates a provider registering its MBeans with the platform MBean server.
+     */
+    public MetricsInstrumentationProvider() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Creates a provider registering its MBeans with the supplied server.
+     *
+     * @param  server  the MBean server or <code>null</code> to skip registration
+     */
+    public MetricsInstrumentationProvider(final MBeanServer server) {
+        super();
+        this.server = server;
+    }
+
+    /**
+     * Returns the metrics shared by all factories of the same class, creating them and registering their MBean, if
+     * there is a server, on first use.
+     *
+     * @param  factory  the factory being constructed
+     *
+     * @return  the metrics of the factory's class
+     */
+    public FactoryInstrumentation getInstrumentation(final ValueTypeFactory<?> factory) {
+        AssertPrecondition.notNull("factory", factory);
+
+        return getMetrics(factory.getClass().getName(), true);
+    }
+
+    /**
+     * Returns the metrics shared by all factories of the named class.
+     *
+     * @param  factoryClassName  the factory class name
+     *
+     * @return  the metrics or <code>null</code> if no such factory has been constructed
+     */
+    public FactoryMetrics getMetrics(final String factoryClassName) {
+        return getMetrics(factoryClassName, false);
+    }
+
+    /**
+     * Returns the metrics of every factory class seen so far.
+     *
+     * @return  the metrics in no particular order
+     */
+    public List<FactoryMetrics> getAllMetrics() {
+        return new ArrayList<FactoryMetrics>(metrics.values());
+    }
+
+    /**
+     * Returns the name the metrics of the named factory class are registered under.
+     *
+     * @param  factoryClassName  the factory class name
+     *
+     * @return  the object name
+     *
+     * @throws  JMException  if the class name cannot form a valid object name
+     */
+    public static ObjectName getObjectName(final String factoryClassName) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=FactoryMetrics,name=" + ObjectName.quote(factoryClassName));
+    }
+
+    /**
+     * Unregisters all MBeans registered by this provider.
+     */
+    public void unregisterAll() {
+
+        if (server == null) {
+            return;
+        }
+
+        for (final String name : metrics.keySet()) {
+
+            try {
+                final ObjectName objectName = getObjectName(name);
+
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (final JMException jme) {
+                logger.warn("Unable to unregister metrics of " + name, jme);
+            }
+        }
+    }
+
+    private FactoryMetrics getMetrics(final String factoryClassName, final boolean create) {
+        FactoryMetrics result = metrics.get(factoryClassName);
+
+        if (result == null && create) {
+            final FactoryMetrics created = new FactoryMetrics(factoryClassName);
+            result = metrics.putIfAbsent(factoryClassName, created);
+
+            if (result == null) {
+                result = created;
+                register(created);
+            }
+        }
+
+        return result;
+    }
+
+    private void register(final FactoryMetrics factoryMetrics) {
+
+        if (server == null) {
+            return;
+        }
+
+        try {
+            final ObjectName objectName = getObjectName(factoryMetrics.getFactoryClassName());
+
+            if (server.isRegistered(objectName)) {
+                // left behind by another provider
+                server.unregisterMBean(objectName);
+            }
+
+            server.registerMBean(factoryMetrics, objectName);
+        } catch (final JMException jme) {
+            logger.warn("Unable to register metrics of " + factoryMetrics.getFactoryClassName(), jme);
+        }
+    }
+
+}
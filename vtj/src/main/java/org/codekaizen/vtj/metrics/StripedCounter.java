@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * <p>Counter spreading its updates over several cells so threads on different processors rarely write to the same
+ * cache line. Increments are a single uncontended atomic add while {@link #sum()} adds up all cells, so it suits
+ * counters which are updated far more often than they are read. The sum is not an atomic snapshot if updates happen
+ * concurrently.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class StripedCounter {
+
+    /** Array slots between cells so each cell gets its own 64 byte cache line. */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Creates a new StripedCounter object starting at zero.
+     */
+    public StripedCounter() {
+        super();
+    }
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        cells.incrementAndGet(cellIndex());
+    }
+
+    /**
+     * Adds the supplied amount.
+     *
+     * @param  delta  the amount to add
+     */
+    public void add(final long delta) {
+        cells.addAndGet(cellIndex(), delta);
+    }
+
+    /**
+     * Returns the total of all updates since construction or the last reset.
+     *
+     * @return  the sum
+     */
+    public long sum() {
+        long sum = 0L;
+
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Sets the counter back to zero. Updates made concurrently may or may not be kept.
+     */
+    public void reset() {
+
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0L);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    private static int cellIndex() {
+        // spread consecutive thread ids over the stripes
+        final long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+
+        return ((int) (id >>> 32) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripeCount() {
+        final int wanted = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        int stripes = 1;
+
+        while (stripes < wanted) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+
+}
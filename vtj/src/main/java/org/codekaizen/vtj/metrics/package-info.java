@@ -0,0 +1,4 @@
+/**
+ * Provides the built-in factory instrumentation based on striped counters and latency histograms exported over JMX.
+ */
+package org.codekaizen.vtj.metrics;
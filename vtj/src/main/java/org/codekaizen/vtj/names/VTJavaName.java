@@ -77,6 +77,42 @@ public class VTJavaName extends VTName<VTJavaName> {
         return sb.toString();
     }
 
+    /**
+     * Checks the name character by character against the same grammar as {@link #getPattern()}: dot separated parts
+     * that each start with a letter followed by letters, digits, underscores or hyphens.
+     *
+     * @param  fullName  the name
+     *
+     * @return  true if the name is allowed
+     */
+    @Override
+    protected boolean matchesPattern(final String fullName) {
+        boolean partStart = true;
+
+        for (int i = 0; i < fullName.length(); i++) {
+            final char c = fullName.charAt(i);
+
+            if (partStart) {
+
+                if (!isAsciiLetter(c)) {
+                    return false;
+                }
+
+                partStart = false;
+            } else if (c == '.') {
+                partStart = true;
+            } else if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '_' && c != '-') {
+                return false;
+            }
+        }
+
+        return !partStart;
+    }
+
+    private static boolean isAsciiLetter(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
     /**
      * DOCUMENT ME!
      *
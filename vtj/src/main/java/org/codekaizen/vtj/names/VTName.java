@@ -58,7 +58,7 @@ public abstract class VTName<T> extends VT<T> implements CharSequence, Iterable<
     protected VTName(final String fullName, final int hashMultiplier) {
         this.validateNotBlank(fullName, "fullName");
 
-        if (!getPattern().matcher(fullName).matches()) {
+        if (!this.matchesPattern(fullName)) {
             throw new IllegalArgumentException("does not match regular expression");
         }
 
@@ -83,6 +83,18 @@ public abstract class VTName<T> extends VT<T> implements CharSequence, Iterable<
         AssertPrecondition.notBlank(name, value);
     }
 
+    /**
+     * Determines whether the full name matches the pattern returned by {@link #getPattern()}. Subclasses with a simple
+     * pattern may override this with an equivalent check that avoids the regular expression.
+     *
+     * @param  fullName  the formatted full name
+     *
+     * @return  true if the name is allowed
+     */
+    protected boolean matchesPattern(final String fullName) {
+        return getPattern().matcher(fullName).matches();
+    }
+
     /**
      * Parses the formatted full name into its component parts.
      *
@@ -254,6 +254,15 @@ public class VTPersonName extends VTName<VTPersonName> {
         return found;
     }
 
+    /**
+     * Returns the nationality or culture the name follows the pattern of.
+     *
+     * @return  the locale
+     */
+    public Locale getLocale() {
+        return this.locale;
+    }
+
     /**
      * Returns the person's honorific.
      *
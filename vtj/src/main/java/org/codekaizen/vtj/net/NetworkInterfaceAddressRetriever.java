@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.net;
+
+import java.lang.reflect.Method;
+import java.net.NetworkInterface;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+
+/**
+ * <p>Retrieves the MAC addresses for all of the NICS on the host computer from the JDK's {@link NetworkInterface}
+ * without running any external commands. Hardware addresses are only exposed by Java 6 and later runtimes so the
+ * accessors are looked up once and nothing is found on older runtimes.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+class NetworkInterfaceAddressRetriever {
+
+    private static final Method GET_HARDWARE_ADDRESS = findMethod("getHardwareAddress");
+    private static final Method IS_LOOPBACK = findMethod("isLoopback");
+
+    NetworkInterfaceAddressRetriever() {
+    }
+
+    Set<VTMACAddress> retrieveAddresses() {
+        final Set<VTMACAddress> set = new LinkedHashSet<VTMACAddress>();
+
+        if (GET_HARDWARE_ADDRESS == null) {
+            return set;
+        }
+
+        try {
+            final Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
+
+            while (nics != null && nics.hasMoreElements()) {
+                final VTMACAddress addr = this.toAddress(nics.nextElement());
+
+                if (addr != null) {
+                    set.add(addr);
+                }
+            }
+        } catch (Exception e) {
+            // do nothing
+        }
+
+        return set;
+    }
+
+    VTMACAddress toAddress(final NetworkInterface nic) {
+
+        try {
+
+            if (IS_LOOPBACK != null && Boolean.TRUE.equals(IS_LOOPBACK.invoke(nic))) {
+                return null;
+            }
+
+            final byte[] hardware = (byte[]) GET_HARDWARE_ADDRESS.invoke(nic);
+
+            if (hardware == null || hardware.length != 6) {
+                return null;
+            }
+
+            final VTMACAddress addr = new VTMACAddress(hardware);
+
+            return VTMACAddress.NIL.equals(addr) ? null : addr;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(final String name) {
+
+        try {
+            return NetworkInterface.class.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ package org.codekaizen.vtj.net;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.codekaizen.vtj.VT;
 import org.codekaizen.vtj.util.ByteArrayUtils;
@@ -76,6 +77,21 @@ public final class VTMACAddress extends VT<VTMACAddress> {
         this.validateFields();
     }
 
+    /**
+     * Constructs an address from the six bytes starting at the supplied index of a buffer.
+     *
+     * @param  buffer  the buffer holding the address
+     * @param  index  the index of the first byte
+     */
+    VTMACAddress(final ByteBuffer buffer, final int index) {
+
+        for (int i = 0; i < 6; i++) {
+            this.address[i] = buffer.get(index + i);
+        }
+
+        this.validateFields();
+    }
+
     private void validateFields() {
 
         if (this.address.length != 6) {
@@ -104,6 +120,19 @@ public final class VTMACAddress extends VT<VTMACAddress> {
         return result;
     }
 
+    /**
+     * Writes the six address bytes starting at the supplied index of a buffer without copying them first.
+     *
+     * @param  buffer  the buffer to write to
+     * @param  index  the index of the first byte
+     */
+    void putTo(final ByteBuffer buffer, final int index) {
+
+        for (int i = 0; i < 6; i++) {
+            buffer.put(index + i, this.address[i]);
+        }
+    }
+
     /**
      * Returns the address as a long integer.
      *
@@ -194,7 +223,7 @@ public final class VTMACAddress extends VT<VTMACAddress> {
         for (int i = 0; i < 6; i++) {
 
             if (i > 0) {
-                buf.append(":");
+                buf.append(':');
             }
 
             ByteArrayUtils.appendToString(this.address[i], buf);
@@ -203,4 +232,28 @@ public final class VTMACAddress extends VT<VTMACAddress> {
         return buf.toString();
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Override
+    public Appendable appendTo(final Appendable out) throws IOException {
+
+        for (int i = 0; i < 6; i++) {
+
+            if (i > 0) {
+                out.append(':');
+            }
+
+            ByteArrayUtils.appendToString(this.address[i], out);
+        }
+
+        return out;
+    }
+
 }
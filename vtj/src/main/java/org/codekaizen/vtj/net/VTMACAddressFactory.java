@@ -21,26 +21,57 @@
  */
 package org.codekaizen.vtj.net;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.codekaizen.vtj.AbstractVTFactory;
 import org.codekaizen.vtj.ContextHandlingStrategy;
 import org.codekaizen.vtj.MapContextHandlingStrategy;
 import org.codekaizen.vtj.ValueType;
 import org.codekaizen.vtj.util.ByteArrayUtils;
+import org.slf4j.LoggerFactory;
 
 
 /**
  * <p>Creates, parses and formats {@link VTMACAddress} instances. It also provides static methods for retrieving the
- * ethernet/MAC address for the computer the JVM is running on.</p>
+ * ethernet/MAC address for the computer the JVM is running on. Addresses are read once from the JDK's network
+ * interfaces on a background thread started when this class is loaded. Running the operating system's <code>
+ * ifconfig</code> command as well is only done if the {@link #COMMAND_PROPERTY} system property is set.</p>
  *
  * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
  */
 public class VTMACAddressFactory extends AbstractVTFactory<VTMACAddress> {
 
     private static final long serialVersionUID = -4415361060679728116L;
-    private static Set<VTMACAddress> LOCAL_ADDRESSES;
-    private static int ADDRESS_INDEX = 0;
+
+    /** Set to <code>true</code> to also run <code>ifconfig</code> or <code>ipconfig</code> during discovery. */
+    public static final String COMMAND_PROPERTY = "org.codekaizen.vtj.net.VTMACAddressFactory.useCommand";
+
+    /** Set to a MAC address to use when no NIC address can be discovered. */
+    public static final String FALLBACK_PROPERTY = "org.codekaizen.vtj.net.VTMACAddressFactory.fallbackAddress";
+
+    private static final AtomicInteger ADDRESS_INDEX = new AtomicInteger();
+    private static final FutureTask<Set<VTMACAddress>> DISCOVERY = new FutureTask<Set<VTMACAddress>>(
+            new Callable<Set<VTMACAddress>>() {
+                public Set<VTMACAddress> call() {
+                    return discoverAddresses();
+                }
+            });
+
+    static {
+        final Thread thread = new Thread(DISCOVERY, "vtj-mac-discovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
     /**
      * Constructs a value type factory.
@@ -94,120 +125,199 @@ public class VTMACAddressFactory extends AbstractVTFactory<VTMACAddress> {
      * DOCUMENT ME!
      *
      * @param  s  DOCUMENT ME!
+     * @param  start  DOCUMENT ME!
+     * @param  end  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
     @Override
-    public boolean isParsable(final CharSequence s) {
+    protected VTMACAddress doParse(final CharSequence s, final int start, final int end) {
+        long value = 0L;
+        int digits = 0;
 
-        if (s == null) {
-            return false;
-        }
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
 
-        final String val = stripSeparators(s.toString());
+            if (c == ':' || c == '-') {
 
-        if (val.length() != 10 && val.length() != 12) {
-            return false;
-        }
+                if (i == start || i == end - 1) {
+                    return null;
+                }
 
-        if (val.charAt(0) != '0' || (val.length() == 12 && val.charAt(1) != '0')) {
-            return false;
-        }
+                continue;
+            }
 
-        return ByteArrayUtils.isValidHexadecimal(val, '\0');
-    }
+            final int hex = ByteArrayUtils.hexValue(c);
 
-    private String stripSeparators(final String s) {
-        String val = s.replace(":", "");
-        val = val.replace("-", "");
+            if (hex < 0 || digits == 12) {
+                return null;
+            }
+
+            value = (value << 4) | hex;
+            digits++;
+        }
 
-        return val;
+        // allow a missing first byte but only with a leading zero so plain numbers are not taken for addresses
+        if (digits == 12 || (digits == 10 && (value >>> 36) == 0L)) {
+            return new VTMACAddress(value);
+        } else {
+            return null;
+        }
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param  s  DOCUMENT ME!
+     * @param  length  DOCUMENT ME!
+     * @param  first  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
-     *
-     * @throws  IllegalArgumentException  DOCUMENT ME!
      */
     @Override
-    protected VTMACAddress doParse(final CharSequence s) {
-        final String val = stripSeparators(s.toString());
-        final byte[] raw = new byte[6];
-
-        if (val.length() == 12) {
-            ByteArrayUtils.toBytes(val, 0, 12, raw, 0);
-        } else if (val.length() == 10) {
-            // allow missing first byte
-            raw[0] = (byte) 0;
-            ByteArrayUtils.toBytes(val, 0, 10, raw, 1);
-        } else {
-            throw new IllegalArgumentException("must be 5 or 6 bytes");
-        }
+    protected boolean isParseCandidate(final int length, final char first) {
+        return length >= 10 && ByteArrayUtils.hexValue(first) >= 0;
+    }
+
+    /**
+     * Returns the MAC addresses for all of the network interface cards (NIC) installed in the host computer. Discovery
+     * is started in the background when this class is loaded so this only waits if it has not finished yet.
+     *
+     * @return  the addresses, empty if none could be found
+     */
+    public static Set<VTMACAddress> getAllLocalEthernetAddresses() {
+
+        try {
+            return DISCOVERY.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
 
-        return new VTMACAddress(raw);
+            return Collections.emptySet();
+        } catch (final ExecutionException e) {
+            return Collections.emptySet();
+        }
     }
 
     /**
-     * Returns the MAC addresses for all of the network interface cards (NIC) installed in the host computer.
+     * Returns the MAC address for one of the host computer's NIC's or the {@link #getFallbackAddress() fallback
+     * address} if none could be found.
      *
-     * @return  the addresses
+     * @return  the address
      */
-    public static synchronized Set<VTMACAddress> getAllLocalEthernetAddresses() {
+    public static VTMACAddress getLocalEthernetAddress() {
+        final Set<VTMACAddress> addrs = getAllLocalEthernetAddresses();
 
-        if (LOCAL_ADDRESSES == null) {
-            LOCAL_ADDRESSES = new HashSet<VTMACAddress>();
+        if (addrs.isEmpty()) {
+            return getFallbackAddress();
+        }
 
-            final MACAddressRetriever retriever = new MACAddressRetriever();
-            final Set<String> set = retriever.retrieveAddresses();
-            final VTMACAddressFactory factory = new VTMACAddressFactory(new MapContextHandlingStrategy());
-            IllegalArgumentException exception = null;
+        final int index = (ADDRESS_INDEX.incrementAndGet() & Integer.MAX_VALUE) % addrs.size();
+        int idx = 0;
 
-            for (final String s : set) {
+        for (final VTMACAddress addr : addrs) {
 
-                try {
-                    LOCAL_ADDRESSES.add(factory.parse(s));
-                } catch (final IllegalArgumentException vte) {
-                    exception = vte;
-                }
+            if (idx == index) {
+                return addr;
             }
 
-            if (exception != null && LOCAL_ADDRESSES.isEmpty()) {
-                throw exception;
-            }
+            idx++;
         }
 
-        return LOCAL_ADDRESSES;
+        return getFallbackAddress();
     }
 
     /**
-     * Returns the MAC address for one of the host computer's NIC's.
+     * Returns the address used in place of a NIC address on hosts where none can be discovered. It is read from the
+     * <code>org.codekaizen.vtj.net.VTMACAddressFactory.fallbackAddress</code> system property if set, otherwise it is
+     * derived from the host name so it stays the same across restarts. Derived addresses have the multicast bit set
+     * as recommended by RFC 4122 so they can never clash with a real NIC address.
      *
      * @return  the address
      */
-    public static VTMACAddress getLocalEthernetAddress() {
-        final Set<VTMACAddress> addrs = getAllLocalEthernetAddresses();
-        ADDRESS_INDEX++;
+    public static VTMACAddress getFallbackAddress() {
+        return FallbackAddressHolder.ADDRESS;
+    }
+
+    static Set<VTMACAddress> discoverAddresses() {
+        final Set<VTMACAddress> addrs = new NetworkInterfaceAddressRetriever().retrieveAddresses();
+
+        if (Boolean.getBoolean(COMMAND_PROPERTY)) {
+            final VTMACAddressFactory factory = new VTMACAddressFactory(new MapContextHandlingStrategy());
+
+            for (final String s : new MACAddressRetriever().retrieveAddresses()) {
+                final VTMACAddress addr = factory.tryParse(s);
 
-        if (ADDRESS_INDEX >= addrs.size()) {
-            ADDRESS_INDEX = 0;
+                if (addr != null) {
+                    addrs.add(addr);
+                }
+            }
         }
 
-        int idx = 0;
+        return Collections.unmodifiableSet(addrs);
+    }
 
-        for (final VTMACAddress addr : addrs) {
+    static VTMACAddress createFallbackAddress(final String configured, final String hostName) {
+
+        if (configured != null) {
+            final VTMACAddress addr = new VTMACAddressFactory(new MapContextHandlingStrategy()).tryParse(configured);
 
-            if (idx == ADDRESS_INDEX) {
+            if (addr != null) {
                 return addr;
             }
 
-            idx++;
+            LoggerFactory.getLogger(VTMACAddressFactory.class).warn("Ignoring unparsable fallback address " +
+                configured);
+        }
+
+        final byte[] node = new byte[6];
+
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(hostName.getBytes("UTF-8"));
+            System.arraycopy(hash, 0, node, 0, 6);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e.getMessage());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage());
         }
 
-        return null;
+        node[0] |= (byte) 0x01;
+
+        return new VTMACAddress(node);
+    }
+
+    private static String getLocalHostName() {
+
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException e) {
+            return "localhost.localdomain";
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  vt  DOCUMENT ME!
+     * @param  out  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Override
+    protected Appendable doFormatTo(final VTMACAddress vt, final Appendable out) throws IOException {
+        vt.appendTo(out);
+
+        return out;
+    }
+
+    /**
+     * Lazily derives the fallback address so the host name is only looked up when it is needed.
+     */
+    private static final class FallbackAddressHolder {
+
+        static final VTMACAddress ADDRESS = createFallbackAddress(System.getProperty(FALLBACK_PROPERTY),
+                getLocalHostName());
+
     }
 
 }
@@ -58,6 +58,18 @@ public abstract class Clock implements Serializable {
      */
     public abstract VTInstant instant();
 
+    /**
+     * Returns the current time as the number of milliseconds since 1970-01-01T00:00Z. Clocks backed by a millisecond
+     * source should override this so frequent callers do not create an instant on every call.
+     *
+     * @return  the current time in milliseconds
+     */
+    public long millis() {
+        final VTInstant i = this.instant();
+
+        return i.getEpochSeconds() * 1000L + i.getNanoOfSecond() / 1000000;
+    }
+
     /**
      * Returns the time zone being used by this clock.
      *
@@ -81,6 +93,11 @@ public abstract class Clock implements Serializable {
             return new VTInstant(System.currentTimeMillis());
         }
 
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+
         @Override
         public TimeZone timeZone() {
             return this.timeZone;
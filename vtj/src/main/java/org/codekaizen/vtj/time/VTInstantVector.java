@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.time;
+
+import org.codekaizen.vtj.AbstractVTVector;
+import org.codekaizen.vtj.AssertPrecondition;
+
+
+/**
+ * <p>Immutable vector of {@link VTInstant} values backed by a <code>long[]</code> of epoch seconds and an <code>
+ * int[]</code> of nanoseconds.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class VTInstantVector extends AbstractVTVector<VTInstant, VTInstantVector> {
+
+    /** The vector with no elements. */
+    public static final VTInstantVector EMPTY = new VTInstantVector(new long[0], new int[0], 0, 0);
+
+    private final long[] seconds;
+    private final int[] nanos;
+
+    private VTInstantVector(final long[] seconds, final int[] nanos, final int offset, final int length) {
+        super(offset, length);
+        this.seconds = seconds;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the seconds from the epoch of the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the epoch seconds
+     */
+    public long getEpochSeconds(final int index) {
+        return this.seconds[arrayIndex(index)];
+    }
+
+    /**
+     * Returns the nanoseconds within the second of the element at the supplied index.
+     *
+     * @param  index  the element index
+     *
+     * @return  the nanoseconds, never negative
+     */
+    public int getNanoOfSecond(final int index) {
+        return this.nanos[arrayIndex(index)];
+    }
+
+    /**
+     * Returns a copy of the epoch seconds of all elements.
+     *
+     * @return  new array
+     */
+    public long[] toEpochSecondsArray() {
+        final long[] result = new long[size()];
+        System.arraycopy(this.seconds, getOffset(), result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Returns a copy of the nanoseconds of all elements.
+     *
+     * @return  new array
+     */
+    public int[] toNanoOfSecondArray() {
+        final int[] result = new int[size()];
+        System.arraycopy(this.nanos, getOffset(), result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Returns the earliest element.
+     *
+     * @return  the minimum
+     */
+    public VTInstant min() {
+        checkNotEmpty();
+
+        int result = getOffset();
+
+        for (int i = result + 1, end = getOffset() + size(); i < end; i++) {
+
+            if (compare(i, result) < 0) {
+                result = i;
+            }
+        }
+
+        return valueAt(result);
+    }
+
+    /**
+     * Returns the latest element.
+     *
+     * @return  the maximum
+     */
+    public VTInstant max() {
+        checkNotEmpty();
+
+        int result = getOffset();
+
+        for (int i = result + 1, end = getOffset() + size(); i < end; i++) {
+
+            if (compare(i, result) > 0) {
+                result = i;
+            }
+        }
+
+        return valueAt(result);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public VTInstantVector sorted() {
+        final int length = size();
+        final int[] order = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            order[i] = getOffset() + i;
+        }
+
+        mergeSort(order.clone(), order, 0, length);
+
+        final long[] sortedSeconds = new long[length];
+        final int[] sortedNanos = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            sortedSeconds[i] = this.seconds[order[i]];
+            sortedNanos[i] = this.nanos[order[i]];
+        }
+
+        return new VTInstantVector(sortedSeconds, sortedNanos, 0, length);
+    }
+
+    /**
+     * Sorts the array indexes between <code>from</code> and <code>to</code> into <code>dest</code>, using <code>
+     * src</code>, which starts out as a copy of <code>dest</code>, as working space.
+     */
+    private void mergeSort(final int[] src, final int[] dest, final int from, final int to) {
+
+        if (to - from < 8) {
+
+            for (int i = from + 1; i < to; i++) {
+
+                for (int j = i; j > from && compare(dest[j - 1], dest[j]) > 0; j--) {
+                    final int t = dest[j];
+                    dest[j] = dest[j - 1];
+                    dest[j - 1] = t;
+                }
+            }
+
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(dest, src, from, mid);
+        mergeSort(dest, src, mid, to);
+
+        for (int i = from, p = from, q = mid; i < to; i++) {
+
+            if (q >= to || (p < mid && compare(src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+
+    private int compare(final int a, final int b) {
+
+        if (this.seconds[a] != this.seconds[b]) {
+            return this.seconds[a] < this.seconds[b] ? -1 : 1;
+        }
+
+        return this.nanos[a] - this.nanos[b];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTInstant valueAt(final int arrayIndex) {
+        return new VTInstant(this.seconds[arrayIndex], this.nanos[arrayIndex]);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  sliceOffset  DOCUMENT ME!
+     * @param  sliceLength  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected VTInstantVector newSlice(final int sliceOffset, final int sliceLength) {
+        return new VTInstantVector(this.seconds, this.nanos, sliceOffset, sliceLength);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     * @param  other  DOCUMENT ME!
+     * @param  otherArrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected boolean elementEquals(final int arrayIndex, final VTInstantVector other, final int otherArrayIndex) {
+        return this.seconds[arrayIndex] == other.seconds[otherArrayIndex] &&
+            this.nanos[arrayIndex] == other.nanos[otherArrayIndex];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  arrayIndex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    protected int elementHashCode(final int arrayIndex) {
+        final long secs = this.seconds[arrayIndex];
+
+        return 31 * (int) (secs ^ (secs >>> 32)) + this.nanos[arrayIndex];
+    }
+
+    /**
+     * Accumulates values for a new {@link VTInstantVector}. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private long[] seconds;
+        private int[] nanos;
+        private int size;
+
+        /**
+         * Creates a new Builder object.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Creates a new Builder object.
+         *
+         * @param  initialCapacity  the number of elements expected
+         */
+        public Builder(final int initialCapacity) {
+            AssertPrecondition.withinRange("initialCapacity", initialCapacity, 0L, Integer.MAX_VALUE);
+            this.seconds = new long[initialCapacity];
+            this.nanos = new int[initialCapacity];
+        }
+
+        /**
+         * Appends an instant, normalizing a negative nanosecond fraction the same way as {@link VTInstant#VTInstant(long,
+         * int)}.
+         *
+         * @param  epochSeconds  the seconds +/- 1970-01-01T00:00:00Z
+         * @param  nanoOfSecond  the fraction of a second
+         *
+         * @return  this builder
+         *
+         * @throws  IllegalArgumentException  if the nanosecond fraction is out of range
+         */
+        public Builder add(final long epochSeconds, final int nanoOfSecond) {
+
+            if (nanoOfSecond < -VTInstant.NANOS_PER_SECOND || nanoOfSecond >= VTInstant.NANOS_PER_SECOND) {
+                throw new IllegalArgumentException("Nanosecond fraction is out of range");
+            }
+
+            if (this.size == this.seconds.length) {
+                final int capacity = this.size + (this.size >> 1) + 16;
+                final long[] grownSeconds = new long[capacity];
+                final int[] grownNanos = new int[capacity];
+                System.arraycopy(this.seconds, 0, grownSeconds, 0, this.size);
+                System.arraycopy(this.nanos, 0, grownNanos, 0, this.size);
+                this.seconds = grownSeconds;
+                this.nanos = grownNanos;
+            }
+
+            if (nanoOfSecond < 0) {
+                this.seconds[this.size] = epochSeconds - 1L;
+                this.nanos[this.size] = nanoOfSecond + VTInstant.NANOS_PER_SECOND;
+            } else {
+                this.seconds[this.size] = epochSeconds;
+                this.nanos[this.size] = nanoOfSecond;
+            }
+
+            this.size++;
+
+            return this;
+        }
+
+        /**
+         * Appends an instant.
+         *
+         * @param  value  the instant
+         *
+         * @return  this builder
+         */
+        public Builder add(final VTInstant value) {
+            AssertPrecondition.notNull("value", value);
+
+            return add(value.getEpochSeconds(), value.getNanoOfSecond());
+        }
+
+        /**
+         * Returns the number of values added.
+         *
+         * @return  the size
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns a vector of the values added so far. The builder may continue to be used afterwards.
+         *
+         * @return  the vector
+         */
+        public VTInstantVector build() {
+            final long[] resultSeconds = new long[this.size];
+            final int[] resultNanos = new int[this.size];
+            System.arraycopy(this.seconds, 0, resultSeconds, 0, this.size);
+            System.arraycopy(this.nanos, 0, resultNanos, 0, this.size);
+
+            return new VTInstantVector(resultSeconds, resultNanos, 0, this.size);
+        }
+
+    }
+
+}
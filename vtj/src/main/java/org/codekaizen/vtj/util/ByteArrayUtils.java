@@ -108,6 +108,24 @@ public class ByteArrayUtils {
                     ((((long) b[1]) & 0xFF) << 48) + ((((long) b[0]) & 0xFF) << 56));
     }
 
+    /**
+     * Build a long from the 8 bytes of the array beginning at the specified index.
+     *
+     * @param  b  the array to convert
+     * @param  start  the array index of the most significant byte
+     *
+     * @return  the long
+     */
+    public static long toLong(final byte[] b, final int start) {
+        long value = 0L;
+
+        for (int i = start; i < start + 8; i++) {
+            value = (value << 8) | (b[i] & 0xFFL);
+        }
+
+        return value;
+    }
+
     /**
      * <p>Compares two byte arrays as specified by <code>Comparable</code>.</p>
      *
@@ -326,6 +344,26 @@ public class ByteArrayUtils {
         }
     }
 
+    /**
+     * Returns the numeric value of the supplied hexadecimal digit.
+     *
+     * @param  c  the character to convert
+     *
+     * @return  the value from 0 to 15 or -1 if not a hexadecimal digit
+     */
+    public static int hexValue(final char c) {
+
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else {
+            return -1;
+        }
+    }
+
     private static void parseByte(final CharSequence cs, final byte[] raw, int i, final int j) {
         char c = cs.charAt(i);
 
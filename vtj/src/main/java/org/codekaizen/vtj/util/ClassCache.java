@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * <p>Lazily computes and caches a value per class, typically the result of a reflective lookup, so the lookup is only
+ * done once per class instead of on every call. Lookups after the first are a single concurrent map read. Classes
+ * without a value are remembered as well.</p>
+ *
+ * <p>Classes are held weakly and values softly, since a value such as a <code>Method</code> usually refers back to
+ * its class, so the cache never keeps the class loader of an undeployed application from being collected. A value
+ * dropped under memory pressure is simply computed again.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public abstract class ClassCache<V> {
+
+    private static final Object NONE = new Object();
+
+    private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+    private final ReferenceQueue<Class<?>> collected = new ReferenceQueue<Class<?>>();
+
+    /**
+     * Creates a new ClassCache object.
+     */
+    protected ClassCache() {
+        super();
+    }
+
+    /**
+     * Returns the value for the supplied class, computing it on first use. Concurrent first calls may compute the
+     * value more than once but all callers receive the same instance.
+     *
+     * @param  type  the class
+     *
+     * @return  the value or <code>null</code> if the class has none
+     */
+    @SuppressWarnings("unchecked")
+    public final V get(final Class<?> type) {
+
+        for (;;) {
+            final Object value = this.values.get(new LookupKey(type));
+
+            if (value == NONE) {
+                return null;
+            }
+
+            if (value != null) {
+                final V cached = ((Reference<V>) value).get();
+
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            this.expungeCollected();
+
+            final V computed = computeValue(type);
+            final Object entry = (computed == null) ? NONE : new SoftReference<V>(computed);
+            final boolean stored;
+
+            if (value == null) {
+                stored = this.values.putIfAbsent(new WeakKey(type, this.collected), entry) == null;
+            } else {
+                stored = this.values.replace(new LookupKey(type), value, entry);
+            }
+
+            if (stored) {
+                return computed;
+            }
+        }
+    }
+
+    /**
+     * Discards the value cached for the supplied class so it is computed again on next use.
+     *
+     * @param  type  the class
+     */
+    public final void remove(final Class<?> type) {
+        this.values.remove(new LookupKey(type));
+    }
+
+    /**
+     * Discards all cached values.
+     */
+    public final void clear() {
+        this.values.clear();
+    }
+
+    /**
+     * Computes the value for a class not yet cached.
+     *
+     * @param  type  the class
+     *
+     * @return  the value or <code>null</code> if the class has none
+     */
+    protected abstract V computeValue(Class<?> type);
+
+    private void expungeCollected() {
+        Reference<? extends Class<?>> ref;
+
+        while ((ref = this.collected.poll()) != null) {
+            this.values.remove(ref);
+        }
+    }
+
+    /**
+     * Map key weakly referring to a cached class. Equal to the lookup key of the same class until the class is
+     * collected and after that only to itself.
+     */
+    private static final class WeakKey extends WeakReference<Class<?>> {
+
+        private final int hash;
+
+        WeakKey(final Class<?> type, final ReferenceQueue<Class<?>> queue) {
+            super(type, queue);
+            this.hash = System.identityHashCode(type);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+
+            if (obj == this) {
+                return true;
+            }
+
+            return obj instanceof LookupKey && ((LookupKey) obj).type == this.get();
+        }
+
+    }
+
+    /**
+     * Short-lived key used to look a class up without creating a reference object.
+     */
+    private static final class LookupKey {
+
+        private final Class<?> type;
+
+        LookupKey(final Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.type);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof WeakKey && ((WeakKey) obj).get() == this.type;
+        }
+
+    }
+
+}
@@ -21,6 +21,9 @@
  */
 package org.codekaizen.vtj.util;
 
+import java.io.IOException;
+
+
 /**
  * <p>Contains static utility methods for manipulating strings.</p>
  *
@@ -67,4 +70,146 @@ public class StringUtils {
         return !isBlank(value);
     }
 
+    /**
+     * Returns whether the supplied string contains the other string starting at the specified offset. Unlike <code>
+     * String.startsWith</code> this does not require converting the character sequence to a string first.
+     *
+     * @param  cs  the string to search
+     * @param  offset  the index to compare at
+     * @param  other  the string to look for
+     *
+     * @return  matches or not
+     */
+    public static boolean regionMatches(final CharSequence cs, final int offset, final String other) {
+        final int len = other.length();
+
+        if (offset < 0 || offset + len > cs.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+
+            if (cs.charAt(offset + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the supplied string and character sequence contain the same characters ignoring case. Unlike
+     * <code>String.equalsIgnoreCase</code> this does not require converting the character sequence to a string first.
+     *
+     * @param  s  the string to compare
+     * @param  cs  the character sequence to compare
+     *
+     * @return  equal ignoring case or not
+     */
+    public static boolean equalsIgnoreCase(final String s, final CharSequence cs) {
+
+        if (cs == null) {
+            return false;
+        }
+
+        return equalsIgnoreCase(s, cs, 0, cs.length());
+    }
+
+    /**
+     * Returns whether the supplied string and the range of the character sequence contain the same characters ignoring
+     * case.
+     *
+     * @param  s  the string to compare
+     * @param  cs  the character sequence to compare
+     * @param  start  the index of the first character of the range
+     * @param  end  the index after the last character of the range
+     *
+     * @return  equal ignoring case or not
+     */
+    public static boolean equalsIgnoreCase(final String s, final CharSequence cs, final int start, final int end) {
+        final int len = s.length();
+
+        if (end - start != len) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+
+            if (!equalsIgnoreCase(s.charAt(i), cs.charAt(start + i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the two characters are the same ignoring case.
+     *
+     * @param  c1  the first character
+     * @param  c2  the second character
+     *
+     * @return  equal ignoring case or not
+     */
+    public static boolean equalsIgnoreCase(final char c1, final char c2) {
+        return c1 == c2 || Character.toUpperCase(c1) == Character.toUpperCase(c2);
+    }
+
+    /**
+     * Appends the decimal representation of the supplied number to the supplied appender one character at a time so
+     * no temporary string is created.
+     *
+     * @param  n  the number to format
+     * @param  ap  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    public static Appendable appendToString(final long n, final Appendable ap) throws IOException {
+        return appendToString(n, 1, ap);
+    }
+
+    /**
+     * Appends the decimal representation of the supplied number left-padded with zeros to at least the specified
+     * number of digits to the supplied appender one character at a time so no temporary string is created.
+     *
+     * @param  n  the number to format
+     * @param  minDigits  the minimum number of digits to output
+     * @param  ap  the character sequence to append to
+     *
+     * @return  the same appendable supplied as an input parameter
+     *
+     * @throws  IOException  if the appendable fails
+     */
+    public static Appendable appendToString(final long n, final int minDigits, final Appendable ap)
+        throws IOException {
+
+        if (n < 0L) {
+            ap.append('-');
+        }
+
+        // work with negative values so Long.MIN_VALUE does not overflow
+        long work = (n < 0L) ? n : -n;
+        long divisor = 1L;
+        int digits = 1;
+
+        while (work / divisor <= -10L) {
+            divisor *= 10L;
+            digits++;
+        }
+
+        for (int i = digits; i < minDigits; i++) {
+            ap.append('0');
+        }
+
+        while (divisor > 0L) {
+            ap.append((char) ('0' - (work / divisor)));
+            work %= divisor;
+            divisor /= 10L;
+        }
+
+        return ap;
+    }
+
 }
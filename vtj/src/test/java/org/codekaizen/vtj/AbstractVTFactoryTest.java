@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.SerializationUtils;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for the context snapshot handling and instrumentation hooks in {@link AbstractVTFactory}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class AbstractVTFactoryTest {
+
+    private static final String SEQUENCE = "org.codekaizen.vtj.AbstractVTFactoryTest.sequence";
+    private static final String OTHER = "org.codekaizen.vtj.AbstractVTFactoryTest.other";
+    private static final ContextKey<Long> LIMIT = ContextKey.forLong("org.codekaizen.vtj.AbstractVTFactoryTest.limit",
+            10L);
+
+    /**
+     * Creates a new AbstractVTFactoryTest object.
+     */
+    public AbstractVTFactoryTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSeeNewContextWhileProcessingContextChange() {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        final Map<String, Object> context = createContext(1);
+        factory.setContext(context);
+        assertSame(factory.contextDuringChange, context);
+        assertEquals(factory.sequenceDuringChange, Integer.valueOf(1));
+        assertSame(factory.getContext(), context);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldNotConsultStrategyAgainForValuesResolvedDuringContextChange() {
+        final CountingContextHandlingStrategy strategy = new CountingContextHandlingStrategy();
+        final SnapshotFactory factory = new SnapshotFactory(strategy);
+        factory.setContext(createContext(1));
+
+        final int lookups = strategy.lookups.get();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(factory.getValue(SEQUENCE), Integer.valueOf(1));
+        }
+
+        assertEquals(strategy.lookups.get(), lookups);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldAddLateValuesToPublishedSnapshot() {
+        final CountingContextHandlingStrategy strategy = new CountingContextHandlingStrategy();
+        final SnapshotFactory factory = new SnapshotFactory(strategy);
+        final Map<String, Object> context = createContext(1);
+        context.put(OTHER, "late");
+        factory.setContext(context);
+
+        final int lookups = strategy.lookups.get();
+        assertEquals(factory.getValue(OTHER), "late");
+        assertEquals(factory.getValue(OTHER), "late");
+        assertEquals(strategy.lookups.get(), lookups + 1);
+
+        factory.setContext(createContext(2));
+        assertEquals(factory.getValue(SEQUENCE), Integer.valueOf(2));
+        assertNull(factory.getValue(OTHER));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldOnlyExposePublishedSnapshotsToConcurrentReaders() throws Exception {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        factory.setContext(createContext(0));
+
+        final int changes = 2000;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Thread[] readers = new Thread[4];
+
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                        public void run() {
+
+                            try {
+                                int last = 0;
+
+                                while (last < changes) {
+                                    final Integer seq = (Integer) factory.getValue(SEQUENCE);
+                                    assertNotNull(seq);
+                                    assertTrue(seq.intValue() >= last, "went back from " + last + " to " + seq);
+                                    assertTrue(factory.getContext() instanceof Map);
+                                    last = seq.intValue();
+                                }
+                            } catch (final Throwable t) {
+                                errors.add(t);
+                            }
+                        }
+                    });
+            readers[i].start();
+        }
+
+        for (int i = 1; i <= changes; i++) {
+            factory.setContext(createContext(i));
+            assertEquals(factory.getValue(SEQUENCE), Integer.valueOf(i));
+        }
+
+        for (final Thread reader : readers) {
+            reader.join(30000L);
+            assertFalse(reader.isAlive());
+        }
+
+        assertTrue(errors.isEmpty(), errors.toString());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldResolveDeclaredKeysOncePerContextChange() {
+        final CountingContextHandlingStrategy strategy = new CountingContextHandlingStrategy();
+        final SnapshotFactory factory = new SnapshotFactory(strategy);
+        assertEquals(factory.getValue(LIMIT), Long.valueOf(10L));
+
+        final Map<String, Object> context = createContext(1);
+        context.put(LIMIT.getName(), "25");
+        factory.setContext(context);
+        assertEquals(factory.limitDuringChange, Long.valueOf(25L));
+
+        final int lookups = strategy.lookups.get();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(factory.getValue(LIMIT), Long.valueOf(25L));
+        }
+
+        assertEquals(strategy.lookups.get(), lookups);
+
+        factory.setContext(createContext(2));
+        assertEquals(factory.getValue(LIMIT), Long.valueOf(10L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepPreviousSnapshotIfKeyCannotBeConverted() {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        final Map<String, Object> good = createContext(1);
+        factory.setContext(good);
+
+        final Map<String, Object> bad = createContext(2);
+        bad.put(LIMIT.getName(), "many");
+
+        try {
+            factory.setContext(bad);
+            fail("should have rejected unconvertible value");
+        } catch (final IllegalArgumentException iae) {
+            // expected
+        }
+
+        assertSame(factory.getContext(), good);
+        assertEquals(factory.getValue(LIMIT), Long.valueOf(10L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRollBackStrategyIfContextChangeFails() {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        final Map<String, Object> good = createContext(1);
+        good.put(OTHER, "one");
+        factory.setContext(good);
+
+        final Map<String, Object> bad = createContext(2);
+        bad.put(OTHER, "two");
+        factory.duringChange = new Runnable() {
+                public void run() {
+                    throw new IllegalStateException("cannot change");
+                }
+            };
+
+        try {
+            factory.setContext(bad);
+            fail("should have propagated failure");
+        } catch (final IllegalStateException ise) {
+            // expected
+        }
+
+        assertSame(factory.getContext(), good);
+        assertEquals(factory.getValue(OTHER), "one");
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldNotCacheValuesLookedUpByOtherThreadsDuringContextChange() throws Exception {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        final Map<String, Object> good = createContext(1);
+        good.put(OTHER, "one");
+        factory.setContext(good);
+
+        final Object[] seen = new Object[1];
+        final Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        seen[0] = factory.getValue(OTHER);
+                    }
+                });
+        final Map<String, Object> bad = createContext(2);
+        bad.put(OTHER, "two");
+        factory.duringChange = new Runnable() {
+                public void run() {
+                    reader.start();
+
+                    try {
+                        reader.join(200L);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    throw new IllegalStateException("cannot change");
+                }
+            };
+
+        try {
+            factory.setContext(bad);
+            fail("should have propagated failure");
+        } catch (final IllegalStateException ise) {
+            // expected
+        }
+
+        reader.join(30000L);
+        assertFalse(reader.isAlive());
+        assertEquals(seen[0], "one");
+        assertEquals(factory.getValue(OTHER), "one");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReadKeysDeclaredAtDifferentPositions() {
+        final ContextKey<Long> first = ContextKey.forLong("org.codekaizen.vtj.AbstractVTFactoryTest.first", 1L);
+        final ContextKey<Long> second = ContextKey.forLong("org.codekaizen.vtj.AbstractVTFactoryTest.second", 2L);
+        final SnapshotFactory registering = new SnapshotFactory(new CountingContextHandlingStrategy(), first, second);
+        final SnapshotFactory swapped = new SnapshotFactory(new CountingContextHandlingStrategy(), second, first);
+        assertEquals(first.getIndex(), 1);
+        assertEquals(second.getIndex(), 2);
+
+        final Map<String, Object> context = createContext(1);
+        context.put(first.getName(), 5L);
+        context.put(second.getName(), 6L);
+        registering.setContext(context);
+        swapped.setContext(new HashMap<String, Object>(context));
+
+        assertEquals(registering.getValue(first), Long.valueOf(5L));
+        assertEquals(registering.getValue(second), Long.valueOf(6L));
+        assertEquals(swapped.getValue(first), Long.valueOf(5L));
+        assertEquals(swapped.getValue(second), Long.valueOf(6L));
+        assertEquals(swapped.getValue(LIMIT), Long.valueOf(10L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectUndeclaredKeys() {
+        final SnapshotFactory factory = new SnapshotFactory(new CountingContextHandlingStrategy());
+        factory.getValue(ContextKey.forLong(LIMIT.getName(), 10L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReportEveryOperationToInstrumentation() throws Exception {
+        assertSame(new VTBooleanFactory(new MapContextHandlingStrategy()).getInstrumentation(),
+            Instrumentation.NO_OP);
+
+        final RecordingInstrumentation recorder = new RecordingInstrumentation();
+        final VTBooleanFactory factory;
+        Instrumentation.setProvider(new InstrumentationProvider() {
+                public FactoryInstrumentation getInstrumentation(final ValueTypeFactory<?> vtf) {
+                    return recorder;
+                }
+            });
+
+        try {
+            factory = new VTBooleanFactory(new MapContextHandlingStrategy());
+        } finally {
+            Instrumentation.setProvider(null);
+        }
+
+        assertSame(factory.getInstrumentation(), recorder);
+
+        factory.setContext(createContext(1));
+        assertEquals(factory.tryParse("TRUE"), VTBoolean.TRUE);
+        assertNull(factory.tryParse("maybe"));
+        assertEquals(factory.tryParse("xx1xx".toCharArray(), 2, 3), VTBoolean.TRUE);
+        assertEquals(factory.create(VTBoolean.class, Boolean.FALSE), VTBoolean.FALSE);
+
+        try {
+            factory.create(VTBoolean.class, new Object());
+            fail("should not create from an object");
+        } catch (final IllegalArgumentException iae) {
+            assertNotNull(iae.getMessage());
+        }
+
+        assertEquals(factory.format(VTBoolean.TRUE), "TRUE");
+        assertEquals(factory.format(null), "");
+        factory.formatTo(VTBoolean.FALSE, new StringBuilder());
+
+        assertEquals(recorder.starts.get(), 8);
+        assertEquals(recorder.contextChanges.get(), 1);
+        assertEquals(recorder.parses.get(), 2);
+        assertEquals(recorder.parseFailures.get(), 1);
+        assertEquals(recorder.creates.get(), 1);
+        assertEquals(recorder.createFailures.get(), 1);
+        assertEquals(recorder.formats.get(), 2);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldObtainInstrumentationFromRegisteredProvider() {
+        final RecordingInstrumentation recorder = new RecordingInstrumentation();
+        Instrumentation.setProvider(new InstrumentationProvider() {
+                public FactoryInstrumentation getInstrumentation(final ValueTypeFactory<?> factory) {
+                    return recorder;
+                }
+            });
+
+        try {
+            final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+            factories.add(new VTBooleanFactory(new MapContextHandlingStrategy()));
+
+            final CompositeVTFactory composite = new CompositeVTFactory(factories, new MapContextHandlingStrategy());
+            assertSame(composite.getInstrumentation(), recorder);
+            assertEquals(composite.parse("Y"), VTBoolean.TRUE);
+            // once by the composite and once by the delegate
+            assertEquals(recorder.parses.get(), 2);
+            assertEquals(recorder.selections.get(), 1);
+        } finally {
+            Instrumentation.setProvider(null);
+        }
+
+        assertSame(new VTBooleanFactory(new MapContextHandlingStrategy()).getInstrumentation(),
+            Instrumentation.NO_OP);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRestoreInstrumentationOnDeserialization() {
+        final VTBooleanFactory factory = (VTBooleanFactory) SerializationUtils.deserialize(SerializationUtils.serialize(
+                    new VTBooleanFactory(new MapContextHandlingStrategy())));
+        assertSame(factory.getInstrumentation(), Instrumentation.NO_OP);
+        assertEquals(factory.parse("Y"), VTBoolean.TRUE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnCanonicalInstancesOnceInternerRegistered() {
+        final VTLongSerialIdFactory factory = new VTLongSerialIdFactory(new MapContextHandlingStrategy());
+        assertNotSame(factory.parse("42"), factory.parse("42"));
+        assertNull(factory.getInterner());
+
+        final Interner<VTLongSerialId> interner = new Interner<VTLongSerialId>(100);
+        factory.setInterner(interner);
+
+        final VTLongSerialId first = factory.parse("42");
+        assertSame(factory.parse("sid:42"), first);
+        assertSame(factory.create(VTLongSerialId.class, Long.valueOf(42L)), first);
+        assertSame(factory.parseAll(Arrays.asList("42", "42", "43")).getValues().get(1), first);
+        assertSame(factory.createAll(VTLongSerialId.class, Arrays.asList("42")).getValues().get(0), first);
+        assertEquals(interner.getMissCount(), 2L);
+        assertEquals(interner.getHitCount(), 6L);
+        assertNull(factory.tryParse("x"));
+
+        factory.setInterner(null);
+        assertNotSame(factory.parse("42"), first);
+    }
+
+    private Map<String, Object> createContext(final int sequence) {
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put(SEQUENCE, Integer.valueOf(sequence));
+
+        return context;
+    }
+
+    /**
+     * Instrumentation counting the events received.
+     */
+    private static class RecordingInstrumentation implements FactoryInstrumentation {
+
+        private final AtomicInteger starts = new AtomicInteger();
+        private final AtomicInteger creates = new AtomicInteger();
+        private final AtomicInteger createFailures = new AtomicInteger();
+        private final AtomicInteger parses = new AtomicInteger();
+        private final AtomicInteger parseFailures = new AtomicInteger();
+        private final AtomicInteger formats = new AtomicInteger();
+        private final AtomicInteger contextChanges = new AtomicInteger();
+        private final AtomicInteger selections = new AtomicInteger();
+
+        RecordingInstrumentation() {
+            super();
+        }
+
+        public long start() {
+            starts.incrementAndGet();
+
+            return 42L;
+        }
+
+        public void created(final long startTime, final boolean success) {
+            assertEquals(startTime, 42L);
+            (success ? creates : createFailures).incrementAndGet();
+        }
+
+        public void parsed(final long startTime, final boolean success) {
+            assertEquals(startTime, 42L);
+            (success ? parses : parseFailures).incrementAndGet();
+        }
+
+        public void formatted(final long startTime) {
+            assertEquals(startTime, 42L);
+            formats.incrementAndGet();
+        }
+
+        public void contextChanged(final long startTime) {
+            assertEquals(startTime, 42L);
+            contextChanges.incrementAndGet();
+        }
+
+        public void selected(final ValueTypeFactory<?> delegate) {
+            assertTrue(delegate instanceof VTBooleanFactory);
+            selections.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Map strategy counting how often values are looked up.
+     */
+    private static class CountingContextHandlingStrategy extends MapContextHandlingStrategy {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public Object getValue(final String name) {
+            lookups.incrementAndGet();
+
+            return super.getValue(name);
+        }
+
+    }
+
+    /**
+     * Minimal factory recording what it sees while processing a context change.
+     */
+    private static class SnapshotFactory extends AbstractVTFactory<VTBoolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private Object contextDuringChange;
+        private Object sequenceDuringChange;
+        private Long limitDuringChange;
+        private volatile Runnable duringChange;
+
+        SnapshotFactory(final ContextHandlingStrategy strategy) {
+            super(strategy, LIMIT);
+        }
+
+        SnapshotFactory(final ContextHandlingStrategy strategy, final ContextKey<?> second, final ContextKey<?> third) {
+            super(strategy, LIMIT, second, third);
+        }
+
+        @Override
+        protected void processContextChange() {
+            super.processContextChange();
+            contextDuringChange = getContext();
+            sequenceDuringChange = getValue(SEQUENCE);
+            limitDuringChange = getValue(LIMIT);
+
+            final Runnable hook = duringChange;
+
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        @Override
+        public boolean isCreatable(final Class<? extends ValueType<?>> clazz) {
+            return false;
+        }
+
+        @Override
+        protected VTBoolean create(final Object... args) {
+            return null;
+        }
+
+        @Override
+        protected VTBoolean doParse(final CharSequence s, final int start, final int end) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.lang.management.ManagementFactory;
+
+
+/**
+ * <p>Reads the number of bytes allocated by the current thread using the HotSpot specific extension of the thread
+ * management bean. Used by the tests verifying hot paths do not create garbage.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class AllocationMeter {
+
+    private AllocationMeter() {
+        // non-instantiable
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the calling thread so far.
+     *
+     * @return  the allocated bytes
+     */
+    public static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)
+            ManagementFactory.getThreadMXBean();
+
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Performance tests of {@link CompactSerialForm} vs the default serialized form.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class CompactSerialFormPerformanceTest {
+
+    private static final int ITERATIONS = 200;
+    private static final int ROUNDS = 5;
+
+    private Logger logger = LoggerFactory.getLogger(CompactSerialFormPerformanceTest.class);
+
+    /**
+     * Creates a new CompactSerialFormPerformanceTest object.
+     */
+    public CompactSerialFormPerformanceTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldDeserializeFasterThanDefaultForm() throws Exception {
+        final byte[] legacy = CompactSerialFormTest.readResource(SerializationSamples.LEGACY_BULK);
+        final byte[] compact = serialize(SerializationSamples.createBulk());
+
+        // warm up both paths
+        readAll(legacy, ITERATIONS / 4);
+        readAll(compact, ITERATIONS / 4);
+
+        // alternate the two forms and keep the best round of each so a single pause does not decide the outcome
+        long legacyTime = Long.MAX_VALUE;
+        long compactTime = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long ms = System.currentTimeMillis();
+            readAll(legacy, ITERATIONS / ROUNDS);
+            legacyTime = Math.min(legacyTime, System.currentTimeMillis() - ms);
+
+            ms = System.currentTimeMillis();
+            readAll(compact, ITERATIONS / ROUNDS);
+            compactTime = Math.min(compactTime, System.currentTimeMillis() - ms);
+        }
+
+        this.logger.info("default form {} bytes read in {} ms; compact form {} bytes read in {} ms", new Object[] {
+                legacy.length, legacyTime, compact.length, compactTime
+            });
+        assertTrue(compactTime < legacyTime + 10L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldSerializeBulkValuesQuickly() throws Exception {
+        final List<Object> values = SerializationSamples.createBulk();
+        serialize(values);
+
+        final long ms = System.currentTimeMillis();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialize(values);
+        }
+
+        final long time = System.currentTimeMillis() - ms;
+        this.logger.info("{} values written {} times in {} ms", new Object[] { values.size(), ITERATIONS, time });
+        assertTrue(time < 10000L);
+    }
+
+    private static void readAll(final byte[] bytes, final int times) throws Exception {
+
+        for (int i = 0; i < times; i++) {
+            final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            assertTrue(((List<?>) in.readObject()).size() > 0);
+            in.close();
+        }
+    }
+
+    private static byte[] serialize(final Object obj) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(obj);
+        out.close();
+
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Locale;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.measure.VTMeasure;
+import org.codekaizen.vtj.measure.units.SI;
+import org.codekaizen.vtj.names.VTPersonName;
+import org.codekaizen.vtj.text.VTString;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link CompactSerialForm}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class CompactSerialFormTest {
+
+    /**
+     * Creates a new CompactSerialFormTest object.
+     */
+    public CompactSerialFormTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundTripEveryValueType() throws Exception {
+
+        for (final Object sample : SerializationSamples.createSamples()) {
+            final Object copy = deserialize(serialize(sample));
+            assertEquals(copy, sample);
+            assertSame(copy.getClass(), sample.getClass());
+            assertEquals(copy.toString(), sample.toString());
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReadStreamsWrittenWithDefaultSerialization() throws Exception {
+        assertEquals(deserialize(readResource(SerializationSamples.LEGACY_SAMPLES)),
+            SerializationSamples.createSamples());
+        assertEquals(deserialize(readResource(SerializationSamples.LEGACY_BULK)), SerializationSamples.createBulk());
+
+        final List<Object> samples = SerializationSamples.createSamples();
+        final byte[][] streams = (byte[][]) deserialize(readResource(SerializationSamples.LEGACY_SINGLES));
+
+        for (int i = 0; i < streams.length; i++) {
+            assertEquals(deserialize(streams[i]), samples.get(i));
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldWriteSmallerStreamsThanDefaultSerialization() throws Exception {
+        final List<Object> samples = SerializationSamples.createSamples();
+        final byte[][] streams = (byte[][]) deserialize(readResource(SerializationSamples.LEGACY_SINGLES));
+        int legacySingles = 0;
+        int compactSingles = 0;
+
+        for (int i = 0; i < streams.length; i++) {
+            legacySingles += streams[i].length;
+            compactSingles += serialize(samples.get(i)).length;
+        }
+
+        // single values as written to caches are dominated by class descriptors
+        assertTrue(compactSingles * 2 < legacySingles, compactSingles + " vs " + legacySingles);
+
+        final int legacySamples = readResource(SerializationSamples.LEGACY_SAMPLES).length;
+        final int compactSamples = serialize(samples).length;
+        assertTrue(compactSamples * 2 < legacySamples, compactSamples + " vs " + legacySamples);
+
+        // long streams share descriptors so only the per value encoding differs
+        final int legacyBulk = readResource(SerializationSamples.LEGACY_BULK).length;
+        final int compactBulk = serialize(SerializationSamples.createBulk()).length;
+        assertTrue(compactBulk * 10 < legacyBulk * 9, compactBulk + " vs " + legacyBulk);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldResolveUnitsToRegisteredInstances() throws Exception {
+        final VTMeasure copy = (VTMeasure) deserialize(serialize(new VTMeasure(new VTInteger(1), SI.KILOGRAM)));
+        assertSame(copy.getUnit(), SI.KILOGRAM);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepPersonNameLocale() throws Exception {
+        final VTPersonName name = new VTPersonName("John Q. Public", Locale.CANADA_FRENCH);
+        assertEquals(((VTPersonName) deserialize(serialize(name))).getLocale(), Locale.CANADA_FRENCH);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepDefaultFormForSubclasses() throws Exception {
+        final Object copy = deserialize(serialize(new CustomString("custom")));
+        assertSame(copy.getClass(), CustomString.class);
+        assertEquals(copy.toString(), "custom");
+    }
+
+    private static byte[] serialize(final Object obj) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(obj);
+        out.close();
+
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) throws IOException, ClassNotFoundException {
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the contents of one of the legacy stream resources.
+     *
+     * @param  name  the resource name
+     *
+     * @return  the bytes
+     *
+     * @throws  IOException  if the resource cannot be read
+     */
+    static byte[] readResource(final String name) throws IOException {
+        final InputStream in = CompactSerialFormTest.class.getResourceAsStream(name);
+        assertNotNull(in, name);
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int n;
+
+            while ((n = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, n);
+            }
+
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Subclass unknown to the compact form.
+     */
+    private static class CustomString extends VTString {
+
+        private static final long serialVersionUID = 1L;
+
+        CustomString(final CharSequence val) {
+            super(val);
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.enums.VTIsoGenderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Performance tests for {@link CompositeVTFactory} dispatching.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class CompositeVTFactoryPerformanceTest {
+
+    private static final int ITERATIONS = 1000000;
+
+    private Logger logger = LoggerFactory.getLogger(CompositeVTFactoryPerformanceTest.class);
+
+    /**
+     * Creates a new CompositeVTFactoryPerformanceTest object.
+     */
+    public CompositeVTFactoryPerformanceTest() {
+    }
+
+    /**
+     * Builds a composite with the boolean factory registered last behind the specified number of other factories so
+     * a linear search would have to visit all of them.
+     */
+    private CompositeVTFactory createFactory(final int otherFactories) {
+        final ContextHandlingStrategy strategy = new MapContextHandlingStrategy();
+        final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+
+        for (int i = 0; i < otherFactories; i++) {
+            factories.add(new VTIsoGenderFactory(strategy));
+        }
+
+        factories.add(new VTBooleanFactory(strategy));
+
+        final CompositeVTFactory factory = new CompositeVTFactory(factories, strategy);
+        factory.setContext(new HashMap<String, Object>());
+
+        return factory;
+    }
+
+    private long timeCreateAndFormat(final CompositeVTFactory factory) {
+        int length = 0;
+        final long ts = System.currentTimeMillis();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            final VTBoolean b = (VTBoolean) factory.create(VTBoolean.class, (i & 1) == 0);
+            length += factory.format(b).length();
+        }
+
+        assertEquals(length, ITERATIONS / 2 * ("TRUE".length() + "FALSE".length()));
+
+        return System.currentTimeMillis() - ts;
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldKeepPerCallCostFlatAsFactoryCountGrows() {
+        final CompositeVTFactory small = createFactory(0);
+        final CompositeVTFactory large = createFactory(23);
+
+        // warm up both paths
+        timeCreateAndFormat(small);
+        timeCreateAndFormat(large);
+
+        final long smallTs = timeCreateAndFormat(small);
+        final long largeTs = timeCreateAndFormat(large);
+
+        logger.info("CompositeVTFactory with 1 factory took {} ms.", smallTs);
+        logger.info("CompositeVTFactory with 24 factories took {} ms.", largeTs);
+        assertTrue(largeTs < smallTs * 2L + 50L);
+    }
+
+    private long timeParse(final CompositeVTFactory factory) {
+        final String[] cells = { "true", "no", "Y", "false" };
+        int trues = 0;
+        final long ts = System.currentTimeMillis();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+
+            if (factory.parse(cells[i & 3]) == VTBoolean.TRUE) {
+                trues++;
+            }
+        }
+
+        assertEquals(trues, ITERATIONS / 2);
+
+        return System.currentTimeMillis() - ts;
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldSkipNonCandidateFactoriesWhenParsing() {
+        final CompositeVTFactory small = createFactory(0);
+        final CompositeVTFactory large = createFactory(23);
+
+        // warm up both paths
+        timeParse(small);
+        timeParse(large);
+
+        final long smallTs = timeParse(small);
+        final long largeTs = timeParse(large);
+
+        logger.info("CompositeVTFactory parse with 1 factory took {} ms.", smallTs);
+        logger.info("CompositeVTFactory parse with 24 factories took {} ms.", largeTs);
+        assertTrue(largeTs < smallTs * 2L + 50L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldBulkParseAtLeastAsFastAsSingleParses() {
+        final CompositeVTFactory factory = createFactory(23);
+        final String[] cells = { "true", "no", "Y", "false" };
+        final List<String> inputs = new ArrayList<String>(ITERATIONS);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            inputs.add(cells[i & 3]);
+        }
+
+        // warm up both paths
+        timeParse(factory);
+        factory.parseAll(inputs);
+
+        final long singleTs = timeParse(factory);
+        final long ts = System.currentTimeMillis();
+        final BulkResult<?> result = factory.parseAll(inputs);
+        final long bulkTs = System.currentTimeMillis() - ts;
+
+        assertTrue(result.isAllSuccessful());
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+        logger.info("CompositeVTFactory single parses took {} ms.", singleTs);
+        logger.info("CompositeVTFactory bulk parse on {} processors took {} ms.", processors, bulkTs);
+        logger.info("CompositeVTFactory bulk to single parse ratio {}.", (double) bulkTs / Math.max(1L, singleTs));
+
+        // with a single processor the parallel path can only add overhead
+        if (processors > 1) {
+            assertTrue(bulkTs < singleTs * 2L + 50L);
+        }
+    }
+
+}
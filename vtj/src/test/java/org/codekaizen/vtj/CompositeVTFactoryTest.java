@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.enums.VTIsoGender;
+import org.codekaizen.vtj.enums.VTIsoGenderFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTFractionFactory;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link CompositeVTFactory}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class CompositeVTFactoryTest {
+
+    /**
+     * Creates a new CompositeVTFactoryTest object.
+     */
+    public CompositeVTFactoryTest() {
+        super();
+    }
+
+    private CompositeVTFactory createFactory() {
+        return createFactory(new HashMap<String, Object>());
+    }
+
+    private CompositeVTFactory createFactory(final Map<String, Object> context) {
+        final ContextHandlingStrategy strategy = new MapContextHandlingStrategy();
+        final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+        factories.add(new VTBooleanFactory(strategy));
+        factories.add(new VTIsoGenderFactory(strategy));
+        factories.add(new VTLongSerialIdFactory(strategy));
+        factories.add(new VTFractionFactory(strategy));
+
+        final CompositeVTFactory factory = new CompositeVTFactory(factories, strategy);
+        factory.setContext(context);
+
+        return factory;
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnCreatableOnlyForClassesOfContainedFactories() {
+        final CompositeVTFactory factory = createFactory();
+        assertTrue(factory.isCreatable(VTBoolean.class));
+        assertTrue(factory.isCreatable(VTIsoGender.class));
+        assertTrue(factory.isCreatable(VTLongSerialId.class));
+        assertTrue(factory.isCreatable(VTFraction.class));
+        assertFalse(factory.isCreatable(VTMACAddress.class));
+        assertFalse(factory.isCreatable(null));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCreateUsingFactoryOwningRequestedClass() {
+        final CompositeVTFactory factory = createFactory();
+        assertEquals(factory.create(VTBoolean.class, Boolean.TRUE), VTBoolean.TRUE);
+        assertEquals(factory.create(VTIsoGender.class, 2), VTIsoGender.FEMALE);
+        assertEquals(factory.create(VTLongSerialId.class, 42L), new VTLongSerialId(42L));
+        assertEquals(factory.create(VTFraction.class, 1L, 3L), new VTFraction(1L, 3L));
+        assertNull(factory.create(VTMACAddress.class, 0L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldFormatUsingFactoryOwningValueClass() {
+        final CompositeVTFactory factory = createFactory();
+        assertEquals(factory.format(VTBoolean.UNKNOWN), "UNKNOWN");
+        assertEquals(factory.format(VTIsoGender.MALE), "MALE");
+        assertEquals(factory.format(new VTLongSerialId(42L)), "sid:42");
+        assertEquals(factory.format(VTMACAddress.NIL), "");
+        assertEquals(factory.format(null), "");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldStillDispatchAfterContextChange() {
+        final CompositeVTFactory factory = createFactory();
+        assertEquals(factory.format(VTBoolean.TRUE), "TRUE");
+        factory.setContext(new HashMap<String, Object>());
+        assertEquals(factory.format(VTBoolean.TRUE), "TRUE");
+        assertEquals(factory.create(VTBoolean.class, "no"), VTBoolean.FALSE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseUsingFirstCandidateFactoryAbleToParse() {
+        final CompositeVTFactory factory = createFactory();
+        assertEquals(factory.parse("yes"), VTBoolean.TRUE);
+        assertEquals(factory.parse("1"), VTBoolean.TRUE);
+        assertEquals(factory.parse("F"), VTIsoGender.FEMALE);
+        assertEquals(factory.parse("N/A"), VTIsoGender.NOT_APPLICABLE);
+        assertEquals(factory.parse("42"), new VTLongSerialId(42L));
+        assertEquals(factory.parse("sid:42"), new VTLongSerialId(42L));
+        assertEquals(factory.parse("-3/4"), new VTFraction(-3L, 4L));
+        assertEquals(factory.parse(" 3 / 4"), new VTFraction(3L, 4L));
+        assertNull(factory.tryParse("sid:"));
+        assertNull(factory.tryParse("hello"));
+        assertNull(factory.tryParse(""));
+        assertNull(factory.tryParse("- /4"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCountParseHitsPerFactory() {
+        final CompositeVTFactory factory = createFactory();
+        factory.parse("true");
+        factory.parse("no");
+        factory.parse("MALE");
+        factory.parse("sid:7");
+        factory.tryParse("unparsable");
+        assertTrue(Arrays.equals(factory.getParseStatistics(), new long[] { 2L, 1L, 1L, 0L }));
+        factory.resetParseStatistics();
+        assertTrue(Arrays.equals(factory.getParseStatistics(), new long[] { 0L, 0L, 0L, 0L }));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldCountParseHitsFromManyThreads() throws Exception {
+        final CompositeVTFactory factory = createFactory();
+        final Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                        public void run() {
+
+                            for (int i = 0; i < 1000; i++) {
+                                factory.parse("yes");
+                                factory.parse(Integer.toString(i + 10));
+                            }
+                        }
+                    });
+            threads[t].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(Arrays.equals(factory.getParseStatistics(), new long[] { 8000L, 0L, 8000L, 0L }));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldTryMostHitFactoryFirstWhenAdaptiveOrderingOn() {
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put("org.codekaizen.vtj.CompositeVTFactory.adaptiveOrdering", Boolean.TRUE);
+
+        final CompositeVTFactory factory = createFactory(context);
+        assertEquals(factory.parse("0"), VTBoolean.FALSE);
+
+        for (int i = 0; i < 5000; i++) {
+            factory.parse(Integer.toString(i + 10));
+        }
+
+        assertEquals(factory.parse("0"), new VTLongSerialId(0L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepPrecedenceOrderWhenAdaptiveOrderingOff() {
+        final CompositeVTFactory factory = createFactory();
+
+        for (int i = 0; i < 5000; i++) {
+            factory.parse(Integer.toString(i + 10));
+        }
+
+        assertEquals(factory.parse("0"), VTBoolean.FALSE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseAllInInputOrderRecordingFailures() {
+        final CompositeVTFactory factory = createFactory();
+        final String[] cells = { "true", "1/3", "bogus", "sid:42", null, "F", "M" };
+        final List<String> inputs = new ArrayList<String>();
+
+        int expectedFailures = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            final String cell = cells[i % cells.length];
+            inputs.add(cell);
+
+            if (cell == null || "bogus".equals(cell)) {
+                expectedFailures++;
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final BulkResult<?> result = factory.parseAll(inputs, executor);
+            assertEquals(result.size(), inputs.size());
+            assertEquals(result.getFailureCount(), expectedFailures);
+
+            final int[] failed = result.getFailedIndexes();
+
+            for (int i = 1; i < failed.length; i++) {
+                assertTrue(failed[i - 1] < failed[i]);
+            }
+
+            for (int i = 0; i < inputs.size(); i++) {
+                final String input = inputs.get(i);
+
+                if (input == null || "bogus".equals(input)) {
+                    assertFalse(result.isSuccessful(i));
+                    assertNull(result.get(i));
+                    assertEquals(result.getFailureMessage(i), "unparsable");
+                } else {
+                    assertTrue(result.isSuccessful(i));
+                    assertEquals(result.get(i), factory.parse(input));
+                    assertNull(result.getFailureMessage(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCountBulkParseHitsLikeSingleParses() {
+        final CompositeVTFactory single = createFactory();
+        final CompositeVTFactory bulk = createFactory();
+        final List<String> inputs = new ArrayList<String>();
+
+        for (int i = 0; i < 3000; i++) {
+            inputs.add((i % 3 == 0) ? "yes" : Integer.toString(i + 10));
+        }
+
+        for (final String input : inputs) {
+            single.parse(input);
+        }
+
+        assertTrue(bulk.parseAll(inputs).isAllSuccessful());
+        assertTrue(Arrays.equals(bulk.getParseStatistics(), single.getParseStatistics()));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCreateAllRecordingFailures() {
+        final CompositeVTFactory factory = createFactory();
+        final List<Object> inputs = Arrays.<Object>asList(1L, "sid:7", new Object(), 9);
+        final BulkResult<?> result = factory.createAll(VTLongSerialId.class, inputs, null);
+        assertEquals(result.get(0), new VTLongSerialId(1L));
+        assertEquals(result.get(1), new VTLongSerialId(7L));
+        assertTrue(Arrays.equals(result.getFailedIndexes(), new int[] { 2 }));
+        assertEquals(result.get(3), new VTLongSerialId(9L));
+        assertEquals(result.getValues().size(), 4);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectCreateAllForUnknownClass() {
+        createFactory().createAll(VTMACAddress.class, Arrays.asList("00:11:22:33:44:55"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldDispatchToFirstRegisteredFactoryForClass() {
+        final ContextHandlingStrategy strategy = new MapContextHandlingStrategy();
+        final CountingBooleanFactory first = new CountingBooleanFactory(strategy);
+        final CountingBooleanFactory second = new CountingBooleanFactory(strategy);
+        final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+        factories.add(first);
+        factories.add(second);
+
+        final CompositeVTFactory factory = new CompositeVTFactory(factories, strategy);
+        assertEquals(factory.create(VTBoolean.class, Boolean.TRUE), VTBoolean.TRUE);
+        assertEquals(first.created, 1);
+        assertEquals(second.created, 0);
+
+        // the nested composite declares no value type so only precedence order can pick it over the later factory
+        final List<ValueTypeFactory<?>> outer = new ArrayList<ValueTypeFactory<?>>();
+        outer.add(factory);
+        outer.add(second);
+        assertEquals(new CompositeVTFactory(outer, strategy).create(VTBoolean.class, Boolean.FALSE), VTBoolean.FALSE);
+        assertEquals(first.created, 2);
+        assertEquals(second.created, 0);
+    }
+
+    /**
+     * Counts the values it creates.
+     */
+    private static final class CountingBooleanFactory extends VTBooleanFactory {
+
+        private static final long serialVersionUID = 1L;
+
+        private int created;
+
+        CountingBooleanFactory(final ContextHandlingStrategy strategy) {
+            super(strategy);
+        }
+
+        @Override
+        protected VTBoolean create(final Object... args) {
+            created++;
+
+            return super.create(args);
+        }
+
+    }
+
+}
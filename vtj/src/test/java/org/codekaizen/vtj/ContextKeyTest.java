@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import org.codekaizen.vtj.ids.UUIDVersion;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link ContextKey}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class ContextKeyTest {
+
+    /**
+     * Creates a new ContextKeyTest object.
+     */
+    public ContextKeyTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldResolveMissingValuesToDefault() {
+        assertEquals(ContextKey.forBoolean("test.flag", true).resolve(null), Boolean.TRUE);
+        assertEquals(ContextKey.forLong("test.long", 7L).resolve(null), Long.valueOf(7L));
+        assertNull(ContextKey.forType("test.type", String.class, null).resolve(null));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldConvertStringsAndNumbers() {
+        final ContextKey<Boolean> flag = ContextKey.forBoolean("test.flag", false);
+        assertEquals(flag.resolve(Boolean.TRUE), Boolean.TRUE);
+        assertEquals(flag.resolve(" true "), Boolean.TRUE);
+        assertEquals(flag.resolve("no"), Boolean.FALSE);
+
+        final ContextKey<Long> number = ContextKey.forLong("test.long", null);
+        assertEquals(number.resolve(Integer.valueOf(42)), Long.valueOf(42L));
+        assertEquals(number.resolve("-42"), Long.valueOf(-42L));
+
+        final ContextKey<UUIDVersion> version = ContextKey.forEnum("test.enum", UUIDVersion.class, null);
+        assertEquals(version.resolve(UUIDVersion.RANDOM), UUIDVersion.RANDOM);
+        assertEquals(version.resolve(Integer.valueOf(3)), UUIDVersion.NAME_MD5);
+        assertEquals(version.resolve("NAME_SHA1"), UUIDVersion.NAME_SHA1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRejectUnconvertibleValues() {
+        final Object[][] cases = {
+                { ContextKey.forBoolean("test.flag", false), Integer.valueOf(1) },
+                { ContextKey.forLong("test.long", null), "abc" },
+                { ContextKey.forEnum("test.enum", UUIDVersion.class, null), "UNKNOWN" },
+                { ContextKey.forEnum("test.enum", UUIDVersion.class, null), Integer.valueOf(99) },
+                { ContextKey.forType("test.type", String.class, null), Integer.valueOf(1) },
+            };
+
+        for (final Object[] c : cases) {
+
+            try {
+                ((ContextKey<?>) c[0]).resolve(c[1]);
+                fail("should have rejected " + c[1]);
+            } catch (final IllegalArgumentException iae) {
+                // expected
+            }
+        }
+    }
+
+}
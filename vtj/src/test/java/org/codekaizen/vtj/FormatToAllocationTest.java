@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTMACAddressFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Verifies <code>formatTo</code> writes the same characters as <code>format</code> directly into the supplied
+ * appender without allocating any temporary objects.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class FormatToAllocationTest {
+
+    private static final int ITERATIONS = 100000;
+
+    private Logger logger = LoggerFactory.getLogger(FormatToAllocationTest.class);
+    private final StringBuilder buffer = new StringBuilder(64);
+
+    /**
+     * Creates a new FormatToAllocationTest object.
+     */
+    public FormatToAllocationTest() {
+        super();
+    }
+
+    private static <F extends ValueTypeFactory<?>> F configure(final F factory) {
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put("org.codekaizen.vtj.ids.VTUUIDFactory.macAddress", "00:11:22:33:44:55");
+        factory.setContext(context);
+
+        return factory;
+    }
+
+    private <T extends ValueType<T>> void assertFormatsWithoutAllocating(final ValueTypeFactory<T> factory,
+        final T vt) throws IOException {
+        buffer.setLength(0);
+        assertEquals(factory.formatTo(vt, buffer).toString(), factory.format(vt));
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            buffer.setLength(0);
+            factory.formatTo(vt, buffer);
+        }
+
+        final long before = AllocationMeter.allocatedBytes();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            buffer.setLength(0);
+            factory.formatTo(vt, buffer);
+        }
+
+        final long bytes = (AllocationMeter.allocatedBytes() - before) / ITERATIONS;
+        logger.info("{} formatTo allocated {} bytes per call.", factory.getClass().getSimpleName(), bytes);
+        assertEquals(bytes, 0L);
+    }
+
+    private void assertAppendsWithoutAllocating(final VT<?> vt) throws IOException {
+        buffer.setLength(0);
+        assertEquals(vt.appendTo(buffer).toString(), vt.toString());
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            buffer.setLength(0);
+            vt.appendTo(buffer);
+        }
+
+        final long before = AllocationMeter.allocatedBytes();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            buffer.setLength(0);
+            vt.appendTo(buffer);
+        }
+
+        final long bytes = (AllocationMeter.allocatedBytes() - before) / ITERATIONS;
+        logger.info("{} appendTo allocated {} bytes per call.", vt.getClass().getSimpleName(), bytes);
+        assertEquals(bytes, 0L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldFormatUUIDWithoutAllocating() throws IOException {
+        final VTUUIDFactory factory = configure(new VTUUIDFactory(new MapContextHandlingStrategy()));
+        assertFormatsWithoutAllocating(factory, factory.parse("f81d4fae-7dec-11d0-a765-00a0c91e6bf6"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldFormatSerialIdWithoutAllocating() throws IOException {
+        assertFormatsWithoutAllocating(configure(new VTLongSerialIdFactory(new MapContextHandlingStrategy())),
+            new VTLongSerialId(1234567890123L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldFormatMACAddressWithoutAllocating() throws IOException {
+        assertFormatsWithoutAllocating(configure(new VTMACAddressFactory(new MapContextHandlingStrategy())),
+            new VTMACAddress(0x001122334455L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldFormatBooleanWithoutAllocating() throws IOException {
+        assertFormatsWithoutAllocating(configure(new VTBooleanFactory(new MapContextHandlingStrategy())),
+            VTBoolean.UNKNOWN);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldAppendDecimalAndIntegerWithoutAllocating() throws IOException {
+        assertAppendsWithoutAllocating(new VTDecimal(-1234567L, 4));
+        assertAppendsWithoutAllocating(new VTDecimal(5L, 3));
+        assertAppendsWithoutAllocating(new VTInteger(Integer.MIN_VALUE));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldAppendNothingForNull() throws IOException {
+        final VTLongSerialIdFactory factory = configure(new VTLongSerialIdFactory(new MapContextHandlingStrategy()));
+        final StringBuilder sb = new StringBuilder();
+        factory.formatTo(null, sb);
+        assertEquals(sb.length(), 0);
+    }
+
+}
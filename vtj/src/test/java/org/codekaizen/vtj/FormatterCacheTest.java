@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.math.MathContext;
+import java.text.DateFormat;
+import java.text.Format;
+import java.util.Locale;
+import org.codekaizen.vtj.text.BpDateFormat;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link FormatterCache}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class FormatterCacheTest {
+
+    /**
+     * Creates a new FormatterCacheTest object.
+     */
+    public FormatterCacheTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnSameFormatterForSameKeyOnSameThread() {
+        final VTContext first = new VTContext(ApplicationEnvironment.SCIENTIFIC, Locale.US, MathContext.DECIMAL64);
+        final VTContext second = new VTContext(ApplicationEnvironment.SCIENTIFIC, Locale.US, MathContext.DECIMAL32);
+        assertSame(second.getDateFormat(), first.getDateFormat());
+        assertSame(second.getCurrencyFormat(), first.getCurrencyFormat());
+        assertNotSame(first.getTimestampFormat(), first.getDateFormat());
+        assertNotSame(first.getFloatingPointFormat(), first.getCurrencyFormat());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeyOnEnvironmentAndLocale() {
+        final DateFormat iso = FormatterCache.getDateFormat(ApplicationEnvironment.INTERNATIONAL_BUSINESS, Locale.US,
+                FormatterCache.Style.DATE);
+        final DateFormat local = FormatterCache.getDateFormat(ApplicationEnvironment.LOCAL_CUSTOM, Locale.US,
+                FormatterCache.Style.DATE);
+        final DateFormat german = FormatterCache.getDateFormat(ApplicationEnvironment.INTERNATIONAL_BUSINESS,
+                Locale.GERMANY, FormatterCache.Style.DATE);
+        assertNotSame(local, iso);
+        assertNotSame(german, iso);
+        assertEquals(((BpDateFormat) iso).getStyle(), BpDateFormat.ISO_DATE_ONLY);
+        assertEquals(((BpDateFormat) local).getStyle(), BpDateFormat.JVM_DATE_ONLY);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldConfineFormattersToThread() throws Exception {
+        final VTContext vtc = new VTContext(ApplicationEnvironment.SCIENTIFIC, Locale.US, MathContext.DECIMAL64);
+        final Format mine = vtc.getTimestampFormat();
+        final Format[] theirs = new Format[1];
+        final Thread other = new Thread(new Runnable() {
+                    public void run() {
+                        theirs[0] = vtc.getTimestampFormat();
+                    }
+                });
+        other.start();
+        other.join();
+        assertNotNull(theirs[0]);
+        assertNotSame(theirs[0], mine);
+        assertSame(vtc.getTimestampFormat(), mine);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCountHitsAndMisses() {
+        FormatterCache.clear();
+
+        final long hits = FormatterCache.getHitCount();
+        final long misses = FormatterCache.getMissCount();
+        final VTContext vtc = new VTContext(ApplicationEnvironment.LOCAL_CUSTOM, Locale.CANADA, MathContext.DECIMAL64);
+
+        for (int i = 0; i < 10; i++) {
+            vtc.getFloatingPointFormat();
+        }
+
+        assertTrue(FormatterCache.getMissCount() - misses >= 1L);
+        assertTrue(FormatterCache.getHitCount() - hits >= 9L);
+        assertTrue(FormatterCache.getHitRate() > 0.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldAddUpCountsOfOtherThreads() throws Exception {
+        final long hits = FormatterCache.getHitCount();
+        final long misses = FormatterCache.getMissCount();
+        final Thread thread = new Thread(new Runnable() {
+                    public void run() {
+
+                        for (int i = 0; i < 5; i++) {
+                            FormatterCache.getNumberFormat(ApplicationEnvironment.SCIENTIFIC, Locale.ITALY,
+                                FormatterCache.Style.CURRENCY);
+                        }
+                    }
+                });
+        thread.start();
+        thread.join();
+
+        assertTrue(FormatterCache.getMissCount() - misses >= 1L);
+        assertTrue(FormatterCache.getHitCount() - hits >= 4L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNumberStyleForDateFormat() {
+        FormatterCache.getDateFormat(ApplicationEnvironment.SCIENTIFIC, Locale.US, FormatterCache.Style.CURRENCY);
+    }
+
+}
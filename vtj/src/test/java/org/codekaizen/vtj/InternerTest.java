@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.codekaizen.vtj.names.VTJavaName;
+import org.codekaizen.vtj.text.VTString;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link Interner}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class InternerTest {
+
+    /**
+     * Creates a new InternerTest object.
+     */
+    public InternerTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnFirstInstanceForEqualValues() {
+
+        for (final Interner.References references : Interner.References.values()) {
+            final Interner<VTString> interner = new Interner<VTString>(64, references, 4);
+            final VTString first = new VTString("ACTIVE");
+            assertSame(interner.intern(first), first);
+            assertSame(interner.intern(new VTString("ACTIVE")), first);
+            assertSame(interner.intern(new VTString("ACTIVE")), first);
+            assertNotSame(interner.intern(new VTString("CLOSED")), first);
+            assertNull(interner.intern(null));
+            assertEquals(interner.getHitCount(), 2L);
+            assertEquals(interner.getMissCount(), 2L);
+            assertEquals(interner.getHitRate(), 0.5, 0.0);
+            assertEquals(interner.size(), 2);
+            assertSame(interner.getReferences(), references);
+
+            interner.resetStatistics();
+            assertEquals(interner.getHitRate(), 0.0, 0.0);
+            interner.clear();
+            assertEquals(interner.size(), 0);
+            assertNotSame(interner.intern(new VTString("ACTIVE")), first);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedValues() {
+        final Interner<VTJavaName> interner = new Interner<VTJavaName>(4, Interner.References.STRONG, 1);
+        final VTJavaName keep = interner.intern(new VTJavaName("java.lang.String"));
+
+        for (int i = 0; i < 10; i++) {
+            interner.intern(new VTJavaName("org.codekaizen.Class" + i));
+            assertSame(interner.intern(new VTJavaName("java.lang.String")), keep);
+        }
+
+        assertEquals(interner.size(), 4);
+        assertEquals(interner.getEvictionCount(), 7L);
+        assertEquals(interner.getConcurrencyLevel(), 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldBoundTotalSizeAcrossStripes() {
+        final Interner<VTString> interner = new Interner<VTString>(100);
+
+        for (int i = 0; i < 10000; i++) {
+            interner.intern(new VTString("value" + i));
+        }
+
+        assertTrue(interner.size() <= interner.getMaximumSize() + interner.getConcurrencyLevel(),
+            String.valueOf(interner.size()));
+        assertTrue(interner.getConcurrencyLevel() > 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReleaseWeakValuesNoLongerUsed() {
+        final Interner<VTString> interner = new Interner<VTString>(1000, Interner.References.WEAK, 1);
+
+        for (int i = 0; i < 100; i++) {
+            interner.intern(new VTString("temp" + i));
+        }
+
+        for (int i = 0; i < 10 && interner.size() > 1; i++) {
+            System.gc();
+            interner.intern(new VTString("trigger"));
+        }
+
+        assertTrue(interner.size() < 100, String.valueOf(interner.size()));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldHandOutOneInstancePerValueAcrossThreads() throws Exception {
+        final Interner<VTString> interner = new Interner<VTString>(1000, Interner.References.SOFT, 16);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<VTString[]>> results = new ArrayList<Future<VTString[]>>();
+
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<VTString[]>() {
+                            public VTString[] call() {
+                                final VTString[] canonical = new VTString[50];
+
+                                for (int i = 0; i < 5000; i++) {
+                                    canonical[i % 50] = interner.intern(new VTString("code" + (i % 50)));
+                                }
+
+                                return canonical;
+                            }
+                        }));
+            }
+
+            final VTString[] expected = results.get(0).get();
+
+            for (final Future<VTString[]> result : results) {
+                final VTString[] canonical = result.get();
+
+                for (int i = 0; i < expected.length; i++) {
+                    assertSame(canonical[i], expected[i]);
+                }
+            }
+
+            assertEquals(interner.getMissCount(), 50L);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
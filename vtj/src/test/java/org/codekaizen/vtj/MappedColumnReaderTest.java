@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.math.VTDecimalVector;
+import org.codekaizen.vtj.math.VTIntegerVector;
+import org.codekaizen.vtj.time.VTInstantVector;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link MappedColumnReader}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class MappedColumnReaderTest {
+
+    /**
+     * Creates a new MappedColumnReaderTest object.
+     */
+    public MappedColumnReaderTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReadColumnsAcrossManyChunksInFileOrder() throws IOException {
+        final StringBuilder sb = new StringBuilder("id|amount|count|when|flag\n");
+
+        for (int i = 0; i < 1000; i++) {
+            sb.append("sid:").append(i).append('|').append(i).append('.').append(i % 10).append('|').append(-i)
+                .append("|2009-02-13T23:31:").append(i % 60 < 10 ? "0" : "").append(i % 60).append("Z|")
+                .append(i % 2 == 0 ? "yes" : "no").append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+
+        final File file = writeFile(sb.toString());
+        final MappedColumn<List<VTLongSerialId>, List<VTLongSerialId>> ids = MappedColumn.values(
+                new VTLongSerialIdFactory(new MapContextHandlingStrategy()));
+        final MappedColumn<VTDecimalVector.Builder, VTDecimalVector> amounts = MappedColumn.decimals(2);
+        final MappedColumn<VTIntegerVector.Builder, VTIntegerVector> counts = MappedColumn.integers();
+        final MappedColumn<VTInstantVector.Builder, VTInstantVector> times = MappedColumn.instants();
+        final MappedColumn<List<VTBoolean>, List<VTBoolean>> flags = MappedColumn.values(new VTBooleanFactory(
+                    new MapContextHandlingStrategy()));
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try {
+            final MappedColumnReader.Result result = new MappedColumnReader('|', true, 256, ids, amounts, counts,
+                    times, flags).read(file, pool);
+            assertEquals(result.getRowCount(), 1000);
+            assertEquals(result.get(ids).size(), 1000);
+            assertEquals(result.get(amounts).size(), 1000);
+            assertEquals(result.get(times).size(), 1000);
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(result.get(ids).get(i), new VTLongSerialId(i));
+                assertEquals(result.get(amounts).unscaledValue(i), i * 100L + (i % 10) * 10L);
+                assertEquals(result.get(counts).intValue(i), -i);
+                assertEquals(result.get(times).getEpochSeconds(i), 1234567860L + i % 60);
+                assertEquals(result.get(flags).get(i), i % 2 == 0 ? VTBoolean.TRUE : VTBoolean.FALSE);
+            }
+        } finally {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldSkipNullColumnsAndEmptyLines() throws IOException {
+        final File file = writeFile("a,1,x\n\nb,2,y,extra\nc,3,z");
+        final MappedColumn<VTIntegerVector.Builder, VTIntegerVector> counts = MappedColumn.integers();
+
+        try {
+            final MappedColumnReader.Result result = new MappedColumnReader(',', false, null, counts).read(file,
+                    null);
+            assertEquals(result.getRowCount(), 3);
+            assertNull(result.get(0));
+            assertTrue(Arrays.equals(result.get(counts).toIntArray(), new int[] { 1, 2, 3, }));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReadEmptyFile() throws IOException {
+        final File file = writeFile("");
+        final MappedColumn<VTIntegerVector.Builder, VTIntegerVector> counts = MappedColumn.integers();
+
+        try {
+            final MappedColumnReader.Result result = new MappedColumnReader(',', true, counts).read(file);
+            assertEquals(result.getRowCount(), 0);
+            assertTrue(result.get(counts).isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReportOffsetOfUnparsableLine() throws IOException {
+        final File file = writeFile("1,2\n3,x\n");
+
+        try {
+            new MappedColumnReader(',', false, MappedColumn.integers(), MappedColumn.integers()).read(file);
+            fail("should not parse");
+        } catch (final IllegalArgumentException iae) {
+            assertTrue(iae.getMessage().startsWith("line starting at byte 4"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectMissingFields() throws IOException {
+        final File file = writeFile("1\n");
+
+        try {
+            new MappedColumnReader(',', false, MappedColumn.integers(), MappedColumn.integers()).read(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File writeFile(final String contents) throws IOException {
+        final File file = File.createTempFile("vtj", ".txt");
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(contents.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+
+        return file;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.math.VTDecimalVector;
+import org.codekaizen.vtj.math.VTIntegerVector;
+import org.codekaizen.vtj.time.VTInstantVector;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link MappedColumn}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class MappedColumnTest {
+
+    /**
+     * Creates a new MappedColumnTest object.
+     */
+    public MappedColumnTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseIntegerFieldsWithinRange() {
+        final MappedColumn<VTIntegerVector.Builder, VTIntegerVector> column = MappedColumn.integers();
+        final VTIntegerVector.Builder acc = column.newAccumulator();
+        column.parse(acc, "x42x", 1, 3);
+        column.parse(acc, "-2147483648", 0, 11);
+        column.parse(acc, "+2147483647", 0, 11);
+        assertTrue(Arrays.equals(column.merge(Arrays.asList(acc)).toIntArray(),
+                new int[] { 42, Integer.MIN_VALUE, Integer.MAX_VALUE, }));
+        assertUnparsable(column, acc, "2147483648");
+        assertUnparsable(column, acc, "4x");
+        assertUnparsable(column, acc, "-");
+        assertUnparsable(column, acc, "");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseDecimalFieldsAtColumnScale() {
+        final MappedColumn<VTDecimalVector.Builder, VTDecimalVector> column = MappedColumn.decimals(2);
+        final VTDecimalVector.Builder acc = column.newAccumulator();
+        column.parse(acc, "12.34", 0, 5);
+        column.parse(acc, "-0.5", 0, 4);
+        column.parse(acc, "7", 0, 1);
+        column.parse(acc, ".25", 0, 3);
+        column.parse(acc, "3.", 0, 2);
+
+        final VTDecimalVector vector = column.merge(Arrays.asList(acc));
+        assertEquals(vector.getScale(), 2);
+        assertTrue(Arrays.equals(vector.toUnscaledArray(), new long[] { 1234L, -50L, 700L, 25L, 300L, }));
+        assertUnparsable(column, acc, "1.234");
+        assertUnparsable(column, acc, "1.2.3");
+        assertUnparsable(column, acc, ".");
+        assertUnparsable(column, acc, "92233720368547758.08");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseIsoTimestamps() {
+        final MappedColumn<VTInstantVector.Builder, VTInstantVector> column = MappedColumn.instants();
+        final VTInstantVector.Builder acc = column.newAccumulator();
+        column.parse(acc, "2009-02-13T23:31:30Z", 0, 20);
+        column.parse(acc, "2009-02-14T00:31:30+01:00", 0, 25);
+        column.parse(acc, "2000-03-01", 0, 10);
+        column.parse(acc, "1969-12-31 23:59:59.5", 0, 21);
+        column.parse(acc, "2009-02-13T23:31:30.000000001", 0, 29);
+
+        final VTInstantVector vector = column.merge(Arrays.asList(acc));
+        assertTrue(Arrays.equals(vector.toEpochSecondsArray(),
+                new long[] { 1234567890L, 1234567890L, 951868800L, -1L, 1234567890L, }));
+        assertTrue(Arrays.equals(vector.toNanoOfSecondArray(), new int[] { 0, 0, 0, 500000000, 1, }));
+        assertUnparsable(column, acc, "2009-02-29");
+        assertUnparsable(column, acc, "2009-13-01");
+        assertUnparsable(column, acc, "2009-02-13T24:00:00");
+        assertUnparsable(column, acc, "2009-02-13T23:31:30.");
+        assertUnparsable(column, acc, "2009-02-13T23:31:30Zulu");
+        assertUnparsable(column, acc, "2009/02/13");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldMergeValueChunksInOrder() {
+        final MappedColumn<List<VTLongSerialId>, List<VTLongSerialId>> column = MappedColumn.values(
+                new VTLongSerialIdFactory(new MapContextHandlingStrategy()));
+        final List<VTLongSerialId> first = column.newAccumulator();
+        final List<VTLongSerialId> second = column.newAccumulator();
+        column.parse(first, "1,2", 0, 1);
+        column.parse(first, "1,,2", 2, 2);
+        column.parse(second, "1,2", 2, 3);
+        assertEquals(column.merge(Arrays.asList(first, second)),
+            Arrays.asList(new VTLongSerialId(1L), null, new VTLongSerialId(2L)));
+        assertUnparsable(column, first, "abc");
+    }
+
+    private static <A> void assertUnparsable(final MappedColumn<A, ?> column, final A acc, final String s) {
+
+        try {
+            column.parse(acc, s, 0, s.length());
+            fail(s + " should not be parsable");
+        } catch (final IllegalArgumentException iae) {
+            assertNotNull(iae.getMessage());
+        }
+    }
+
+}
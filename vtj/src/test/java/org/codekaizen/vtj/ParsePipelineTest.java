@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link ParsePipeline}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class ParsePipelineTest {
+
+    /**
+     * Creates a new ParsePipelineTest object.
+     */
+    public ParsePipelineTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseInInputOrderAcrossBatches() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try {
+            final ParsePipeline<VTLongSerialId> pipeline = new ParsePipeline<VTLongSerialId>(
+                    new VTLongSerialIdFactory(new MapContextHandlingStrategy()), 7, 3, pool, null);
+            final List<String> inputs = new ArrayList<String>();
+
+            for (int i = 0; i < 1000; i++) {
+                inputs.add(Integer.toString(i));
+            }
+
+            final List<VTLongSerialId> values = pipeline.parse(inputs, new ArrayList<VTLongSerialId>());
+            assertEquals(values.size(), 1000);
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(values.get(i).longValue(), (long) i);
+            }
+
+            assertEquals(pipeline.getParsedCount(), 1000L);
+            assertNull(pipeline.take());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldReportFailuresWithoutStoppingStream() throws Exception {
+        final List<String> failures = new ArrayList<String>();
+        final ParsePipeline<VTLongSerialId> pipeline = new ParsePipeline<VTLongSerialId>(
+                new VTLongSerialIdFactory(new MapContextHandlingStrategy()), 2, 2, null,
+                new ParsePipeline.FailureHandler() {
+                    public void onFailure(final CharSequence input, final String message) {
+                        assertNotNull(message);
+                        failures.add(String.valueOf(input));
+                    }
+                });
+        final List<VTLongSerialId> values = pipeline.parse(Arrays.asList("1", "x", "3", null, "5"),
+                new ArrayList<VTLongSerialId>());
+        assertEquals(values, Arrays.asList(new VTLongSerialId(1L), new VTLongSerialId(3L), new VTLongSerialId(5L)));
+        assertEquals(failures, Arrays.asList("x", "null"));
+        assertEquals(pipeline.getFailureCount(), 2L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldBlockProducerUntilConsumerTakesBatch() throws Exception {
+        final ParsePipeline<VTLongSerialId> pipeline = new ParsePipeline<VTLongSerialId>(
+                new VTLongSerialIdFactory(new MapContextHandlingStrategy()), 1, 2, null, null);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread producer = new Thread() {
+                @Override
+                public void run() {
+
+                    try {
+
+                        for (int i = 0; i < 3; i++) {
+                            pipeline.put(Integer.toString(i));
+                        }
+
+                        pipeline.close();
+                        done.countDown();
+                    } catch (final InterruptedException ie) {
+                        // test fails on timeout
+                    }
+                }
+            };
+        producer.start();
+        assertFalse(done.await(200L, TimeUnit.MILLISECONDS));
+        assertEquals(pipeline.take(), Arrays.asList(new VTLongSerialId(0L)));
+        assertEquals(pipeline.take(), Arrays.asList(new VTLongSerialId(1L)));
+        assertEquals(pipeline.take(), Arrays.asList(new VTLongSerialId(2L)));
+        assertTrue(done.await(5L, TimeUnit.SECONDS));
+        assertNull(pipeline.take());
+        assertNull(pipeline.poll());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldParseThroughCompositeFactory() throws Exception {
+        final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+        factories.add(new VTBooleanFactory(new MapContextHandlingStrategy()));
+        factories.add(new VTLongSerialIdFactory(new MapContextHandlingStrategy()));
+
+        final ParsePipeline<ValueType<?>> pipeline = new ParsePipeline<ValueType<?>>(new CompositeVTFactory(factories,
+                    new MapContextHandlingStrategy()), 16);
+        pipeline.put("yes");
+        pipeline.put("42");
+        pipeline.flush();
+
+        final List<ValueType<?>> values = pipeline.take();
+        assertEquals(values.get(0), VTBoolean.TRUE);
+        assertEquals(values.get(1), new VTLongSerialId(42L));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldRejectInputAfterClose() throws Exception {
+        final ParsePipeline<VTLongSerialId> pipeline = new ParsePipeline<VTLongSerialId>(
+                new VTLongSerialIdFactory(new MapContextHandlingStrategy()), 4);
+        pipeline.close();
+        pipeline.put("1");
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTMACAddressFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Verifies the range parsing fast paths allocate nothing beyond the value type object returned. Uses the HotSpot
+ * per-thread allocation counter.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class RangeParseAllocationTest {
+
+    private static final int ITERATIONS = 100000;
+    private static final String UUID = "f81d4fae-7dec-11d0-a765-00a0c91e6bf6";
+    private static final String LINE = "sid:42|yes|00:11:22:33:44:55|urn:uuid:" + UUID + "|";
+
+    private Logger logger = LoggerFactory.getLogger(RangeParseAllocationTest.class);
+    private Object sink;
+
+    /**
+     * Creates a new RangeParseAllocationTest object.
+     */
+    public RangeParseAllocationTest() {
+        super();
+    }
+
+    private static <F extends ValueTypeFactory<?>> F configure(final F factory) {
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put("org.codekaizen.vtj.ids.VTUUIDFactory.macAddress", "00:11:22:33:44:55");
+        factory.setContext(context);
+
+        return factory;
+    }
+
+    private static int fieldEnd(final int start) {
+        return LINE.indexOf('|', start);
+    }
+
+    private long bytesPerParse(final ValueTypeFactory<?> factory, final char[] chars, final int start, final int end) {
+
+        // warm up so the measurement is not skewed by class loading or compilation
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = factory.tryParse(chars, start, end);
+        }
+
+        final long before = AllocationMeter.allocatedBytes();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = factory.tryParse(chars, start, end);
+        }
+
+        return (AllocationMeter.allocatedBytes() - before) / ITERATIONS;
+    }
+
+    private long bytesPerConstruction(final ValueType<?> prototype) {
+        constructAll(prototype);
+
+        final long before = AllocationMeter.allocatedBytes();
+        constructAll(prototype);
+
+        return (AllocationMeter.allocatedBytes() - before) / ITERATIONS;
+    }
+
+    private void constructAll(final ValueType<?> prototype) {
+
+        for (int i = 0; i < ITERATIONS; i++) {
+
+            if (prototype instanceof VTLongSerialId) {
+                sink = new VTLongSerialId(i);
+            } else if (prototype instanceof VTMACAddress) {
+                sink = new VTMACAddress(i);
+            } else if (prototype instanceof VTUUID) {
+                sink = new VTUUID(0x7decL << 16 | 0x11d0L, 0xa76500a0c91e6bf6L);
+            } else {
+                sink = prototype;
+            }
+        }
+    }
+
+    private void assertOnlyResultAllocated(final ValueTypeFactory<?> factory, final int start) {
+        final char[] chars = LINE.toCharArray();
+        final int end = fieldEnd(start);
+        final ValueType<?> expected = factory.parse(LINE.substring(start, end));
+        assertEquals(factory.parse(chars, start, end), expected);
+
+        final long resultBytes = bytesPerConstruction(expected);
+        final long parseBytes = bytesPerParse(factory, chars, start, end);
+        logger.info("{} range parse allocated {} bytes per call.", factory.getClass().getSimpleName(), parseBytes);
+        logger.info("Constructing the result directly allocated {} bytes.", resultBytes);
+        assertTrue(parseBytes <= resultBytes, parseBytes + " > " + resultBytes);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldAllocateOnlyResultWhenParsingSerialIdRange() {
+        assertOnlyResultAllocated(configure(new VTLongSerialIdFactory(new MapContextHandlingStrategy())), 0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldAllocateNothingWhenParsingBooleanRange() {
+        assertOnlyResultAllocated(configure(new VTBooleanFactory(new MapContextHandlingStrategy())),
+            LINE.indexOf("yes"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldAllocateOnlyResultWhenParsingMACAddressRange() {
+        assertOnlyResultAllocated(configure(new VTMACAddressFactory(new MapContextHandlingStrategy())),
+            LINE.indexOf("00:"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldAllocateOnlyResultWhenParsingUUIDRange() {
+        assertOnlyResultAllocated(configure(new VTUUIDFactory(new MapContextHandlingStrategy())),
+            LINE.indexOf("urn:"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseSameValueFromStringArrayAndBufferRanges() {
+        final VTUUIDFactory factory = configure(new VTUUIDFactory(new MapContextHandlingStrategy()));
+        final int start = LINE.indexOf("urn:");
+        final int end = fieldEnd(start);
+        final VTUUID expected = factory.parse(UUID);
+        assertEquals(factory.parse(LINE, start, end), expected);
+        assertEquals(factory.parse(LINE.toCharArray(), start, end), expected);
+
+        final CharBuffer buffer = CharBuffer.wrap(LINE);
+        buffer.position(start);
+        assertEquals(factory.parse(buffer, 0, end - start), expected);
+        assertEquals(factory.tryParse(LINE, start, end - 1), null);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void shouldRejectRangeOutsideSequence() {
+        new VTBooleanFactory(new MapContextHandlingStrategy()).tryParse("yes", 1, 4);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldParseBooleanOnlyFromRangeSupplied() {
+        final VTBooleanFactory factory = configure(new VTBooleanFactory(new MapContextHandlingStrategy()));
+        assertEquals(factory.parse("|yes|", 1, 4), VTBoolean.TRUE);
+        assertEquals(factory.tryParse("|yes|", 1, 3), null);
+        assertEquals(factory.parse("no".toCharArray(), 0, 1), VTBoolean.FALSE);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTIsoGender;
+import org.codekaizen.vtj.geom.VTCoordinate;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.intervals.VTDiscreteValueInterval;
+import org.codekaizen.vtj.intervals.VTEmptyInterval;
+import org.codekaizen.vtj.intervals.VTInterval;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTDouble;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.measure.VTMeasure;
+import org.codekaizen.vtj.measure.units.SI;
+import org.codekaizen.vtj.names.VTJavaName;
+import org.codekaizen.vtj.names.VTLdapName;
+import org.codekaizen.vtj.names.VTPersonName;
+import org.codekaizen.vtj.names.VTPhoneNumber;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.net.VTURI;
+import org.codekaizen.vtj.net.VTURL;
+import org.codekaizen.vtj.net.VTURN;
+import org.codekaizen.vtj.text.VTString;
+import org.codekaizen.vtj.time.VTDuration;
+import org.codekaizen.vtj.time.VTInstant;
+
+
+/**
+ * <p>Value type objects used to check serialization. The legacy stream resources next to this class were written from
+ * exactly these lists before the compact serial form was introduced, so they must not be changed.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public final class SerializationSamples {
+
+    /** Default serialization of {@link #createSamples()}. */
+    public static final String LEGACY_SAMPLES = "legacy-samples.ser";
+
+    /** Array holding a separate default serialization stream of each object in {@link #createSamples()}. */
+    public static final String LEGACY_SINGLES = "legacy-singles.ser";
+
+    /** Default serialization of {@link #createBulk()}. */
+    public static final String LEGACY_BULK = "legacy-bulk.ser";
+
+    private SerializationSamples() {
+        super();  // static methods only
+    }
+
+    /**
+     * Returns one instance of every value type.
+     *
+     * @return  the samples
+     */
+    public static List<Object> createSamples() {
+        final List<Object> samples = new ArrayList<Object>();
+        samples.add(VTBoolean.TRUE);
+        samples.add(VTIsoGender.FEMALE);
+        samples.add(new VTLongSerialId(1234567L));
+        samples.add(new VTUUID(0x6ba7b8109dad11d1L, 0x80b400c04fd430c8L));
+        samples.add(new VTMACAddress(0x00065beb6e9eL));
+        samples.add(new VTInteger(-123456));
+        samples.add(new VTDouble(1234.5678));
+        samples.add(new VTDecimal(-12345678L, 4));
+        samples.add(new VTFraction(-22L, 7L));
+        samples.add(new VTMeasure(new VTDecimal(4200L, 2), SI.METRE));
+        samples.add(new VTDuration(new VTInteger(90), SI.SECOND));
+        samples.add(new VTInstant(1262304000L, 123456789));
+        samples.add(new VTInstant(-86400000L));
+        samples.add(new VTString("value type \u00e9\u20ac"));
+        samples.add(new VTPersonName("John Q. Public", Locale.UK));
+        samples.add(new VTJavaName("org.codekaizen.vtj.SerializationSamples"));
+        samples.add(new VTLdapName("cn=user,ou=people,dc=codekaizen,dc=org"));
+        samples.add(new VTPhoneNumber("+1 214 555 1234"));
+        samples.add(new VTURI("http://www.codekaizen.org/valuetypej/vtj/"));
+        samples.add(new VTURL("https://dev.codekaizen.org:7777/"));
+        samples.add(new VTURN("urn:isbn:0451450523"));
+        samples.add(new VTCoordinate(new VTDecimal(-9679700L, 5), new VTDecimal(3278030L, 5)));
+        samples.add(new VTCoordinate(new VTDouble(-96.797), new VTDouble(32.7803), new VTInteger(139)));
+        samples.add(new VTInterval<VTInteger>(new VTInteger(1), new VTInteger(100), true, false));
+        samples.add(new VTInterval<VTInstant>(null, new VTInstant(0L), false, true));
+        samples.add(new VTDiscreteValueInterval<VTInteger>(new VTInteger(1), new VTInteger(10)));
+        samples.add(new VTEmptyInterval<VTInteger>());
+
+        return samples;
+    }
+
+    /**
+     * Returns many values of the types most often cached or replicated.
+     *
+     * @return  the values
+     */
+    public static List<Object> createBulk() {
+        final List<Object> values = new ArrayList<Object>();
+
+        for (int i = 0; i < 250; i++) {
+            values.add(new VTUUID(0x6ba7b8109dad11d1L + i * 0x100000000L, 0x80b400c04fd430c8L - i));
+            values.add(new VTLongSerialId(1000000L + i));
+            values.add(new VTDecimal(12345678L + i * 10000L, 4));
+            values.add(new VTInstant(1262304000000L + i * 1000L));
+            values.add(new VTMeasure(new VTDecimal(4200L + i, 2), SI.METRE));
+            values.add(new VTJavaName("org.codekaizen.vtj.Sample" + i));
+        }
+
+        return values;
+    }
+
+}
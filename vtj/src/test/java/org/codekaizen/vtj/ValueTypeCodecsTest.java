@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj;
+
+import static org.testng.Assert.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTIsoGender;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.math.VTDecimal;
+import org.codekaizen.vtj.math.VTDouble;
+import org.codekaizen.vtj.math.VTFraction;
+import org.codekaizen.vtj.math.VTInteger;
+import org.codekaizen.vtj.net.VTMACAddress;
+import org.codekaizen.vtj.text.VTString;
+import org.codekaizen.vtj.time.VTInstant;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link ValueTypeCodecs} and the codecs it registers.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class ValueTypeCodecsTest {
+
+    private static final VTUUID UUID = new VTUUID(0x6ba7b8109dad11d1L, 0x80b400c04fd430c8L);
+    private static final VTMACAddress MAC = new VTMACAddress(0x00065beb6e9eL);
+
+    /**
+     * Creates a new ValueTypeCodecsTest object.
+     */
+    public ValueTypeCodecsTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldLookUpCodecsByClassAndTypeId() {
+        final Class<?>[] classes = {
+                VTUUID.class, VTLongSerialId.class, VTInstant.class, VTDecimal.class, VTInteger.class, VTDouble.class,
+                VTFraction.class, VTMACAddress.class, VTBoolean.class,
+            };
+
+        for (final Class<?> clazz : classes) {
+            final ValueTypeCodec<?> codec = lookUp(clazz);
+            assertNotNull(codec, clazz.getName());
+            assertSame(codec.getValueTypeClass(), clazz);
+            assertSame(ValueTypeCodecs.getCodec(codec.getTypeId()), codec);
+            assertTrue(codec.getTypeId() <= ValueTypeCodecs.MAX_RESERVED_TYPE_ID);
+            assertTrue(ValueTypeCodecs.getCodecs().contains(codec));
+        }
+
+        assertNull(ValueTypeCodecs.getCodec(VTString.class));
+        assertNull(ValueTypeCodecs.getCodec(0));
+        assertNull(ValueTypeCodecs.getCodec(-1));
+        assertNull(ValueTypeCodecs.getCodec(ValueTypeCodecs.MAX_TYPE_ID + 1));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundTripThroughHeapAndDirectBuffers() {
+        final ByteOrder[] orders = { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN };
+
+        for (final ByteOrder order : orders) {
+            final ByteBuffer[] buffers = { ByteBuffer.allocate(64).order(order), ByteBuffer.allocateDirect(64).order(order) };
+
+            for (final ByteBuffer buffer : buffers) {
+                assertRoundTrip(buffer, UUID);
+                assertRoundTrip(buffer, new VTUUID(0L, 0L));
+                assertRoundTrip(buffer, new VTLongSerialId(Long.MAX_VALUE));
+                assertRoundTrip(buffer, new VTInstant(1262304000L, 123456789));
+                assertRoundTrip(buffer, new VTInstant(-86400000L));
+                assertRoundTrip(buffer, new VTDecimal(-12345678L, 4));
+                assertRoundTrip(buffer, new VTDecimal(Long.MIN_VALUE, VTDecimal.MAX_SCALE));
+                assertRoundTrip(buffer, new VTInteger(Integer.MIN_VALUE));
+                assertRoundTrip(buffer, new VTDouble(-1234.5678));
+                assertRoundTrip(buffer, new VTFraction(-22L, 7L));
+                assertRoundTrip(buffer, MAC);
+                assertRoundTrip(buffer, new VTMACAddress(0xffffffffffffL));
+                assertRoundTrip(buffer, VTBoolean.FALSE);
+                assertRoundTrip(buffer, VTBoolean.TRUE);
+                assertRoundTrip(buffer, VTBoolean.UNKNOWN);
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldWriteSameBytesAsToByteArrayInBigEndianBuffers() {
+        final ByteBuffer buffer = ByteBuffer.allocate(22);
+        ValueTypeCodecs.getCodec(VTUUID.class).writeTo(UUID, buffer);
+        ValueTypeCodecs.getCodec(VTMACAddress.class).writeTo(MAC, buffer);
+
+        final byte[] expected = new byte[22];
+        System.arraycopy(UUID.toByteArray(), 0, expected, 0, 16);
+        System.arraycopy(MAC.toByteArray(), 0, expected, 16, 6);
+        assertEquals(buffer.array(), expected);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldLeavePositionUnchangedWhenValueDoesNotFit() {
+        final ValueTypeCodec<VTUUID> codec = ValueTypeCodecs.getCodec(VTUUID.class);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(20);
+        buffer.position(5);
+
+        try {
+            codec.writeTo(UUID, buffer);
+            fail("should have overflowed");
+        } catch (BufferOverflowException e) {
+            assertEquals(buffer.position(), 5);
+        }
+
+        try {
+            codec.readFrom(buffer);
+            fail("should have underflowed");
+        } catch (BufferUnderflowException e) {
+            assertEquals(buffer.position(), 5);
+        }
+
+        try {
+            codec.writeTo(UUID, buffer, 5);
+            fail("should have been out of bounds");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(buffer.position(), 5);
+        }
+
+        try {
+            codec.readFrom(buffer, -1);
+            fail("should have been out of bounds");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(buffer.position(), 5);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNullValues() {
+        ValueTypeCodecs.getCodec(VTInteger.class).writeTo(null, ByteBuffer.allocate(4));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidEncodedValues() {
+        ValueTypeCodecs.getCodec(VTBoolean.class).readFrom(ByteBuffer.wrap(new byte[] { 3 }));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRegisterCustomCodecsOutsideReservedRange() {
+
+        try {
+            ValueTypeCodecs.register(new GenderCodec(5));
+            fail("reserved id accepted");
+        } catch (IllegalArgumentException e) {
+            assertNull(ValueTypeCodecs.getCodec(VTIsoGender.class));
+        }
+
+        final GenderCodec codec = new GenderCodec(200);
+        ValueTypeCodecs.register(codec);
+        assertSame(ValueTypeCodecs.getCodec(VTIsoGender.class), codec);
+        assertSame(ValueTypeCodecs.getCodec(200), codec);
+
+        try {
+            ValueTypeCodecs.register(new GenderCodec(201));
+            fail("duplicate class accepted");
+        } catch (IllegalArgumentException e) {
+            assertNull(ValueTypeCodecs.getCodec(201));
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(1);
+        codec.writeTo(VTIsoGender.FEMALE, buffer, 0);
+        assertEquals(ValueTypeCodecs.getCodec(VTIsoGender.class).readFrom(buffer), VTIsoGender.FEMALE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueTypeCodec<?> lookUp(final Class<?> clazz) {
+        return ValueTypeCodecs.getCodec((Class<VTInteger>) clazz);
+    }
+
+    private static <T extends ValueType<T>> void assertRoundTrip(final ByteBuffer buffer, final T value) {
+        @SuppressWarnings("unchecked")
+        final ValueTypeCodec<T> codec = ValueTypeCodecs.getCodec((Class<T>) value.getClass());
+        final int size = codec.getEncodedSize();
+
+        buffer.clear();
+        buffer.position(3);
+        codec.writeTo(value, buffer);
+        assertEquals(buffer.position(), 3 + size);
+        codec.writeTo(value, buffer, 40);
+        assertEquals(buffer.position(), 3 + size);
+
+        buffer.flip();
+        buffer.position(3);
+        assertEquals(codec.readFrom(buffer), value);
+        assertEquals(buffer.position(), 3 + size);
+        assertFalse(buffer.hasRemaining());
+
+        buffer.clear();
+        assertEquals(codec.readFrom(buffer, 40), value);
+        assertEquals(buffer.position(), 0);
+    }
+
+    private static final class GenderCodec extends AbstractValueTypeCodec<VTIsoGender> {
+
+        private static final VTIsoGender[] VALUES = VTIsoGender.values();
+
+        GenderCodec(final int typeId) {
+            super(VTIsoGender.class, typeId, 1);
+        }
+
+        @Override
+        protected void encode(final VTIsoGender vt, final ByteBuffer buffer, final int index) {
+            buffer.put(index, (byte) vt.ordinal());
+        }
+
+        @Override
+        protected VTIsoGender decode(final ByteBuffer buffer, final int index) {
+            return VALUES[buffer.get(index)];
+        }
+
+    }
+
+}
@@ -136,6 +136,18 @@ public class VTBooleanFactoryTest extends AbstractValueTypeFactoryTest {
         assertEquals(b, VTBoolean.UNKNOWN);
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnNullFromTryParseIfUnparsable() {
+        final VTBooleanFactory factory = (VTBooleanFactory) super.createFactory();
+        assertNull(factory.tryParse(null));
+        assertNull(factory.tryParse("absolutely"));
+        assertEquals(factory.tryParse("Y"), VTBoolean.TRUE);
+        assertEquals(factory.tryParse("unknown"), VTBoolean.UNKNOWN);
+    }
+
     /**
      * DOCUMENT ME!
      */
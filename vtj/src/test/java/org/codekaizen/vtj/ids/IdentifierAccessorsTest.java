@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.ids;
+
+import static org.testng.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link IdentifierAccessors}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class IdentifierAccessorsTest {
+
+    /**
+     * Creates a new IdentifierAccessorsTest object.
+     */
+    public IdentifierAccessorsTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldPreferObjectIdOverId() {
+        final Method accessor = IdentifierAccessors.getAccessor(BothEntity.class);
+        assertEquals(accessor.getName(), "getObjectId");
+        assertSame(IdentifierAccessors.getAccessor(BothEntity.class), accessor);
+        assertEquals(IdentifierAccessors.getIdentifier(new BothEntity()), "objectId");
+        assertEquals(IdentifierAccessors.getIdentifier(new IdEntity("42")), "42");
+        assertNull(IdentifierAccessors.getIdentifier(new IdEntity(null)));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnNullWithoutUsableAccessor() {
+        assertNull(IdentifierAccessors.getAccessor(Object.class));
+        assertNull(IdentifierAccessors.getAccessor(VoidIdEntity.class));
+        assertNull(IdentifierAccessors.getIdentifier("no accessor"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldReportAccessorFailures() {
+        IdentifierAccessors.getIdentifier(new FailingEntity());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldAskIdentifiableEntitiesDirectly() {
+        assertEquals(IdentifierAccessors.getIdentifier(new IdentifiableEntity("7")), "7");
+        assertNull(IdentifierAccessors.getIdentifier(new IdentifiableEntity(null)));
+
+        try {
+            IdentifierAccessors.getIdentifier(new IdentifiableEntity("fail"));
+            fail("expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldCreateSameNameBasedUuidForSameIdentifier() {
+        final VTUUIDFactory factory = new VTUUIDFactory(new MapContextHandlingStrategy());
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put("org.codekaizen.vtj.ids.VTUUIDFactory.version", UUIDVersion.NAME_SHA1);
+        context.put("org.codekaizen.vtj.ids.VTUUIDFactory.macAddress", "00:11:22:33:44:55");
+        factory.setContext(context);
+        assertEquals(factory.create(VTUUID.class, new IdEntity("42")),
+            factory.create(VTUUID.class, new IdEntity("42")));
+        assertFalse(factory.create(VTUUID.class, new IdEntity("42")).equals(
+                factory.create(VTUUID.class, new IdEntity("43"))));
+    }
+
+    static class BothEntity {
+
+        public String getId() {
+            return "id";
+        }
+
+        public String getObjectId() {
+            return "objectId";
+        }
+
+    }
+
+    static class IdEntity {
+
+        private final String id;
+
+        IdEntity(final String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+    }
+
+    static class IdentifiableEntity implements Identifiable {
+
+        private final String id;
+
+        IdentifiableEntity(final String id) {
+            this.id = id;
+        }
+
+        public String getObjectId() {
+
+            if ("fail".equals(id)) {
+                throw new UnsupportedOperationException("detached");
+            }
+
+            return id;
+        }
+
+    }
+
+    static class VoidIdEntity {
+
+        public void getId() {
+            // not an accessor
+        }
+
+    }
+
+    static class FailingEntity {
+
+        public String getId() {
+            throw new UnsupportedOperationException("detached");
+        }
+
+    }
+
+}
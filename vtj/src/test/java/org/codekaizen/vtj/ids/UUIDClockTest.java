@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.ids;
+
+import static org.testng.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import org.codekaizen.vtj.time.Clock;
+import org.codekaizen.vtj.time.VTInstant;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link UUIDClock}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class UUIDClockTest {
+
+    /**
+     * Creates a new UUIDClockTest object.
+     */
+    public UUIDClockTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldIncrementTimestampWhenClockDoesNotAdvance() {
+        final SettableClock source = new SettableClock(1234567890123L);
+        final UUIDClock clock = new UUIDClock(new Random(), source);
+
+        final long first = clock.next();
+        assertEquals(clock.timestamp(first), clock.gregorianInstant());
+
+        long previous = first;
+
+        for (int i = 0; i < 1000; i++) {
+            final long word = clock.next();
+            assertEquals(clock.timestamp(word), clock.timestamp(previous) + 1L);
+            assertEquals(clock.clockSequence(word), clock.clockSequence(first));
+            previous = word;
+        }
+
+        source.current = 1234567890124L;
+        assertEquals(clock.timestamp(clock.next()), clock.gregorianInstant());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldChangeClockSequenceWhenClockIsSetBack() {
+        final SettableClock source = new SettableClock(1234567890123L);
+        final UUIDClock clock = new UUIDClock(new Random(), source);
+
+        final long before = clock.next();
+
+        // small jitter is absorbed by running ahead of the clock
+        source.current -= 10L;
+        final long jitter = clock.next();
+        assertEquals(clock.timestamp(jitter), clock.timestamp(before) + 1L);
+        assertEquals(clock.clockSequence(jitter), clock.clockSequence(before));
+
+        source.current -= 60000L;
+        final long after = clock.next();
+        assertEquals(clock.timestamp(after), clock.gregorianInstant());
+        assertTrue(clock.timestamp(after) < clock.timestamp(before));
+        assertEquals(clock.clockSequence(after), (clock.clockSequence(before) + 1) & 0x3FFF);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReserveContiguousBlocksOfTimestamps() {
+        final SettableClock source = new SettableClock(1234567890123L);
+        final UUIDClock clock = new UUIDClock(new Random(), source);
+
+        final long first = clock.reserve(1000);
+        assertEquals(clock.timestamp(first), clock.gregorianInstant());
+        assertEquals(clock.timestamp(clock.reserve(500)), clock.timestamp(first) + 1000L);
+        assertEquals(clock.timestamp(clock.next()), clock.timestamp(first) + 1500L);
+
+        try {
+            clock.reserve(0);
+            fail("should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldWaitForClockRatherThanRunTooFarAhead() {
+        final SettableClock source = new SettableClock(1234567890123L);
+        source.step = 1L;
+
+        final UUIDClock clock = new UUIDClock(new Random(), source);
+        long previous = clock.reserve(UUIDClock.MAX_BLOCK);
+
+        for (int i = 0; i < 400; i++) {
+            final long word = clock.reserve(UUIDClock.MAX_BLOCK);
+            assertEquals(clock.timestamp(word), clock.timestamp(previous) + UUIDClock.MAX_BLOCK);
+            assertEquals(clock.clockSequence(word), clock.clockSequence(previous));
+            previous = word;
+        }
+
+        // reserved over two seconds of time stamps so the clock must have been polled until it caught up
+        assertTrue(clock.timestamp(previous) + UUIDClock.MAX_BLOCK - clock.gregorianInstant() <= 10000000L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepClockSequenceWithinStripeRange() {
+        final SettableClock source = new SettableClock(1234567890123L);
+        final UUIDClock clock = new UUIDClock(new Random(), source, false, 3, 8);
+        final Set<Integer> sequences = new HashSet<Integer>();
+
+        for (int i = 0; i < 40; i++) {
+            final int sequence = clock.clockSequence(clock.next());
+            assertTrue(sequence >= 3 * 2048 && sequence < 4 * 2048);
+            sequences.add(sequence);
+            source.current -= 60000L;
+        }
+
+        assertEquals(sequences.size(), 16);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldNeverReturnSameWordToConcurrentThreads() throws Exception {
+        final UUIDClock clock = new UUIDClock(new Random(), new SettableClock(1234567890123L));
+        final int threads = 8;
+        final long[][] words = new long[threads][20000];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final long[] mine = words[t];
+            new Thread(new Runnable() {
+                    public void run() {
+
+                        try {
+                            start.await();
+
+                            for (int i = 0; i < mine.length; i++) {
+                                mine[i] = clock.next();
+                            }
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        final Set<Long> all = new HashSet<Long>();
+
+        for (final long[] mine : words) {
+
+            for (int i = 1; i < mine.length; i++) {
+                assertTrue(mine[i] > mine[i - 1]);
+            }
+
+            for (final long word : mine) {
+                all.add(word);
+            }
+        }
+
+        assertEquals(all.size(), threads * 20000);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepHundredNanosecondResolution() {
+        final Clock source = new Clock() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public VTInstant instant() {
+                    return new VTInstant(1234567890L, 123456789);
+                }
+
+                @Override
+                public TimeZone timeZone() {
+                    return TimeZone.getTimeZone("UTC");
+                }
+            };
+        final UUIDClock clock = new UUIDClock(new Random(), source);
+        final long expected = 12345678901234567L + 122192928000000000L;
+        assertEquals(clock.gregorianInstant(), expected);
+        assertEquals(clock.timestamp(clock.next()), expected);
+    }
+
+    /**
+     * A clock which only provides instants so the default millisecond conversion is used, optionally advancing by a fixed
+     * number of milliseconds each time it is read.
+     */
+    private static final class SettableClock extends Clock {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile long current;
+        private volatile long step;
+
+        SettableClock(final long millis) {
+            this.current = millis;
+        }
+
+        @Override
+        public VTInstant instant() {
+            final long now = this.current;
+            this.current = now + this.step;
+
+            return new VTInstant(now);
+        }
+
+        @Override
+        public TimeZone timeZone() {
+            return TimeZone.getTimeZone("UTC");
+        }
+
+    }
+
+}
@@ -242,6 +242,163 @@ public class VTUUIDFactoryPerformanceTest {
         assertEquals(allUuids.size(), runners.length * 100000);
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldNeverGenerateDuplicateTimeBasedUuidFromSharedFactory() {
+        final VTUUIDFactory factory = this.createTimeBasedFactory(1);
+        final VTUUID[][] generated = this.generateConcurrently(factory, 16, 50000);
+
+        final Set<VTUUID> allUuids = new HashSet<VTUUID>();
+
+        for (final VTUUID[] uuids : generated) {
+
+            for (int i = 1; i < uuids.length; i++) {
+                assertTrue(uuids[i].timestamp() > uuids[i - 1].timestamp() ||
+                    uuids[i].clockSequence() != uuids[i - 1].clockSequence());
+            }
+
+            allUuids.addAll(Arrays.asList(uuids));
+        }
+
+        assertEquals(allUuids.size(), 16 * 50000);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldScaleTimeBasedGenerationAcrossThreads() {
+        this.logScaling(this.createTimeBasedFactory(1), "single clock");
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldScaleStripedTimeBasedGenerationAcrossThreads() {
+        final VTUUIDFactory factory = this.createTimeBasedFactory(Runtime.getRuntime().availableProcessors() * 2);
+        this.logScaling(factory, factory.getStripeCount() + " stripes");
+    }
+
+    private void logScaling(final VTUUIDFactory factory, final String description) {
+        final int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        final int perThread = 200000;
+
+        // warm up
+        this.generateConcurrently(factory, 1, perThread);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long ts = System.currentTimeMillis();
+            final VTUUID[][] generated = this.generateConcurrently(factory, threads, perThread);
+            ts = Math.max(1L, System.currentTimeMillis() - ts);
+
+            logger.info("VTUUIDFactory time-based " + description + " with {} threads: {} ids/ms.", threads,
+                (long) threads * perThread / ts);
+            assertEquals(generated.length, threads);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldGenerateBatchesInFractionOfPerCallTime() {
+        assertTrue(this.compareBatchWithLoop(this.createTimeBasedFactory(1), "time-based"));
+
+        final VTUUIDFactory factory = new VTUUIDFactory(new MapContextHandlingStrategy());
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("org.codekaizen.vtj.ids.VTUUIDFactory.version", UUIDVersion.RANDOM);
+        factory.setContext(map);
+
+        // both ways spend nearly all their time in SecureRandom so the difference is only logged
+        this.compareBatchWithLoop(factory, "random");
+    }
+
+    private boolean compareBatchWithLoop(final VTUUIDFactory factory, final String description) {
+        final long[] pairs = new long[2 * 100000];
+
+        // warm up
+        for (int i = 0; i < 100000; i++) {
+            factory.nextUuid();
+        }
+
+        factory.nextUuids(100000);
+        factory.nextUuids(pairs, 0, 100000);
+
+        final VTUUID[] uuids = new VTUUID[100000];
+        long loopTs = System.currentTimeMillis();
+
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = factory.nextUuid();
+        }
+
+        loopTs = System.currentTimeMillis() - loopTs;
+
+        long batchTs = System.currentTimeMillis();
+        assertEquals(factory.nextUuids(100000).length, uuids.length);
+        batchTs = System.currentTimeMillis() - batchTs;
+
+        long pairTs = System.currentTimeMillis();
+        factory.nextUuids(pairs, 0, 100000);
+        pairTs = System.currentTimeMillis() - pairTs;
+
+        logger.info("VTUUIDFactory " + description + " 100000 by nextUuid() took {} ms.", loopTs);
+        logger.info("VTUUIDFactory " + description + " 100000 by nextUuids(int) took {} ms.", batchTs);
+        logger.info("VTUUIDFactory " + description + " 100000 by nextUuids(long[], int, int) took {} ms.", pairTs);
+
+        return pairTs <= loopTs;
+    }
+
+    private VTUUIDFactory createTimeBasedFactory(final int stripes) {
+        final VTUUIDFactory factory = new VTUUIDFactory(new MapContextHandlingStrategy());
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("org.codekaizen.vtj.ids.VTUUIDFactory.version", UUIDVersion.TIME_SPACE);
+        map.put("org.codekaizen.vtj.ids.VTUUIDFactory.stripes", stripes);
+        factory.setContext(map);
+
+        return factory;
+    }
+
+    private VTUUID[][] generateConcurrently(final VTUUIDFactory factory, final int threads, final int perThread) {
+        final VTUUID[][] generated = new VTUUID[threads][perThread];
+        final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+
+        for (int t = 0; t < threads; t++) {
+            final VTUUID[] uuids = generated[t];
+            POOL.execute(new Runnable() {
+                    public void run() {
+
+                        try {
+                            barrier.await();
+
+                            for (int i = 0; i < uuids.length; i++) {
+                                uuids[i] = factory.nextUuid();
+                            }
+
+                            barrier.await();
+                        } catch (InterruptedException ie) {
+                            fail(ie.getMessage());
+                        } catch (BrokenBarrierException ie) {
+                            fail(ie.getMessage());
+                        }
+                    }
+                });
+        }
+
+        try {
+            barrier.await();
+            barrier.await();
+        } catch (InterruptedException ie) {
+            fail(ie.getMessage());
+        } catch (BrokenBarrierException ie) {
+            fail(ie.getMessage());
+        }
+
+        return generated;
+    }
+
     class TimeUUIDFactoryRunner implements Runnable {
 
         CyclicBarrier barrier;
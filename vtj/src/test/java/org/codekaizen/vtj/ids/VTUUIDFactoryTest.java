@@ -24,6 +24,12 @@ package org.codekaizen.vtj.ids;
 import static org.testng.Assert.*;
 
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import org.codekaizen.vtj.AbstractValueTypeFactoryTest;
 import org.codekaizen.vtj.MapContextHandlingStrategy;
 import org.codekaizen.vtj.time.Clock;
@@ -272,4 +278,274 @@ public class VTUUIDFactoryTest extends AbstractValueTypeFactoryTest {
         assertEquals(s2, s1);
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldOnlyCacheFormattedStringsWhenConfigured() {
+        final VTUUID uuid = new VTUUID(ByteArrayUtils.toBytes("1cef0eca-3728-11dd-af02-0013723f3004", '-'));
+        VTUUIDFactory factory = createFactory(UUIDVersion.TIME_SPACE);
+        assertNotSame(factory.format(uuid), factory.format(uuid));
+        super.getConfigurationValues().put("org.codekaizen.vtj.ids.VTUUIDFactory.formatCacheSize", 16);
+
+        try {
+            factory = createFactory(UUIDVersion.TIME_SPACE);
+            assertSame(factory.format(uuid), factory.format(uuid));
+            assertEquals(factory.format(uuid), "1cef0eca-3728-11dd-af02-0013723f3004");
+        } finally {
+            super.getConfigurationValues().remove("org.codekaizen.vtj.ids.VTUUIDFactory.formatCacheSize");
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundStripeCountUpToPowerOfTwo() {
+        assertEquals(createFactory(UUIDVersion.TIME_SPACE).getStripeCount(), 1);
+
+        try {
+            super.getConfigurationValues().put("org.codekaizen.vtj.ids.VTUUIDFactory.stripes", 3);
+            assertEquals(createFactory(UUIDVersion.TIME_SPACE).getStripeCount(), 4);
+            super.getConfigurationValues().put("org.codekaizen.vtj.ids.VTUUIDFactory.stripes", 0);
+            assertEquals(createFactory(UUIDVersion.TIME_SPACE).getStripeCount(), 1);
+            super.getConfigurationValues().put("org.codekaizen.vtj.ids.VTUUIDFactory.stripes", 1000000);
+            assertEquals(createFactory(UUIDVersion.TIME_SPACE).getStripeCount(), 1024);
+        } finally {
+            super.getConfigurationValues().remove("org.codekaizen.vtj.ids.VTUUIDFactory.stripes");
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepEachThreadWithinItsStripeOfClockSequences() throws Exception {
+        final VTUUIDFactory factory;
+
+        try {
+            super.getConfigurationValues().put("org.codekaizen.vtj.ids.VTUUIDFactory.stripes", 4);
+            factory = createFactory(UUIDVersion.TIME_SPACE);
+        } finally {
+            super.getConfigurationValues().remove("org.codekaizen.vtj.ids.VTUUIDFactory.stripes");
+        }
+
+        final VTUUID[][] generated = new VTUUID[8][5000];
+        final Thread[] threads = new Thread[generated.length];
+
+        for (int t = 0; t < threads.length; t++) {
+            final VTUUID[] uuids = generated[t];
+            threads[t] = new Thread(new Runnable() {
+                        public void run() {
+
+                            for (int i = 0; i < uuids.length; i++) {
+                                uuids[i] = factory.nextUuid();
+                            }
+                        }
+                    });
+            threads[t].start();
+        }
+
+        final Set<VTUUID> all = new HashSet<VTUUID>();
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+
+            // the stripe is picked from the thread id and owns one quarter of the clock sequences
+            final long range = threads[t].getId() & 3L;
+
+            for (final VTUUID uuid : generated[t]) {
+                assertEquals(uuid.clockSequence() / 4096, range);
+                all.add(uuid);
+            }
+        }
+
+        assertEquals(all.size(), 8 * 5000);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldGenerateBatchOfConsecutiveTimeBasedUuids() {
+        final VTUUIDFactory factory = createFactory(UUIDVersion.TIME_SPACE);
+        final VTUUID before = factory.nextUuid();
+        final VTUUID[] uuids = factory.nextUuids(100000);
+        final VTUUID after = factory.nextUuid();
+        assertEquals(uuids.length, 100000);
+        assertTrue(uuids[0].timestamp() > before.timestamp());
+
+        for (int i = 1; i < uuids.length; i++) {
+            assertEquals(uuids[i].version(), UUIDVersion.TIME_SPACE);
+            assertEquals(uuids[i].clockSequence(), uuids[0].clockSequence());
+
+            if (i % UUIDClock.MAX_BLOCK == 0) {
+                assertTrue(uuids[i].timestamp() > uuids[i - 1].timestamp());
+            } else {
+                assertEquals(uuids[i].timestamp(), uuids[i - 1].timestamp() + 1L);
+            }
+            assertEquals(uuids[i].node(), before.node());
+        }
+
+        assertTrue(after.timestamp() > uuids[uuids.length - 1].timestamp());
+        assertEquals(new HashSet<VTUUID>(Arrays.asList(uuids)).size(), uuids.length);
+        assertEquals(factory.nextUuids(0).length, 0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldGenerateBatchOfRandomUuids() {
+        final VTUUIDFactory factory = createFactory(UUIDVersion.RANDOM);
+        final VTUUID[] uuids = factory.nextUuids(5000);
+        final Set<VTUUID> all = new HashSet<VTUUID>();
+
+        for (final VTUUID uuid : uuids) {
+            assertEquals(uuid.version(), UUIDVersion.RANDOM);
+            assertEquals(uuid.variant(), 2);
+            all.add(uuid);
+        }
+
+        assertEquals(all.size(), uuids.length);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldFillPairArraysAndBuffersWithNewUuids() {
+        final VTUUIDFactory factory = createFactory(UUIDVersion.TIME_SPACE);
+        final long[] pairs = factory.nextUuids(new long[2 + 2 * 3000], 2, 3000);
+        assertEquals(pairs[0], 0L);
+        assertEquals(pairs[1], 0L);
+
+        for (int i = 1; i < 3000; i++) {
+            final VTUUID previous = new VTUUID(pairs[2 * i], pairs[2 * i + 1]);
+            final VTUUID current = new VTUUID(pairs[2 * i + 2], pairs[2 * i + 3]);
+            assertTrue(current.compareTo(previous) != 0);
+            assertEquals(current.timestamp(), previous.timestamp() + 1L);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(16 * 3000 + 5).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(5);
+        factory.nextUuids(buffer, 3000);
+        assertEquals(buffer.position(), buffer.limit());
+
+        final byte[] raw = new byte[16];
+        buffer.position(5);
+        buffer.get(raw);
+
+        final VTUUID first = new VTUUID(raw);
+        assertEquals(first.version(), UUIDVersion.TIME_SPACE);
+        assertTrue(first.timestamp() > new VTUUID(pairs[2 * 3000], pairs[2 * 3000 + 1]).timestamp());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRejectInvalidBatchRequests() {
+
+        try {
+            createFactory(UUIDVersion.NAME_SHA1).nextUuids(10);
+            fail("should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        final VTUUIDFactory factory = createFactory(UUIDVersion.RANDOM);
+
+        try {
+            factory.nextUuids(-1);
+            fail("should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        try {
+            factory.nextUuids(new long[10], 1, 5);
+            fail("should have thrown IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        try {
+            factory.nextUuids(ByteBuffer.allocate(31), 2);
+            fail("should have thrown BufferOverflowException");
+        } catch (BufferOverflowException e) {
+            assertNotNull(e);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSortTimeOrderedUuidsInCreationOrder() {
+
+        for (final UUIDVersion ver : new UUIDVersion[] { UUIDVersion.REORDERED_TIME, UUIDVersion.UNIX_TIME }) {
+            final VTUUIDFactory factory = createFactory(ver);
+            VTUUID previous = factory.nextUuid();
+            assertEquals(previous.version(), ver);
+            assertEquals(previous.variant(), VTUUID.VARIANT_RFC4122);
+
+            // well past the 4096 values of the version 7 sub-millisecond counter
+            for (int i = 0; i < 20000; i++) {
+                final VTUUID uuid = factory.nextUuid();
+                assertTrue(uuid.compareTo(previous) > 0);
+                assertTrue(uuid.toString().compareTo(previous.toString()) > 0);
+                previous = uuid;
+            }
+
+            final VTUUID[] batch = factory.nextUuids(10000);
+            assertTrue(batch[0].compareTo(previous) > 0);
+
+            for (int i = 1; i < batch.length; i++) {
+                assertTrue(batch[i].compareTo(batch[i - 1]) > 0);
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldPutCurrentTimeInTimeOrderedUuids() {
+        final long before = System.currentTimeMillis();
+        final VTUUID v7 = createFactory(UUIDVersion.UNIX_TIME).nextUuid();
+        final long millis = (v7.timestamp() - 122192928000000000L) / 10000L;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1000L);
+
+        final VTUUID v6 = createFactory(UUIDVersion.REORDERED_TIME).nextUuid();
+        final VTUUID v1 = createFactory(UUIDVersion.TIME_SPACE).nextUuid();
+        assertTrue(v1.timestamp() - v6.timestamp() < 10000000L);
+        assertEquals(v6.node(), v1.node());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldFillVersion7RandomBitsForEveryUuid() {
+        final VTUUIDFactory factory = createFactory(UUIDVersion.UNIX_TIME);
+        final VTUUID first = factory.nextUuid();
+        final VTUUID second = factory.nextUuid();
+        assertFalse(first.getLeastSignificantBits() == second.getLeastSignificantBits());
+        assertEquals(second.variant(), first.variant());
+
+        final VTUUID[] batch = factory.nextUuids(1000);
+        final Set<Long> lsbs = new HashSet<Long>();
+
+        for (final VTUUID uuid : batch) {
+            lsbs.add(uuid.getLeastSignificantBits());
+            assertEquals(uuid.variant(), first.variant());
+        }
+
+        assertEquals(lsbs.size(), batch.length);
+        assertFalse(batch[0].getLeastSignificantBits() == batch[1].getLeastSignificantBits());
+    }
+
 }
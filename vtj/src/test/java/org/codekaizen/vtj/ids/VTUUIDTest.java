@@ -25,6 +25,7 @@ import static org.testng.Assert.*;
 
 import java.math.BigInteger;
 import org.codekaizen.vtj.AbstractValueTypeTest;
+import org.codekaizen.vtj.AllocationMeter;
 import org.codekaizen.vtj.util.ByteArrayUtils;
 import org.testng.annotations.Test;
 
@@ -114,6 +115,31 @@ public class VTUUIDTest extends AbstractValueTypeTest {
         assertEquals(UUIDVersion.TIME_SPACE, uuid1.version());
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnTimestampOfTimeOrderedVersions() {
+        // RFC 9562 test vectors, version 1 and 6 encode the same instant
+        final VTUUID v1 = new VTUUID(ByteArrayUtils.toBytes("c232ab00-9414-11ec-b3c8-9f6bdeced846", '-'));
+        final VTUUID v6 = new VTUUID(ByteArrayUtils.toBytes("1ec9414c-232a-6b00-b3c8-9f6bdeced846", '-'));
+        assertEquals(v6.version(), UUIDVersion.REORDERED_TIME);
+        assertEquals(v6.timestamp(), v1.timestamp());
+        assertEquals(v6.clockSequence(), v1.clockSequence());
+        assertEquals(v6.node(), v1.node());
+
+        final VTUUID v7 = new VTUUID(ByteArrayUtils.toBytes("017f22e2-79b0-7cc3-98c4-dc0c0c07398f", '-'));
+        assertEquals(v7.version(), UUIDVersion.UNIX_TIME);
+        assertEquals(v7.timestamp(), 0x017F22E279B0L * 10000L + 122192928000000000L);
+
+        try {
+            v7.node();
+            fail("version 7 has no node");
+        } catch (UnsupportedOperationException uoe) {
+            // do nothing
+        }
+    }
+
     /**
      * DOCUMENT ME!
      */
@@ -178,6 +204,42 @@ public class VTUUIDTest extends AbstractValueTypeTest {
         assertTrue(uuid1.compareTo(uuid2) < 0);
         uuid2 = new VTUUID(ByteArrayUtils.toBytes("c758df94-3746-11dd-b5dd-0013723f3004", '-'));
         assertTrue(uuid1.compareTo(uuid2) == 0);
+        uuid2 = new VTUUID(ByteArrayUtils.toBytes("c758df94-3746-11dd-35dd-0013723f3004", '-'));
+        assertTrue(uuid1.compareTo(uuid2) > 0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldHoldOnlyTwoLongsAndCompareWithoutAllocating() {
+        final VTUUID[] uuids = new VTUUID[10000];
+
+        for (int pass = 0; pass < 3; pass++) {
+
+            for (int i = 0; i < uuids.length; i++) {
+                uuids[i] = new VTUUID(0x6ba7b8109dad11d1L + ((long) i << 32), 0x80b400c04fd430c8L);
+            }
+        }
+
+        long before = AllocationMeter.allocatedBytes();
+
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = new VTUUID(0x6ba7b8109dad11d1L + ((long) i << 32), 0x80b400c04fd430c8L);
+        }
+
+        final long perInstance = (AllocationMeter.allocatedBytes() - before) / uuids.length;
+        int result = 0;
+        before = AllocationMeter.allocatedBytes();
+
+        for (int i = 1; i < uuids.length; i++) {
+            result += uuids[i].compareTo(uuids[i - 1]) + uuids[i].hashCode() + (uuids[i].equals(uuids[i - 1]) ? 1 : 0);
+            result += uuids[i].version().ordinal() + uuids[i].variant() + (int) uuids[i].timestamp();
+        }
+
+        final long perCompare = (AllocationMeter.allocatedBytes() - before) / uuids.length;
+        assertTrue(perInstance <= 32L, perInstance + " bytes per instance");
+        assertEquals(perCompare, 0L, "result " + result);
     }
 
     /**
@@ -23,8 +23,20 @@ package org.codekaizen.vtj.math;
 
 import static org.testng.Assert.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.codekaizen.vtj.ApplicationEnvironment;
+import org.codekaizen.vtj.VTContext;
 import org.testng.annotations.Test;
 
 
@@ -359,6 +371,22 @@ public class VTDecimalTest extends AbstractVTNumberTest {
         assertEquals(d3.toString(), "38.18377");
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test
+    public void shouldFormatMagnitudesBelowOneWithLeadingZero() throws IOException {
+        assertEquals(new VTDecimal(12L, 2).toString(), "0.12");
+        assertEquals(new VTDecimal(-12L, 2).toString(), "-0.12");
+        assertEquals(new VTDecimal(5L, 2).toString(), "0.05");
+        assertEquals(new VTDecimal(-1L, 3).toString(), "-0.001");
+        assertEquals(new VTDecimal(-14274303L, 3).toString(), "-14274.303");
+        assertEquals(new VTDecimal(Long.MIN_VALUE, 0).toString(), Long.toString(Long.MIN_VALUE));
+        assertEquals(new VTDecimal(100L, 2).appendTo(new StringBuilder("x=")).toString(), "x=1.00");
+    }
+
     /**
      * DOCUMENT ME!
      */
@@ -448,6 +476,34 @@ public class VTDecimalTest extends AbstractVTNumberTest {
         assertFalse(d1.equals(new Integer(1458)));
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnCachedInstancesForZeroAndOne() {
+
+        for (int scale = VTDecimal.MIN_SCALE; scale <= VTDecimal.MAX_SCALE; scale++) {
+            assertSame(VTDecimal.valueOf(0L, scale), VTDecimal.valueOf(0L, scale));
+            assertEquals(VTDecimal.valueOf(0L, scale), new VTDecimal(0L, scale));
+
+            final long one = (long) Math.pow(10, scale);
+            assertSame(VTDecimal.valueOf(one, scale), VTDecimal.valueOf(one, scale));
+            assertEquals(VTDecimal.valueOf(one, scale).doubleValue(), 1.0, 0.0);
+        }
+
+        assertSame(VTDecimal.valueOf(100L, 2), VTDecimal.valueOf(100L, 2));
+        assertEquals(VTDecimal.valueOf(100L, 2).toString(), "1.00");
+        assertNotSame(VTDecimal.valueOf(101L, 2), VTDecimal.valueOf(101L, 2));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidScaleInValueOf() {
+        VTDecimal.valueOf(0L, VTDecimal.MAX_SCALE + 1);
+    }
+
     /**
      * DOCUMENT ME!
      */
@@ -512,4 +568,81 @@ public class VTDecimalTest extends AbstractVTNumberTest {
         }
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundUsingContextBoundToCurrentThread() throws Exception {
+        final VTDecimal d1 = new VTDecimal(1245678, 2);
+        final VTDecimal d2 = new VTDecimal(181752, 6);
+        final VTContext original = VTNumber.getVTContext();
+
+        final String scoped = VTNumber.callWithVTContext(createContext(2), new Callable<String>() {
+                    public String call() throws Exception {
+                        final String outer = d1.div(d2).toString();
+                        final String inner = VTNumber.callWithVTContext(createContext(4), new Callable<String>() {
+                                    public String call() {
+                                        return d1.div(d2).toString();
+                                    }
+                                });
+                        assertEquals(inner, "68537.2376");
+
+                        return outer + " " + d1.div(d2);
+                    }
+                });
+        assertEquals(scoped, "68537.24 68537.24");
+        assertSame(VTNumber.getVTContext(), original);
+        assertEquals(d1.div(d2).toString(), "68537.237554");
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldKeepTenantContextsApartAcrossExecutorHandOffs() throws Exception {
+        final VTDecimal d1 = new VTDecimal(1245678, 2);
+        final VTDecimal d2 = new VTDecimal(181752, 6);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<String>> results = new ArrayList<Future<String>>();
+
+            for (int i = 0; i < 200; i++) {
+                final int scale = i % 2 == 0 ? 2 : 6;
+                VTNumber.runWithVTContext(createContext(scale), new Runnable() {
+                        public void run() {
+                            results.add(executor.submit(VTNumber.propagateVTContext(new Callable<String>() {
+                                            public String call() {
+                                                return d1.div(d2).toString();
+                                            }
+                                        })));
+                        }
+                    });
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(results.get(i).get(), i % 2 == 0 ? "68537.24" : "68537.237554");
+            }
+
+            // pool threads must not keep a tenant context once a propagated task is done
+            final Future<VTContext> leftover = executor.submit(new Callable<VTContext>() {
+                        public VTContext call() {
+                            return VTNumber.getVTContext();
+                        }
+                    });
+            assertSame(leftover.get(), VTNumber.getVTContext());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static VTContext createContext(final int decimalScale) {
+        return new VTContext(ApplicationEnvironment.INTERNATIONAL_BUSINESS, Locale.US, MathContext.DECIMAL64,
+                Currency.getInstance(Locale.US), true, 2, decimalScale);
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import static org.testng.Assert.*;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link VTDecimalVector}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTDecimalVectorTest {
+
+    /**
+     * Creates a new VTDecimalVectorTest object.
+     */
+    public VTDecimalVectorTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRescaleValuesToSharedScale() {
+        final VTDecimalVector vector = new VTDecimalVector.Builder(4).add(new VTDecimal(125L, 2)).add(
+                new VTDecimal(-3L, 0)).add(123456L).build();
+        assertEquals(vector.getScale(), 4);
+        assertTrue(Arrays.equals(vector.toUnscaledArray(), new long[] { 12500L, -30000L, 123456L }));
+        assertEquals(vector.get(0), new VTDecimal(12500L, 4));
+        assertEquals(vector.get(2).toString(), "12.3456");
+        assertEquals(vector.doubleValue(1), -3.0, 0.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectValuesWhichWouldLosePrecision() {
+        new VTDecimalVector.Builder(2).add(new VTDecimal(12345L, 3));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReduceExactly() {
+        final VTDecimalVector vector = VTDecimalVector.of(2, 1999L, -250L, 1L, 10000L);
+        assertEquals(vector.sum(), new VTDecimal(11750L, 2));
+        assertEquals(vector.min(), new VTDecimal(-250L, 2));
+        assertEquals(vector.max(), new VTDecimal(10000L, 2));
+        assertEquals(vector.average(), 29.375, 1e-9);
+        assertEquals(vector.slice(1, 3).sum(), new VTDecimal(-249L, 2));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void shouldDetectSumOverflow() {
+        VTDecimalVector.of(0, Long.MAX_VALUE, 1L).sum();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSortSliceAndCompareScale() {
+        final VTDecimalVector vector = VTDecimalVector.of(3, 5L, -1L, 3L);
+        assertEquals(vector.sorted(), VTDecimalVector.of(3, -1L, 3L, 5L));
+        assertEquals(vector.slice(1, 3), VTDecimalVector.of(3, -1L, 3L));
+        assertFalse(vector.equals(VTDecimalVector.of(2, 5L, -1L, 3L)));
+
+        final LongBuffer buffer = vector.slice(1, 3).asBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(buffer.get(1), 3L);
+    }
+
+}
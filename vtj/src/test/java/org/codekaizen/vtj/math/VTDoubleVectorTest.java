@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link VTDoubleVector}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTDoubleVectorTest {
+
+    /**
+     * Creates a new VTDoubleVectorTest object.
+     */
+    public VTDoubleVectorTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSumWithoutAccumulatingRoundingErrors() {
+        final VTDoubleVector.Builder builder = new VTDoubleVector.Builder();
+
+        for (int i = 0; i < 100000; i++) {
+            builder.add(0.1);
+        }
+
+        final VTDoubleVector vector = builder.add(new VTDouble(-10000.0)).build();
+        assertEquals(vector.sum(), 0.0, 1e-9);
+        assertEquals(vector.min(), new VTDouble(-10000.0));
+        assertEquals(vector.max(), new VTDouble(0.1));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSortNaNLast() {
+        final VTDoubleVector vector = VTDoubleVector.of(2.5, Double.NaN, -1.0);
+        final double[] sorted = vector.sorted().toDoubleArray();
+        assertEquals(sorted[0], -1.0, 0.0);
+        assertEquals(sorted[1], 2.5, 0.0);
+        assertTrue(Double.isNaN(sorted[2]));
+        assertTrue(Double.isNaN(vector.max().doubleValue()));
+        assertEquals(vector.slice(0, 1).average(), 2.5, 0.0);
+        assertEquals(vector.asBuffer().get(2), -1.0, 0.0);
+        assertEquals(vector.slice(2, 3), VTDoubleVector.of(-1.0));
+    }
+
+}
@@ -262,6 +262,19 @@ public class VTIntegerTest extends AbstractVTNumberTest {
         assertFalse(d1.equals(d2));
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReturnCachedInstancesForSmallValues() {
+        assertSame(VTInteger.valueOf(0), VTInteger.valueOf(0));
+        assertSame(VTInteger.valueOf(-128), VTInteger.valueOf(-128));
+        assertSame(VTInteger.valueOf(1023), VTInteger.valueOf(1023));
+        assertNotSame(VTInteger.valueOf(1024), VTInteger.valueOf(1024));
+        assertEquals(VTInteger.valueOf(-129), new VTInteger(-129));
+        assertEquals(VTInteger.valueOf(200).intValue(), 200);
+    }
+
     /**
      * DOCUMENT ME!
      */
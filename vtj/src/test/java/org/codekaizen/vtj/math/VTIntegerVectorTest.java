@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.math;
+
+import static org.testng.Assert.*;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link VTIntegerVector}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTIntegerVectorTest {
+
+    /**
+     * Creates a new VTIntegerVectorTest object.
+     */
+    public VTIntegerVectorTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldBuildVectorMatchingSuppliedValues() {
+        final VTIntegerVector.Builder builder = new VTIntegerVector.Builder(2);
+
+        for (int i = 0; i < 100; i++) {
+            builder.add(i * 7 - 300);
+        }
+
+        builder.add(new VTInteger(Integer.MAX_VALUE));
+
+        final VTIntegerVector vector = builder.build();
+        assertEquals(vector.size(), 101);
+        assertEquals(vector.intValue(3), -279);
+        assertEquals(vector.get(100), new VTInteger(Integer.MAX_VALUE));
+        assertEquals(vector.asList().get(0), new VTInteger(-300));
+        assertEquals(vector.toIntArray().length, 101);
+
+        builder.add(1);
+        assertEquals(vector.size(), 101);
+        assertEquals(builder.build().size(), 102);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReduceWithoutOverflow() {
+        final VTIntegerVector vector = VTIntegerVector.of(Integer.MAX_VALUE, Integer.MAX_VALUE, -5);
+        assertEquals(vector.sum(), 2L * Integer.MAX_VALUE - 5L);
+        assertEquals(vector.min(), new VTInteger(-5));
+        assertEquals(vector.max(), new VTInteger(Integer.MAX_VALUE));
+        assertEquals(VTIntegerVector.of(1, 2).average(), 1.5, 0.0);
+        assertTrue(Double.isNaN(VTIntegerVector.EMPTY.average()));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void shouldNotReduceEmptyVectorWithoutIdentity() {
+        VTIntegerVector.EMPTY.min();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSliceAndSortWithoutChangingOriginal() {
+        final int[] values = { 5, 3, 9, 1, 7 };
+        final VTIntegerVector vector = VTIntegerVector.of(values);
+        values[0] = 0;
+
+        final VTIntegerVector slice = vector.slice(1, 4);
+        assertEquals(slice, VTIntegerVector.of(3, 9, 1));
+        assertEquals(slice.hashCode(), VTIntegerVector.of(3, 9, 1).hashCode());
+        assertEquals(slice.sum(), 13L);
+        assertEquals(slice.sorted(), VTIntegerVector.of(1, 3, 9));
+        assertTrue(Arrays.equals(slice.slice(1, 3).toIntArray(), new int[] { 9, 1 }));
+        assertTrue(Arrays.equals(vector.sorted().toIntArray(), new int[] { 1, 3, 5, 7, 9 }));
+        assertTrue(Arrays.equals(vector.toIntArray(), new int[] { 5, 3, 9, 1, 7 }));
+        assertEquals(vector.slice(2, 2), VTIntegerVector.EMPTY);
+        assertEquals(vector.toString(), "[5, 3, 9, 1, 7]");
+        assertEquals(vector.asList(), Arrays.asList(new VTInteger(5), new VTInteger(3), new VTInteger(9),
+                new VTInteger(1), new VTInteger(7)));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldExposeReadOnlyBufferView() {
+        final IntBuffer buffer = VTIntegerVector.of(5, 3, 9, 1, 7).slice(1, 4).asBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(buffer.remaining(), 3);
+        assertEquals(buffer.get(0), 3);
+        assertEquals(buffer.get(2), 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRejectIndexesOutsideSlice() {
+        final VTIntegerVector slice = VTIntegerVector.of(5, 3, 9, 1, 7).slice(1, 3);
+
+        try {
+            slice.intValue(2);
+            fail("read past slice");
+        } catch (IndexOutOfBoundsException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        try {
+            slice.slice(0, 3);
+            fail("sliced past end");
+        } catch (IndexOutOfBoundsException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        try {
+            slice.asList().add(new VTInteger(1));
+            fail("view modified");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(slice.size(), 2);
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link LatencyHistogram} and {@link StripedCounter}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Creates a new LatencyHistogramTest object.
+     */
+    public LatencyHistogramTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldPlaceEveryValueWithinItsBucketBounds() {
+        final long[] values = {
+                0L, 1L, 15L, 16L, 17L, 31L, 32L, 33L, 1000L, 123456789L, Long.MAX_VALUE / 3, Long.MAX_VALUE
+            };
+
+        for (final long value : values) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index), "value " + value);
+
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1), "value " + value);
+            }
+        }
+
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(Long.MAX_VALUE)), Long.MAX_VALUE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldReportPercentilesWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long i = 1L; i <= 10000L; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(histogram.getCount(), 10000L);
+        assertEquals(histogram.getMax(), 10000000L);
+        assertEquals(histogram.getMean(), 5000500.0, 0.001);
+        assertWithin(histogram.getValueAtPercentile(50.0), 5000000L);
+        assertWithin(histogram.getValueAtPercentile(99.0), 9900000L);
+        assertEquals(histogram.getValueAtPercentile(100.0), 10000000L);
+
+        histogram.reset();
+        assertEquals(histogram.getCount(), 0L);
+        assertEquals(histogram.getValueAtPercentile(50.0), 0L);
+        assertEquals(histogram.getMean(), 0.0, 0.0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRecordNegativeValuesAsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        assertEquals(histogram.getCount(), 1L);
+        assertEquals(histogram.getMax(), 0L);
+        assertEquals(histogram.getValueAtPercentile(50.0), 0L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldNotLoseConcurrentIncrements() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 4;
+        final int increments = 100000;
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                    public void run() {
+
+                        for (int i = 0; i < increments; i++) {
+                            counter.increment();
+                        }
+
+                        done.countDown();
+                    }
+                }).start();
+        }
+
+        done.await();
+        assertEquals(counter.sum(), (long) threads * increments);
+        counter.add(-5L);
+        assertEquals(counter.toString(), Long.toString(threads * increments - 5L));
+        counter.reset();
+        assertEquals(counter.sum(), 0L);
+    }
+
+    private static void assertWithin(final long actual, final long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS,
+            actual + " not within bucket precision of " + expected);
+    }
+
+}
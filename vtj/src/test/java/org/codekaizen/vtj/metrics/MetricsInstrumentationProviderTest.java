@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.metrics;
+
+import static org.testng.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.codekaizen.vtj.CompositeVTFactory;
+import org.codekaizen.vtj.Instrumentation;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
+import org.codekaizen.vtj.ValueTypeFactory;
+import org.codekaizen.vtj.enums.VTBoolean;
+import org.codekaizen.vtj.enums.VTBooleanFactory;
+import org.codekaizen.vtj.ids.VTLongSerialId;
+import org.codekaizen.vtj.ids.VTLongSerialIdFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link MetricsInstrumentationProvider} and {@link FactoryMetrics}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class MetricsInstrumentationProviderTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private MetricsInstrumentationProvider provider;
+
+    /**
+     * Creates a new MetricsInstrumentationProviderTest object.
+     */
+    public MetricsInstrumentationProviderTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @BeforeMethod
+    public void registerProvider() {
+        provider = new MetricsInstrumentationProvider(server);
+        Instrumentation.setProvider(provider);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @AfterMethod
+    public void unregisterProvider() {
+        Instrumentation.setProvider(null);
+        provider.unregisterAll();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldExportFactoryStatisticsOverJmx() throws Exception {
+        final List<ValueTypeFactory<?>> factories = new ArrayList<ValueTypeFactory<?>>();
+        factories.add(new VTBooleanFactory(new MapContextHandlingStrategy()));
+        factories.add(new VTLongSerialIdFactory(new MapContextHandlingStrategy()));
+
+        final CompositeVTFactory composite = new CompositeVTFactory(factories, new MapContextHandlingStrategy());
+        composite.setContext(null);
+        assertEquals(composite.parse("TRUE"), VTBoolean.TRUE);
+        assertEquals(composite.parse("sid:7"), new VTLongSerialId(7L));
+        assertEquals(composite.parse("sid:8"), new VTLongSerialId(8L));
+        assertNull(composite.tryParse("bogus"));
+        assertEquals(composite.format(VTBoolean.FALSE), "FALSE");
+        composite.create(VTLongSerialId.class);
+
+        final ObjectName compositeName = MetricsInstrumentationProvider.getObjectName(CompositeVTFactory.class
+                .getName());
+        assertTrue(server.isRegistered(compositeName));
+        assertEquals(server.getAttribute(compositeName, "ParseCount"), Long.valueOf(3L));
+        assertEquals(server.getAttribute(compositeName, "ParseFailureCount"), Long.valueOf(1L));
+        assertEquals(server.getAttribute(compositeName, "FormatCount"), Long.valueOf(1L));
+        assertEquals(server.getAttribute(compositeName, "CreateCount"), Long.valueOf(1L));
+        assertEquals(server.getAttribute(compositeName, "ContextChangeCount"), Long.valueOf(1L));
+        assertTrue(((Long) server.getAttribute(compositeName, "ParseLatencyMax")).longValue() >= 0L);
+        assertTrue(((Double) server.getAttribute(compositeName, "CreateRate")).doubleValue() > 0.0);
+
+        final Map<String, Long> selections = (Map<String, Long>) server.getAttribute(compositeName,
+                "DelegateSelections");
+        assertEquals(selections.get(VTBooleanFactory.class.getName()), Long.valueOf(1L));
+        assertEquals(selections.get(VTLongSerialIdFactory.class.getName()), Long.valueOf(2L));
+
+        final FactoryMetrics serialIds = provider.getMetrics(VTLongSerialIdFactory.class.getName());
+        assertEquals(serialIds.getParseCount(), 2L);
+        assertEquals(serialIds.getCreateCount(), 1L);
+        assertEquals(serialIds.getContextChangeCount(), 1L);
+
+        server.invoke(compositeName, "reset", new Object[0], new String[0]);
+        assertEquals(server.getAttribute(compositeName, "ParseCount"), Long.valueOf(0L));
+        assertTrue(((Map<?, ?>) server.getAttribute(compositeName, "DelegateSelections")).isEmpty());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldShareMetricsBetweenFactoriesOfTheSameClass() throws Exception {
+        final VTBooleanFactory first = new VTBooleanFactory(new MapContextHandlingStrategy());
+        final VTBooleanFactory second = new VTBooleanFactory(new MapContextHandlingStrategy());
+        assertSame(first.getInstrumentation(), second.getInstrumentation());
+
+        first.parse("Y");
+        second.parse("N");
+
+        final FactoryMetrics metrics = provider.getMetrics(VTBooleanFactory.class.getName());
+        assertEquals(metrics.getParseCount(), 2L);
+        assertEquals(provider.getAllMetrics().size(), 1);
+
+        provider.unregisterAll();
+        assertFalse(server.isRegistered(MetricsInstrumentationProvider.getObjectName(
+                    VTBooleanFactory.class.getName())));
+    }
+
+}
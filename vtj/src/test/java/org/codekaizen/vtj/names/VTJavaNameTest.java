@@ -113,6 +113,22 @@ public class VTJavaNameTest extends AbstractNameTypeTest {
         new VTJavaName("org.codekaizen.vtj.VT#equals");
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldAcceptExactlyTheNamesMatchingThePattern() {
+        final VTJavaName nme = new VTJavaName("org.codekaizen.vtj");
+        final String[] candidates = {
+                "a", "Z", "a1", "a_b", "a-b", "a.b", "a.b.c", "org.codekaizen.vtj.VTJavaName", "A9_-z.Q",
+                "1a", "_a", "-a", ".a", "a.", "a..b", "a.1b", "a b", "a$b", "a.b#c", "\u00e9t\u00e9", "a\u0661",
+            };
+
+        for (final String candidate : candidates) {
+            assertEquals(nme.matchesPattern(candidate), nme.getPattern().matcher(candidate).matches(), candidate);
+        }
+    }
+
     /**
      * DOCUMENT ME!
      */
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.net;
+
+import static org.testng.Assert.*;
+
+import java.net.NetworkInterface;
+import java.util.Enumeration;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link NetworkInterfaceAddressRetriever}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class NetworkInterfaceAddressRetrieverTest {
+
+    /**
+     * Creates a new NetworkInterfaceAddressRetrieverTest object.
+     */
+    public NetworkInterfaceAddressRetrieverTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test
+    public void shouldSkipLoopbackAndEmptyAddresses() throws Exception {
+        final NetworkInterfaceAddressRetriever retriever = new NetworkInterfaceAddressRetriever();
+        final Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
+
+        while (nics != null && nics.hasMoreElements()) {
+            final NetworkInterface nic = nics.nextElement();
+            final VTMACAddress addr = retriever.toAddress(nic);
+
+            if (nic.isLoopback() || nic.getHardwareAddress() == null) {
+                assertNull(addr);
+            } else if (addr != null) {
+                assertTrue(retriever.retrieveAddresses().contains(addr));
+            }
+        }
+    }
+
+}
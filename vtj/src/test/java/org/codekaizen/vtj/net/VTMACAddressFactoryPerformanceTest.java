@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.net;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.codekaizen.vtj.MapContextHandlingStrategy;
+import org.codekaizen.vtj.ids.UUIDVersion;
+import org.codekaizen.vtj.ids.VTUUID;
+import org.codekaizen.vtj.ids.VTUUIDFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit performance tests for {@link VTMACAddressFactory} address discovery.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTMACAddressFactoryPerformanceTest {
+
+    private Logger logger = LoggerFactory.getLogger(VTMACAddressFactoryPerformanceTest.class);
+
+    /**
+     * Creates a new VTMACAddressFactoryPerformanceTest object.
+     */
+    public VTMACAddressFactoryPerformanceTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldCreateFirstUuidsQuicklyOnManyThreads() throws Exception {
+        final int threads = 8;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<VTUUID>> futures = new ArrayList<Future<VTUUID>>();
+        final long start = System.currentTimeMillis();
+
+        try {
+
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(new Callable<VTUUID>() {
+                            public VTUUID call() {
+                                final VTUUIDFactory factory = new VTUUIDFactory(new MapContextHandlingStrategy());
+                                final Map<String, Object> map = new HashMap<String, Object>();
+                                map.put("org.codekaizen.vtj.ids.VTUUIDFactory.version", UUIDVersion.TIME_SPACE);
+                                factory.setContext(map);
+
+                                return factory.nextUuid();
+                            }
+                        }));
+            }
+
+            for (final Future<VTUUID> future : futures) {
+                assertNotNull(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        final long elapsed = System.currentTimeMillis() - start;
+        logger.info("first UUID on " + threads + " threads: " + elapsed + " ms");
+        assertTrue(elapsed < 2000L);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "performance" })
+    public void shouldDiscoverAddressesFasterThanCommand() {
+        long start = System.currentTimeMillis();
+        final int nicCount = new NetworkInterfaceAddressRetriever().retrieveAddresses().size();
+        final long nicTime = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+
+        final int cmdCount = new MACAddressRetriever().retrieveAddresses().size();
+        final long cmdTime = System.currentTimeMillis() - start;
+        logger.info("network interfaces: " + nicCount + " addresses in " + nicTime + " ms, command: " + cmdCount +
+            " addresses in " + cmdTime + " ms");
+        assertTrue(nicTime < 1000L);
+    }
+
+}
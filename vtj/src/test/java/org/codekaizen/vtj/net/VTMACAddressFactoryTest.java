@@ -23,6 +23,8 @@ package org.codekaizen.vtj.net;
 
 import static org.testng.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import org.codekaizen.vtj.AbstractValueTypeFactoryTest;
 import org.codekaizen.vtj.text.VTString;
@@ -127,7 +129,7 @@ public class VTMACAddressFactoryTest extends AbstractValueTypeFactoryTest {
         assertTrue(factory.isParsable("00-06-5B-EB-6E-9E"));
         assertTrue(factory.isParsable("00065beb6e9e"));
         assertTrue(factory.isParsable("00:06:5B:EB:6E:9E"));
-        assertFalse(factory.isParsable("44:06:5B:EB:6E:9E"));
+        assertFalse(factory.isParsable("44:06:5B:EB:6E"));
         assertFalse(factory.isParsable("00:06:5B"));
     }
 
@@ -176,7 +178,7 @@ public class VTMACAddressFactoryTest extends AbstractValueTypeFactoryTest {
         int cnt = 0;
 
         for (final VTMACAddress addr : VTMACAddressFactory.getAllLocalEthernetAddresses()) {
-            assertEquals(addr.toByteArray()[0], (byte) 0);
+            assertFalse(VTMACAddress.NIL.equals(addr));
             cnt++;
         }
 
@@ -199,4 +201,78 @@ public class VTMACAddressFactoryTest extends AbstractValueTypeFactoryTest {
         }
     }
 
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldDeriveSameFallbackAddressForSameHost() {
+        final VTMACAddress addr = VTMACAddressFactory.createFallbackAddress(null, "app01.example.com");
+        assertEquals(VTMACAddressFactory.createFallbackAddress(null, "app01.example.com"), addr);
+        assertFalse(addr.equals(VTMACAddressFactory.createFallbackAddress(null, "app02.example.com")));
+        assertEquals(addr.toByteArray()[0] & 0x01, 0x01);
+        assertNotNull(VTMACAddressFactory.getFallbackAddress());
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldUseConfiguredFallbackAddress() {
+        final VTMACAddress addr = VTMACAddressFactory.createFallbackAddress("00:11:22:33:44:55", "app01.example.com");
+        assertEquals(addr, new VTMACAddress(0x001122334455L));
+        assertEquals(VTMACAddressFactory.createFallbackAddress("bogus", "app01.example.com"),
+            VTMACAddressFactory.createFallbackAddress(null, "app01.example.com"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundTripAddressesWithAnyFirstOctet() {
+        final VTMACAddressFactory factory = (VTMACAddressFactory) createFactory();
+
+        for (final String s : new String[] { "02:fc:00:00:00:01", "0b:7c:9c:df:87:fa", "3c:22:fb:01:02:03" }) {
+            final VTMACAddress addr = factory.parse(s);
+            assertEquals(factory.format(addr), s);
+            assertEquals(factory.parse(factory.format(addr)), addr);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldNotParseNumbersOrLeadingSeparatorsAsAddresses() {
+        final VTMACAddressFactory factory = (VTMACAddressFactory) createFactory();
+        assertTrue(factory.isParsable("44:06:5B:EB:6E:9E"));
+        assertTrue(factory.isParsable("06:5B:EB:6E:9E"));
+        assertFalse(factory.isParsable("1234567890"));
+        assertFalse(factory.isParsable("9876543210"));
+        assertFalse(factory.isParsable(":00:06:5B:EB:6E:9E"));
+        assertFalse(factory.isParsable("-00-06-5B-EB-6E-9E"));
+        assertFalse(factory.isParsable("00:06:5B:EB:6E:9E:"));
+        assertNull(factory.tryParse("1234567890"));
+        assertNull(factory.tryParse(":06:5B:EB:6E:9E"));
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldRoundTripDiscoveredAndFallbackAddresses() {
+        final VTMACAddressFactory factory = (VTMACAddressFactory) createFactory();
+        final List<VTMACAddress> addrs = new ArrayList<VTMACAddress>(VTMACAddressFactory.getAllLocalEthernetAddresses());
+        addrs.add(VTMACAddressFactory.getLocalEthernetAddress());
+        addrs.add(VTMACAddressFactory.getFallbackAddress());
+        addrs.add(VTMACAddressFactory.createFallbackAddress(null, "app01.example.com"));
+
+        for (final VTMACAddress addr : addrs) {
+            assertEquals(factory.parse(factory.format(addr)), addr);
+        }
+
+        final VTMACAddress fallback = VTMACAddressFactory.createFallbackAddress(null, "app01.example.com");
+        assertEquals(VTMACAddressFactory.createFallbackAddress(factory.format(fallback), "other.example.com"),
+            fallback);
+    }
+
 }
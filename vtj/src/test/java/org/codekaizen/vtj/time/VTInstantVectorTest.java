@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.time;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link VTInstantVector}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class VTInstantVectorTest {
+
+    /**
+     * Creates a new VTInstantVectorTest object.
+     */
+    public VTInstantVectorTest() {
+        super();
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldStoreNormalizedFields() {
+        final VTInstantVector vector = new VTInstantVector.Builder(0).add(new VTInstant(1262304000L, 123456789)).add(
+                10L, -1).add(new VTInstant(-86400001L)).build();
+        assertEquals(vector.size(), 3);
+        assertEquals(vector.getEpochSeconds(1), 9L);
+        assertEquals(vector.getNanoOfSecond(1), 999999999);
+        assertEquals(vector.get(1), new VTInstant(10L, -1));
+        assertEquals(vector.get(2), new VTInstant(-86400001L));
+        assertEquals(vector.toEpochSecondsArray()[0], 1262304000L);
+        assertEquals(vector.toNanoOfSecondArray()[0], 123456789);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNanosOutOfRange() {
+        new VTInstantVector.Builder().add(0L, 1000000000);
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test
+    public void shouldSortInSameOrderAsInstants() {
+        final Random random = new Random(42L);
+        final List<VTInstant> instants = new ArrayList<VTInstant>();
+        final VTInstantVector.Builder builder = new VTInstantVector.Builder();
+
+        for (int i = 0; i < 1000; i++) {
+            final VTInstant instant = new VTInstant(random.nextInt(50) - 25L, random.nextInt(1000000000));
+            instants.add(instant);
+            builder.add(instant);
+        }
+
+        final VTInstantVector vector = builder.build();
+        Collections.sort(instants);
+        assertEquals(vector.sorted().asList(), instants);
+        assertEquals(vector.min(), instants.get(0));
+        assertEquals(vector.max(), instants.get(instants.size() - 1));
+        assertEquals(vector.slice(10, 20).sorted().size(), 10);
+        assertEquals(vector.slice(10, 20).sorted().get(0), Collections.min(vector.slice(10, 20).asList()));
+        assertEquals(vector.slice(5, 6).get(0), vector.get(5));
+    }
+
+}
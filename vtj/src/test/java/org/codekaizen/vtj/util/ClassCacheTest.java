@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2009 Kevin Brockhoff
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.codekaizen.vtj.util;
+
+import static org.testng.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+
+/**
+ * <p>Unit tests for {@link ClassCache}.</p>
+ *
+ * @author  <a href="mailto:kbrockhoff@codekaizen.org">Kevin Brockhoff</a>
+ */
+public class ClassCacheTest {
+
+    /**
+     * Creates a new ClassCacheTest object.
+     */
+    public ClassCacheTest() {
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Test(groups = { "utilities" })
+    public void shouldComputeEachValueOnce() {
+        final NameCache cache = new NameCache();
+        final String value = cache.get(String.class);
+        assertEquals(value, "java.lang.String");
+        assertSame(cache.get(String.class), value);
+        assertNull(cache.get(Object.class));
+        assertNull(cache.get(Object.class));
+        assertEquals(cache.computations.get(), 2);
+
+        cache.remove(String.class);
+        assertEquals(cache.get(String.class), "java.lang.String");
+        assertEquals(cache.computations.get(), 3);
+
+        cache.clear();
+        assertNull(cache.get(Object.class));
+        assertEquals(cache.computations.get(), 4);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    @Test(groups = { "utilities" })
+    public void shouldNotKeepClassLoadersReachable() throws Exception {
+        final NameCache cache = new NameCache();
+        final URL classes = Unloadable.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[] { classes }, null);
+        Class<?> type = loader.loadClass(Unloadable.class.getName());
+        assertNotSame(type, Unloadable.class);
+        assertEquals(cache.get(type), Unloadable.class.getName());
+
+        final WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        type = null;
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+
+        assertNull(ref.get());
+    }
+
+    /**
+     * Caches the names of all classes except <code>Object</code>.
+     */
+    private static final class NameCache extends ClassCache<String> {
+
+        private final AtomicInteger computations = new AtomicInteger();
+
+        @Override
+        protected String computeValue(final Class<?> type) {
+            computations.incrementAndGet();
+
+            return Object.class.equals(type) ? null : type.getName();
+        }
+
+    }
+
+    /**
+     * Loaded again by a throwaway class loader.
+     */
+    public static final class Unloadable {
+
+    }
+
+}
@@ -21,9 +21,11 @@
  */
 package org.codekaizen.vtj.util;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.io.IOException;
 import org.codekaizen.vtj.text.VTString;
 import org.testng.annotations.Test;
 
@@ -83,4 +85,22 @@ public class StringUtilsTest {
         assertTrue(StringUtils.isNotBlank("1aA\u00DE"));
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Test(groups = { "utilities" })
+    public void shouldAppendSameDigitsAsLongToString() throws IOException {
+        final long[] values = { 0L, 7L, -7L, 10L, 1234567890L, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for (final long value : values) {
+            assertEquals(StringUtils.appendToString(value, new StringBuilder()).toString(), Long.toString(value));
+        }
+
+        assertEquals(StringUtils.appendToString(42L, 5, new StringBuilder()).toString(), "00042");
+        assertEquals(StringUtils.appendToString(-42L, 3, new StringBuilder()).toString(), "-042");
+        assertEquals(StringUtils.appendToString(123456L, 3, new StringBuilder()).toString(), "123456");
+    }
+
 }